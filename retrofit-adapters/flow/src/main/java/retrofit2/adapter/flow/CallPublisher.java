@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.flow;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * A publisher of at most one item: the body or the response of a call. The call is enqueued when a
+ * subscriber first requests an item, so the item is never delivered without demand.
+ */
+final class CallPublisher<R> implements Flow.Publisher<Object> {
+  static final class Adapter<R> implements CallAdapter<R, Flow.Publisher<Object>> {
+    private final Type responseType;
+    private final boolean isBody;
+
+    Adapter(Type responseType, boolean isBody) {
+      this.responseType = responseType;
+      this.isBody = isBody;
+    }
+
+    @Override
+    public Type responseType() {
+      return responseType;
+    }
+
+    @Override
+    public Flow.Publisher<Object> adapt(Call<R> call) {
+      return new CallPublisher<>(call, isBody);
+    }
+  }
+
+  private final Call<R> originalCall;
+  private final boolean isBody;
+
+  CallPublisher(Call<R> originalCall, boolean isBody) {
+    this.originalCall = originalCall;
+    this.isBody = isBody;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+    // Since Call is a one-shot type, clone it for each new subscriber.
+    subscriber.onSubscribe(new CallSubscription<>(originalCall.clone(), isBody, subscriber));
+  }
+
+  private static final class CallSubscription<R> implements Flow.Subscription, Callback<R> {
+    private final Call<R> call;
+    private final boolean isBody;
+    private final Flow.Subscriber<? super Object> subscriber;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    CallSubscription(Call<R> call, boolean isBody, Flow.Subscriber<? super Object> subscriber) {
+      this.call = call;
+      this.isBody = isBody;
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        if (terminated.compareAndSet(false, true)) {
+          call.cancel();
+          subscriber.onError(new IllegalArgumentException("n <= 0: " + n));
+        }
+        return;
+      }
+      if (started.compareAndSet(false, true)) {
+        call.enqueue(this);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      terminated.set(true);
+      call.cancel();
+    }
+
+    @Override
+    public void onResponse(Call<R> call, Response<R> response) {
+      if (!terminated.compareAndSet(false, true)) return;
+
+      if (!isBody) {
+        subscriber.onNext(response);
+        subscriber.onComplete();
+      } else if (response.isSuccessful()) {
+        R body = response.body();
+        if (body != null) {
+          subscriber.onNext(body);
+        }
+        subscriber.onComplete();
+      } else {
+        subscriber.onError(new HttpException(response));
+      }
+    }
+
+    @Override
+    public void onFailure(Call<R> call, Throwable t) {
+      if (terminated.compareAndSet(false, true)) {
+        subscriber.onError(t);
+      }
+    }
+  }
+}
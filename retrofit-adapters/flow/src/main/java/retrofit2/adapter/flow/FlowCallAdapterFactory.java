@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.flow;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.ByteString;
+import retrofit2.CallAdapter;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.Streaming;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which creates Java 9 {@link Flow.Publisher}
+ * instances.
+ *
+ * <p>Adding this class to {@link Retrofit} allows you to return a {@code Flow.Publisher} from
+ * service methods.
+ *
+ * <pre><code>
+ * interface MyService {
+ *   &#64;GET("user/me")
+ *   Flow.Publisher&lt;User&gt; getUser()
+ * }
+ * </code></pre>
+ *
+ * There are two configurations supported for the {@code Flow.Publisher} type parameter:
+ *
+ * <ul>
+ *   <li>Direct body (e.g., {@code Flow.Publisher<User>}) calls {@code onNext} with the deserialized
+ *       body for 2XX responses and calls {@code onError} with {@link HttpException} for non-2XX
+ *       responses and {@link java.io.IOException} for network errors. A 2XX response without a body
+ *       only calls {@code onComplete}.
+ *   <li>Response wrapped body (e.g., {@code Flow.Publisher<Response<User>>}) calls {@code onNext}
+ *       with a {@link Response} object for all HTTP responses and calls {@code onError} with {@link
+ *       java.io.IOException} for network errors.
+ * </ul>
+ *
+ * Each subscriber enqueues its own call once it first requests an item. Canceling the subscription
+ * cancels that call.
+ *
+ * <p>A {@link Streaming @Streaming} method may also return {@code Flow.Publisher<ByteString>} or
+ * {@code Flow.Publisher<Buffer>} to receive the raw response body in chunks of at most 8 KiB.
+ * Chunks are only read from the network as they are requested. Since reading blocks, it happens on
+ * the executor supplied to {@link #create(Executor)}.
+ */
+public final class FlowCallAdapterFactory extends CallAdapter.Factory {
+  /**
+   * Returns an instance which reads {@link Streaming @Streaming} bodies on a shared pool of daemon
+   * threads.
+   */
+  public static FlowCallAdapterFactory create() {
+    return new FlowCallAdapterFactory(null);
+  }
+
+  /** Returns an instance which reads {@link Streaming @Streaming} bodies on {@code executor}. */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static FlowCallAdapterFactory create(Executor executor) {
+    if (executor == null) throw new NullPointerException("executor == null");
+    return new FlowCallAdapterFactory(executor);
+  }
+
+  private final @Nullable Executor executor;
+
+  private FlowCallAdapterFactory(@Nullable Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    if (getRawType(returnType) != Flow.Publisher.class) {
+      return null;
+    }
+    if (!(returnType instanceof ParameterizedType)) {
+      throw new IllegalStateException(
+          "Flow.Publisher return type must be parameterized"
+              + " as Flow.Publisher<Foo> or Flow.Publisher<? extends Foo>");
+    }
+
+    Type publisherType = getParameterUpperBound(0, (ParameterizedType) returnType);
+    Class<?> rawPublisherType = getRawType(publisherType);
+    if ((rawPublisherType == ByteString.class || rawPublisherType == Buffer.class)
+        && isStreaming(annotations)) {
+      Executor executor = this.executor != null ? this.executor : DefaultExecutor.INSTANCE;
+      return new StreamingBodyCallAdapter(executor, rawPublisherType == Buffer.class);
+    }
+
+    if (rawPublisherType != Response.class) {
+      return new CallPublisher.Adapter<>(publisherType, true);
+    }
+    if (!(publisherType instanceof ParameterizedType)) {
+      throw new IllegalStateException(
+          "Response must be parameterized as Response<Foo> or Response<? extends Foo>");
+    }
+    Type responseType = getParameterUpperBound(0, (ParameterizedType) publisherType);
+    return new CallPublisher.Adapter<>(responseType, false);
+  }
+
+  private static boolean isStreaming(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Streaming) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Lazily created so factories with their own executor never start these threads. */
+  private static final class DefaultExecutor {
+    static final ExecutorService INSTANCE =
+        Executors.newCachedThreadPool(
+            runnable -> {
+              Thread thread = new Thread(runnable, "Retrofit Flow Reader");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+}
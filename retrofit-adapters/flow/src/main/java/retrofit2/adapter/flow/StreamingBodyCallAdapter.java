@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.flow;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Adapts {@link retrofit2.http.Streaming @Streaming} calls to a {@code Flow.Publisher<ByteString>}
+ * or {@code Flow.Publisher<Buffer>} of the raw response body. Each chunk is only read from the
+ * network once it has been requested, so a slow subscriber stops the socket from being drained
+ * instead of buffering the body in memory.
+ */
+final class StreamingBodyCallAdapter implements CallAdapter<ResponseBody, Flow.Publisher<Object>> {
+  /** Chunks are one okio segment. The last chunk of a body may be smaller. */
+  static final long CHUNK_SIZE = 8192L;
+
+  private final Executor executor;
+  private final boolean isBuffer;
+
+  StreamingBodyCallAdapter(Executor executor, boolean isBuffer) {
+    this.executor = executor;
+    this.isBuffer = isBuffer;
+  }
+
+  @Override
+  public Type responseType() {
+    return ResponseBody.class;
+  }
+
+  @Override
+  public Flow.Publisher<Object> adapt(Call<ResponseBody> originalCall) {
+    // Since Call is a one-shot type, clone it for each new subscriber.
+    return subscriber ->
+        subscriber.onSubscribe(new BodySubscription(originalCall.clone(), subscriber));
+  }
+
+  /**
+   * Reads chunks on the executor while there is demand. All signals to the subscriber are sent from
+   * {@link #drain()}, which never runs concurrently with itself.
+   */
+  final class BodySubscription implements Flow.Subscription, Callback<ResponseBody>, Runnable {
+    private final Call<ResponseBody> call;
+    private final Flow.Subscriber<? super Object> subscriber;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean canceled;
+    private volatile @Nullable ResponseBody body;
+    private volatile @Nullable Throwable error;
+    /** Only accessed by {@link #drain()}. */
+    private boolean done;
+
+    BodySubscription(Call<ResponseBody> call, Flow.Subscriber<? super Object> subscriber) {
+      this.call = call;
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        error = new IllegalArgumentException("n <= 0: " + n);
+        call.cancel();
+        schedule();
+        return;
+      }
+      long current;
+      do {
+        current = requested.get();
+      } while (!requested.compareAndSet(current, addCap(current, n)));
+
+      if (started.compareAndSet(false, true)) {
+        call.enqueue(this);
+      } else {
+        schedule();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      canceled = true;
+      call.cancel(); // Unblocks a read in progress.
+      schedule();
+    }
+
+    @Override
+    public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+      if (response.isSuccessful()) {
+        ResponseBody body = response.body();
+        // A 204 or 205 has no body. Complete without emitting anything.
+        if (body == null) {
+          body = ResponseBody.create(null, ByteString.EMPTY);
+        }
+        this.body = body;
+        // Checked after publishing the body, so that either this or finish() closes it when the
+        // subscription is canceled while the response arrives.
+        if (canceled) {
+          body.close();
+          return;
+        }
+      } else {
+        error = new HttpException(response);
+      }
+      schedule();
+    }
+
+    @Override
+    public void onFailure(Call<ResponseBody> call, Throwable t) {
+      error = t;
+      schedule();
+    }
+
+    private void schedule() {
+      if (wip.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      drain();
+    }
+
+    private void drain() {
+      int missed = 1;
+      while (!done) {
+        if (canceled) {
+          finish();
+          return;
+        }
+        Throwable error = this.error;
+        if (error != null) {
+          finish();
+          subscriber.onError(error);
+          return;
+        }
+
+        ResponseBody body = this.body;
+        if (body != null) {
+          BufferedSource source = body.source();
+          long emitted = 0L;
+          long requested = this.requested.get();
+          while (emitted != requested && !canceled) {
+            Buffer chunk;
+            try {
+              chunk = readChunk(source);
+            } catch (IOException e) {
+              finish();
+              // A failure caused by canceling is not reported. Nobody is listening anymore.
+              if (!canceled) {
+                subscriber.onError(e);
+              }
+              return;
+            }
+            if (chunk == null) {
+              finish();
+              subscriber.onComplete();
+              return;
+            }
+            subscriber.onNext(isBuffer ? chunk : chunk.readByteString());
+            emitted++;
+          }
+          if (emitted != 0L && requested != Long.MAX_VALUE) {
+            this.requested.addAndGet(-emitted);
+          }
+        }
+
+        missed = wip.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    /** Returns the next chunk of the body, or null if it has been exhausted. */
+    private @Nullable Buffer readChunk(BufferedSource source) throws IOException {
+      if (!source.request(1)) {
+        return null;
+      }
+      source.request(CHUNK_SIZE); // Wait for a full chunk unless the body ends first.
+      Buffer chunk = new Buffer();
+      source.read(chunk, CHUNK_SIZE);
+      return chunk;
+    }
+
+    private void finish() {
+      done = true;
+      call.cancel(); // Releases the connection if the body was abandoned part way.
+      ResponseBody body = this.body;
+      if (body != null) {
+        body.close();
+      }
+    }
+  }
+
+  static long addCap(long a, long b) {
+    long sum = a + b;
+    return sum < 0L ? Long.MAX_VALUE : sum;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.flow;
+
+import static okhttp3.mockwebserver.SocketPolicy.DISCONNECT_AFTER_REQUEST;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Flow;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+public final class FlowPublisherTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/")
+    Flow.Publisher<String> body();
+
+    @GET("/")
+    Flow.Publisher<Response<String>> response();
+  }
+
+  private final OkHttpClient client = new OkHttpClient();
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new StringConverterFactory())
+            .addCallAdapterFactory(FlowCallAdapterFactory.create())
+            .callFactory(client)
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void bodySuccess200() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    service.body().subscribe(subscriber);
+    subscriber.request(1);
+    assertThat(subscriber.takeValue()).isEqualTo("Hi");
+    subscriber.assertComplete();
+  }
+
+  @Test
+  public void bodySuccess404() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(404));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    service.body().subscribe(subscriber);
+    subscriber.request(1);
+    assertThat(subscriber.takeError())
+        .isInstanceOf(HttpException.class)
+        .hasMessage("HTTP 404 Client Error");
+  }
+
+  @Test
+  public void bodyFailure() throws InterruptedException {
+    server.enqueue(new MockResponse().setSocketPolicy(DISCONNECT_AFTER_REQUEST));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    service.body().subscribe(subscriber);
+    subscriber.request(1);
+    assertThat(subscriber.takeError()).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void bodyNoContentOnlyCompletes() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    service.body().subscribe(subscriber);
+    subscriber.request(1);
+    subscriber.assertComplete();
+  }
+
+  @Test
+  public void responseSuccess404() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Nope"));
+
+    RecordingSubscriber<Response<String>> subscriber = new RecordingSubscriber<>();
+    service.response().subscribe(subscriber);
+    subscriber.request(1);
+    assertThat(subscriber.takeValue().code()).isEqualTo(404);
+    subscriber.assertComplete();
+  }
+
+  @Test
+  public void callIsNotEnqueuedWithoutDemand() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    service.body().subscribe(subscriber);
+    subscriber.assertNoEvents();
+    assertThat(server.getRequestCount()).isEqualTo(0);
+
+    subscriber.request(1);
+    assertThat(subscriber.takeValue()).isEqualTo("Hi");
+  }
+
+  @Test
+  public void cancelCancelsCall() throws InterruptedException {
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    service.body().subscribe(subscriber);
+    subscriber.request(1);
+    List<okhttp3.Call> calls = client.dispatcher().runningCalls();
+    assertThat(calls).hasSize(1);
+
+    subscriber.cancel();
+    assertThat(calls.get(0).isCanceled()).isTrue();
+    subscriber.assertNoEvents();
+  }
+
+  @Test
+  public void nonPositiveRequestFails() throws InterruptedException {
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    service.body().subscribe(subscriber);
+    subscriber.request(0);
+    assertThat(subscriber.takeError())
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("n <= 0: 0");
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.flow;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.ByteString;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+public final class FlowStreamingTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Streaming
+    @GET("/")
+    Flow.Publisher<ByteString> byteStrings();
+
+    @Streaming
+    @GET("/")
+    Flow.Publisher<Buffer> buffers();
+  }
+
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addCallAdapterFactory(FlowCallAdapterFactory.create())
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void bodyIsChunked() throws InterruptedException {
+    Buffer body = new Buffer();
+    for (int i = 0; i < 20_000; i++) {
+      body.writeByte('a' + i % 26);
+    }
+    ByteString expected = body.snapshot();
+    server.enqueue(new MockResponse().setBody(body));
+
+    RecordingSubscriber<ByteString> subscriber = new RecordingSubscriber<>();
+    service.byteStrings().subscribe(subscriber);
+    subscriber.request(Long.MAX_VALUE);
+    Buffer received = new Buffer();
+    received.write(subscriber.takeValue());
+    received.write(subscriber.takeValue());
+    received.write(subscriber.takeValue());
+    subscriber.assertComplete();
+    assertThat(received.readByteString()).isEqualTo(expected);
+  }
+
+  @Test
+  public void chunksAreReadOnDemand() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[32768])));
+
+    RecordingSubscriber<Buffer> subscriber = new RecordingSubscriber<>();
+    service.buffers().subscribe(subscriber);
+    subscriber.request(1);
+    assertThat(subscriber.takeValue().size()).isEqualTo(8192L);
+    subscriber.assertNoEvents();
+
+    subscriber.request(2);
+    assertThat(subscriber.takeValue().size()).isEqualTo(8192L);
+    assertThat(subscriber.takeValue().size()).isEqualTo(8192L);
+    subscriber.assertNoEvents();
+  }
+
+  @Test
+  public void cancelStopsReading() throws InterruptedException {
+    server.enqueue(
+        new MockResponse()
+            .setBody(new Buffer().write(new byte[32768]))
+            .throttleBody(8192, 1, SECONDS)); // The second chunk is slow to arrive.
+
+    RecordingSubscriber<Buffer> subscriber = new RecordingSubscriber<>();
+    service.buffers().subscribe(subscriber);
+    subscriber.request(1);
+    subscriber.takeValue();
+    subscriber.request(1); // Blocks reading the second chunk.
+    subscriber.cancel();
+    subscriber.assertNoEvents();
+  }
+
+  @Test
+  public void bodyArrivingAfterCancelIsClosed() throws InterruptedException {
+    // OkHttp itself drops responses of canceled calls, but other calls may still deliver them.
+    LateCall call = new LateCall();
+    StreamingBodyCallAdapter adapter = new StreamingBodyCallAdapter(Runnable::run, true);
+
+    RecordingSubscriber<Object> subscriber = new RecordingSubscriber<>();
+    adapter.adapt(call).subscribe(subscriber);
+    subscriber.request(1);
+    subscriber.cancel();
+
+    AtomicBoolean closed = new AtomicBoolean();
+    Source source =
+        new ForwardingSource(new Buffer().writeUtf8("Hi")) {
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+        };
+    ResponseBody body = ResponseBody.create(null, 2L, Okio.buffer(source));
+    call.callback.onResponse(call, Response.success(body));
+    assertThat(closed.get()).isTrue();
+    subscriber.assertNoEvents();
+  }
+
+  @Test
+  public void noContentCompletesEmpty() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    RecordingSubscriber<Buffer> subscriber = new RecordingSubscriber<>();
+    service.buffers().subscribe(subscriber);
+    subscriber.request(1);
+    subscriber.assertComplete();
+  }
+
+  @Test
+  public void errorResponse() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    RecordingSubscriber<Buffer> subscriber = new RecordingSubscriber<>();
+    service.buffers().subscribe(subscriber);
+    subscriber.request(1);
+    assertThat(subscriber.takeError()).isInstanceOf(HttpException.class);
+  }
+
+  /** A call which answers whenever the test delivers a response to its callback. */
+  static final class LateCall implements Call<ResponseBody> {
+    Callback<ResponseBody> callback;
+
+    @Override
+    public Response<ResponseBody> execute() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response<ResponseBody> execute(@Nullable CacheControl cacheControl) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void enqueue(Callback<ResponseBody> callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public void enqueue(Callback<ResponseBody> callback, @Nullable CacheControl cacheControl) {
+      this.callback = callback;
+    }
+
+    @Override
+    public boolean isExecuted() {
+      return callback != null;
+    }
+
+    @Override
+    public void cancel() {}
+
+    @Override
+    public boolean isCanceled() {
+      return false;
+    }
+
+    @Override
+    public LateCall clone() {
+      return this;
+    }
+
+    @Override
+    public Request request() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Timeout timeout() {
+      return Timeout.NONE;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.flow;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.Nullable;
+
+/** A subscriber which records its signals for assertions. */
+final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+  private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+  private final CountDownLatch subscribed = new CountDownLatch(1);
+  private volatile @Nullable Flow.Subscription subscription;
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    subscribed.countDown();
+  }
+
+  @Override
+  public void onNext(T item) {
+    events.add(item);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    events.add(new Error(throwable));
+  }
+
+  @Override
+  public void onComplete() {
+    events.add(Complete.INSTANCE);
+  }
+
+  void request(long n) throws InterruptedException {
+    assertThat(subscribed.await(5, SECONDS)).isTrue();
+    subscription.request(n);
+  }
+
+  void cancel() throws InterruptedException {
+    assertThat(subscribed.await(5, SECONDS)).isTrue();
+    subscription.cancel();
+  }
+
+  T takeValue() throws InterruptedException {
+    Object event = takeEvent();
+    assertThat(event).isNotInstanceOf(Error.class).isNotSameAs(Complete.INSTANCE);
+    @SuppressWarnings("unchecked") // Only items are neither errors nor completion.
+    T value = (T) event;
+    return value;
+  }
+
+  Throwable takeError() throws InterruptedException {
+    Object event = takeEvent();
+    assertThat(event).isInstanceOf(Error.class);
+    return ((Error) event).throwable;
+  }
+
+  void assertComplete() throws InterruptedException {
+    assertThat(takeEvent()).isSameAs(Complete.INSTANCE);
+  }
+
+  void assertNoEvents() throws InterruptedException {
+    assertThat(events.poll(100, MILLISECONDS)).isNull();
+  }
+
+  private Object takeEvent() throws InterruptedException {
+    Object event = events.poll(5, SECONDS);
+    assertThat(event).as("event").isNotNull();
+    return event;
+  }
+
+  private static final class Error {
+    final Throwable throwable;
+
+    Error(Throwable throwable) {
+      this.throwable = throwable;
+    }
+  }
+
+  private enum Complete {
+    INSTANCE
+  }
+}
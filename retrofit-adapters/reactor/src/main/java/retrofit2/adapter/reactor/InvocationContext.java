@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactor;
+
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import reactor.util.context.Context;
+import retrofit2.Call;
+import retrofit2.Invocation;
+
+/**
+ * The Reactor {@link Context} of the subscriber which triggered a call. Use this from an OkHttp
+ * interceptor to read values such as trace or tenant identifiers which were written upstream with
+ * {@code subscriberContext(..)}.
+ *
+ * <pre><code>
+ * class TraceInterceptor implements Interceptor {
+ *   &#64;Override public Response intercept(Chain chain) throws IOException {
+ *     Context context = InvocationContext.of(chain.request());
+ *     Request request = chain.request();
+ *     if (context.hasKey("traceId")) {
+ *       request = request.newBuilder().header("X-Trace-Id", context.get("traceId")).build();
+ *     }
+ *     return chain.proceed(request);
+ *   }
+ * }
+ * </code></pre>
+ *
+ * Contexts are attached as a {@linkplain Invocation#tag(Class, Object) tag} of the {@link
+ * Invocation} of the request for as long as the subscription is active.
+ */
+public final class InvocationContext {
+  /** Returns the context of the subscriber of {@code request}, or an empty context. */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static Context of(Request request) {
+    if (request == null) throw new NullPointerException("request == null");
+    Invocation invocation = request.tag(Invocation.class);
+    return invocation != null ? of(invocation) : Context.empty();
+  }
+
+  /** Returns the context of the subscriber of {@code invocation}, or an empty context. */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static Context of(Invocation invocation) {
+    if (invocation == null) throw new NullPointerException("invocation == null");
+    Context context = invocation.tag(Context.class);
+    return context != null ? context : Context.empty();
+  }
+
+  /**
+   * Associates {@code context} with the invocation of {@code call}, returning that invocation or
+   * null if there is nothing to associate.
+   */
+  static @Nullable Invocation attach(Call<?> call, Context context) {
+    if (context.isEmpty()) {
+      return null;
+    }
+    Invocation invocation;
+    try {
+      // Creating the request here is not wasted. The call reuses it when it executes.
+      invocation = call.request().tag(Invocation.class);
+    } catch (RuntimeException e) {
+      return null; // The call will report this failure when it executes.
+    }
+    if (invocation != null) {
+      invocation.tag(Context.class, context);
+    }
+    return invocation;
+  }
+
+  static void detach(Invocation invocation) {
+    invocation.tag(Context.class, null);
+  }
+
+  private InvocationContext() {
+    throw new AssertionError("No instances.");
+  }
+}
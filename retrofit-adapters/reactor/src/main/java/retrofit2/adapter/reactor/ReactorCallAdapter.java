@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactor;
+
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Invocation;
+import retrofit2.Response;
+
+final class ReactorCallAdapter<R> implements CallAdapter<R, Object> {
+  private final Type responseType;
+  private final @Nullable Scheduler scheduler;
+  private final boolean isAsync;
+  private final boolean isBody;
+  private final boolean isFlux;
+
+  ReactorCallAdapter(
+      Type responseType,
+      @Nullable Scheduler scheduler,
+      boolean isAsync,
+      boolean isBody,
+      boolean isFlux) {
+    this.responseType = responseType;
+    this.scheduler = scheduler;
+    this.isAsync = isAsync;
+    this.isBody = isBody;
+    this.isFlux = isFlux;
+  }
+
+  @Override
+  public Type responseType() {
+    return responseType;
+  }
+
+  @Override
+  public Object adapt(Call<R> originalCall) {
+    Mono<Object> mono =
+        Mono.create(
+            sink -> {
+              // Since Call is a one-shot type, clone it for each new subscriber.
+              Call<R> call = originalCall.clone();
+              Invocation invocation = InvocationContext.attach(call, sink.currentContext());
+              sink.onCancel(call::cancel);
+              if (invocation != null) {
+                sink.onDispose(() -> InvocationContext.detach(invocation));
+              }
+
+              if (isAsync) {
+                call.enqueue(
+                    new Callback<R>() {
+                      @Override
+                      public void onResponse(Call<R> call, Response<R> response) {
+                        deliver(sink, response);
+                      }
+
+                      @Override
+                      public void onFailure(Call<R> call, Throwable t) {
+                        if (!call.isCanceled()) {
+                          sink.error(t);
+                        }
+                      }
+                    });
+                return;
+              }
+
+              Response<R> response;
+              try {
+                response = call.execute();
+              } catch (Throwable t) {
+                Exceptions.throwIfJvmFatal(t);
+                if (!call.isCanceled()) {
+                  sink.error(t);
+                }
+                return;
+              }
+              deliver(sink, response);
+            });
+
+    if (scheduler != null) {
+      mono = mono.subscribeOn(scheduler);
+    }
+    return isFlux ? mono.flux() : mono;
+  }
+
+  private void deliver(MonoSink<Object> sink, Response<R> response) {
+    if (!isBody) {
+      sink.success(response);
+    } else if (response.isSuccessful()) {
+      sink.success(response.body()); // A null body completes empty.
+    } else {
+      sink.error(new HttpException(response));
+    }
+  }
+}
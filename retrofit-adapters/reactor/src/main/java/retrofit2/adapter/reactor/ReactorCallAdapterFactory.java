@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactor;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.ByteString;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
+import retrofit2.CallAdapter;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.Streaming;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which creates Project Reactor publishers.
+ *
+ * <p>Adding this class to {@link Retrofit} allows you to return a {@link Mono} or {@link Flux} from
+ * service methods.
+ *
+ * <pre><code>
+ * interface MyService {
+ *   &#64;GET("user/me")
+ *   Mono&lt;User&gt; getUser()
+ * }
+ * </code></pre>
+ *
+ * There are two configurations supported for the {@code Mono} and {@code Flux} type parameter:
+ *
+ * <ul>
+ *   <li>Direct body (e.g., {@code Mono<User>}) emits the deserialized body for 2XX responses,
+ *       completes empty for 2XX responses without a body, and signals {@link HttpException} for
+ *       non-2XX responses and {@link java.io.IOException} for network errors.
+ *   <li>Response wrapped body (e.g., {@code Mono<Response<User>>}) emits a {@link Response} object
+ *       for all HTTP responses and signals {@link java.io.IOException} for network errors.
+ * </ul>
+ *
+ * <p>Canceling a subscription cancels the underlying call. The {@link Context} of each subscriber
+ * is available to OkHttp interceptors through {@link InvocationContext}.
+ *
+ * <p>A {@link Streaming @Streaming} method may also return {@code Flux<ByteString>} or {@code
+ * Flux<Buffer>} to receive the raw response body in chunks of at most 8 KiB. Chunks are only read
+ * from the network as they are requested downstream. When created with {@link #create()} the body
+ * is read on {@link reactor.core.scheduler.Schedulers#boundedElastic()
+ * Schedulers.boundedElastic()}.
+ */
+public final class ReactorCallAdapterFactory extends CallAdapter.Factory {
+  /**
+   * Returns an instance which creates asynchronous publishers that run on a background thread by
+   * default. Applying {@code subscribeOn(..)} has no effect on instances created by the returned
+   * factory.
+   */
+  public static ReactorCallAdapterFactory create() {
+    return new ReactorCallAdapterFactory(null, true);
+  }
+
+  /**
+   * Returns an instance which creates synchronous publishers that do not operate on any scheduler
+   * by default. Applying {@code subscribeOn(..)} will change the scheduler on which the HTTP calls
+   * are made.
+   */
+  public static ReactorCallAdapterFactory createSynchronous() {
+    return new ReactorCallAdapterFactory(null, false);
+  }
+
+  /**
+   * Returns an instance which creates synchronous publishers that {@code subscribeOn(..)} the
+   * supplied {@code scheduler} by default.
+   */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static ReactorCallAdapterFactory createWithScheduler(Scheduler scheduler) {
+    if (scheduler == null) throw new NullPointerException("scheduler == null");
+    return new ReactorCallAdapterFactory(scheduler, false);
+  }
+
+  private final @Nullable Scheduler scheduler;
+  private final boolean isAsync;
+
+  private ReactorCallAdapterFactory(@Nullable Scheduler scheduler, boolean isAsync) {
+    this.scheduler = scheduler;
+    this.isAsync = isAsync;
+  }
+
+  @Override
+  public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Class<?> rawType = getRawType(returnType);
+    boolean isFlux = rawType == Flux.class;
+    if (rawType != Mono.class && !isFlux) {
+      return null;
+    }
+
+    if (!(returnType instanceof ParameterizedType)) {
+      String name = isFlux ? "Flux" : "Mono";
+      throw new IllegalStateException(
+          name
+              + " return type must be parameterized as "
+              + name
+              + "<Foo> or "
+              + name
+              + "<? extends Foo>");
+    }
+
+    Type publisherType = getParameterUpperBound(0, (ParameterizedType) returnType);
+    Class<?> rawPublisherType = getRawType(publisherType);
+    if (isFlux
+        && (rawPublisherType == ByteString.class || rawPublisherType == Buffer.class)
+        && isStreaming(annotations)) {
+      return new StreamingBodyCallAdapter(scheduler, isAsync, rawPublisherType == Buffer.class);
+    }
+
+    boolean isBody = false;
+    Type responseType;
+    if (rawPublisherType == Response.class) {
+      if (!(publisherType instanceof ParameterizedType)) {
+        throw new IllegalStateException(
+            "Response must be parameterized as Response<Foo> or Response<? extends Foo>");
+      }
+      responseType = getParameterUpperBound(0, (ParameterizedType) publisherType);
+    } else {
+      responseType = publisherType;
+      isBody = true;
+    }
+
+    return new ReactorCallAdapter<>(responseType, scheduler, isAsync, isBody, isFlux);
+  }
+
+  private static boolean isStreaming(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Streaming) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
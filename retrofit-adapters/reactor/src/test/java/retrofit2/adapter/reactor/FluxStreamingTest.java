@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import retrofit2.HttpException;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+public final class FluxStreamingTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Streaming
+    @GET("/")
+    Flux<ByteString> byteStrings();
+
+    @Streaming
+    @GET("/")
+    Flux<Buffer> buffers();
+
+    @GET("/")
+    Flux<ResponseBody> notStreaming();
+  }
+
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addCallAdapterFactory(ReactorCallAdapterFactory.createSynchronous())
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void bodyIsChunked() {
+    Buffer body = new Buffer();
+    for (int i = 0; i < 20_000; i++) {
+      body.writeByte('a' + i % 26);
+    }
+    ByteString expected = body.snapshot();
+    server.enqueue(new MockResponse().setBody(body));
+
+    Buffer received = new Buffer();
+    StepVerifier.create(service.byteStrings())
+        .thenConsumeWhile(
+            chunk -> {
+              assertThat(chunk.size()).isLessThanOrEqualTo(8192);
+              received.write(chunk);
+              return true;
+            })
+        .verifyComplete();
+    assertThat(received.readByteString()).isEqualTo(expected);
+  }
+
+  @Test
+  public void chunksAreReadOnDemand() {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[32768])));
+
+    StepVerifier.create(service.buffers(), 1)
+        .assertNext(chunk -> assertThat(chunk.size()).isEqualTo(8192L))
+        .expectNoEvent(Duration.ofMillis(100))
+        .thenRequest(1)
+        .assertNext(chunk -> assertThat(chunk.size()).isEqualTo(8192L))
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  public void noContentCompletesEmpty() {
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    StepVerifier.create(service.buffers()).verifyComplete();
+  }
+
+  @Test
+  public void errorResponse() {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    StepVerifier.create(service.buffers()).expectError(HttpException.class).verify();
+  }
+
+  @Test
+  public void nonStreamingMethodEmitsWholeBody() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    ResponseBody body = service.notStreaming().blockFirst();
+    assertThat(body.string()).isEqualTo("Hi");
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactor;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+import retrofit2.Invocation;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+public final class InvocationContextTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/")
+    Mono<String> body();
+
+    @Streaming
+    @GET("/")
+    Flux<Buffer> stream();
+  }
+
+  private final CompletableFuture<Context> seen = new CompletableFuture<>();
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Interceptor interceptor =
+        chain -> {
+          seen.complete(InvocationContext.of(chain.request()));
+          return chain.proceed(chain.request());
+        };
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new StringConverterFactory())
+            .addCallAdapterFactory(ReactorCallAdapterFactory.create())
+            .client(new OkHttpClient.Builder().addInterceptor(interceptor).build())
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void subscriberContextIsVisibleToInterceptors() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Mono<String> mono = service.body().subscriberContext(Context.of("traceId", "abc"));
+    StepVerifier.create(mono).expectNext("Hi").verifyComplete();
+
+    assertThat(seen.get(5, SECONDS).<String>get("traceId")).isEqualTo("abc");
+  }
+
+  @Test
+  public void streamingSubscriberContextIsVisibleToInterceptors() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Flux<Buffer> flux = service.stream().subscriberContext(Context.of("traceId", "abc"));
+    StepVerifier.create(flux).expectNextCount(1).verifyComplete();
+
+    assertThat(seen.get(5, SECONDS).<String>get("traceId")).isEqualTo("abc");
+  }
+
+  @Test
+  public void noSubscriberContext() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    StepVerifier.create(service.body()).expectNext("Hi").verifyComplete();
+
+    assertThat(seen.get(5, SECONDS).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void contextIsReleasedAfterCompletion() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    CompletableFuture<Invocation> invocation = new CompletableFuture<>();
+    Interceptor capture =
+        chain -> {
+          invocation.complete(chain.request().tag(Invocation.class));
+          return chain.proceed(chain.request());
+        };
+    Service service =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new StringConverterFactory())
+            .addCallAdapterFactory(ReactorCallAdapterFactory.createSynchronous())
+            .client(new OkHttpClient.Builder().addInterceptor(capture).build())
+            .build()
+            .create(Service.class);
+
+    service.body().subscriberContext(Context.of("traceId", "abc")).block();
+
+    assertThat(InvocationContext.of(invocation.join()).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void requestWithoutInvocation() {
+    Request request = new Request.Builder().url(server.url("/")).build();
+    assertThat(InvocationContext.of(request).isEmpty()).isTrue();
+  }
+}
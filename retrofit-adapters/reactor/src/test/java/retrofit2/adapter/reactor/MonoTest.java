@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactor;
+
+import static okhttp3.mockwebserver.SocketPolicy.DISCONNECT_AFTER_REQUEST;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+public final class MonoTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/")
+    Mono<String> body();
+
+    @GET("/")
+    Mono<Response<String>> response();
+
+    @GET("/")
+    Flux<String> flux();
+  }
+
+  private final OkHttpClient client = new OkHttpClient();
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new StringConverterFactory())
+            .addCallAdapterFactory(ReactorCallAdapterFactory.createSynchronous())
+            .callFactory(client)
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void bodySuccess200() {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    StepVerifier.create(service.body()).expectNext("Hi").verifyComplete();
+  }
+
+  @Test
+  public void bodySuccess404() {
+    server.enqueue(new MockResponse().setResponseCode(404));
+
+    StepVerifier.create(service.body())
+        .expectErrorSatisfies(
+            e ->
+                assertThat(e).isInstanceOf(HttpException.class).hasMessage("HTTP 404 Client Error"))
+        .verify();
+  }
+
+  @Test
+  public void bodyFailure() {
+    server.enqueue(new MockResponse().setSocketPolicy(DISCONNECT_AFTER_REQUEST));
+
+    StepVerifier.create(service.body()).expectError(IOException.class).verify();
+  }
+
+  @Test
+  public void bodyNoContentCompletesEmpty() {
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    // The string converter is not consulted for a 204 so the body is null.
+    StepVerifier.create(service.body()).verifyComplete();
+  }
+
+  @Test
+  public void responseSuccess404() {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Nope"));
+
+    StepVerifier.create(service.response())
+        .assertNext(response -> assertThat(response.code()).isEqualTo(404))
+        .verifyComplete();
+  }
+
+  @Test
+  public void fluxEmitsBody() {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    StepVerifier.create(service.flux()).expectNext("Hi").verifyComplete();
+  }
+
+  @Test
+  public void subscribingTwiceMakesTwoRequests() {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hey"));
+
+    Mono<String> mono = service.body();
+    StepVerifier.create(mono).expectNext("Hi").verifyComplete();
+    StepVerifier.create(mono).expectNext("Hey").verifyComplete();
+  }
+
+  @Test
+  public void cancelCancelsCall() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new StringConverterFactory())
+            .addCallAdapterFactory(ReactorCallAdapterFactory.create())
+            .callFactory(client)
+            .build();
+    Service service = retrofit.create(Service.class);
+
+    Disposable disposable = service.body().subscribe();
+    List<okhttp3.Call> calls = client.dispatcher().runningCalls();
+    assertThat(calls).hasSize(1);
+    disposable.dispose();
+    assertThat(calls.get(0).isCanceled()).isTrue();
+  }
+}
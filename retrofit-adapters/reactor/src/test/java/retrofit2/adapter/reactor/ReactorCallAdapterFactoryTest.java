@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.reflect.TypeToken;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import retrofit2.CallAdapter;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+public final class ReactorCallAdapterFactoryTest {
+  private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+  @Rule public final MockWebServer server = new MockWebServer();
+  private final CallAdapter.Factory factory = ReactorCallAdapterFactory.create();
+  private Retrofit retrofit;
+
+  @Before
+  public void setUp() {
+    retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new StringConverterFactory())
+            .addCallAdapterFactory(factory)
+            .build();
+  }
+
+  @Test
+  public void nonReactorTypeReturnsNull() {
+    assertThat(factory.get(String.class, NO_ANNOTATIONS, retrofit)).isNull();
+  }
+
+  @Test
+  public void responseTypes() {
+    Type monoBody = new TypeToken<Mono<String>>() {}.getType();
+    assertThat(factory.get(monoBody, NO_ANNOTATIONS, retrofit).responseType())
+        .isEqualTo(String.class);
+    Type fluxBody = new TypeToken<Flux<String>>() {}.getType();
+    assertThat(factory.get(fluxBody, NO_ANNOTATIONS, retrofit).responseType())
+        .isEqualTo(String.class);
+    Type monoResponse = new TypeToken<Mono<Response<String>>>() {}.getType();
+    assertThat(factory.get(monoResponse, NO_ANNOTATIONS, retrofit).responseType())
+        .isEqualTo(String.class);
+  }
+
+  @Test
+  public void rawTypeThrows() {
+    try {
+      factory.get(Mono.class, NO_ANNOTATIONS, retrofit);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e)
+          .hasMessage("Mono return type must be parameterized as Mono<Foo> or Mono<? extends Foo>");
+    }
+  }
+
+  @Test
+  public void rawResponseTypeThrows() {
+    Type type = new TypeToken<Flux<Response>>() {}.getType();
+    try {
+      factory.get(type, NO_ANNOTATIONS, retrofit);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e)
+          .hasMessage("Response must be parameterized as Response<Foo> or Response<? extends Foo>");
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.rxjava2;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableObserver;
+import retrofit2.Call;
+
+/** A {@link Completable} which binds each observer directly to a clone of a call. */
+final class CallCompletable<R> extends Completable {
+  private final Call<R> originalCall;
+  private final boolean isAsync;
+  private final boolean isResult;
+  private final boolean isBody;
+
+  CallCompletable(Call<R> originalCall, boolean isAsync, boolean isResult, boolean isBody) {
+    this.originalCall = originalCall;
+    this.isAsync = isAsync;
+    this.isResult = isResult;
+    this.isBody = isBody;
+  }
+
+  @Override
+  protected void subscribeActual(CompletableObserver observer) {
+    // Since Call is a one-shot type, clone it for each new observer.
+    Subscription<R> subscription =
+        new Subscription<>(originalCall.clone(), isResult, isBody, observer);
+    observer.onSubscribe(subscription);
+    subscription.start(isAsync);
+  }
+
+  private static final class Subscription<R> extends CallSubscription<R> {
+    private final CompletableObserver observer;
+
+    Subscription(Call<R> call, boolean isResult, boolean isBody, CompletableObserver observer) {
+      super(call, isResult, isBody);
+      this.observer = observer;
+    }
+
+    @Override
+    void emitValue(Object value) {
+      observer.onComplete();
+    }
+
+    @Override
+    void emitEmpty() {
+      observer.onComplete();
+    }
+
+    @Override
+    void emitError(Throwable t) {
+      observer.onError(t);
+    }
+  }
+}
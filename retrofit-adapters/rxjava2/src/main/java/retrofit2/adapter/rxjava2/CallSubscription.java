@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.rxjava2;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.CompositeException;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Binds one observer of a {@link CallSingle}, {@link CallMaybe} or {@link CallCompletable} to a
+ * call. It is both the disposable handed downstream and the callback of the call, so a subscription
+ * allocates nothing beyond it and the cloned call.
+ */
+abstract class CallSubscription<R> implements Disposable, Callback<R> {
+  private final Call<R> call;
+  private final boolean isResult;
+  private final boolean isBody;
+  private volatile boolean disposed;
+
+  CallSubscription(Call<R> call, boolean isResult, boolean isBody) {
+    this.call = call;
+    this.isResult = isResult;
+    this.isBody = isBody;
+  }
+
+  /** Called with a response, a body or a result depending on the configuration. */
+  abstract void emitValue(Object value);
+
+  /** Called for a successful response without a body. */
+  abstract void emitEmpty();
+
+  abstract void emitError(Throwable t);
+
+  final void start(boolean isAsync) {
+    if (disposed) return;
+    if (isAsync) {
+      call.enqueue(this);
+      return;
+    }
+
+    Response<R> response;
+    try {
+      response = call.execute();
+    } catch (Throwable t) {
+      Exceptions.throwIfFatal(t);
+      onFailure(call, t);
+      return;
+    }
+    onResponse(call, response);
+  }
+
+  @Override
+  public final void onResponse(Call<R> call, Response<R> response) {
+    if (disposed) return;
+
+    if (isResult) {
+      deliverValue(Result.response(response));
+    } else if (!isBody) {
+      deliverValue(response);
+    } else if (response.isSuccessful()) {
+      R body = response.body();
+      if (body != null) {
+        deliverValue(body);
+      } else {
+        deliverEmpty();
+      }
+    } else {
+      deliverError(new HttpException(response));
+    }
+  }
+
+  @Override
+  public final void onFailure(Call<R> call, Throwable t) {
+    if (disposed || call.isCanceled()) return;
+
+    if (isResult) {
+      deliverValue(Result.error(t));
+    } else {
+      deliverError(t);
+    }
+  }
+
+  private void deliverValue(Object value) {
+    try {
+      emitValue(value);
+    } catch (Throwable t) {
+      Exceptions.throwIfFatal(t);
+      RxJavaPlugins.onError(t);
+    }
+  }
+
+  private void deliverEmpty() {
+    try {
+      emitEmpty();
+    } catch (Throwable t) {
+      Exceptions.throwIfFatal(t);
+      RxJavaPlugins.onError(t);
+    }
+  }
+
+  private void deliverError(Throwable t) {
+    try {
+      emitError(t);
+    } catch (Throwable inner) {
+      Exceptions.throwIfFatal(inner);
+      RxJavaPlugins.onError(new CompositeException(t, inner));
+    }
+  }
+
+  @Override
+  public final void dispose() {
+    disposed = true;
+    call.cancel();
+  }
+
+  @Override
+  public final boolean isDisposed() {
+    return disposed;
+  }
+}
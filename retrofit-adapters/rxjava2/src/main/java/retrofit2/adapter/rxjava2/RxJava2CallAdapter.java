@@ -16,8 +16,11 @@
 package retrofit2.adapter.rxjava2;
 
 import io.reactivex.BackpressureStrategy;
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Scheduler;
+import io.reactivex.Single;
 import io.reactivex.plugins.RxJavaPlugins;
 import java.lang.reflect.Type;
 import javax.annotation.Nullable;
@@ -64,6 +67,10 @@ final class RxJava2CallAdapter<R> implements CallAdapter<R, Object> {
 
   @Override
   public Object adapt(Call<R> call) {
+    if (isSingle || isMaybe || isCompletable) {
+      return adaptSingleValue(call);
+    }
+
     Observable<Response<R>> responseObservable =
         isAsync ? new CallEnqueueObservable<>(call) : new CallExecuteObservable<>(call);
 
@@ -83,15 +90,25 @@ final class RxJava2CallAdapter<R> implements CallAdapter<R, Object> {
     if (isFlowable) {
       return observable.toFlowable(BackpressureStrategy.LATEST);
     }
+    return RxJavaPlugins.onAssembly(observable);
+  }
+
+  /**
+   * Single-value types bind their observers straight to the call rather than reducing an {@link
+   * Observable}, so a subscription costs one object in addition to the cloned call.
+   */
+  private Object adaptSingleValue(Call<R> call) {
     if (isSingle) {
-      return observable.singleOrError();
+      Single<?> single =
+          RxJavaPlugins.onAssembly(new CallSingle<>(call, isAsync, isResult, isBody));
+      return scheduler != null ? single.subscribeOn(scheduler) : single;
     }
     if (isMaybe) {
-      return observable.singleElement();
-    }
-    if (isCompletable) {
-      return observable.ignoreElements();
+      Maybe<?> maybe = RxJavaPlugins.onAssembly(new CallMaybe<>(call, isAsync, isResult, isBody));
+      return scheduler != null ? maybe.subscribeOn(scheduler) : maybe;
     }
-    return RxJavaPlugins.onAssembly(observable);
+    Completable completable =
+        RxJavaPlugins.onAssembly(new CallCompletable<>(call, isAsync, isResult, isBody));
+    return scheduler != null ? completable.subscribeOn(scheduler) : completable;
   }
 }
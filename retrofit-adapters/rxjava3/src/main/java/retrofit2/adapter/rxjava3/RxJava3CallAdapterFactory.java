@@ -26,10 +26,13 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.ByteString;
 import retrofit2.CallAdapter;
 import retrofit2.HttpException;
 import retrofit2.Response;
 import retrofit2.Retrofit;
+import retrofit2.http.Streaming;
 
 /**
  * A {@linkplain CallAdapter.Factory call adapter} which uses RxJava 3 for creating observables.
@@ -57,6 +60,13 @@ import retrofit2.Retrofit;
  *   <li>Result wrapped body (e.g., {@code Observable<Result<User>>}) calls {@code onNext} with a
  *       {@link Result} object for all HTTP responses and errors.
  * </ul>
+ *
+ * <p>A {@link Streaming @Streaming} method may also return {@code Flowable<ByteString>} or {@code
+ * Flowable<Buffer>} to receive the raw response body in chunks of at most 8 KiB. Chunks are only
+ * read from the network as they are requested downstream, so large downloads are consumed with
+ * backpressure and bounded memory. Non-2XX responses call {@code onError} with {@link
+ * HttpException}. When created with {@link #create()} the body is read on {@link
+ * io.reactivex.rxjava3.schedulers.Schedulers#io() Schedulers.io()}.
  */
 public final class RxJava3CallAdapterFactory extends CallAdapter.Factory {
   /**
@@ -132,6 +142,11 @@ public final class RxJava3CallAdapterFactory extends CallAdapter.Factory {
 
     Type observableType = getParameterUpperBound(0, (ParameterizedType) returnType);
     Class<?> rawObservableType = getRawType(observableType);
+    if (isFlowable
+        && (rawObservableType == ByteString.class || rawObservableType == Buffer.class)
+        && isStreaming(annotations)) {
+      return new StreamingBodyCallAdapter(scheduler, isAsync, rawObservableType == Buffer.class);
+    }
     if (rawObservableType == Response.class) {
       if (!(observableType instanceof ParameterizedType)) {
         throw new IllegalStateException(
@@ -153,4 +168,13 @@ public final class RxJava3CallAdapterFactory extends CallAdapter.Factory {
     return new RxJava3CallAdapter(
         responseType, scheduler, isAsync, isResult, isBody, isFlowable, isSingle, isMaybe, false);
   }
+
+  private static boolean isStreaming(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Streaming) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.rxjava3;
+
+import io.reactivex.rxjava3.core.Emitter;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Response;
+
+/**
+ * Adapts {@link retrofit2.http.Streaming @Streaming} calls to a {@code Flowable<ByteString>} or
+ * {@code Flowable<Buffer>} of the raw response body. Each chunk is only read from the network once
+ * it has been requested downstream, so a slow consumer stops the socket from being drained instead
+ * of buffering the body in memory.
+ */
+final class StreamingBodyCallAdapter implements CallAdapter<ResponseBody, Object> {
+  /** Chunks are one okio segment. The last chunk of a body may be smaller. */
+  static final long CHUNK_SIZE = 8192L;
+
+  private final @Nullable Scheduler scheduler;
+  private final boolean isAsync;
+  private final boolean isBuffer;
+
+  StreamingBodyCallAdapter(@Nullable Scheduler scheduler, boolean isAsync, boolean isBuffer) {
+    this.scheduler = scheduler;
+    this.isAsync = isAsync;
+    this.isBuffer = isBuffer;
+  }
+
+  @Override
+  public Type responseType() {
+    return ResponseBody.class;
+  }
+
+  @Override
+  public Object adapt(Call<ResponseBody> originalCall) {
+    Flowable<Object> flowable =
+        Flowable.using(
+            // Since Call is a one-shot type, clone it for each new subscriber.
+            () -> new Stream(originalCall.clone()),
+            stream -> Flowable.generate(stream::open, stream::readChunk),
+            Stream::close);
+
+    // Reading the body blocks. Unlike other asynchronous calls there is no callback thread to run
+    // on, so asynchronous instances read on the I/O scheduler.
+    Scheduler scheduler =
+        this.scheduler != null ? this.scheduler : isAsync ? Schedulers.io() : null;
+    if (scheduler != null) {
+      flowable = flowable.subscribeOn(scheduler);
+    }
+    return RxJavaPlugins.onAssembly(flowable);
+  }
+
+  final class Stream {
+    private final Call<ResponseBody> call;
+    private volatile @Nullable ResponseBody body;
+
+    Stream(Call<ResponseBody> call) {
+      this.call = call;
+    }
+
+    BufferedSource open() throws IOException {
+      Response<ResponseBody> response = call.execute();
+      if (!response.isSuccessful()) {
+        throw new HttpException(response);
+      }
+      ResponseBody body = response.body();
+      if (body == null) {
+        return new Buffer(); // A 204 or 205 has no body. Complete without emitting anything.
+      }
+      this.body = body;
+      return body.source();
+    }
+
+    BufferedSource readChunk(BufferedSource source, Emitter<Object> emitter) {
+      try {
+        if (!source.request(1)) {
+          emitter.onComplete();
+          return source;
+        }
+        source.request(CHUNK_SIZE); // Wait for a full chunk unless the body ends first.
+        Buffer chunk = new Buffer();
+        source.read(chunk, CHUNK_SIZE);
+        emitter.onNext(isBuffer ? chunk : chunk.readByteString());
+      } catch (IOException e) {
+        if (call.isCanceled()) {
+          emitter.onComplete(); // Canceled downstream. Nobody is listening anymore.
+        } else {
+          emitter.onError(e);
+        }
+      }
+      return source;
+    }
+
+    void close() {
+      call.cancel(); // Releases the connection if the body was abandoned part way.
+      ResponseBody body = this.body;
+      if (body != null) {
+        body.close();
+      }
+    }
+  }
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.Disposable;
 import java.util.List;
 import okhttp3.Call;
@@ -37,6 +38,9 @@ public final class CancelDisposeTest {
   interface Service {
     @GET("/")
     Observable<String> go();
+
+    @GET("/")
+    Single<String> single();
   }
 
   private final OkHttpClient client = new OkHttpClient();
@@ -79,4 +83,21 @@ public final class CancelDisposeTest {
     calls.get(0).cancel();
     assertFalse(disposable.isDisposed());
   }
+
+  @Test
+  public void disposeCancelsSingleCall() {
+    Disposable disposable = service.single().subscribe((value, error) -> {});
+    List<Call> calls = client.dispatcher().runningCalls();
+    assertEquals(1, calls.size());
+    disposable.dispose();
+    assertTrue(calls.get(0).isCanceled());
+  }
+
+  @SuppressWarnings("ResultOfMethodCallIgnored")
+  @Test
+  public void disposeBeforeEnqueueDoesNotEnqueueSingle() {
+    service.single().test(true);
+    List<Call> calls = client.dispatcher().runningCalls();
+    assertEquals(0, calls.size());
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.rxjava3;
+
+import static okhttp3.mockwebserver.SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+public final class FlowableStreamingTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Streaming
+    @GET("/")
+    Flowable<ByteString> byteStrings();
+
+    @Streaming
+    @GET("/")
+    Flowable<Buffer> buffers();
+  }
+
+  private final ByteString body = randomBytes(20000);
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addCallAdapterFactory(RxJava3CallAdapterFactory.createSynchronous())
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void byteStringChunks() {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(body)));
+
+    TestSubscriber<ByteString> subscriber = service.byteStrings().test();
+    subscriber.assertComplete();
+    List<ByteString> chunks = subscriber.values();
+    assertThat(chunks).extracting(ByteString::size).containsExactly(8192, 8192, 3616);
+    Buffer received = new Buffer();
+    for (ByteString chunk : chunks) {
+      received.write(chunk);
+    }
+    assertThat(received.readByteString()).isEqualTo(body);
+  }
+
+  @Test
+  public void bufferChunks() throws IOException {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(body)));
+
+    TestSubscriber<Buffer> subscriber = service.buffers().test();
+    subscriber.assertComplete();
+    Buffer received = new Buffer();
+    for (Buffer chunk : subscriber.values()) {
+      received.writeAll(chunk);
+    }
+    assertThat(received.readByteString()).isEqualTo(body);
+  }
+
+  @Test
+  public void chunksAreOnlyReadWhenRequested() {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(body)));
+
+    TestSubscriber<ByteString> subscriber = service.byteStrings().test(0);
+    subscriber.assertNoValues().assertNotComplete();
+
+    subscriber.request(1);
+    subscriber.assertValueCount(1).assertNotComplete();
+
+    subscriber.request(1);
+    subscriber.assertValueCount(2).assertNotComplete();
+
+    subscriber.request(Long.MAX_VALUE);
+    subscriber.assertValueCount(3).assertComplete();
+  }
+
+  @Test
+  public void cancelStopsReading() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody(new Buffer().write(body)));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    TestSubscriber<ByteString> subscriber = service.byteStrings().test(1);
+    subscriber.assertValueCount(1);
+    subscriber.cancel();
+    subscriber.assertNoErrors().assertNotComplete();
+
+    // The abandoned exchange is discarded rather than drained, and the next call still succeeds.
+    TestSubscriber<ByteString> next = service.byteStrings().test();
+    next.assertComplete();
+    assertThat(next.values().get(0).utf8()).isEqualTo("Hi");
+    assertThat(server.takeRequest(1, TimeUnit.SECONDS)).isNotNull();
+  }
+
+  @Test
+  public void noContentCompletesEmpty() {
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    service.byteStrings().test().assertComplete().assertNoValues();
+  }
+
+  @Test
+  public void errorResponse() {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Nope"));
+
+    service.byteStrings().test().assertError(HttpException.class).assertNoValues();
+  }
+
+  @Test
+  public void networkFailureMidBody() {
+    server.enqueue(
+        new MockResponse()
+            .setBody(new Buffer().write(body))
+            .setSocketPolicy(DISCONNECT_DURING_RESPONSE_BODY));
+
+    TestSubscriber<ByteString> subscriber = service.byteStrings().test();
+    subscriber.assertError(IOException.class);
+  }
+
+  private static ByteString randomBytes(int size) {
+    byte[] bytes = new byte[size];
+    new Random(0).nextBytes(bytes);
+    return ByteString.of(bytes);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.adapter.guava.GuavaCallAdapterFactory;
+import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.adapter.rxjava3.RxJava3CallAdapterFactory;
+import retrofit2.adapter.scala.ScalaCallAdapterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.mock.InMemoryCallFactory;
+import scala.concurrent.Future;
+
+/**
+ * The overhead each call adapter module adds to a call, compared with executing a plain {@link
+ * Call}. Calls complete synchronously so the adapters' own work dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallAdapterBenchmark {
+  interface Service {
+    @GET("/")
+    Call<String> call();
+
+    @GET("/")
+    CompletableFuture<String> completableFuture();
+
+    @GET("/")
+    ListenableFuture<String> listenableFuture();
+
+    @GET("/")
+    rx.Single<String> rxJava();
+
+    @GET("/")
+    io.reactivex.Single<String> rxJava2();
+
+    @GET("/")
+    io.reactivex.rxjava3.core.Single<String> rxJava3();
+
+    @GET("/")
+    Future<String> scala();
+  }
+
+  private Service service;
+
+  @Setup
+  public void setUp() {
+    service =
+        new Retrofit.Builder()
+            .baseUrl("http://localhost/")
+            .callFactory(
+                InMemoryCallFactory.create(
+                    InMemoryCallFactory.respond(200, MediaType.get("text/plain"), "Hi")))
+            .addConverterFactory(ScalarsConverterFactory.create())
+            .addCallAdapterFactory(GuavaCallAdapterFactory.create())
+            .addCallAdapterFactory(RxJavaCallAdapterFactory.create())
+            .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+            .addCallAdapterFactory(RxJava3CallAdapterFactory.createSynchronous())
+            .addCallAdapterFactory(ScalaCallAdapterFactory.create())
+            .build()
+            .create(Service.class);
+  }
+
+  @Benchmark
+  public String call() throws IOException {
+    return service.call().execute().body();
+  }
+
+  @Benchmark
+  public String completableFuture() {
+    return service.completableFuture().join();
+  }
+
+  @Benchmark
+  public String listenableFuture() throws ExecutionException, InterruptedException {
+    return service.listenableFuture().get();
+  }
+
+  @Benchmark
+  public String rxJava() {
+    return service.rxJava().toBlocking().value();
+  }
+
+  @Benchmark
+  public String rxJava2() {
+    return service.rxJava2().blockingGet();
+  }
+
+  @Benchmark
+  public String rxJava3() {
+    return service.rxJava3().blockingGet();
+  }
+
+  @Benchmark
+  public String scala() {
+    // Calls complete synchronously, so the future is already completed.
+    return service.scala().value().get().get();
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import javax.xml.bind.annotation.XmlElement;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.Root;
+
+/** A response element which every converter in {@link ResponseConversionBenchmark} can read. */
+@Root(name = "contributor")
+public final class Contributor {
+  @Element @XmlElement public String login;
+  @Element @XmlElement public int contributions;
+}
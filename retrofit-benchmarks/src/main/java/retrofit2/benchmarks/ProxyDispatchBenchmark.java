@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+import retrofit2.mock.InMemoryCallFactory;
+
+/** The cost of invoking a method on a service proxy, with and without executing the call. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyDispatchBenchmark {
+  interface Service {
+    @GET("users/{user}")
+    Call<ResponseBody> user(@Path("user") String user);
+  }
+
+  private Service service;
+
+  @Setup
+  public void setUp() {
+    service =
+        new Retrofit.Builder()
+            .baseUrl("http://localhost/")
+            .callFactory(
+                InMemoryCallFactory.create(
+                    InMemoryCallFactory.respond(200, MediaType.get("text/plain"), "Hi")))
+            .build()
+            .create(Service.class);
+  }
+
+  @Benchmark
+  public Call<ResponseBody> invoke() {
+    return service.user("jake");
+  }
+
+  @Benchmark
+  public Response<ResponseBody> invokeAndExecute() throws IOException {
+    Response<ResponseBody> response = service.user("jake").execute();
+    response.body().close();
+    return response;
+  }
+}
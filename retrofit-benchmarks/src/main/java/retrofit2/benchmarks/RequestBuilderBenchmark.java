@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Call;
+import retrofit2.ParamProvider;
+import retrofit2.Retrofit;
+import retrofit2.http.Field;
+import retrofit2.http.FormUrlEncoded;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Multipart;
+import retrofit2.http.POST;
+import retrofit2.http.ParamHeaders;
+import retrofit2.http.ParamQuerys;
+import retrofit2.http.Part;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.mock.InMemoryCallFactory;
+
+/**
+ * The cost of turning the arguments of representative method signatures into an OkHttp {@link
+ * Request}. This covers {@code RequestFactory}, {@code RequestBuilder} and the parameter handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuilderBenchmark {
+  interface Service {
+    @GET("users/{user}/repos")
+    Call<ResponseBody> path(@Path("user") String user);
+
+    @GET("search/repositories")
+    Call<ResponseBody> query(
+        @Query("q") String q, @Query("sort") String sort, @Query("page") int page);
+
+    @GET("user")
+    Call<ResponseBody> headers(
+        @Header("Authorization") String authorization, @Header("X-Request-Id") String requestId);
+
+    @FormUrlEncoded
+    @POST("session")
+    Call<ResponseBody> form(@Field("username") String username, @Field("password") String password);
+
+    @Multipart
+    @POST("upload")
+    Call<ResponseBody> multipart(
+        @Part("description") RequestBody description, @Part MultipartBody.Part file);
+  }
+
+  @ParamHeaders({"X-Device: {device}"})
+  @ParamQuerys({"version={version}"})
+  interface ParamService {
+    @GET("feed")
+    Call<ResponseBody> feed(@Query("page") int page);
+  }
+
+  static final class StaticParamProvider implements ParamProvider {
+    @Override
+    public Object getHeaderParam(String paramName) {
+      return "pixel-4";
+    }
+
+    @Override
+    public Object getUrlParam(String paramName) {
+      return "http://localhost/";
+    }
+
+    @Override
+    public Object getQueryParam(String paramName) {
+      return "2.9.0";
+    }
+  }
+
+  private static final MediaType TEXT_PLAIN = MediaType.get("text/plain");
+
+  private Service service;
+  private ParamService paramService;
+  private RequestBody description;
+  private MultipartBody.Part file;
+
+  @Setup
+  public void setUp() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl("http://localhost/")
+            .callFactory(
+                InMemoryCallFactory.create(InMemoryCallFactory.respond(200, TEXT_PLAIN, "")))
+            .setParamProvider(new StaticParamProvider())
+            .build();
+    service = retrofit.create(Service.class);
+    paramService = retrofit.create(ParamService.class);
+    description = RequestBody.create(TEXT_PLAIN, "A picture");
+    file =
+        MultipartBody.Part.createFormData(
+            "file", "image.png", RequestBody.create(MediaType.get("image/png"), new byte[64]));
+  }
+
+  @Benchmark
+  public Request path() {
+    return service.path("square").request();
+  }
+
+  @Benchmark
+  public Request query() {
+    return service.query("retrofit", "stars", 2).request();
+  }
+
+  @Benchmark
+  public Request headers() {
+    return service.headers("Bearer 3vAE6xmYq9", "d8a4c2f1").request();
+  }
+
+  @Benchmark
+  public Request form() {
+    return service.form("jake", "hunter2").request();
+  }
+
+  @Benchmark
+  public Request multipart() {
+    return service.multipart(description, file).request();
+  }
+
+  @Benchmark
+  public Request classLevelParams() {
+    return paramService.feed(1).request();
+  }
+}
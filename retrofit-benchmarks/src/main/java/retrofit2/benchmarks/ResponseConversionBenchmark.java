@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okio.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Call;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+import retrofit2.converter.jaxb.JaxbConverterFactory;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+import retrofit2.converter.protobuf.ProtoConverterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.mock.InMemoryCallFactory;
+
+/**
+ * The cost of executing a call and converting its response body with each converter module. Every
+ * format carries the same {@link #size} contributors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseConversionBenchmark {
+  interface JsonService {
+    @GET("contributors")
+    Call<List<Contributor>> contributors();
+  }
+
+  interface XmlService {
+    @GET("contributors")
+    Call<Contributors> contributors();
+  }
+
+  interface ProtoService {
+    @GET("contributors")
+    Call<ListValue> contributors();
+  }
+
+  interface StringService {
+    @GET("contributors")
+    Call<String> contributors();
+  }
+
+  @Param({"1", "100"})
+  public int size;
+
+  private JsonService gson;
+  private JsonService jackson;
+  private JsonService moshi;
+  private XmlService jaxb;
+  private XmlService simpleXml;
+  private ProtoService protobuf;
+  private StringService scalars;
+
+  @SuppressWarnings("deprecation") // SimpleXML is deprecated but still shipped.
+  @Setup
+  public void setUp() {
+    StringBuilder json = new StringBuilder("[");
+    StringBuilder xml = new StringBuilder("<contributors>");
+    ListValue.Builder proto = ListValue.newBuilder();
+    for (int i = 0; i < size; i++) {
+      String login = "contributor" + i;
+      int contributions = 1000 - i;
+      if (i > 0) json.append(',');
+      json.append("{\"login\":\"")
+          .append(login)
+          .append("\",\"contributions\":")
+          .append(contributions)
+          .append('}');
+      xml.append("<contributor><login>")
+          .append(login)
+          .append("</login><contributions>")
+          .append(contributions)
+          .append("</contributions></contributor>");
+      proto.addValues(
+          Value.newBuilder()
+              .setStructValue(
+                  Struct.newBuilder()
+                      .putFields("login", Value.newBuilder().setStringValue(login).build())
+                      .putFields(
+                          "contributions",
+                          Value.newBuilder().setNumberValue(contributions).build())));
+    }
+    byte[] jsonBytes = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    byte[] xmlBytes = xml.append("</contributors>").toString().getBytes(StandardCharsets.UTF_8);
+    byte[] protoBytes = proto.build().toByteArray();
+
+    MediaType jsonType = MediaType.get("application/json");
+    MediaType xmlType = MediaType.get("application/xml");
+    gson = create(GsonConverterFactory.create(), jsonType, jsonBytes, JsonService.class);
+    jackson = create(JacksonConverterFactory.create(), jsonType, jsonBytes, JsonService.class);
+    moshi = create(MoshiConverterFactory.create(), jsonType, jsonBytes, JsonService.class);
+    jaxb = create(JaxbConverterFactory.create(), xmlType, xmlBytes, XmlService.class);
+    simpleXml = create(SimpleXmlConverterFactory.create(), xmlType, xmlBytes, XmlService.class);
+    protobuf =
+        create(
+            ProtoConverterFactory.create(),
+            MediaType.get("application/x-protobuf"),
+            protoBytes,
+            ProtoService.class);
+    scalars = create(ScalarsConverterFactory.create(), jsonType, jsonBytes, StringService.class);
+  }
+
+  private static <T> T create(
+      Converter.Factory converterFactory, MediaType contentType, byte[] body, Class<T> service) {
+    return new Retrofit.Builder()
+        .baseUrl("http://localhost/")
+        .callFactory(
+            InMemoryCallFactory.create(
+                InMemoryCallFactory.respond(200, contentType, ByteString.of(body))))
+        .addConverterFactory(converterFactory)
+        .build()
+        .create(service);
+  }
+
+  @Benchmark
+  public List<Contributor> gson() throws IOException {
+    return gson.contributors().execute().body();
+  }
+
+  @Benchmark
+  public List<Contributor> jackson() throws IOException {
+    return jackson.contributors().execute().body();
+  }
+
+  @Benchmark
+  public List<Contributor> moshi() throws IOException {
+    return moshi.contributors().execute().body();
+  }
+
+  @Benchmark
+  public Contributors jaxb() throws IOException {
+    return jaxb.contributors().execute().body();
+  }
+
+  @Benchmark
+  public Contributors simpleXml() throws IOException {
+    return simpleXml.contributors().execute().body();
+  }
+
+  @Benchmark
+  public ListValue protobuf() throws IOException {
+    return protobuf.contributors().execute().body();
+  }
+
+  @Benchmark
+  public String scalars() throws IOException {
+    return scalars.contributors().execute().body();
+  }
+}
@@ -58,6 +58,11 @@ public final class GsonConverterFactory extends Converter.Factory {
     this.gson = gson;
   }
 
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(
       Type type, Annotation[] annotations, Retrofit retrofit) {
@@ -53,6 +53,11 @@ public final class JacksonConverterFactory extends Converter.Factory {
     this.mapper = mapper;
   }
 
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(
       Type type, Annotation[] annotations, Retrofit retrofit) {
@@ -16,7 +16,9 @@
 package retrofit2.converter.jaxb;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
 import javax.annotation.Nullable;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -30,6 +32,12 @@ import retrofit2.Retrofit;
 /**
  * A {@linkplain Converter.Factory converter} which uses JAXB for XML. All validation events are
  * ignored.
+ *
+ * <p>Large documents can be declared as an {@link Iterator Iterator&lt;T&gt;} of an {@link
+ * XmlRootElement @XmlRootElement} type. The body is then read with StAX and each element named like
+ * {@code T}'s root element is unmarshalled as the iterator reaches it, wherever it is nested.
+ * Elements are matched by local name, and also by namespace if {@code T} declares one. The iterator
+ * also implements {@link java.io.Closeable}; close it when abandoning it before its end.
  */
 public final class JaxbConverterFactory extends Converter.Factory {
   static final MediaType XML = MediaType.get("application/xml; charset=utf-8");
@@ -47,10 +55,15 @@ public final class JaxbConverterFactory extends Converter.Factory {
   }
 
   /** If null, a new JAXB context will be created for each type to be converted. */
-  private final @Nullable JAXBContext context;
+  private final @Nullable JaxbPool pool;
 
   private JaxbConverterFactory(@Nullable JAXBContext context) {
-    this.context = context;
+    this.pool = context != null ? new JaxbPool(context) : null;
+  }
+
+  @Override
+  public boolean isCacheable() {
+    return true;
   }
 
   @Override
@@ -60,7 +73,7 @@ public final class JaxbConverterFactory extends Converter.Factory {
       Annotation[] methodAnnotations,
       Retrofit retrofit) {
     if (type instanceof Class && ((Class<?>) type).isAnnotationPresent(XmlRootElement.class)) {
-      return new JaxbRequestConverter<>(contextForType((Class<?>) type), (Class<?>) type);
+      return new JaxbRequestConverter<>(poolForType((Class<?>) type), (Class<?>) type);
     }
     return null;
   }
@@ -69,14 +82,22 @@ public final class JaxbConverterFactory extends Converter.Factory {
   public @Nullable Converter<ResponseBody, ?> responseBodyConverter(
       Type type, Annotation[] annotations, Retrofit retrofit) {
     if (type instanceof Class && ((Class<?>) type).isAnnotationPresent(XmlRootElement.class)) {
-      return new JaxbResponseConverter<>(contextForType((Class<?>) type), (Class<?>) type);
+      return new JaxbResponseConverter<>(poolForType((Class<?>) type), (Class<?>) type);
+    }
+    if (type instanceof ParameterizedType && getRawType(type) == Iterator.class) {
+      Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+      if (elementType instanceof Class
+          && ((Class<?>) elementType).isAnnotationPresent(XmlRootElement.class)) {
+        return new JaxbStreamingResponseConverter<>(
+            poolForType((Class<?>) elementType), (Class<?>) elementType);
+      }
     }
     return null;
   }
 
-  private JAXBContext contextForType(Class<?> type) {
+  private JaxbPool poolForType(Class<?> type) {
     try {
-      return context != null ? context : JAXBContext.newInstance(type);
+      return pool != null ? pool : new JaxbPool(JAXBContext.newInstance(type));
     } catch (JAXBException e) {
       throw new IllegalArgumentException(e);
     }
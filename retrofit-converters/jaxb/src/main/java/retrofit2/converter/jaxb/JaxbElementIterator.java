@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.jaxb;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import okhttp3.ResponseBody;
+
+/**
+ * Unmarshals matching elements of a response body one at a time as the iterator advances. The body
+ * is closed, and the unmarshaller returned to its pool, once the document is exhausted or when this
+ * is closed. A failure closes the body and discards the unmarshaller.
+ */
+final class JaxbElementIterator<T> implements Iterator<T>, Closeable {
+  private final JaxbStreamingResponseConverter<T> converter;
+  private final ResponseBody body;
+  private final XMLStreamReader reader;
+  /** Null once closed. */
+  private @Nullable Unmarshaller unmarshaller;
+
+  private @Nullable T next;
+
+  JaxbElementIterator(
+      JaxbStreamingResponseConverter<T> converter,
+      ResponseBody body,
+      XMLStreamReader reader,
+      Unmarshaller unmarshaller) {
+    this.converter = converter;
+    this.body = body;
+    this.reader = reader;
+    this.unmarshaller = unmarshaller;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next != null) return true;
+    if (unmarshaller == null) return false;
+    try {
+      // Unmarshalling leaves the reader on the event after the element, so check it first.
+      for (int event = reader.getEventType(); ; event = reader.next()) {
+        if (event == XMLStreamConstants.START_ELEMENT && converter.matches(reader)) {
+          next = unmarshaller.unmarshal(reader, converter.type).getValue();
+          return true;
+        }
+        if (!reader.hasNext()) {
+          close();
+          return false;
+        }
+      }
+    } catch (JAXBException | XMLStreamException e) {
+      fail();
+      throw new RuntimeException(e);
+    } catch (RuntimeException e) {
+      fail();
+      throw e;
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    T result = next;
+    next = null;
+    return result;
+  }
+
+  @Override
+  public void close() {
+    Unmarshaller unmarshaller = this.unmarshaller;
+    if (unmarshaller == null) return;
+    this.unmarshaller = null;
+    next = null;
+    converter.pool.release(unmarshaller);
+    closeQuietly();
+  }
+
+  private void fail() {
+    unmarshaller = null; // Its state after a failure is unknown.
+    next = null;
+    closeQuietly();
+  }
+
+  private void closeQuietly() {
+    try {
+      reader.close();
+    } catch (XMLStreamException ignored) {
+    }
+    body.close();
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.jaxb;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * The StAX factories and idle marshallers and unmarshallers of one {@link JAXBContext}. Neither
+ * marshallers nor unmarshallers are thread-safe, so each is used by one conversion at a time and
+ * released afterwards. The pool holds no more of them than were ever in use concurrently.
+ */
+final class JaxbPool {
+  final JAXBContext context;
+  final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+  final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+  private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<>();
+  private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<>();
+
+  JaxbPool(JAXBContext context) {
+    this.context = context;
+
+    // Prevent XML External Entity attacks (XXE).
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+  }
+
+  Unmarshaller acquireUnmarshaller() throws JAXBException {
+    Unmarshaller unmarshaller = unmarshallers.poll();
+    return unmarshaller != null ? unmarshaller : context.createUnmarshaller();
+  }
+
+  /** Returns {@code unmarshaller} to the pool. Only call this if its last use succeeded. */
+  void release(Unmarshaller unmarshaller) {
+    unmarshallers.offer(unmarshaller);
+  }
+
+  Marshaller acquireMarshaller() throws JAXBException {
+    Marshaller marshaller = marshallers.poll();
+    return marshaller != null ? marshaller : context.createMarshaller();
+  }
+
+  /** Returns {@code marshaller} to the pool. Only call this if its last use succeeded. */
+  void release(Marshaller marshaller) {
+    marshallers.offer(marshaller);
+  }
+}
@@ -16,10 +16,8 @@
 package retrofit2.converter.jaxb;
 
 import java.io.IOException;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import okhttp3.RequestBody;
@@ -27,12 +25,11 @@ import okio.Buffer;
 import retrofit2.Converter;
 
 final class JaxbRequestConverter<T> implements Converter<T, RequestBody> {
-  final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
-  final JAXBContext context;
+  final JaxbPool pool;
   final Class<T> type;
 
-  JaxbRequestConverter(JAXBContext context, Class<T> type) {
-    this.context = context;
+  JaxbRequestConverter(JaxbPool pool, Class<T> type) {
+    this.pool = pool;
     this.type = type;
   }
 
@@ -40,12 +37,13 @@ final class JaxbRequestConverter<T> implements Converter<T, RequestBody> {
   public RequestBody convert(final T value) throws IOException {
     Buffer buffer = new Buffer();
     try {
-      Marshaller marshaller = context.createMarshaller();
+      Marshaller marshaller = pool.acquireMarshaller();
 
       XMLStreamWriter xmlWriter =
-          xmlOutputFactory.createXMLStreamWriter(
+          pool.xmlOutputFactory.createXMLStreamWriter(
               buffer.outputStream(), JaxbConverterFactory.XML.charset().name());
       marshaller.marshal(value, xmlWriter);
+      pool.release(marshaller);
     } catch (JAXBException | XMLStreamException e) {
       throw new RuntimeException(e);
     }
@@ -16,35 +16,30 @@
 package retrofit2.converter.jaxb;
 
 import java.io.IOException;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 
 final class JaxbResponseConverter<T> implements Converter<ResponseBody, T> {
-  final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
-  final JAXBContext context;
+  final JaxbPool pool;
   final Class<T> type;
 
-  JaxbResponseConverter(JAXBContext context, Class<T> type) {
-    this.context = context;
+  JaxbResponseConverter(JaxbPool pool, Class<T> type) {
+    this.pool = pool;
     this.type = type;
-
-    // Prevent XML External Entity attacks (XXE).
-    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
-    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
   }
 
   @Override
   public T convert(ResponseBody value) throws IOException {
     try {
-      Unmarshaller unmarshaller = context.createUnmarshaller();
-      XMLStreamReader streamReader = xmlInputFactory.createXMLStreamReader(value.charStream());
-      return unmarshaller.unmarshal(streamReader, type).getValue();
+      Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+      XMLStreamReader streamReader = pool.xmlInputFactory.createXMLStreamReader(value.charStream());
+      T result = unmarshaller.unmarshal(streamReader, type).getValue();
+      pool.release(unmarshaller);
+      return result;
     } catch (JAXBException | XMLStreamException e) {
       throw new RuntimeException(e);
     } finally {
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.jaxb;
+
+import java.util.Iterator;
+import java.util.Locale;
+import javax.annotation.Nullable;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+final class JaxbStreamingResponseConverter<T> implements Converter<ResponseBody, Iterator<T>> {
+  private static final String DEFAULT = "##default";
+
+  final JaxbPool pool;
+  final Class<T> type;
+  final String localName;
+  /** Null to match elements of any namespace. */
+  final @Nullable String namespace;
+
+  JaxbStreamingResponseConverter(JaxbPool pool, Class<T> type) {
+    this.pool = pool;
+    this.type = type;
+
+    XmlRootElement root = type.getAnnotation(XmlRootElement.class);
+    this.localName = root.name().equals(DEFAULT) ? decapitalize(type.getSimpleName()) : root.name();
+    this.namespace = root.namespace().equals(DEFAULT) ? null : root.namespace();
+  }
+
+  @Override
+  public Iterator<T> convert(ResponseBody value) {
+    try {
+      XMLStreamReader reader = pool.xmlInputFactory.createXMLStreamReader(value.charStream());
+      Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+      return new JaxbElementIterator<>(this, value, reader, unmarshaller);
+    } catch (JAXBException | XMLStreamException e) {
+      value.close();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Returns true if the current start element of {@code reader} is one of {@code T}. */
+  boolean matches(XMLStreamReader reader) {
+    return localName.equals(reader.getLocalName())
+        && (namespace == null || namespace.equals(reader.getNamespaceURI()));
+  }
+
+  /**
+   * Derives the default element name from a class name the way JAXB does, by lowercasing its first
+   * word. For example, {@code Contact} becomes {@code contact} and {@code URLEntry} {@code
+   * urlEntry}.
+   */
+  static String decapitalize(String name) {
+    int upper = 0;
+    while (upper < name.length() && Character.isUpperCase(name.charAt(upper))) {
+      upper++;
+    }
+    if (upper > 1 && upper < name.length()) {
+      upper--; // The last capital starts the next word.
+    }
+    return name.substring(0, upper).toLowerCase(Locale.ROOT) + name.substring(upper);
+  }
+}
@@ -18,7 +18,11 @@ package retrofit2.converter.jaxb;
 import static junit.framework.TestCase.fail;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import javax.xml.bind.JAXBContext;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -53,6 +57,9 @@ public final class JaxbConverterFactoryTest {
 
     @GET("/")
     Call<Contact> getXml();
+
+    @GET("/")
+    Call<Iterator<Contact>> getXmlElements();
   }
 
   @Rule public final MockWebServer server = new MockWebServer();
@@ -88,6 +95,80 @@ public final class JaxbConverterFactoryTest {
     assertThat(response.body()).isEqualTo(SAMPLE_CONTACT);
   }
 
+  @Test
+  public void xmlResponseBodyReusesUnmarshaller() throws Exception {
+    server.enqueue(new MockResponse().setBody(SAMPLE_CONTACT_XML));
+    server.enqueue(new MockResponse().setBody(SAMPLE_CONTACT_XML));
+
+    assertThat(service.getXml().execute().body()).isEqualTo(SAMPLE_CONTACT);
+    assertThat(service.getXml().execute().body()).isEqualTo(SAMPLE_CONTACT);
+  }
+
+  @Test
+  public void streamingResponseBody() throws Exception {
+    server.enqueue(
+        new MockResponse()
+            .setBody(
+                ""
+                    + "<?xml version=\"1.0\" ?>"
+                    + "<feed>\n"
+                    + "  <title><name>Not a contact</name></title>\n"
+                    + "  <contact><name>Jenny</name></contact>\n"
+                    + "  <entries>\n"
+                    + "    <contact><name>Tommy</name></contact>"
+                    + "<contact><name>Tutone</name></contact>\n"
+                    + "  </entries>\n"
+                    + "</feed>"));
+
+    Iterator<Contact> iterator = service.getXmlElements().execute().body();
+    List<String> names = new ArrayList<>();
+    while (iterator.hasNext()) {
+      names.add(iterator.next().name);
+    }
+    assertThat(names).containsExactly("Jenny", "Tommy", "Tutone");
+  }
+
+  @Test
+  public void streamingResponseBodyClosedEarly() throws Exception {
+    server.enqueue(
+        new MockResponse()
+            .setBody(
+                ""
+                    + "<feed>"
+                    + "<contact><name>Jenny</name></contact>"
+                    + "<contact><name>Tommy</name></contact>"
+                    + "</feed>"));
+
+    Iterator<Contact> iterator = service.getXmlElements().execute().body();
+    assertThat(iterator.next().name).isEqualTo("Jenny");
+    ((Closeable) iterator).close();
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test
+  public void streamingMalformedXml() throws Exception {
+    server.enqueue(
+        new MockResponse()
+            .setBody("<feed><contact><name>Jenny</name></contact><title>Contacts</tit"));
+
+    Iterator<Contact> iterator = service.getXmlElements().execute().body();
+    assertThat(iterator.next().name).isEqualTo("Jenny");
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (RuntimeException expected) {
+      assertThat(expected).hasMessageContaining("ParseError");
+    }
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test
+  public void defaultElementNames() {
+    assertThat(JaxbStreamingResponseConverter.decapitalize("Contact")).isEqualTo("contact");
+    assertThat(JaxbStreamingResponseConverter.decapitalize("URLEntry")).isEqualTo("urlEntry");
+    assertThat(JaxbStreamingResponseConverter.decapitalize("URL")).isEqualTo("url");
+  }
+
   @Test
   public void characterEncoding() throws Exception {
     server.enqueue(
@@ -83,6 +83,11 @@ public final class MoshiConverterFactory extends Converter.Factory {
     return new MoshiConverterFactory(moshi, lenient, failOnUnknown, true);
   }
 
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(
       Type type, Annotation[] annotations, Retrofit retrofit) {
@@ -22,6 +22,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import javax.annotation.Nullable;
 import okhttp3.RequestBody;
@@ -34,6 +35,13 @@ import retrofit2.Retrofit;
  *
  * <p>This converter only applies for types which extend from {@link MessageLite} (or one of its
  * subclasses).
+ *
+ * <p>Responses of length-delimited messages, as written by {@link MessageLite#writeDelimitedTo},
+ * can be declared as {@link java.util.Iterator Iterator&lt;T&gt;}, {@link java.util.stream.Stream
+ * Stream&lt;T&gt;} or RxJava 2's {@code Flowable<T>} of a message type. Messages are decoded one at
+ * a time as they are consumed rather than holding the whole body in memory. Consume them on a
+ * background thread and close the iterator or stream, or cancel the flowable, when abandoning them
+ * early. Each can be consumed once.
  */
 public final class ProtoConverterFactory extends Converter.Factory {
   public static ProtoConverterFactory create() {
@@ -51,9 +59,27 @@ public final class ProtoConverterFactory extends Converter.Factory {
     this.registry = registry;
   }
 
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
   @Override
   public @Nullable Converter<ResponseBody, ?> responseBodyConverter(
       Type type, Annotation[] annotations, Retrofit retrofit) {
+    if (type instanceof ParameterizedType) {
+      int container = ProtoDelimitedResponseBodyConverter.containerOf(getRawType(type));
+      if (container == -1) {
+        return null;
+      }
+      Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+      if (!(elementType instanceof Class<?>)
+          || !MessageLite.class.isAssignableFrom((Class<?>) elementType)) {
+        return null;
+      }
+      return new ProtoDelimitedResponseBodyConverter<>(
+          parser((Class<?>) elementType), registry, container);
+    }
     if (!(type instanceof Class<?>)) {
       return null;
     }
@@ -61,7 +87,10 @@ public final class ProtoConverterFactory extends Converter.Factory {
     if (!MessageLite.class.isAssignableFrom(c)) {
       return null;
     }
+    return new ProtoResponseBodyConverter<>(parser(c), registry);
+  }
 
+  private static Parser<MessageLite> parser(Class<?> c) {
     Parser<MessageLite> parser;
     try {
       Method method = c.getDeclaredMethod("parser");
@@ -83,7 +112,7 @@ public final class ProtoConverterFactory extends Converter.Factory {
             e);
       }
     }
-    return new ProtoResponseBodyConverter<>(parser, registry);
+    return parser;
   }
 
   @Override
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+
+/**
+ * Reads length-delimited messages from a response body one at a time, through a single {@link
+ * CodedInputStream}. The body is closed once it is exhausted, when decoding fails, or when this is
+ * closed.
+ */
+final class ProtoDelimitedIterator<T extends MessageLite> implements Iterator<T>, Closeable {
+  private final ResponseBody body;
+  private final CodedInputStream input;
+  private final Parser<T> parser;
+  private final ExtensionRegistryLite registry;
+  private @Nullable T next;
+  private boolean closed;
+
+  ProtoDelimitedIterator(
+      ResponseBody body, Parser<T> parser, @Nullable ExtensionRegistryLite registry) {
+    this.body = body;
+    this.input = CodedInputStream.newInstance(body.byteStream());
+    this.parser = parser;
+    this.registry = registry != null ? registry : ExtensionRegistryLite.getEmptyRegistry();
+  }
+
+  /** Returns the next message, or null once all messages have been read. */
+  @Nullable
+  T read() throws IOException {
+    if (closed) return null;
+    try {
+      if (input.isAtEnd()) {
+        close();
+        return null;
+      }
+      // The size limit counts every byte since the last reset. Apply it to each message instead.
+      input.resetSizeCounter();
+      int oldLimit = input.pushLimit(input.readRawVarint32());
+      T message = parser.parseFrom(input, registry);
+      input.checkLastTagWas(0);
+      input.popLimit(oldLimit);
+      return message;
+    } catch (InvalidProtocolBufferException e) {
+      close();
+      throw new RuntimeException(e); // Despite extending IOException, this is data mismatch.
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = read();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    T result = next;
+    next = null;
+    return result;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    next = null;
+    body.close();
+  }
+}
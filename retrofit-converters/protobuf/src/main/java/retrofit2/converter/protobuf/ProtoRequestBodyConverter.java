@@ -19,14 +19,38 @@ import com.google.protobuf.MessageLite;
 import java.io.IOException;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import okio.BufferedSink;
 import retrofit2.Converter;
 
 final class ProtoRequestBodyConverter<T extends MessageLite> implements Converter<T, RequestBody> {
   private static final MediaType MEDIA_TYPE = MediaType.get("application/x-protobuf");
 
   @Override
-  public RequestBody convert(T value) throws IOException {
-    byte[] bytes = value.toByteArray();
-    return RequestBody.create(MEDIA_TYPE, bytes);
+  public RequestBody convert(T value) {
+    return new ProtoRequestBody(value);
+  }
+
+  /** Encodes straight into the sink. Messages are immutable so this can be written repeatedly. */
+  static final class ProtoRequestBody extends RequestBody {
+    private final MessageLite value;
+
+    ProtoRequestBody(MessageLite value) {
+      this.value = value;
+    }
+
+    @Override
+    public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+      return value.getSerializedSize(); // Memoized by generated messages.
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      value.writeTo(sink.outputStream());
+    }
   }
 }
@@ -21,8 +21,16 @@ import static retrofit2.converter.protobuf.PhoneProtos.Phone;
 
 import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -51,6 +59,15 @@ public final class ProtoConverterFactoryTest {
 
     @GET("/")
     Call<List<String>> wrongType();
+
+    @GET("/")
+    Call<Iterator<Phone>> iterator();
+
+    @GET("/")
+    Call<Stream<Phone>> stream();
+
+    @GET("/")
+    Call<Flowable<Phone>> flowable();
   }
 
   interface ServiceWithRegistry {
@@ -97,6 +114,20 @@ public final class ProtoConverterFactoryTest {
     assertThat(request.getHeader("Content-Type")).isEqualTo("application/x-protobuf");
   }
 
+  @Test
+  public void serializeIsSizedAndRepeatable() throws IOException {
+    ByteString encoded = ByteString.decodeBase64("Cg4oNTE5KSA4NjctNTMwOQ==");
+    Phone phone = Phone.newBuilder().setNumber("(519) 867-5309").build();
+    RequestBody body = new ProtoRequestBodyConverter<Phone>().convert(phone);
+    assertThat(body.contentLength()).isEqualTo(encoded.size());
+
+    for (int i = 0; i < 2; i++) {
+      Buffer buffer = new Buffer();
+      body.writeTo(buffer);
+      assertThat(buffer.readByteString()).isEqualTo(encoded);
+    }
+  }
+
   @Test
   public void deserializeEmpty() throws IOException {
     server.enqueue(new MockResponse());
@@ -140,7 +171,8 @@ public final class ProtoConverterFactoryTest {
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
                   + "   * retrofit2.converter.protobuf.ProtoConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
   }
 
@@ -165,7 +197,8 @@ public final class ProtoConverterFactoryTest {
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
                   + "   * retrofit2.converter.protobuf.ProtoConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
   }
 
@@ -184,4 +217,72 @@ public final class ProtoConverterFactoryTest {
           .hasMessageContaining("input ended unexpectedly");
     }
   }
+
+  @Test
+  public void deserializeDelimitedIterator() throws IOException {
+    server.enqueue(new MockResponse().setBody(delimited("1", "2", "3")));
+
+    Iterator<Phone> iterator = service.iterator().execute().body();
+    List<String> numbers = new ArrayList<>();
+    while (iterator.hasNext()) {
+      numbers.add(iterator.next().getNumber());
+    }
+    assertThat(numbers).containsExactly("1", "2", "3");
+  }
+
+  @Test
+  public void deserializeDelimitedStream() throws IOException {
+    server.enqueue(new MockResponse().setBody(delimited("1", "2", "3")));
+
+    try (Stream<Phone> stream = service.stream().execute().body()) {
+      assertThat(stream.map(Phone::getNumber).collect(Collectors.toList()))
+          .containsExactly("1", "2", "3");
+    }
+  }
+
+  @Test
+  public void deserializeDelimitedFlowableRespectsBackpressure() throws IOException {
+    server.enqueue(new MockResponse().setBody(delimited("1", "2", "3")));
+
+    Flowable<Phone> flowable = service.flowable().execute().body();
+    TestSubscriber<String> subscriber = flowable.map(Phone::getNumber).test(1);
+    subscriber.assertValues("1").assertNotComplete();
+    subscriber.request(2);
+    subscriber.assertValues("1", "2", "3").assertNotComplete();
+    subscriber.request(1);
+    subscriber.assertValues("1", "2", "3").assertComplete();
+  }
+
+  @Test
+  public void deserializeDelimitedEmpty() throws IOException {
+    server.enqueue(new MockResponse());
+
+    Iterator<Phone> iterator = service.iterator().execute().body();
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test
+  public void deserializeDelimitedTruncated() throws IOException {
+    Buffer body = delimited("1");
+    body.writeByte(4).writeByte(0x0a).writeByte(2).writeUtf8("2"); // Missing a byte.
+    server.enqueue(new MockResponse().setBody(body));
+
+    Iterator<Phone> iterator = service.iterator().execute().body();
+    assertThat(iterator.next().getNumber()).isEqualTo("1");
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (RuntimeException e) {
+      assertThat(e.getCause()).isInstanceOf(InvalidProtocolBufferException.class);
+    }
+  }
+
+  private static Buffer delimited(String... numbers) throws IOException {
+    Buffer buffer = new Buffer();
+    OutputStream out = buffer.outputStream();
+    for (String number : numbers) {
+      Phone.newBuilder().setNumber(number).build().writeDelimitedTo(out);
+    }
+    return buffer;
+  }
 }
@@ -43,6 +43,11 @@ public final class ScalarsConverterFactory extends Converter.Factory {
 
   private ScalarsConverterFactory() {}
 
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
   @Override
   public @Nullable Converter<?, RequestBody> requestBodyConverter(
       Type type,
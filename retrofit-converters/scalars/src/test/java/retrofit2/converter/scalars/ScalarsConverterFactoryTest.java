@@ -152,7 +152,8 @@ public final class ScalarsConverterFactoryTest {
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
                   + "   * retrofit2.converter.scalars.ScalarsConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
   }
 
@@ -298,7 +299,8 @@ public final class ScalarsConverterFactoryTest {
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
                   + "   * retrofit2.converter.scalars.ScalarsConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
   }
 
@@ -69,6 +69,11 @@ public final class SimpleXmlConverterFactory extends Converter.Factory {
     return strict;
   }
 
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(
       Type type, Annotation[] annotations, Retrofit retrofit) {
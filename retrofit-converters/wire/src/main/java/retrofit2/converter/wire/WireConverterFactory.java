@@ -18,6 +18,7 @@ package retrofit2.converter.wire;
 import com.squareup.wire.Message;
 import com.squareup.wire.ProtoAdapter;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import javax.annotation.Nullable;
 import okhttp3.RequestBody;
@@ -29,6 +30,12 @@ import retrofit2.Retrofit;
  * A {@linkplain Converter.Factory converter} that uses Wire for protocol buffers.
  *
  * <p>This converter only applies for types which extend from {@link Message}.
+ *
+ * <p>Responses of length-delimited messages can be declared as {@link java.util.Iterator
+ * Iterator&lt;T&gt;}, {@link java.util.stream.Stream Stream&lt;T&gt;} or RxJava 2's {@code
+ * Flowable<T>} of a message type. Messages are decoded one at a time as they are consumed rather
+ * than holding the whole body in memory. Consume them on a background thread and close the iterator
+ * or stream, or cancel the flowable, when abandoning them early. Each can be consumed once.
  */
 public final class WireConverterFactory extends Converter.Factory {
   public static WireConverterFactory create() {
@@ -37,9 +44,29 @@ public final class WireConverterFactory extends Converter.Factory {
 
   private WireConverterFactory() {}
 
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
   @Override
   public @Nullable Converter<ResponseBody, ?> responseBodyConverter(
       Type type, Annotation[] annotations, Retrofit retrofit) {
+    if (type instanceof ParameterizedType) {
+      int container = WireDelimitedResponseBodyConverter.containerOf(getRawType(type));
+      if (container == -1) {
+        return null;
+      }
+      Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+      if (!(elementType instanceof Class<?>)
+          || !Message.class.isAssignableFrom((Class<?>) elementType)) {
+        return null;
+      }
+      //noinspection unchecked
+      ProtoAdapter<? extends Message> adapter =
+          ProtoAdapter.get((Class<? extends Message>) elementType);
+      return new WireDelimitedResponseBodyConverter<>(adapter, container);
+    }
     if (!(type instanceof Class<?>)) {
       return null;
     }
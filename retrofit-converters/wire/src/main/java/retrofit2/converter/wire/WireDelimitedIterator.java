@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.wire;
+
+import com.squareup.wire.Message;
+import com.squareup.wire.ProtoAdapter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Reads length-delimited messages from a response body one at a time, staging each in a reused
+ * {@link Buffer}. The body is closed once it is exhausted, when decoding fails, or when this is
+ * closed.
+ */
+final class WireDelimitedIterator<T extends Message<T, ?>> implements Iterator<T>, Closeable {
+  private final ResponseBody body;
+  private final BufferedSource source;
+  private final ProtoAdapter<T> adapter;
+  private final Buffer message = new Buffer();
+  private @Nullable T next;
+  private boolean closed;
+
+  WireDelimitedIterator(ResponseBody body, ProtoAdapter<T> adapter) {
+    this.body = body;
+    this.source = body.source();
+    this.adapter = adapter;
+  }
+
+  /** Returns the next message, or null once all messages have been read. */
+  @Nullable
+  T read() throws IOException {
+    if (closed) return null;
+    try {
+      if (source.exhausted()) {
+        close();
+        return null;
+      }
+      message.clear();
+      source.readFully(message, readLength());
+      return adapter.decode(message);
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /** Reads a message length, encoded as a base 128 varint. */
+  private int readLength() throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = source.readByte();
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        if (result < 0) break;
+        return result;
+      }
+    }
+    throw new ProtocolException("Malformed message length");
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = read();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    T result = next;
+    next = null;
+    return result;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    next = null;
+    body.close();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.wire;
+
+import com.squareup.wire.Message;
+import com.squareup.wire.ProtoAdapter;
+import io.reactivex.Flowable;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import okhttp3.ResponseBody;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+import retrofit2.Converter;
+
+final class WireDelimitedResponseBodyConverter<T extends Message<T, ?>>
+    implements Converter<ResponseBody, Object> {
+  static final int ITERATOR = 0;
+  static final int STREAM = 1;
+  static final int FLOWABLE = 2;
+
+  /** Returns the kind of container {@code rawType} is, or -1 if it isn't supported. */
+  static int containerOf(Class<?> rawType) {
+    if (rawType == Iterator.class) {
+      return ITERATOR;
+    }
+    // Compared by name since neither is guaranteed to be present at runtime.
+    String name = rawType.getName();
+    if (name.equals("java.util.stream.Stream")) {
+      return STREAM;
+    }
+    if (name.equals("io.reactivex.Flowable")) {
+      return FLOWABLE;
+    }
+    return -1;
+  }
+
+  private final ProtoAdapter<T> adapter;
+  private final int container;
+
+  WireDelimitedResponseBodyConverter(ProtoAdapter<T> adapter, int container) {
+    this.adapter = adapter;
+    this.container = container;
+  }
+
+  @Override
+  public Object convert(ResponseBody value) {
+    WireDelimitedIterator<T> iterator = new WireDelimitedIterator<>(value, adapter);
+    switch (container) {
+      case STREAM:
+        return Streams.of(iterator);
+      case FLOWABLE:
+        return Flowables.of(iterator);
+      default:
+        return iterator;
+    }
+  }
+
+  @IgnoreJRERequirement // Only used when the response type is a Stream.
+  static final class Streams {
+    static <T extends Message<T, ?>> Stream<T> of(WireDelimitedIterator<T> iterator) {
+      Spliterator<T> spliterator =
+          Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+      return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+  }
+
+  static final class Flowables {
+    /** Decodes a message per request from downstream, and closes the body when disposed. */
+    static <T extends Message<T, ?>> Flowable<T> of(WireDelimitedIterator<T> iterator) {
+      return Flowable.generate(
+          () -> iterator,
+          (state, emitter) -> {
+            T message = state.read();
+            if (message != null) {
+              emitter.onNext(message);
+            } else {
+              emitter.onComplete();
+            }
+          },
+          WireDelimitedIterator::close);
+    }
+  }
+}
@@ -20,7 +20,7 @@ import com.squareup.wire.ProtoAdapter;
 import java.io.IOException;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
-import okio.Buffer;
+import okio.BufferedSink;
 import retrofit2.Converter;
 
 final class WireRequestBodyConverter<T extends Message<T, ?>> implements Converter<T, RequestBody> {
@@ -33,9 +33,35 @@ final class WireRequestBodyConverter<T extends Message<T, ?>> implements Convert
   }
 
   @Override
-  public RequestBody convert(T value) throws IOException {
-    Buffer buffer = new Buffer();
-    adapter.encode(buffer, value);
-    return RequestBody.create(MEDIA_TYPE, buffer.snapshot());
+  public RequestBody convert(T value) {
+    return new WireRequestBody<>(adapter, value, adapter.encodedSize(value));
+  }
+
+  /** Encodes straight into the sink. Messages are immutable so this can be written repeatedly. */
+  static final class WireRequestBody<T> extends RequestBody {
+    private final ProtoAdapter<T> adapter;
+    private final T value;
+    private final long contentLength;
+
+    WireRequestBody(ProtoAdapter<T> adapter, T value, long contentLength) {
+      this.adapter = adapter;
+      this.value = value;
+      this.contentLength = contentLength;
+    }
+
+    @Override
+    public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+      return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      adapter.encode(sink, value);
+    }
   }
 }
@@ -18,9 +18,16 @@ package retrofit2.converter.wire;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -49,6 +56,15 @@ public final class WireConverterFactoryTest {
 
     @GET("/")
     Call<List<String>> wrongType();
+
+    @GET("/")
+    Call<Iterator<Phone>> iterator();
+
+    @GET("/")
+    Call<Stream<Phone>> stream();
+
+    @GET("/")
+    Call<Flowable<Phone>> flowable();
   }
 
   @Rule public final MockWebServer server = new MockWebServer();
@@ -80,6 +96,20 @@ public final class WireConverterFactoryTest {
     assertThat(request.getHeader("Content-Type")).isEqualTo("application/x-protobuf");
   }
 
+  @Test
+  public void serializeIsSizedAndRepeatable() throws IOException {
+    ByteString encoded = ByteString.decodeBase64("Cg4oNTE5KSA4NjctNTMwOQ==");
+    Phone phone = new Phone("(519) 867-5309");
+    RequestBody body = new WireRequestBodyConverter<>(Phone.ADAPTER).convert(phone);
+    assertThat(body.contentLength()).isEqualTo(encoded.size());
+
+    for (int i = 0; i < 2; i++) {
+      Buffer buffer = new Buffer();
+      body.writeTo(buffer);
+      assertThat(buffer.readByteString()).isEqualTo(encoded);
+    }
+  }
+
   @Test
   public void deserializeEmpty() throws IOException {
     server.enqueue(new MockResponse());
@@ -152,4 +182,73 @@ public final class WireConverterFactoryTest {
     } catch (EOFException ignored) {
     }
   }
+
+  @Test
+  public void deserializeDelimitedIterator() throws IOException {
+    server.enqueue(new MockResponse().setBody(delimited("1", "2", "3")));
+
+    Iterator<Phone> iterator = service.iterator().execute().body();
+    List<String> numbers = new ArrayList<>();
+    while (iterator.hasNext()) {
+      numbers.add(iterator.next().number);
+    }
+    assertThat(numbers).containsExactly("1", "2", "3");
+  }
+
+  @Test
+  public void deserializeDelimitedStream() throws IOException {
+    server.enqueue(new MockResponse().setBody(delimited("1", "2", "3")));
+
+    try (Stream<Phone> stream = service.stream().execute().body()) {
+      assertThat(stream.map(phone -> phone.number).collect(Collectors.toList()))
+          .containsExactly("1", "2", "3");
+    }
+  }
+
+  @Test
+  public void deserializeDelimitedFlowableRespectsBackpressure() throws IOException {
+    server.enqueue(new MockResponse().setBody(delimited("1", "2", "3")));
+
+    Flowable<Phone> flowable = service.flowable().execute().body();
+    TestSubscriber<String> subscriber = flowable.map(phone -> phone.number).test(1);
+    subscriber.assertValues("1").assertNotComplete();
+    subscriber.request(2);
+    subscriber.assertValues("1", "2", "3").assertNotComplete();
+    subscriber.request(1);
+    subscriber.assertValues("1", "2", "3").assertComplete();
+  }
+
+  @Test
+  public void deserializeDelimitedEmpty() throws IOException {
+    server.enqueue(new MockResponse());
+
+    Iterator<Phone> iterator = service.iterator().execute().body();
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test
+  public void deserializeDelimitedTruncated() throws IOException {
+    Buffer body = delimited("1");
+    body.writeByte(4).writeByte(0x0a).writeByte(2).writeUtf8("2"); // Missing a byte.
+    server.enqueue(new MockResponse().setBody(body));
+
+    Iterator<Phone> iterator = service.iterator().execute().body();
+    assertThat(iterator.next().number).isEqualTo("1");
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (RuntimeException e) {
+      assertThat(e.getCause()).isInstanceOf(EOFException.class);
+    }
+  }
+
+  private static Buffer delimited(String... numbers) {
+    Buffer buffer = new Buffer();
+    for (String number : numbers) {
+      byte[] encoded = Phone.ADAPTER.encode(new Phone(number));
+      buffer.writeByte(encoded.length); // Lengths below 128 are a single varint byte.
+      buffer.write(encoded);
+    }
+    return buffer;
+  }
 }
@@ -16,11 +16,13 @@
 package retrofit2.mock;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
@@ -31,11 +33,35 @@ import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
+/**
+ * Applies a {@link NetworkBehavior} to a delegate call. Delays of asynchronous calls are timed by a
+ * single shared scheduler thread and callbacks are then handed to the background executor, so no
+ * thread is parked for the duration of a simulated network delay. Synchronous calls wait on the
+ * calling thread.
+ */
 final class BehaviorCall<T> implements Call<T> {
+  private static final ScheduledExecutorService scheduler = createScheduler();
+
+  private static ScheduledExecutorService createScheduler() {
+    ScheduledThreadPoolExecutor scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "Retrofit Mock Scheduler");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.setRemoveOnCancelPolicy(true); // Canceled calls must not pin their callbacks.
+    return scheduler;
+  }
+
   final NetworkBehavior behavior;
   final ExecutorService backgroundExecutor;
   final Call<T> delegate;
 
+  /** The callback awaiting delivery. Whoever takes it is the only one to notify it. */
+  private final AtomicReference<Callback<T>> pendingCallback = new AtomicReference<>();
+
   private volatile @Nullable Future<?> task;
   volatile boolean canceled;
 
@@ -73,56 +99,29 @@ final class BehaviorCall<T> implements Call<T> {
       if (executed) throw new IllegalStateException("Already executed");
       executed = true;
     }
-    task =
-        backgroundExecutor.submit(
-            new Runnable() {
-              boolean delaySleep() {
-                long sleepMs = behavior.calculateDelay(MILLISECONDS);
-                if (sleepMs > 0) {
-                  try {
-                    Thread.sleep(sleepMs);
-                  } catch (InterruptedException e) {
-                    callback.onFailure(BehaviorCall.this, new IOException("canceled", e));
-                    return false;
-                  }
-                }
-                return true;
-              }
-
-              @Override
-              public void run() {
-                if (canceled) {
-                  callback.onFailure(BehaviorCall.this, new IOException("canceled"));
-                } else if (behavior.calculateIsFailure()) {
-                  if (delaySleep()) {
-                    callback.onFailure(BehaviorCall.this, behavior.failureException());
-                  }
-                } else if (behavior.calculateIsError()) {
-                  if (delaySleep()) {
-                    //noinspection unchecked An error response has no body.
-                    callback.onResponse(
-                        BehaviorCall.this, (Response<T>) behavior.createErrorResponse());
-                  }
-                } else {
-                  delegate.enqueue(
-                      new Callback<T>() {
-                        @Override
-                        public void onResponse(Call<T> call, Response<T> response) {
-                          if (delaySleep()) {
-                            callback.onResponse(call, response);
-                          }
-                        }
-
-                        @Override
-                        public void onFailure(Call<T> call, Throwable t) {
-                          if (delaySleep()) {
-                            callback.onFailure(call, t);
-                          }
-                        }
-                      });
-                }
-              }
-            });
+    pendingCallback.set(callback);
+    if (canceled) {
+      deliver(pending -> pending.onFailure(this, new IOException("canceled")));
+    } else if (behavior.calculateIsFailure()) {
+      deliverAfterDelay(pending -> pending.onFailure(this, behavior.failureException()));
+    } else if (behavior.calculateIsError()) {
+      //noinspection unchecked An error response has no body.
+      Response<T> errorResponse = (Response<T>) behavior.createErrorResponse();
+      deliverAfterDelay(pending -> pending.onResponse(this, errorResponse));
+    } else {
+      delegate.enqueue(
+          new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+              deliverAfterDelay(pending -> pending.onResponse(call, response));
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+              deliverAfterDelay(pending -> pending.onFailure(call, t));
+            }
+          });
+    }
   }
 
   @Override
@@ -130,6 +129,30 @@ final class BehaviorCall<T> implements Call<T> {
     enqueue(callback, null);
   }
 
+  private void deliverAfterDelay(Delivery<T> delivery) {
+    long delayMs = behavior.calculateDelay(MILLISECONDS);
+    if (delayMs > 0) {
+      task = scheduler.schedule(() -> deliver(delivery), delayMs, MILLISECONDS);
+    } else {
+      deliver(delivery);
+    }
+  }
+
+  /** Notifies the pending callback on the background executor unless it was already notified. */
+  private void deliver(Delivery<T> delivery) {
+    backgroundExecutor.execute(
+        () -> {
+          Callback<T> callback = pendingCallback.getAndSet(null);
+          if (callback != null) {
+            delivery.deliver(callback);
+          }
+        });
+  }
+
+  interface Delivery<T> {
+    void deliver(Callback<T> callback);
+  }
+
   @Override
   public synchronized boolean isExecuted() {
     return executed;
@@ -137,31 +160,29 @@ final class BehaviorCall<T> implements Call<T> {
 
   @Override
   public Response<T> execute(CacheControl cacheControl) throws IOException {
-    final AtomicReference<Response<T>> responseRef = new AtomicReference<>();
-    final AtomicReference<Throwable> failureRef = new AtomicReference<>();
-    final CountDownLatch latch = new CountDownLatch(1);
-    enqueue(
-        new Callback<T>() {
-          @Override
-          public void onResponse(Call<T> call, Response<T> response) {
-            responseRef.set(response);
-            latch.countDown();
-          }
-
-          @Override
-          public void onFailure(Call<T> call, Throwable t) {
-            failureRef.set(t);
-            latch.countDown();
-          }
-        });
-    try {
-      latch.await();
-    } catch (InterruptedException e) {
-      throw new IOException("canceled", e);
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed");
+      executed = true;
+    }
+    if (canceled) throw new IOException("canceled");
+
+    Response<T> response = null;
+    Throwable failure = null;
+    if (behavior.calculateIsFailure()) {
+      failure = behavior.failureException();
+    } else if (behavior.calculateIsError()) {
+      //noinspection unchecked An error response has no body.
+      response = (Response<T>) behavior.createErrorResponse();
+    } else {
+      try {
+        response = delegate.execute();
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+      }
     }
-    Response<T> response = responseRef.get();
+    awaitDelay();
+
     if (response != null) return response;
-    Throwable failure = failureRef.get();
     if (failure instanceof RuntimeException) throw (RuntimeException) failure;
     if (failure instanceof IOException) throw (IOException) failure;
     throw new RuntimeException(failure);
@@ -172,12 +193,37 @@ final class BehaviorCall<T> implements Call<T> {
     return execute(null);
   }
 
+  /** Blocks the calling thread for a simulated network delay or until this call is canceled. */
+  private void awaitDelay() throws IOException {
+    long delayMs = behavior.calculateDelay(MILLISECONDS);
+    long deadlineNanos = System.nanoTime() + MILLISECONDS.toNanos(delayMs);
+    synchronized (this) {
+      while (!canceled) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) return;
+        try {
+          NANOSECONDS.timedWait(this, remainingNanos);
+        } catch (InterruptedException e) {
+          throw new IOException("canceled", e);
+        }
+      }
+    }
+    throw new IOException("canceled");
+  }
+
   @Override
   public void cancel() {
     canceled = true;
+    synchronized (this) {
+      notifyAll(); // Wake a synchronous caller waiting out its delay.
+    }
     Future<?> task = this.task;
     if (task != null) {
-      task.cancel(true);
+      task.cancel(false);
+    }
+    Callback<T> callback = pendingCallback.getAndSet(null);
+    if (callback != null) {
+      backgroundExecutor.execute(() -> callback.onFailure(this, new IOException("canceled")));
     }
   }
 
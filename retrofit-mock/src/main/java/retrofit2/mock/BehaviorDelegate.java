@@ -15,12 +15,13 @@
  */
 package retrofit2.mock;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.lang.reflect.WildcardType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 import kotlin.coroutines.Continuation;
@@ -40,13 +41,20 @@ import retrofit2.Retrofit;
 public final class BehaviorDelegate<T> {
   final Retrofit retrofit;
   private final NetworkBehavior behavior;
+  private final Map<Method, NetworkBehavior> methodBehaviors;
   private final ExecutorService executor;
   private final Class<T> service;
+  private final ConcurrentHashMap<Method, MethodAdapter> adapters = new ConcurrentHashMap<>();
 
   BehaviorDelegate(
-      Retrofit retrofit, NetworkBehavior behavior, ExecutorService executor, Class<T> service) {
+      Retrofit retrofit,
+      NetworkBehavior behavior,
+      Map<Method, NetworkBehavior> methodBehaviors,
+      ExecutorService executor,
+      Class<T> service) {
     this.retrofit = retrofit;
     this.behavior = behavior;
+    this.methodBehaviors = methodBehaviors;
     this.executor = executor;
     this.service = service;
   }
@@ -57,34 +65,64 @@ public final class BehaviorDelegate<T> {
 
   @SuppressWarnings("unchecked") // Single-interface proxy creation guarded by parameter safety.
   public <R> T returning(Call<R> call) {
-    final Call<R> behaviorCall = new BehaviorCall<>(behavior, executor, call);
     return (T)
         Proxy.newProxyInstance(
             service.getClassLoader(),
-            new Class[] {service},
-            (proxy, method, args) -> {
-              ServiceMethodAdapterInfo adapterInfo = parseServiceMethodAdapterInfo(method);
-
-              Annotation[] methodAnnotations = method.getAnnotations();
-              CallAdapter<R, T> callAdapter =
-                  (CallAdapter<R, T>)
-                      retrofit.callAdapter(adapterInfo.responseType, methodAnnotations);
-
-              T adapted = callAdapter.adapt(behaviorCall);
-              if (!adapterInfo.isSuspend) {
-                return adapted;
-              }
+            new Class<?>[] {service},
+            (proxy, method, args) -> adapterFor(method).invoke((Call<Object>) call, args));
+  }
 
-              Call<Object> adaptedCall = (Call<Object>) adapted;
-              Continuation<Object> continuation = (Continuation<Object>) args[args.length - 1];
-              try {
-                return adapterInfo.wantsResponse
-                    ? KotlinExtensions.awaitResponse(adaptedCall, continuation)
-                    : KotlinExtensions.await(adaptedCall, continuation);
-              } catch (Exception e) {
-                return KotlinExtensions.suspendAndThrow(e, continuation);
-              }
-            });
+  private MethodAdapter adapterFor(Method method) {
+    MethodAdapter adapter = adapters.get(method);
+    if (adapter == null) {
+      ServiceMethodAdapterInfo adapterInfo = parseServiceMethodAdapterInfo(method);
+      @SuppressWarnings("unchecked") // The adapted type is only ever returned from the proxy.
+      CallAdapter<Object, Object> callAdapter =
+          (CallAdapter<Object, Object>)
+              retrofit.callAdapter(adapterInfo.responseType, method.getAnnotations());
+      NetworkBehavior methodBehavior = methodBehaviors.get(method);
+      adapter =
+          new MethodAdapter(
+              adapterInfo, callAdapter, methodBehavior != null ? methodBehavior : behavior);
+      MethodAdapter existing = adapters.putIfAbsent(method, adapter);
+      if (existing != null) adapter = existing;
+    }
+    return adapter;
+  }
+
+  /** Everything about a service method which does not change from one invocation to the next. */
+  final class MethodAdapter {
+    private final ServiceMethodAdapterInfo adapterInfo;
+    private final CallAdapter<Object, Object> callAdapter;
+    private final NetworkBehavior behavior;
+
+    MethodAdapter(
+        ServiceMethodAdapterInfo adapterInfo,
+        CallAdapter<Object, Object> callAdapter,
+        NetworkBehavior behavior) {
+      this.adapterInfo = adapterInfo;
+      this.callAdapter = callAdapter;
+      this.behavior = behavior;
+    }
+
+    @SuppressWarnings("unchecked") // Suspend functions are only adapted to Call.
+    @Nullable
+    Object invoke(Call<Object> call, @Nullable Object[] args) {
+      Object adapted = callAdapter.adapt(new BehaviorCall<>(behavior, executor, call));
+      if (!adapterInfo.isSuspend) {
+        return adapted;
+      }
+
+      Call<Object> adaptedCall = (Call<Object>) adapted;
+      Continuation<Object> continuation = (Continuation<Object>) args[args.length - 1];
+      try {
+        return adapterInfo.wantsResponse
+            ? KotlinExtensions.awaitResponse(adaptedCall, continuation)
+            : KotlinExtensions.await(adaptedCall, continuation);
+      } catch (Exception e) {
+        return KotlinExtensions.suspendAndThrow(e, continuation);
+      }
+    }
   }
 
   /**
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+import okio.Timeout;
+
+/**
+ * A {@link Call.Factory} which answers requests in-process instead of sending them over a network.
+ * Install it with {@link retrofit2.Retrofit.Builder#callFactory} to exercise a service without
+ * sockets, for example to load test or benchmark everything Retrofit does around the transport.
+ *
+ * <pre><code>
+ * InMemoryCallFactory callFactory = new InMemoryCallFactory.Builder()
+ *     .route("GET", "/users", InMemoryCallFactory.respond(200, json, "[]"))
+ *     .route("GET", "/users/*", request -&gt; ...)
+ *     .build();
+ * </code></pre>
+ *
+ * <p>Requests are matched by HTTP method and encoded path: first against routes with an exact path,
+ * then against routes whose path ends with {@code *} in the order they were added. Requests which
+ * match no route are answered by the {@linkplain Builder#fallback fallback handler}, which responds
+ * with an empty {@code 404 Not Found} by default.
+ *
+ * <p>Handlers run on the thread which executes the call. {@link Call#enqueue} does not hop to
+ * another thread either; its callback is invoked before it returns. The routing table is immutable
+ * and calls share no locks, so instances scale with the number of threads driving them.
+ */
+public final class InMemoryCallFactory implements Call.Factory {
+  /** Answers requests to an {@link InMemoryCallFactory}. */
+  public interface Handler {
+    /**
+     * Returns the response to {@code request}. Throw an {@link IOException} to simulate a network
+     * failure.
+     */
+    Response handle(Request request) throws IOException;
+  }
+
+  /** Returns a factory which answers every request with {@code handler}. */
+  public static InMemoryCallFactory create(Handler handler) {
+    return new Builder().fallback(handler).build();
+  }
+
+  /**
+   * Returns a response builder for {@code request} with a {@code 200 OK} status and an empty body.
+   */
+  public static Response.Builder response(Request request) {
+    return new Response.Builder()
+        .request(request)
+        .protocol(Protocol.HTTP_1_1)
+        .code(200)
+        .message("OK")
+        .body(ResponseBody.create(null, ByteString.EMPTY));
+  }
+
+  /** Returns a handler which answers every request with {@code code} and a copy of {@code body}. */
+  public static Handler respond(int code, @Nullable MediaType contentType, String body) {
+    return respond(code, contentType, ByteString.encodeUtf8(body));
+  }
+
+  /** Returns a handler which answers every request with {@code code} and a copy of {@code body}. */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static Handler respond(int code, @Nullable MediaType contentType, ByteString body) {
+    if (code < 100) throw new IllegalArgumentException("code < 100: " + code);
+    if (body == null) throw new NullPointerException("body == null");
+    String message = code < 400 ? "OK" : "Error";
+    return request ->
+        response(request)
+            .code(code)
+            .message(message)
+            .body(ResponseBody.create(contentType, body))
+            .build();
+  }
+
+  private static final Handler NOT_FOUND =
+      request -> response(request).code(404).message("Not Found").build();
+
+  private final Map<String, Map<String, Handler>> exactRoutes;
+  private final PrefixRoute[] prefixRoutes;
+  private final Handler fallback;
+
+  InMemoryCallFactory(
+      Map<String, Map<String, Handler>> exactRoutes, PrefixRoute[] prefixRoutes, Handler fallback) {
+    this.exactRoutes = exactRoutes;
+    this.prefixRoutes = prefixRoutes;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public Call newCall(Request request) {
+    return new InMemoryCall(request);
+  }
+
+  Handler handlerFor(Request request) {
+    String method = request.method();
+    String path = request.url().encodedPath();
+    Map<String, Handler> routes = exactRoutes.get(method);
+    if (routes != null) {
+      Handler handler = routes.get(path);
+      if (handler != null) return handler;
+    }
+    for (PrefixRoute route : prefixRoutes) {
+      if (route.method.equals(method) && path.startsWith(route.prefix)) {
+        return route.handler;
+      }
+    }
+    return fallback;
+  }
+
+  final class InMemoryCall implements Call {
+    private final Request request;
+    private final AtomicBoolean executed = new AtomicBoolean();
+    private volatile boolean canceled;
+
+    InMemoryCall(Request request) {
+      this.request = request;
+    }
+
+    @Override
+    public Request request() {
+      return request;
+    }
+
+    @Override
+    public Response execute() throws IOException {
+      if (!executed.compareAndSet(false, true)) {
+        throw new IllegalStateException("Already Executed");
+      }
+      if (canceled) throw new IOException("Canceled");
+      Response response = handlerFor(request).handle(request);
+      if (response == null) {
+        throw new NullPointerException("Handler returned null for " + request);
+      }
+      if (canceled) {
+        response.close();
+        throw new IOException("Canceled");
+      }
+      return response;
+    }
+
+    @Override
+    public void enqueue(Callback callback) {
+      Response response;
+      try {
+        response = execute();
+      } catch (IOException e) {
+        callback.onFailure(this, e);
+        return;
+      }
+      try {
+        callback.onResponse(this, response);
+      } catch (IOException e) {
+        // The callback already has its response. It runs on the caller's thread, so rethrow there.
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      canceled = true;
+    }
+
+    @Override
+    public boolean isExecuted() {
+      return executed.get();
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return canceled;
+    }
+
+    @Override
+    public Timeout timeout() {
+      return Timeout.NONE;
+    }
+
+    @SuppressWarnings("MethodDoesntCallSuperMethod")
+    @Override
+    public Call clone() {
+      return new InMemoryCall(request);
+    }
+  }
+
+  static final class PrefixRoute {
+    final String method;
+    final String prefix;
+    final Handler handler;
+
+    PrefixRoute(String method, String prefix, Handler handler) {
+      this.method = method;
+      this.prefix = prefix;
+      this.handler = handler;
+    }
+  }
+
+  public static final class Builder {
+    private final Map<String, Map<String, Handler>> exactRoutes = new HashMap<>();
+    private final List<PrefixRoute> prefixRoutes = new ArrayList<>();
+    private Handler fallback = NOT_FOUND;
+
+    /**
+     * Answer requests with {@code method} to {@code path} with {@code handler}. A path ending with
+     * {@code *} matches every encoded path which starts with the preceding characters.
+     */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder route(String method, String path, Handler handler) {
+      if (method == null) throw new NullPointerException("method == null");
+      if (path == null) throw new NullPointerException("path == null");
+      if (handler == null) throw new NullPointerException("handler == null");
+      if (!path.startsWith("/")) {
+        throw new IllegalArgumentException("path must start with '/': " + path);
+      }
+      if (path.endsWith("*")) {
+        prefixRoutes.add(new PrefixRoute(method, path.substring(0, path.length() - 1), handler));
+      } else {
+        Map<String, Handler> routes = exactRoutes.get(method);
+        if (routes == null) {
+          routes = new HashMap<>();
+          exactRoutes.put(method, routes);
+        }
+        routes.put(path, handler);
+      }
+      return this;
+    }
+
+    /** Answer requests which match no route with {@code handler}. */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder fallback(Handler handler) {
+      if (handler == null) throw new NullPointerException("handler == null");
+      this.fallback = handler;
+      return this;
+    }
+
+    public InMemoryCallFactory build() {
+      Map<String, Map<String, Handler>> exactRoutes = new HashMap<>();
+      for (Map.Entry<String, Map<String, Handler>> entry : this.exactRoutes.entrySet()) {
+        exactRoutes.put(entry.getKey(), new HashMap<>(entry.getValue()));
+      }
+      return new InMemoryCallFactory(
+          exactRoutes, prefixRoutes.toArray(new PrefixRoute[0]), fallback);
+    }
+  }
+}
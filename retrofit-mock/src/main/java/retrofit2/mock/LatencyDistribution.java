@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shape of simulated network round trip delays, for use with {@link
+ * NetworkBehavior#setLatencyDistribution(LatencyDistribution)}.
+ *
+ * <p>Real latencies are rarely uniform. Most requests complete near a typical value while a few
+ * take many times as long, and it is this tail which exhausts thread pools, connection limits and
+ * timeouts. {@link #logNormal} and {@link #pareto} model such tails; {@link #empirical} and {@link
+ * #histogram} replay latencies recorded from production.
+ */
+public abstract class LatencyDistribution {
+  /**
+   * Delays which vary uniformly by up to {@code variancePercent} around {@code delay}. This is the
+   * model {@link NetworkBehavior} uses by default.
+   */
+  public static LatencyDistribution uniform(long delay, int variancePercent, TimeUnit unit) {
+    if (delay < 0) throw new IllegalArgumentException("delay < 0: " + delay);
+    if (variancePercent < 0 || variancePercent > 100) {
+      throw new IllegalArgumentException("Variance percentage must be between 0 and 100.");
+    }
+    double delayMs = toMillis(delay, unit);
+    double delta = variancePercent / 100d;
+    return new LatencyDistribution() {
+      @Override
+      public long sampleMillis(Random random) {
+        double delayPercent = 1d - delta + random.nextDouble() * 2d * delta;
+        return (long) (delayMs * delayPercent);
+      }
+    };
+  }
+
+  /**
+   * Delays whose logarithm is normally distributed: half are below {@code median}, and {@code
+   * sigma} controls how heavy the upper tail is. A {@code sigma} of 0.5 puts the 99th percentile at
+   * about 3.2 times the median, a {@code sigma} of 1 at about 10 times.
+   */
+  public static LatencyDistribution logNormal(double median, double sigma, TimeUnit unit) {
+    if (!(median > 0)) throw new IllegalArgumentException("median <= 0: " + median);
+    if (!(sigma >= 0)) throw new IllegalArgumentException("sigma < 0: " + sigma);
+    double medianMs = toMillis(median, unit);
+    return new LatencyDistribution() {
+      @Override
+      public long sampleMillis(Random random) {
+        return (long) (medianMs * Math.exp(sigma * random.nextGaussian()));
+      }
+    };
+  }
+
+  /**
+   * Delays of at least {@code minimum} with a power-law tail. The smaller {@code shape} is, the
+   * heavier the tail; at or below 1 the mean delay is unbounded.
+   */
+  public static LatencyDistribution pareto(double minimum, double shape, TimeUnit unit) {
+    if (!(minimum > 0)) throw new IllegalArgumentException("minimum <= 0: " + minimum);
+    if (!(shape > 0)) throw new IllegalArgumentException("shape <= 0: " + shape);
+    double minimumMs = toMillis(minimum, unit);
+    double inverseShape = 1d / shape;
+    return new LatencyDistribution() {
+      @Override
+      public long sampleMillis(Random random) {
+        double uniform = 1d - random.nextDouble(); // (0, 1] so the tail is never infinite.
+        return (long) (minimumMs / Math.pow(uniform, inverseShape));
+      }
+    };
+  }
+
+  /** Delays drawn with equal probability from {@code samples}, such as recorded latencies. */
+  public static LatencyDistribution empirical(long[] samples, TimeUnit unit) {
+    if (samples.length == 0) throw new IllegalArgumentException("samples.length == 0");
+    long[] samplesMs = new long[samples.length];
+    for (int i = 0; i < samples.length; i++) {
+      if (samples[i] < 0) throw new IllegalArgumentException("samples[" + i + "] < 0");
+      samplesMs[i] = unit.toMillis(samples[i]);
+    }
+    return new LatencyDistribution() {
+      @Override
+      public long sampleMillis(Random random) {
+        return samplesMs[random.nextInt(samplesMs.length)];
+      }
+    };
+  }
+
+  /**
+   * Delays replayed from a latency histogram. Bucket {@code i} holds {@code counts[i]} observations
+   * greater than {@code upperBounds[i - 1]} (or 0) and at most {@code upperBounds[i]}. Samples pick
+   * a bucket in proportion to its count and a delay uniformly within it.
+   */
+  public static LatencyDistribution histogram(long[] upperBounds, long[] counts, TimeUnit unit) {
+    if (upperBounds.length != counts.length) {
+      throw new IllegalArgumentException(
+          "upperBounds.length != counts.length: " + upperBounds.length + " != " + counts.length);
+    }
+    int size = upperBounds.length;
+    double[] upperBoundsMs = new double[size];
+    long[] cumulativeCounts = new long[size];
+    long total = 0;
+    for (int i = 0; i < size; i++) {
+      if (counts[i] < 0) throw new IllegalArgumentException("counts[" + i + "] < 0");
+      if (i == 0 ? upperBounds[i] < 0 : upperBounds[i] <= upperBounds[i - 1]) {
+        throw new IllegalArgumentException("upperBounds must be non-negative and increasing");
+      }
+      upperBoundsMs[i] = toMillis(upperBounds[i], unit);
+      total += counts[i];
+      cumulativeCounts[i] = total;
+    }
+    if (total == 0) throw new IllegalArgumentException("counts are all 0");
+    long totalCount = total;
+    return new LatencyDistribution() {
+      @Override
+      public long sampleMillis(Random random) {
+        long observation = (long) (random.nextDouble() * totalCount);
+        // Find the first bucket whose cumulative count exceeds the observation.
+        int bucket = 0;
+        int high = cumulativeCounts.length - 1;
+        while (bucket < high) {
+          int mid = (bucket + high) >>> 1;
+          if (cumulativeCounts[mid] > observation) {
+            high = mid;
+          } else {
+            bucket = mid + 1;
+          }
+        }
+        double lower = bucket == 0 ? 0d : upperBoundsMs[bucket - 1];
+        return (long) (lower + random.nextDouble() * (upperBoundsMs[bucket] - lower));
+      }
+    };
+  }
+
+  private static double toMillis(double amount, TimeUnit unit) {
+    return amount * unit.toNanos(1) / MILLISECONDS.toNanos(1);
+  }
+
+  /** Returns a non-negative delay in milliseconds, drawn using {@code random}. */
+  public abstract long sampleMillis(Random random);
+}
@@ -15,6 +15,10 @@
  */
 package retrofit2.mock;
 
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -24,11 +28,17 @@ import retrofit2.Retrofit;
 public final class MockRetrofit {
   private final Retrofit retrofit;
   private final NetworkBehavior behavior;
+  private final Map<Method, NetworkBehavior> methodBehaviors;
   private final ExecutorService executor;
 
-  MockRetrofit(Retrofit retrofit, NetworkBehavior behavior, ExecutorService executor) {
+  MockRetrofit(
+      Retrofit retrofit,
+      NetworkBehavior behavior,
+      Map<Method, NetworkBehavior> methodBehaviors,
+      ExecutorService executor) {
     this.retrofit = retrofit;
     this.behavior = behavior;
+    this.methodBehaviors = methodBehaviors;
     this.executor = executor;
   }
 
@@ -40,18 +50,33 @@ public final class MockRetrofit {
     return behavior;
   }
 
+  /**
+   * The behavior applied to calls of {@code method}: its {@linkplain
+   * Builder#networkBehavior(Method, NetworkBehavior) override} if it has one, otherwise {@link
+   * #networkBehavior()}.
+   */
+  public NetworkBehavior networkBehavior(Method method) {
+    NetworkBehavior override = methodBehaviors.get(method);
+    return override != null ? override : behavior;
+  }
+
   public Executor backgroundExecutor() {
     return executor;
   }
 
+  ExecutorService backgroundExecutorService() {
+    return executor;
+  }
+
   @SuppressWarnings("unchecked") // Single-interface proxy creation guarded by parameter safety.
   public <T> BehaviorDelegate<T> create(Class<T> service) {
-    return new BehaviorDelegate<>(retrofit, behavior, executor, service);
+    return new BehaviorDelegate<>(retrofit, behavior, methodBehaviors, executor, service);
   }
 
   public static final class Builder {
     private final Retrofit retrofit;
     private @Nullable NetworkBehavior behavior;
+    private final Map<Method, NetworkBehavior> methodBehaviors = new LinkedHashMap<>();
     private @Nullable ExecutorService executor;
 
     @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
@@ -67,6 +92,19 @@ public final class MockRetrofit {
       return this;
     }
 
+    /**
+     * Apply {@code behavior} to calls of the service method {@code method} instead of the behavior
+     * shared by all other methods. This allows, for example, a slow search endpoint to be simulated
+     * next to fast lookups.
+     */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder networkBehavior(Method method, NetworkBehavior behavior) {
+      if (method == null) throw new NullPointerException("method == null");
+      if (behavior == null) throw new NullPointerException("behavior == null");
+      methodBehaviors.put(method, behavior);
+      return this;
+    }
+
     @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
     public Builder backgroundExecutor(ExecutorService executor) {
       if (executor == null) throw new NullPointerException("executor == null");
@@ -77,7 +115,11 @@ public final class MockRetrofit {
     public MockRetrofit build() {
       if (behavior == null) behavior = NetworkBehavior.create();
       if (executor == null) executor = Executors.newCachedThreadPool();
-      return new MockRetrofit(retrofit, behavior, executor);
+      return new MockRetrofit(
+          retrofit,
+          behavior,
+          Collections.unmodifiableMap(new LinkedHashMap<>(methodBehaviors)),
+          executor);
     }
   }
 }
@@ -20,7 +20,9 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import java.io.IOException;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import okhttp3.ResponseBody;
 import retrofit2.Response;
 
@@ -39,7 +41,11 @@ import retrofit2.Response;
  * applied elsewhere using {@link #calculateDelay(TimeUnit)} and {@link #calculateIsFailure()}.
  *
  * <p>By default, instances of this class will use a 2 second delay with 40% variance. Failures will
- * occur 3% of the time. HTTP errors will occur 0% of the time.
+ * occur 3% of the time. HTTP errors will occur 0% of the time. For delays with a realistic tail,
+ * set a {@link LatencyDistribution}.
+ *
+ * <p>Instances created with {@link #create()} draw from a random stream per thread so that many
+ * threads can sample the same behavior without contending on it.
  */
 public final class NetworkBehavior {
   private static final int DEFAULT_DELAY_MS = 2000; // Network calls will take 2 seconds.
@@ -49,12 +55,13 @@ public final class NetworkBehavior {
 
   /** Create an instance with default behavior. */
   public static NetworkBehavior create() {
-    return new NetworkBehavior(new Random());
+    return new NetworkBehavior(null);
   }
 
   /**
    * Create an instance with default behavior which uses {@code random} to control variance and
-   * failure calculation.
+   * failure calculation. Every thread shares {@code random}, which makes the results repeatable for
+   * a given seed when a single thread samples them.
    */
   @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
   public static NetworkBehavior create(Random random) {
@@ -62,17 +69,18 @@ public final class NetworkBehavior {
     return new NetworkBehavior(random);
   }
 
-  private final Random random;
+  private final @Nullable Random random;
 
   private volatile long delayMs = DEFAULT_DELAY_MS;
   private volatile int variancePercent = DEFAULT_VARIANCE_PERCENT;
+  private volatile @Nullable LatencyDistribution latencyDistribution;
   private volatile int failurePercent = DEFAULT_FAILURE_PERCENT;
   private volatile Throwable failureException;
   private volatile int errorPercent = DEFAULT_ERROR_PERCENT;
   private volatile Callable<Response<?>> errorFactory =
       () -> Response.error(500, ResponseBody.create(null, new byte[0]));
 
-  private NetworkBehavior(Random random) {
+  private NetworkBehavior(@Nullable Random random) {
     this.random = random;
 
     failureException = new MockRetrofitIOException();
@@ -103,6 +111,19 @@ public final class NetworkBehavior {
     return variancePercent;
   }
 
+  /**
+   * Draw network round trip delays from {@code latencyDistribution} instead of the {@linkplain
+   * #setDelay delay} and {@linkplain #setVariancePercent variance}. Pass null to use those again.
+   */
+  public void setLatencyDistribution(@Nullable LatencyDistribution latencyDistribution) {
+    this.latencyDistribution = latencyDistribution;
+  }
+
+  /** The distribution of network round trip delays, or null if delay and variance are used. */
+  public @Nullable LatencyDistribution latencyDistribution() {
+    return latencyDistribution;
+  }
+
   /** Set the percentage of calls to {@link #calculateIsFailure()} that return {@code true}. */
   public void setFailurePercent(int failurePercent) {
     checkPercentageValidity(failurePercent, "Failure percentage must be between 0 and 100.");
@@ -178,7 +199,7 @@ public final class NetworkBehavior {
    * configured behavior. When true, {@link #failureException()} should be thrown.
    */
   public boolean calculateIsFailure() {
-    return random.nextInt(100) < failurePercent;
+    return random().nextInt(100) < failurePercent;
   }
 
   /**
@@ -186,7 +207,7 @@ public final class NetworkBehavior {
    * configured behavior. When true, {@link #createErrorResponse()} should be returned.
    */
   public boolean calculateIsError() {
-    return random.nextInt(100) < errorPercent;
+    return random().nextInt(100) < errorPercent;
   }
 
   /**
@@ -194,15 +215,24 @@ public final class NetworkBehavior {
    * behavior.
    */
   public long calculateDelay(TimeUnit unit) {
+    LatencyDistribution latencyDistribution = this.latencyDistribution;
+    if (latencyDistribution != null) {
+      return MILLISECONDS.convert(latencyDistribution.sampleMillis(random()), unit);
+    }
     float delta = variancePercent / 100f; // e.g., 20 / 100f == 0.2f
     float lowerBound = 1f - delta; // 0.2f --> 0.8f
     float upperBound = 1f + delta; // 0.2f --> 1.2f
     float bound = upperBound - lowerBound; // 1.2f - 0.8f == 0.4f
-    float delayPercent = lowerBound + (random.nextFloat() * bound); // 0.8 + (rnd * 0.4)
+    float delayPercent = lowerBound + (random().nextFloat() * bound); // 0.8 + (rnd * 0.4)
     long callDelayMs = (long) (delayMs * delayPercent);
     return MILLISECONDS.convert(callDelayMs, unit);
   }
 
+  private Random random() {
+    Random random = this.random;
+    return random != null ? random : ThreadLocalRandom.current();
+  }
+
   private static void checkPercentageValidity(int percentage, String message) {
     if (percentage < 0 || percentage > 100) {
       throw new IllegalArgumentException(message);
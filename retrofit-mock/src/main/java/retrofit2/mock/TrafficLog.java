@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Exchanges captured by a {@link TrafficRecorder}, read one at a time in the order they completed.
+ *
+ * <pre><code>
+ * try (TrafficLog log = TrafficLog.open(new File("traffic.log"))) {
+ *   for (TrafficLog.Entry entry; (entry = log.next()) != null; ) {
+ *     System.out.println(entry.request());
+ *   }
+ * }
+ * </code></pre>
+ *
+ * <p>The log is a compact binary file: a short header followed by one length-prefixed record per
+ * exchange. Strings are UTF-8 and bodies are stored verbatim. Only the record being read is held in
+ * memory, so a log can be much larger than the heap.
+ */
+public final class TrafficLog implements Closeable {
+  private static final ByteString MAGIC = ByteString.encodeUtf8("RTRF");
+  private static final int VERSION = 1;
+
+  /** Open the log recorded to {@code file}. */
+  public static TrafficLog open(File file) throws IOException {
+    BufferedSource source = Okio.buffer(Okio.source(file));
+    try {
+      return open(source);
+    } catch (IOException e) {
+      source.close();
+      throw e;
+    }
+  }
+
+  /** Open a recorded log read from {@code source}. Closing the log closes the source. */
+  public static TrafficLog open(BufferedSource source) throws IOException {
+    if (!source.rangeEquals(0, MAGIC)) {
+      throw new IOException("Not a traffic log");
+    }
+    source.skip(MAGIC.size());
+    int version = source.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported traffic log version: " + version);
+    }
+    return new TrafficLog(source);
+  }
+
+  private static Entry readEntry(Buffer record) throws IOException {
+    long offsetNanos = record.readLong();
+    long durationNanos = record.readLong();
+    long horizonNanos = record.readLong();
+    String serviceMethod = readString(record);
+
+    String httpMethod = readNonNullString(record);
+    Request.Builder request = new Request.Builder().url(readNonNullString(record));
+    request.headers(readHeaders(record));
+    String requestContentType = readString(record);
+    long requestBodyLength = record.readLong();
+    ByteString requestBody = readBytes(record);
+    request.method(
+        httpMethod,
+        requestBody != null
+            ? RequestBody.create(mediaType(requestContentType), requestBody)
+            : null);
+
+    int code = record.readInt();
+    String message = readNonNullString(record);
+    Headers headers = readHeaders(record);
+    MediaType contentType = mediaType(readString(record));
+    ByteString body = readBytes(record);
+    return new Entry(
+        offsetNanos,
+        durationNanos,
+        horizonNanos,
+        serviceMethod,
+        request.build(),
+        requestBodyLength,
+        code,
+        message,
+        headers,
+        contentType,
+        body != null ? body : ByteString.EMPTY);
+  }
+
+  private final BufferedSource source;
+  private final Buffer record = new Buffer();
+
+  private TrafficLog(BufferedSource source) {
+    this.source = source;
+  }
+
+  /** Returns the next recorded exchange, or null if every exchange has been read. */
+  public @Nullable Entry next() throws IOException {
+    if (source.exhausted()) return null;
+    long size = source.readLong();
+    if (size < 0) throw new IOException("Corrupt traffic log");
+    record.clear();
+    source.readFully(record, size);
+    return readEntry(record);
+  }
+
+  @Override
+  public void close() throws IOException {
+    source.close();
+  }
+
+  /** A recorded exchange. */
+  public static final class Entry {
+    private final long offsetNanos;
+    private final long durationNanos;
+    private final long horizonNanos;
+    private final @Nullable String serviceMethod;
+    private final Request request;
+    private final long requestBodyLength;
+    private final int code;
+    private final String message;
+    private final Headers headers;
+    private final @Nullable MediaType contentType;
+    private final ByteString body;
+
+    Entry(
+        long offsetNanos,
+        long durationNanos,
+        long horizonNanos,
+        @Nullable String serviceMethod,
+        Request request,
+        long requestBodyLength,
+        int code,
+        String message,
+        Headers headers,
+        @Nullable MediaType contentType,
+        ByteString body) {
+      this.offsetNanos = offsetNanos;
+      this.durationNanos = durationNanos;
+      this.horizonNanos = horizonNanos;
+      this.serviceMethod = serviceMethod;
+      this.request = request;
+      this.requestBodyLength = requestBodyLength;
+      this.code = code;
+      this.message = message;
+      this.headers = headers;
+      this.contentType = contentType;
+      this.body = body;
+    }
+
+    /** When the exchange started, relative to the creation of the recorder. */
+    public long offsetNanos() {
+      return offsetNanos;
+    }
+
+    /** How long the network took to answer the request. */
+    public long durationNanos() {
+      return durationNanos;
+    }
+
+    /**
+     * Every exchange recorded after this one started at or after this offset, so that the exchanges
+     * can be put back into the order they started in without reading the whole log.
+     */
+    long horizonNanos() {
+      return horizonNanos;
+    }
+
+    /**
+     * The service method which created the request as {@code Class#method(ParameterTypes)}, or null
+     * if it was not made by Retrofit.
+     */
+    public @Nullable String serviceMethod() {
+      return serviceMethod;
+    }
+
+    /**
+     * The recorded request. Its body holds the bytes which were sent, except that bodies larger
+     * than 64 KiB, duplex bodies and bodies which were never sent are recorded as empty.
+     */
+    public Request request() {
+      return request;
+    }
+
+    /**
+     * The number of bytes of the request body which were sent, or -1 if the request had no body or
+     * the length is unknown because the body is duplex or was never sent.
+     */
+    public long requestBodyLength() {
+      return requestBodyLength;
+    }
+
+    /** Returns a new copy of the recorded response whose body can be consumed independently. */
+    public Response response() {
+      return new Response.Builder()
+          .request(request)
+          .protocol(Protocol.HTTP_1_1)
+          .code(code)
+          .message(message)
+          .headers(headers)
+          .body(ResponseBody.create(contentType, body))
+          .build();
+    }
+  }
+
+  static void writeHeader(BufferedSink sink) throws IOException {
+    sink.write(MAGIC);
+    sink.writeInt(VERSION);
+  }
+
+  static void writeString(Buffer buffer, @Nullable String value) {
+    writeBytes(buffer, value != null ? ByteString.encodeUtf8(value) : null);
+  }
+
+  static void writeBytes(Buffer buffer, @Nullable ByteString value) {
+    if (value == null) {
+      buffer.writeInt(-1);
+    } else {
+      buffer.writeInt(value.size());
+      buffer.write(value);
+    }
+  }
+
+  private static @Nullable String readString(Buffer buffer) throws IOException {
+    ByteString bytes = readBytes(buffer);
+    return bytes != null ? bytes.utf8() : null;
+  }
+
+  private static String readNonNullString(Buffer buffer) throws IOException {
+    String value = readString(buffer);
+    if (value == null) throw new IOException("Corrupt traffic log");
+    return value;
+  }
+
+  private static @Nullable ByteString readBytes(Buffer buffer) throws IOException {
+    int size = buffer.readInt();
+    return size != -1 ? buffer.readByteString(size) : null;
+  }
+
+  private static Headers readHeaders(Buffer buffer) throws IOException {
+    Headers.Builder headers = new Headers.Builder();
+    for (int i = 0, size = buffer.readInt(); i < size; i++) {
+      headers.add(readNonNullString(buffer), readNonNullString(buffer));
+    }
+    return headers.build();
+  }
+
+  private static @Nullable MediaType mediaType(@Nullable String value) {
+    return value != null ? MediaType.parse(value) : null;
+  }
+}
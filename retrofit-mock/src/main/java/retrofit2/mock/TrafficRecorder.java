@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.ForwardingSink;
+import okio.Okio;
+import retrofit2.Invocation;
+
+/**
+ * An OkHttp interceptor which writes every exchange to a {@link TrafficLog}: the service method
+ * which created the request, the request, the response and when the exchange started and how long
+ * it took. Install it on the {@link okhttp3.OkHttpClient} of a {@link retrofit2.Retrofit} instance
+ * talking to real services, then {@linkplain TrafficReplayer replay} the log against later builds.
+ *
+ * <pre><code>
+ * TrafficRecorder recorder = TrafficRecorder.create(new File("traffic.log"));
+ * OkHttpClient client = new OkHttpClient.Builder().addInterceptor(recorder).build();
+ * </code></pre>
+ *
+ * <p>The values of the {@code Authorization}, {@code Proxy-Authorization}, {@code Cookie} and
+ * {@code Set-Cookie} headers are replaced with {@code REDACTED} so that logs can be shared. Use
+ * {@link #redactHeader} to redact other headers which carry credentials.
+ *
+ * <p>Request bodies are copied as they are sent. Bodies larger than 64 KiB are recorded as empty,
+ * with only their content type and length. Response bodies are buffered in memory to be recorded,
+ * so this is not suitable for very large {@link retrofit2.http.Streaming @Streaming} responses.
+ * Close the recorder to flush the log.
+ */
+public final class TrafficRecorder implements Interceptor, Closeable {
+  /** Create a recorder which writes to {@code file}, replacing any existing content. */
+  public static TrafficRecorder create(File file) throws IOException {
+    return new TrafficRecorder(Okio.buffer(Okio.sink(file)));
+  }
+
+  /** Request bodies larger than this are recorded as empty. */
+  static final long MAX_RECORDED_REQUEST_BODY_SIZE = 64 * 1024;
+
+  /** The start offset, duration and horizon which precede the rest of each record. */
+  private static final long RECORD_PREFIX_SIZE = 3 * 8;
+
+  private final long originNanos = System.nanoTime();
+
+  private volatile Set<String> headersToRedact = defaultHeadersToRedact();
+
+  @GuardedBy("this")
+  private final BufferedSink sink;
+
+  @GuardedBy("this")
+  private boolean closed;
+
+  /** When the exchanges which have not been recorded yet started. */
+  @GuardedBy("this")
+  private final PriorityQueue<Long> inFlightStartNanos = new PriorityQueue<>();
+
+  /** Create a recorder which writes to {@code sink}. */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public TrafficRecorder(BufferedSink sink) throws IOException {
+    if (sink == null) throw new NullPointerException("sink == null");
+    this.sink = sink;
+    TrafficLog.writeHeader(sink);
+  }
+
+  /**
+   * Record the value of the header {@code name} as {@code REDACTED}. Names are case-insensitive.
+   */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public void redactHeader(String name) {
+    if (name == null) throw new NullPointerException("name == null");
+    Set<String> newHeadersToRedact = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    newHeadersToRedact.addAll(headersToRedact);
+    newHeadersToRedact.add(name);
+    headersToRedact = newHeadersToRedact;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    RequestBody body = request.body();
+    RecordingRequestBody recordingBody = null;
+    Request sent = request;
+    if (body != null && !body.isDuplex()) {
+      // Copy the body while it is sent rather than writing it again afterwards.
+      recordingBody = new RecordingRequestBody(body);
+      sent = request.newBuilder().method(request.method(), recordingBody).build();
+    }
+
+    long startNanos;
+    synchronized (this) {
+      startNanos = System.nanoTime();
+      inFlightStartNanos.add(startNanos);
+    }
+    Response response;
+    Buffer record = new Buffer();
+    long durationNanos;
+    try {
+      response = chain.proceed(sent);
+      durationNanos = System.nanoTime() - startNanos;
+
+      Invocation invocation = request.tag(Invocation.class);
+      ResponseBody responseBody = response.peekBody(Long.MAX_VALUE);
+      TrafficLog.writeString(record, invocation != null ? methodKey(invocation.method()) : null);
+      TrafficLog.writeString(record, request.method());
+      TrafficLog.writeString(record, request.url().toString());
+      writeHeaders(record, request.headers());
+      writeRequestBody(record, body, recordingBody);
+      record.writeInt(response.code());
+      TrafficLog.writeString(record, response.message());
+      writeHeaders(record, response.headers());
+      MediaType contentType = responseBody.contentType();
+      TrafficLog.writeString(record, contentType != null ? contentType.toString() : null);
+      TrafficLog.writeBytes(record, responseBody.source().readByteString());
+    } catch (IOException | RuntimeException | Error e) {
+      synchronized (this) {
+        inFlightStartNanos.remove(startNanos);
+      }
+      throw e;
+    }
+
+    synchronized (this) {
+      inFlightStartNanos.remove(startNanos);
+      // Exchanges which start later are given a later start under this lock.
+      Long earliestInFlight = inFlightStartNanos.peek();
+      long horizonNanos = earliestInFlight != null ? earliestInFlight : System.nanoTime();
+      if (!closed) {
+        sink.writeLong(RECORD_PREFIX_SIZE + record.size());
+        sink.writeLong(startNanos - originNanos);
+        sink.writeLong(durationNanos);
+        sink.writeLong(horizonNanos - originNanos);
+        sink.writeAll(record);
+      }
+    }
+    return response;
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) return;
+      closed = true;
+      sink.close();
+    }
+  }
+
+  /** Identifies {@code method} in a log so it can be found again when the log is replayed. */
+  static String methodKey(Method method) {
+    StringBuilder result = new StringBuilder();
+    result.append(method.getDeclaringClass().getName()).append('#').append(method.getName());
+    result.append('(');
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (i > 0) result.append(',');
+      result.append(parameterTypes[i].getName());
+    }
+    return result.append(')').toString();
+  }
+
+  private static Set<String> defaultHeadersToRedact() {
+    Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    Collections.addAll(result, "Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie");
+    return result;
+  }
+
+  private void writeHeaders(Buffer record, Headers headers) {
+    Set<String> headersToRedact = this.headersToRedact;
+    record.writeInt(headers.size());
+    for (int i = 0, size = headers.size(); i < size; i++) {
+      String name = headers.name(i);
+      TrafficLog.writeString(record, name);
+      TrafficLog.writeString(
+          record, headersToRedact.contains(name) ? "REDACTED" : headers.value(i));
+    }
+  }
+
+  private static void writeRequestBody(
+      Buffer record, @Nullable RequestBody body, @Nullable RecordingRequestBody recordingBody) {
+    if (body == null) {
+      TrafficLog.writeString(record, null);
+      record.writeLong(-1L);
+      TrafficLog.writeBytes(record, null);
+      return;
+    }
+    MediaType contentType = body.contentType();
+    TrafficLog.writeString(record, contentType != null ? contentType.toString() : null);
+    if (recordingBody == null) {
+      record.writeLong(-1L); // Duplex bodies are still being written.
+      TrafficLog.writeBytes(record, ByteString.EMPTY);
+      return;
+    }
+    record.writeLong(recordingBody.byteCount);
+    ByteString bytes = recordingBody.recordedBytes();
+    TrafficLog.writeBytes(record, bytes != null ? bytes : ByteString.EMPTY);
+  }
+
+  /** Copies the bytes of a request body as they are sent, up to a limit. */
+  private static final class RecordingRequestBody extends RequestBody {
+    private final RequestBody delegate;
+    private final Buffer recorded = new Buffer();
+    /** The number of bytes sent by the last write, or -1 if the body has not been sent. */
+    long byteCount = -1L;
+
+    RecordingRequestBody(RequestBody delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public @Nullable MediaType contentType() {
+      return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+      return delegate.contentLength();
+    }
+
+    @Override
+    public boolean isOneShot() {
+      return delegate.isOneShot();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      // A retried request writes its body again.
+      recorded.clear();
+      byteCount = 0L;
+      BufferedSink recordingSink =
+          Okio.buffer(
+              new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long count) throws IOException {
+                  if (byteCount + count <= MAX_RECORDED_REQUEST_BODY_SIZE) {
+                    source.copyTo(recorded, 0, count);
+                  } else {
+                    recorded.clear();
+                  }
+                  byteCount += count;
+                  super.write(source, count);
+                }
+              });
+      delegate.writeTo(recordingSink);
+      recordingSink.emit();
+    }
+
+    /** Returns the bytes which were sent, or null if there were too many to record. */
+    @Nullable
+    ByteString recordedBytes() {
+      return byteCount <= MAX_RECORDED_REQUEST_BODY_SIZE ? recorded.snapshot() : null;
+    }
+  }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Converter;
+import retrofit2.LatencyHistogram;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Replays a {@link TrafficLog} against the converters and {@linkplain NetworkBehavior network
+ * behavior} of a {@link MockRetrofit}, without any live service.
+ *
+ * <p>Each recorded response is converted the way the {@link Retrofit} instance converts the network
+ * responses of the recorded service method. With {@link Pacing#ORIGINAL} pacing it is then
+ * delivered with that method's {@linkplain MockRetrofit#networkBehavior(Method) behavior} on the
+ * background executor, so the replay is a load test. With {@link Pacing#AS_FAST_AS_POSSIBLE} the
+ * behavior's delays and failures are skipped. A conversion which throws is counted separately from
+ * simulated failures, which makes a replay a regression test for converters and models as well.
+ *
+ * <pre><code>
+ * TrafficReplayer replayer = new TrafficReplayer.Builder(mockRetrofit)
+ *     .pacing(TrafficReplayer.Pacing.ORIGINAL)
+ *     .build();
+ * try (TrafficLog log = TrafficLog.open(new File("traffic.log"))) {
+ *   TrafficReplayer.Report report = replayer.replay(log);
+ * }
+ * </code></pre>
+ *
+ * <p>Latencies are measured from the moment a call was due to start, so a replay which falls behind
+ * its schedule reports the queueing delay instead of hiding it.
+ */
+public final class TrafficReplayer {
+  /** When replayed calls are started. */
+  public enum Pacing {
+    /** Start calls with the same spacing as when they were recorded. */
+    ORIGINAL,
+    /**
+     * Start every call immediately and deliver it without the delays, failures and errors of the
+     * {@linkplain NetworkBehavior network behavior}.
+     */
+    AS_FAST_AS_POSSIBLE
+  }
+
+  private final MockRetrofit mockRetrofit;
+  private final Pacing pacing;
+
+  TrafficReplayer(MockRetrofit mockRetrofit, Pacing pacing) {
+    this.mockRetrofit = mockRetrofit;
+    this.pacing = pacing;
+  }
+
+  /**
+   * Replay the remaining exchanges of {@code log} made by Retrofit service methods and block until
+   * all have completed. Exchanges whose service method cannot be found or whose responses are not
+   * converted are skipped and counted in {@link Report#skippedCount()}. The log is read as the
+   * replay progresses and is not closed.
+   */
+  public Report replay(TrafficLog log) throws IOException, InterruptedException {
+    Map<String, MethodReplay> replays = new LinkedHashMap<>();
+    Map<String, Class<?>> services = new HashMap<>();
+    // The log is ordered by completion but calls must be started in the order they were made.
+    PriorityQueue<TrafficLog.Entry> pending =
+        new PriorityQueue<>(11, (a, b) -> Long.compare(a.offsetNanos(), b.offsetNanos()));
+
+    ExecutorService executor = mockRetrofit.backgroundExecutorService();
+    Semaphore completed = new Semaphore(0);
+    int startedCount = 0;
+    int skippedCount = 0;
+    long startNanos = System.nanoTime();
+    long firstOffsetNanos = 0L;
+    while (true) {
+      TrafficLog.Entry read = log.next();
+      if (read != null) pending.add(read);
+      // Every exchange which is still unread started at or after the horizon.
+      long horizonNanos = read != null ? read.horizonNanos() : Long.MAX_VALUE;
+      while (!pending.isEmpty() && pending.peek().offsetNanos() <= horizonNanos) {
+        TrafficLog.Entry entry = pending.remove();
+        MethodReplay replay = methodReplay(entry.serviceMethod(), replays, services);
+        if (replay == null) {
+          skippedCount++;
+          continue;
+        }
+        if (startedCount++ == 0) {
+          startNanos = System.nanoTime();
+          firstOffsetNanos = entry.offsetNanos();
+        }
+        long scheduledNanos;
+        if (pacing == Pacing.ORIGINAL) {
+          scheduledNanos = startNanos + entry.offsetNanos() - firstOffsetNanos;
+          long waitNanos;
+          while ((waitNanos = scheduledNanos - System.nanoTime()) > 0) {
+            NANOSECONDS.sleep(waitNanos);
+          }
+        } else {
+          scheduledNanos = System.nanoTime();
+        }
+        executor.execute(() -> replay.start(entry, scheduledNanos, completed));
+      }
+      if (read == null) break;
+    }
+    completed.acquire(startedCount);
+    long elapsedNanos = System.nanoTime() - startNanos;
+
+    Map<String, MethodReport> methods = new LinkedHashMap<>();
+    for (MethodReplay replay : replays.values()) {
+      if (replay != null) {
+        methods.put(replay.key, replay.report());
+      }
+    }
+    return new Report(Collections.unmodifiableMap(methods), skippedCount, elapsedNanos);
+  }
+
+  private @Nullable MethodReplay methodReplay(
+      @Nullable String key, Map<String, MethodReplay> replays, Map<String, Class<?>> services) {
+    if (key == null) return null;
+    MethodReplay replay = replays.get(key);
+    if (replay == null && !replays.containsKey(key)) {
+      replay = resolve(key, services);
+      replays.put(key, replay);
+    }
+    return replay;
+  }
+
+  private @Nullable MethodReplay resolve(String key, Map<String, Class<?>> services) {
+    int hash = key.indexOf('#');
+    if (hash == -1) return null;
+    String className = key.substring(0, hash);
+    Class<?> service = services.get(className);
+    if (service == null) {
+      try {
+        service = Class.forName(className, false, TrafficReplayer.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        return null;
+      }
+      services.put(className, service);
+    }
+
+    Method method = null;
+    for (Method candidate : service.getMethods()) {
+      if (TrafficRecorder.methodKey(candidate).equals(key)) {
+        method = candidate;
+        break;
+      }
+    }
+    if (method == null) return null;
+
+    Converter<okhttp3.Response, Response<Object>> parser;
+    try {
+      parser = mockRetrofit.retrofit().responseParser(method);
+    } catch (IllegalArgumentException e) {
+      return null; // Not a valid service method in this build, or its responses are not converted.
+    }
+    NetworkBehavior behavior =
+        pacing == Pacing.ORIGINAL ? mockRetrofit.networkBehavior(method) : null;
+    return new MethodReplay(key, parser, behavior, mockRetrofit.backgroundExecutorService());
+  }
+
+  /** The replay state of one service method. */
+  static final class MethodReplay {
+    final String key;
+    private final Converter<okhttp3.Response, Response<Object>> parser;
+    /** Null to deliver calls without simulating the network. */
+    private final @Nullable NetworkBehavior behavior;
+
+    private final ExecutorService executor;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong conversionFailureCount = new AtomicLong();
+
+    @GuardedBy("this")
+    private long firstStartNanos = Long.MAX_VALUE;
+
+    @GuardedBy("this")
+    private long lastEndNanos = Long.MIN_VALUE;
+
+    MethodReplay(
+        String key,
+        Converter<okhttp3.Response, Response<Object>> parser,
+        @Nullable NetworkBehavior behavior,
+        ExecutorService executor) {
+      this.key = key;
+      this.parser = parser;
+      this.behavior = behavior;
+      this.executor = executor;
+    }
+
+    void start(TrafficLog.Entry entry, long scheduledNanos, Semaphore completed) {
+      if (behavior == null) {
+        try {
+          parser.convert(entry.response());
+        } catch (IOException | RuntimeException e) {
+          conversionFailureCount.incrementAndGet();
+        }
+        finish(scheduledNanos, completed);
+        return;
+      }
+
+      AtomicBoolean conversionFailed = new AtomicBoolean();
+      Call<Object> call =
+          Calls.defer(
+              () -> {
+                try {
+                  return Calls.response(parser.convert(entry.response()));
+                } catch (IOException | RuntimeException e) {
+                  conversionFailed.set(true);
+                  throw e;
+                }
+              });
+      new BehaviorCall<>(behavior, executor, call)
+          .enqueue(
+              new Callback<Object>() {
+                @Override
+                public void onResponse(Call<Object> call, Response<Object> response) {
+                  finish(scheduledNanos, completed);
+                }
+
+                @Override
+                public void onFailure(Call<Object> call, Throwable t) {
+                  if (conversionFailed.get()) {
+                    conversionFailureCount.incrementAndGet();
+                  } else {
+                    failureCount.incrementAndGet();
+                  }
+                  finish(scheduledNanos, completed);
+                }
+              });
+    }
+
+    private void finish(long scheduledNanos, Semaphore completed) {
+      long endNanos = System.nanoTime();
+      latency.record(endNanos - scheduledNanos);
+      synchronized (this) {
+        firstStartNanos = Math.min(firstStartNanos, scheduledNanos);
+        lastEndNanos = Math.max(lastEndNanos, endNanos);
+      }
+      completed.release();
+    }
+
+    synchronized MethodReport report() {
+      long elapsedNanos = Math.max(1L, lastEndNanos - firstStartNanos);
+      double throughput = latency.count() * (double) SECONDS.toNanos(1) / elapsedNanos;
+      return new MethodReport(
+          latency, failureCount.get(), conversionFailureCount.get(), throughput);
+    }
+  }
+
+  /** The outcome of a replay. */
+  public static final class Report {
+    private final Map<String, MethodReport> methods;
+    private final int skippedCount;
+    private final long elapsedNanos;
+
+    Report(Map<String, MethodReport> methods, int skippedCount, long elapsedNanos) {
+      this.methods = methods;
+      this.skippedCount = skippedCount;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * The results of each replayed service method, keyed by {@link TrafficLog.Entry#serviceMethod}.
+     */
+    public Map<String, MethodReport> methods() {
+      return methods;
+    }
+
+    /** The number of exchanges which could not be replayed. */
+    public int skippedCount() {
+      return skippedCount;
+    }
+
+    /** How long the replay took. */
+    public long elapsedNanos() {
+      return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder();
+      for (Map.Entry<String, MethodReport> entry : methods.entrySet()) {
+        result.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+      }
+      return result.append("skipped: ").append(skippedCount).toString();
+    }
+  }
+
+  /** The results of replaying the exchanges of one service method. */
+  public static final class MethodReport {
+    private final LatencyHistogram latency;
+    private final long failureCount;
+    private final long conversionFailureCount;
+    private final double throughput;
+
+    MethodReport(
+        LatencyHistogram latency,
+        long failureCount,
+        long conversionFailureCount,
+        double throughput) {
+      this.latency = latency;
+      this.failureCount = failureCount;
+      this.conversionFailureCount = conversionFailureCount;
+      this.throughput = throughput;
+    }
+
+    /** The number of replayed calls. */
+    public long count() {
+      return latency.count();
+    }
+
+    /** The number of replayed calls which failed as simulated by the network behavior. */
+    public long failureCount() {
+      return failureCount;
+    }
+
+    /** The number of replayed calls whose response body could not be converted. */
+    public long conversionFailureCount() {
+      return conversionFailureCount;
+    }
+
+    /** Completed calls per second between the first call starting and the last one completing. */
+    public double throughput() {
+      return throughput;
+    }
+
+    /** The time from when each call was due to start until its callback was invoked. */
+    public LatencyHistogram latency() {
+      return latency;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "count=%d, failures=%d, conversionFailures=%d, throughput=%.1f/s, p50=%dus, p90=%dus,"
+              + " p99=%dus, max=%dus",
+          count(),
+          failureCount,
+          conversionFailureCount,
+          throughput,
+          NANOSECONDS.toMicros(latency.valueAtPercentile(50.0)),
+          NANOSECONDS.toMicros(latency.valueAtPercentile(90.0)),
+          NANOSECONDS.toMicros(latency.valueAtPercentile(99.0)),
+          NANOSECONDS.toMicros(latency.max()));
+    }
+  }
+
+  public static final class Builder {
+    private final MockRetrofit mockRetrofit;
+    private Pacing pacing = Pacing.AS_FAST_AS_POSSIBLE;
+
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder(MockRetrofit mockRetrofit) {
+      if (mockRetrofit == null) throw new NullPointerException("mockRetrofit == null");
+      this.mockRetrofit = mockRetrofit;
+    }
+
+    /** Set when replayed calls are started. Defaults to {@link Pacing#AS_FAST_AS_POSSIBLE}. */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder pacing(Pacing pacing) {
+      if (pacing == null) throw new NullPointerException("pacing == null");
+      this.pacing = pacing;
+      return this;
+    }
+
+    public TrafficReplayer build() {
+      return new TrafficReplayer(mockRetrofit, pacing);
+    }
+  }
+}
@@ -23,14 +23,21 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
 import retrofit2.Call;
+import retrofit2.CallAdapter;
 import retrofit2.Callback;
 import retrofit2.Response;
 import retrofit2.Retrofit;
@@ -322,4 +329,106 @@ public final class BehaviorDelegateTest {
     assertTrue(latch.await(1, SECONDS));
     assertThat(failureRef.get()).isExactlyInstanceOf(IOException.class).hasMessage("canceled");
   }
+
+  @Test
+  public void concurrentDelaysDoNotOccupyThreads() throws InterruptedException {
+    behavior.setDelay(200, MILLISECONDS);
+    behavior.setVariancePercent(0);
+    behavior.setFailurePercent(0);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Retrofit retrofit = new Retrofit.Builder().baseUrl("http://example.com").build();
+    MockRetrofit mockRetrofit =
+        new MockRetrofit.Builder(retrofit)
+            .networkBehavior(behavior)
+            .backgroundExecutor(executor)
+            .build();
+    BehaviorDelegate<DoWorkService> delegate = mockRetrofit.create(DoWorkService.class);
+
+    int callCount = 1000;
+    final CountDownLatch latch = new CountDownLatch(callCount);
+    Callback<String> callback =
+        new Callback<String>() {
+          @Override
+          public void onResponse(Call<String> call, Response<String> response) {
+            latch.countDown();
+          }
+
+          @Override
+          public void onFailure(Call<String> call, Throwable t) {
+            throw new AssertionError(t);
+          }
+        };
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < callCount; i++) {
+      delegate.returningResponse("Response!").response().enqueue(callback);
+    }
+
+    // A thread per delay would need 200 seconds on a single background thread.
+    assertTrue(latch.await(5, SECONDS));
+    long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    assertThat(tookMs).isGreaterThanOrEqualTo(200);
+    executor.shutdown();
+  }
+
+  @Test
+  public void methodBehaviorOverridesSharedBehavior() throws Exception {
+    behavior.setDelay(0, MILLISECONDS);
+    behavior.setFailurePercent(0);
+    NetworkBehavior slowBehavior = NetworkBehavior.create(new Random(2847));
+    slowBehavior.setDelay(100, MILLISECONDS);
+    slowBehavior.setVariancePercent(0);
+    slowBehavior.setFailurePercent(100);
+
+    Retrofit retrofit = new Retrofit.Builder().baseUrl("http://example.com").build();
+    MockRetrofit mockRetrofit =
+        new MockRetrofit.Builder(retrofit)
+            .networkBehavior(behavior)
+            .networkBehavior(DoWorkService.class.getMethod("failure"), slowBehavior)
+            .build();
+    BehaviorDelegate<DoWorkService> delegate = mockRetrofit.create(DoWorkService.class);
+
+    assertThat(delegate.returningResponse("Hi").response().execute().body()).isEqualTo("Hi");
+
+    long startNanos = System.nanoTime();
+    try {
+      delegate.returningResponse("Hi").failure().execute();
+      fail();
+    } catch (IOException e) {
+      assertThat(e).isSameAs(slowBehavior.failureException());
+    }
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+        .isGreaterThanOrEqualTo(100);
+  }
+
+  @Test
+  public void callAdapterIsResolvedOncePerMethod() throws IOException {
+    behavior.setDelay(0, MILLISECONDS);
+    behavior.setFailurePercent(0);
+    final AtomicInteger lookups = new AtomicInteger();
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl("http://example.com")
+            .addCallAdapterFactory(
+                new CallAdapter.Factory() {
+                  @Override
+                  public @Nullable CallAdapter<?, ?> get(
+                      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+                    lookups.incrementAndGet();
+                    return null; // Defer to the built-in adapter.
+                  }
+                })
+            .build();
+    MockRetrofit mockRetrofit =
+        new MockRetrofit.Builder(retrofit).networkBehavior(behavior).build();
+    BehaviorDelegate<DoWorkService> delegate = mockRetrofit.create(DoWorkService.class);
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(delegate.returningResponse("Hi").response().execute().body()).isEqualTo("Hi");
+    }
+    assertThat(lookups.get()).isEqualTo(1);
+
+    delegate.returningResponse("Hi").failure().execute();
+    assertThat(lookups.get()).isEqualTo(2);
+  }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Path;
+
+public final class InMemoryCallFactoryTest {
+  private static final MediaType TEXT = MediaType.get("text/plain");
+
+  interface Service {
+    @GET("/users")
+    Call<ResponseBody> users();
+
+    @GET("/users/{id}")
+    Call<ResponseBody> user(@Path("id") String id);
+
+    @POST("/users")
+    Call<ResponseBody> createUser();
+
+    @GET("/missing")
+    Call<ResponseBody> missing();
+  }
+
+  private static Service service(InMemoryCallFactory callFactory) {
+    return new Retrofit.Builder()
+        .baseUrl("http://example.com/")
+        .callFactory(callFactory)
+        .build()
+        .create(Service.class);
+  }
+
+  @Test
+  public void routesByMethodAndPath() throws IOException {
+    InMemoryCallFactory callFactory =
+        new InMemoryCallFactory.Builder()
+            .route("GET", "/users", InMemoryCallFactory.respond(200, TEXT, "all"))
+            .route("POST", "/users", InMemoryCallFactory.respond(201, TEXT, "created"))
+            .route(
+                "GET",
+                "/users/*",
+                request ->
+                    InMemoryCallFactory.response(request)
+                        .body(ResponseBody.create(TEXT, request.url().pathSegments().get(1)))
+                        .build())
+            .build();
+    Service service = service(callFactory);
+
+    assertThat(service.users().execute().body().string()).isEqualTo("all");
+    Response<ResponseBody> created = service.createUser().execute();
+    assertThat(created.code()).isEqualTo(201);
+    assertThat(created.body().string()).isEqualTo("created");
+    assertThat(service.user("jw").execute().body().string()).isEqualTo("jw");
+  }
+
+  @Test
+  public void unmatchedRequestIsNotFound() throws IOException {
+    Service service = service(new InMemoryCallFactory.Builder().build());
+    Response<ResponseBody> response = service.missing().execute();
+    assertThat(response.code()).isEqualTo(404);
+    assertThat(response.errorBody().string()).isEmpty();
+  }
+
+  @Test
+  public void fallbackAnswersEveryRequest() throws IOException {
+    Service service =
+        service(InMemoryCallFactory.create(InMemoryCallFactory.respond(200, TEXT, "Hi")));
+    assertThat(service.missing().execute().body().string()).isEqualTo("Hi");
+    // Each response gets its own body.
+    assertThat(service.users().execute().body().string()).isEqualTo("Hi");
+  }
+
+  @Test
+  public void handlerFailureIsCallFailure() {
+    IOException failure = new IOException("Boom");
+    Service service =
+        service(
+            InMemoryCallFactory.create(
+                request -> {
+                  throw failure;
+                }));
+    try {
+      service.users().execute();
+      fail();
+    } catch (IOException e) {
+      assertThat(e).isSameAs(failure);
+    }
+  }
+
+  @Test
+  public void enqueueCompletesOnCallingThread() {
+    Service service =
+        service(InMemoryCallFactory.create(InMemoryCallFactory.respond(200, TEXT, "Hi")));
+    Thread caller = Thread.currentThread();
+    AtomicReference<Thread> callbackThread = new AtomicReference<>();
+    service
+        .users()
+        .enqueue(
+            new Callback<ResponseBody>() {
+              @Override
+              public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+                callbackThread.set(Thread.currentThread());
+              }
+
+              @Override
+              public void onFailure(Call<ResponseBody> call, Throwable t) {
+                fail();
+              }
+            });
+    assertThat(callbackThread.get()).isSameAs(caller);
+  }
+
+  @Test
+  public void callbackFailureIsRethrownToCaller() {
+    Request request = new Request.Builder().url("http://example.com/").build();
+    okhttp3.Call call =
+        InMemoryCallFactory.create(InMemoryCallFactory.respond(200, TEXT, "Hi")).newCall(request);
+    IOException failure = new IOException("Boom");
+    try {
+      call.enqueue(
+          new okhttp3.Callback() {
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response)
+                throws IOException {
+              response.close();
+              throw failure;
+            }
+
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+              fail();
+            }
+          });
+      fail();
+    } catch (RuntimeException e) {
+      assertThat(e).hasCause(failure);
+    }
+  }
+
+  @Test
+  public void canceledCallFails() {
+    Request request = new Request.Builder().url("http://example.com/").build();
+    okhttp3.Call call =
+        InMemoryCallFactory.create(InMemoryCallFactory.respond(200, TEXT, "Hi")).newCall(request);
+    call.cancel();
+    try {
+      call.execute();
+      fail();
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Canceled");
+    }
+    assertThat(call.isExecuted()).isTrue();
+    assertThat(call.isCanceled()).isTrue();
+  }
+
+  @Test
+  public void callCanOnlyBeExecutedOnce() throws IOException {
+    Request request = new Request.Builder().url("http://example.com/").build();
+    okhttp3.Call call =
+        InMemoryCallFactory.create(InMemoryCallFactory.respond(200, TEXT, "Hi")).newCall(request);
+    call.execute();
+    try {
+      call.execute();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Already Executed");
+    }
+    assertThat(call.clone().execute().body().string()).isEqualTo("Hi");
+  }
+
+  @Test
+  public void routePathMustBeAbsolute() {
+    try {
+      new InMemoryCallFactory.Builder()
+          .route("GET", "users", InMemoryCallFactory.respond(200, TEXT, "Hi"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("path must start with '/': users");
+    }
+  }
+}
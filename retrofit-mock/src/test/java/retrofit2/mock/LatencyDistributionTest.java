@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public final class LatencyDistributionTest {
+  private final Random random = new Random(2847);
+
+  private long[] sample(LatencyDistribution distribution, int count) {
+    long[] samples = new long[count];
+    for (int i = 0; i < count; i++) {
+      samples[i] = distribution.sampleMillis(random);
+    }
+    Arrays.sort(samples);
+    return samples;
+  }
+
+  @Test
+  public void uniformStaysWithinVariance() {
+    long[] samples = sample(LatencyDistribution.uniform(2, 40, SECONDS), 100000);
+    assertThat(samples[0]).isGreaterThanOrEqualTo(1200);
+    assertThat(samples[samples.length - 1]).isLessThanOrEqualTo(2800);
+  }
+
+  @Test
+  public void logNormalHasMedianAndTail() {
+    long[] samples = sample(LatencyDistribution.logNormal(100, 1, MILLISECONDS), 100000);
+    assertThat(samples[50000]).isBetween(95L, 105L);
+    // The 99th percentile of a log-normal with sigma 1 is e^2.326 ≈ 10.2 times its median.
+    assertThat(samples[99000]).isBetween(900L, 1150L);
+  }
+
+  @Test
+  public void paretoHasMinimumAndTail() {
+    long[] samples = sample(LatencyDistribution.pareto(50, 2, MILLISECONDS), 100000);
+    assertThat(samples[0]).isGreaterThanOrEqualTo(50);
+    // P(X > x) = (50 / x)^2, so the 99th percentile is 50 * 10 = 500.
+    assertThat(samples[99000]).isBetween(450L, 550L);
+  }
+
+  @Test
+  public void empiricalReplaysSamples() {
+    LatencyDistribution distribution = LatencyDistribution.empirical(new long[] {1, 2, 3}, SECONDS);
+    for (long sample : sample(distribution, 1000)) {
+      assertThat(sample).isIn(1000L, 2000L, 3000L);
+    }
+  }
+
+  @Test
+  public void histogramSamplesWithinBuckets() {
+    LatencyDistribution distribution =
+        LatencyDistribution.histogram(
+            new long[] {10, 20, 100, 1000}, new long[] {90, 0, 9, 1}, MILLISECONDS);
+    long[] samples = sample(distribution, 100000);
+    assertThat(samples[0]).isGreaterThanOrEqualTo(0);
+    assertThat(samples[samples.length - 1]).isLessThanOrEqualTo(1000);
+    assertThat(samples[89000]).isLessThanOrEqualTo(10);
+    assertThat(samples[91000]).isGreaterThanOrEqualTo(20);
+    assertThat(samples[99800]).isGreaterThanOrEqualTo(100);
+  }
+
+  @Test
+  public void histogramBoundsMustIncrease() {
+    try {
+      LatencyDistribution.histogram(new long[] {10, 10}, new long[] {1, 1}, MILLISECONDS);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("upperBounds must be non-negative and increasing");
+    }
+  }
+
+  @Test
+  public void invalidParametersThrow() {
+    try {
+      LatencyDistribution.logNormal(0, 1, MILLISECONDS);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("median <= 0: 0.0");
+    }
+    try {
+      LatencyDistribution.pareto(1, 0, MILLISECONDS);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("shape <= 0: 0.0");
+    }
+    try {
+      LatencyDistribution.empirical(new long[0], MILLISECONDS);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("samples.length == 0");
+    }
+  }
+}
@@ -3,6 +3,7 @@ package retrofit2.mock;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import org.junit.Test;
@@ -53,6 +54,30 @@ public final class MockRetrofitTest {
     assertThat(mockRetrofit.networkBehavior()).isSameAs(behavior);
   }
 
+  @Test
+  public void methodNetworkBehaviorPropagated() throws NoSuchMethodException {
+    Method method = Object.class.getMethod("toString");
+    NetworkBehavior methodBehavior = NetworkBehavior.create();
+    MockRetrofit mockRetrofit =
+        new MockRetrofit.Builder(retrofit)
+            .networkBehavior(behavior)
+            .networkBehavior(method, methodBehavior)
+            .build();
+    assertThat(mockRetrofit.networkBehavior(method)).isSameAs(methodBehavior);
+    assertThat(mockRetrofit.networkBehavior(Object.class.getMethod("hashCode"))).isSameAs(behavior);
+  }
+
+  @Test
+  public void methodNetworkBehaviorNullThrows() throws NoSuchMethodException {
+    MockRetrofit.Builder builder = new MockRetrofit.Builder(retrofit);
+    try {
+      builder.networkBehavior(Object.class.getMethod("toString"), null);
+      fail();
+    } catch (NullPointerException e) {
+      assertThat(e).hasMessage("behavior == null");
+    }
+  }
+
   @Test
   public void backgroundExecutorNullThrows() {
     MockRetrofit.Builder builder = new MockRetrofit.Builder(retrofit);
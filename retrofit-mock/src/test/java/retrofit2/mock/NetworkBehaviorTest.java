@@ -24,6 +24,7 @@ import static org.junit.Assert.fail;
 import java.io.IOException;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import okhttp3.ResponseBody;
 import org.junit.Test;
 import retrofit2.Response;
@@ -231,4 +232,40 @@ public final class NetworkBehaviorTest {
     assertThat(upperBound).isEqualTo(2799); // ~40% above 2000
     assertThat(lowerBound).isEqualTo(1200); // ~40% below 2000
   }
+
+  @Test
+  public void latencyDistributionReplacesDelayAndVariance() {
+    behavior.setDelay(2, SECONDS);
+    behavior.setVariancePercent(0);
+    LatencyDistribution distribution = LatencyDistribution.empirical(new long[] {7}, SECONDS);
+    behavior.setLatencyDistribution(distribution);
+
+    assertThat(behavior.latencyDistribution()).isSameAs(distribution);
+    assertThat(behavior.calculateDelay(MILLISECONDS)).isEqualTo(7000);
+
+    behavior.setLatencyDistribution(null);
+    assertThat(behavior.calculateDelay(MILLISECONDS)).isEqualTo(2000);
+  }
+
+  @Test
+  public void unseededBehaviorSamplesOnManyThreads() throws InterruptedException {
+    NetworkBehavior behavior = NetworkBehavior.create();
+    behavior.setFailurePercent(50);
+    AtomicInteger failures = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 10000; j++) {
+                  if (behavior.calculateIsFailure()) failures.incrementAndGet();
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(failures.get()).isBetween(18000, 22000); // ~50% of 40k
+  }
 }
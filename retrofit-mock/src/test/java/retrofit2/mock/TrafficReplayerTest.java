@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.mock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+
+public final class TrafficReplayerTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/greet")
+    Call<String> greet(@Query("name") String name);
+
+    @GET("/count")
+    Call<Integer> count();
+  }
+
+  private final Buffer log = new Buffer();
+
+  private Buffer record() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setHeader("Content-Type", "text/plain").setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hello"));
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Nope"));
+    server.enqueue(new MockResponse().setBody("3"));
+
+    TrafficRecorder recorder = new TrafficRecorder(log);
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(recorder).build();
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .client(client)
+            .addConverterFactory(new ConverterFactory(true))
+            .build();
+    Service service = retrofit.create(Service.class);
+    service.greet("a").execute();
+    service.greet("b").execute();
+    Thread.sleep(100);
+    service.greet("c").execute();
+    service.count().execute();
+    recorder.close();
+    return log;
+  }
+
+  private static List<TrafficLog.Entry> entries(Buffer buffer) throws IOException {
+    List<TrafficLog.Entry> entries = new ArrayList<>();
+    try (TrafficLog trafficLog = TrafficLog.open(buffer)) {
+      for (TrafficLog.Entry entry; (entry = trafficLog.next()) != null; ) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  @Test
+  public void recordsExchanges() throws Exception {
+    List<TrafficLog.Entry> entries = entries(record());
+
+    assertThat(entries).hasSize(4);
+    TrafficLog.Entry first = entries.get(0);
+    assertThat(first.serviceMethod())
+        .isEqualTo("retrofit2.mock.TrafficReplayerTest$Service#greet(java.lang.String)");
+    assertThat(first.request().method()).isEqualTo("GET");
+    assertThat(first.request().url().toString()).isEqualTo(server.url("/greet?name=a").toString());
+    assertThat(first.durationNanos()).isPositive();
+
+    okhttp3.Response response = first.response();
+    assertThat(response.code()).isEqualTo(200);
+    assertThat(response.header("Content-Type")).isEqualTo("text/plain");
+    assertThat(response.body().string()).isEqualTo("Hi");
+    // Every copy has its own body.
+    assertThat(first.response().body().string()).isEqualTo("Hi");
+
+    TrafficLog.Entry notFound = entries.get(2);
+    assertThat(notFound.response().code()).isEqualTo(404);
+    assertThat(notFound.offsetNanos()).isGreaterThan(first.offsetNanos());
+  }
+
+  @Test
+  public void credentialsAreRedacted() throws Exception {
+    server.enqueue(new MockResponse().setHeader("Set-Cookie", "session=abc").setBody("Hi"));
+    Buffer buffer = new Buffer();
+    TrafficRecorder recorder = new TrafficRecorder(buffer);
+    recorder.redactHeader("X-Api-Key");
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(recorder).build();
+    okhttp3.Request request =
+        new okhttp3.Request.Builder()
+            .url(server.url("/"))
+            .header("Authorization", "Bearer secret")
+            .header("Cookie", "session=abc")
+            .header("x-api-key", "secret")
+            .header("Accept", "text/plain")
+            .build();
+    client.newCall(request).execute().close();
+    recorder.close();
+
+    TrafficLog.Entry entry = entries(buffer).get(0);
+    assertThat(entry.request().header("Authorization")).isEqualTo("REDACTED");
+    assertThat(entry.request().header("Cookie")).isEqualTo("REDACTED");
+    assertThat(entry.request().header("X-Api-Key")).isEqualTo("REDACTED");
+    assertThat(entry.request().header("Accept")).isEqualTo("text/plain");
+    assertThat(entry.response().header("Set-Cookie")).isEqualTo("REDACTED");
+    // Only the log is redacted.
+    assertThat(server.takeRequest().getHeader("Authorization")).isEqualTo("Bearer secret");
+  }
+
+  @Test
+  public void requestBodyIsRecordedAsItIsSent() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    Buffer buffer = new Buffer();
+    TrafficRecorder recorder = new TrafficRecorder(buffer);
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(recorder).build();
+    AtomicInteger writeCount = new AtomicInteger();
+    RequestBody body =
+        new RequestBody() {
+          @Override
+          public MediaType contentType() {
+            return MediaType.get("text/plain");
+          }
+
+          @Override
+          public boolean isOneShot() {
+            return true;
+          }
+
+          @Override
+          public void writeTo(BufferedSink sink) throws IOException {
+            writeCount.incrementAndGet();
+            sink.writeUtf8("Hello");
+          }
+        };
+    client
+        .newCall(new okhttp3.Request.Builder().url(server.url("/")).post(body).build())
+        .execute()
+        .close();
+    recorder.close();
+
+    assertThat(writeCount.get()).isEqualTo(1);
+    TrafficLog.Entry entry = entries(buffer).get(0);
+    assertThat(entry.requestBodyLength()).isEqualTo(5);
+    Buffer recorded = new Buffer();
+    entry.request().body().writeTo(recorded);
+    assertThat(recorded.readUtf8()).isEqualTo("Hello");
+    assertThat(entry.request().body().contentType()).isEqualTo(MediaType.get("text/plain"));
+    assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo("Hello");
+  }
+
+  @Test
+  public void largeRequestBodyIsRecordedAsItsLength() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    Buffer buffer = new Buffer();
+    TrafficRecorder recorder = new TrafficRecorder(buffer);
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(recorder).build();
+    byte[] bytes = new byte[(int) TrafficRecorder.MAX_RECORDED_REQUEST_BODY_SIZE + 1];
+    RequestBody body = RequestBody.create(MediaType.get("application/octet-stream"), bytes);
+    client
+        .newCall(new okhttp3.Request.Builder().url(server.url("/")).post(body).build())
+        .execute()
+        .close();
+    recorder.close();
+
+    TrafficLog.Entry entry = entries(buffer).get(0);
+    assertThat(entry.requestBodyLength()).isEqualTo(bytes.length);
+    assertThat(entry.request().body().contentLength()).isEqualTo(0);
+    assertThat(entry.request().body().contentType())
+        .isEqualTo(MediaType.get("application/octet-stream"));
+    assertThat(server.takeRequest().getBodySize()).isEqualTo(bytes.length);
+  }
+
+  @Test
+  public void horizonPrecedesExchangesStillInFlight() throws Exception {
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            MockResponse response = new MockResponse().setBody("Hi");
+            return request.getPath().equals("/slow")
+                ? response.setBodyDelay(500, MILLISECONDS)
+                : response;
+          }
+        });
+    Buffer buffer = new Buffer();
+    TrafficRecorder recorder = new TrafficRecorder(buffer);
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(recorder).build();
+    CountDownLatch slowDone = new CountDownLatch(1);
+    client
+        .newCall(new okhttp3.Request.Builder().url(server.url("/slow")).build())
+        .enqueue(
+            new okhttp3.Callback() {
+              @Override
+              public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                response.close();
+                slowDone.countDown();
+              }
+
+              @Override
+              public void onFailure(okhttp3.Call call, IOException e) {
+                slowDone.countDown();
+              }
+            });
+    server.takeRequest();
+    client
+        .newCall(new okhttp3.Request.Builder().url(server.url("/fast")).build())
+        .execute()
+        .close();
+    assertThat(slowDone.await(5, SECONDS)).isTrue();
+    recorder.close();
+
+    List<TrafficLog.Entry> entries = entries(buffer);
+    TrafficLog.Entry fast = entries.get(0);
+    TrafficLog.Entry slow = entries.get(1);
+    assertThat(fast.request().url().encodedPath()).isEqualTo("/fast");
+    assertThat(slow.offsetNanos()).isLessThan(fast.offsetNanos());
+    // The slow exchange was recorded later but started earlier, so it bounds the horizon.
+    assertThat(fast.horizonNanos()).isLessThanOrEqualTo(slow.offsetNanos());
+  }
+
+  @Test
+  public void replayReportsEachMethod() throws Exception {
+    TrafficLog trafficLog = TrafficLog.open(record());
+
+    TrafficReplayer.Report report =
+        replayer(TrafficReplayer.Pacing.AS_FAST_AS_POSSIBLE).replay(trafficLog);
+
+    assertThat(report.methods()).hasSize(2);
+    assertThat(report.skippedCount()).isEqualTo(0);
+    TrafficReplayer.MethodReport greet =
+        report.methods().get("retrofit2.mock.TrafficReplayerTest$Service#greet(java.lang.String)");
+    assertThat(greet.count()).isEqualTo(3);
+    assertThat(greet.failureCount()).isEqualTo(0); // A 404 is replayed as an error response.
+    assertThat(greet.throughput()).isPositive();
+    assertThat(greet.latency().max()).isPositive();
+  }
+
+  @Test
+  public void conversionFailureIsReported() throws Exception {
+    TrafficLog trafficLog = TrafficLog.open(record());
+
+    TrafficReplayer.Report report =
+        replayer(TrafficReplayer.Pacing.AS_FAST_AS_POSSIBLE).replay(trafficLog);
+
+    // The recorded body converted when it was recorded, but the replaying converter rejects it.
+    TrafficReplayer.MethodReport count =
+        report.methods().get("retrofit2.mock.TrafficReplayerTest$Service#count()");
+    assertThat(count.count()).isEqualTo(1);
+    assertThat(count.conversionFailureCount()).isEqualTo(1);
+    assertThat(count.failureCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void fastPacingSkipsNetworkBehavior() throws Exception {
+    TrafficLog trafficLog = TrafficLog.open(record());
+    NetworkBehavior behavior = NetworkBehavior.create(new Random(2847));
+    behavior.setDelay(10, SECONDS);
+    behavior.setFailurePercent(100);
+
+    TrafficReplayer.Report report =
+        replayer(TrafficReplayer.Pacing.AS_FAST_AS_POSSIBLE, behavior).replay(trafficLog);
+
+    assertThat(NANOSECONDS.toSeconds(report.elapsedNanos())).isLessThan(10);
+    TrafficReplayer.MethodReport greet =
+        report.methods().get("retrofit2.mock.TrafficReplayerTest$Service#greet(java.lang.String)");
+    assertThat(greet.failureCount()).isEqualTo(0);
+    assertThat(greet.conversionFailureCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void originalPacingSimulatesFailures() throws Exception {
+    TrafficLog trafficLog = TrafficLog.open(record());
+    NetworkBehavior behavior = NetworkBehavior.create(new Random(2847));
+    behavior.setDelay(0, MILLISECONDS);
+    behavior.setFailurePercent(100);
+
+    TrafficReplayer.Report report =
+        replayer(TrafficReplayer.Pacing.ORIGINAL, behavior).replay(trafficLog);
+
+    TrafficReplayer.MethodReport count =
+        report.methods().get("retrofit2.mock.TrafficReplayerTest$Service#count()");
+    assertThat(count.failureCount()).isEqualTo(1);
+    assertThat(count.conversionFailureCount()).isEqualTo(0); // Failed before it was converted.
+  }
+
+  @Test
+  public void originalPacingKeepsSpacing() throws Exception {
+    TrafficLog trafficLog = TrafficLog.open(record());
+
+    TrafficReplayer.Report report = replayer(TrafficReplayer.Pacing.ORIGINAL).replay(trafficLog);
+
+    assertThat(NANOSECONDS.toMillis(report.elapsedNanos())).isGreaterThanOrEqualTo(100);
+  }
+
+  @Test
+  public void unknownServiceIsSkipped() throws Exception {
+    Buffer buffer = new Buffer();
+    TrafficRecorder recorder = new TrafficRecorder(buffer);
+    server.enqueue(new MockResponse().setBody("Hi"));
+    OkHttpClient client = new OkHttpClient.Builder().addInterceptor(recorder).build();
+    client.newCall(new okhttp3.Request.Builder().url(server.url("/")).build()).execute().close();
+    recorder.close();
+
+    assertThat(entries(buffer.clone()).get(0).serviceMethod()).isNull();
+    TrafficReplayer.Report report =
+        replayer(TrafficReplayer.Pacing.AS_FAST_AS_POSSIBLE).replay(TrafficLog.open(buffer));
+    assertThat(report.methods()).isEmpty();
+    assertThat(report.skippedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void readRejectsOtherFiles() {
+    try {
+      TrafficLog.open(new Buffer().writeUtf8("Not a log"));
+      fail();
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Not a traffic log");
+    }
+  }
+
+  private TrafficReplayer replayer(TrafficReplayer.Pacing pacing) {
+    NetworkBehavior behavior = NetworkBehavior.create(new Random(2847));
+    behavior.setDelay(0, MILLISECONDS);
+    behavior.setFailurePercent(0);
+    return replayer(pacing, behavior);
+  }
+
+  private TrafficReplayer replayer(TrafficReplayer.Pacing pacing, NetworkBehavior behavior) {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl("http://example.com/")
+            .addConverterFactory(new ConverterFactory(false))
+            .build();
+    MockRetrofit mockRetrofit =
+        new MockRetrofit.Builder(retrofit).networkBehavior(behavior).build();
+    return new TrafficReplayer.Builder(mockRetrofit).pacing(pacing).build();
+  }
+
+  /** Converts strings, and integers unless they are no longer supported by the replaying build. */
+  static final class ConverterFactory extends Converter.Factory {
+    private final boolean integersSupported;
+
+    ConverterFactory(boolean integersSupported) {
+      this.integersSupported = integersSupported;
+    }
+
+    @Override
+    public @Nullable Converter<ResponseBody, ?> responseBodyConverter(
+        Type type, Annotation[] annotations, Retrofit retrofit) {
+      if (type == String.class) {
+        return ResponseBody::string;
+      }
+      if (type == Integer.class) {
+        return value -> {
+          if (!integersSupported) throw new IOException("Integers are no longer supported");
+          return Integer.valueOf(value.string());
+        };
+      }
+      return null;
+    }
+  }
+}
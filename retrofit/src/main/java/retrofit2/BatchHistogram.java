@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The number of bulk requests made for a {@link retrofit2.http.Batched @Batched} method, by the
+ * number of calls each of them carried. Obtain one with {@link Retrofit#batchHistogram}.
+ */
+public final class BatchHistogram {
+  /** Index {@code n} holds the number of batches of size {@code n}. */
+  private final AtomicLongArray counts;
+
+  BatchHistogram(int maxBatchSize) {
+    counts = new AtomicLongArray(maxBatchSize + 1);
+  }
+
+  void record(int batchSize) {
+    counts.incrementAndGet(batchSize);
+  }
+
+  /** The largest batch size which can be recorded. */
+  public int maxBatchSize() {
+    return counts.length() - 1;
+  }
+
+  /** The number of bulk requests which carried exactly {@code batchSize} calls. */
+  public long count(int batchSize) {
+    if (batchSize < 1 || batchSize > maxBatchSize()) {
+      throw new IllegalArgumentException(
+          "batchSize must be in [1, " + maxBatchSize() + "]: " + batchSize);
+    }
+    return counts.get(batchSize);
+  }
+
+  /** The total number of bulk requests. */
+  public long batchCount() {
+    long result = 0;
+    for (int i = 1, length = counts.length(); i < length; i++) {
+      result += counts.get(i);
+    }
+    return result;
+  }
+
+  /** The total number of calls carried by all bulk requests. */
+  public long callCount() {
+    long result = 0;
+    for (int i = 1, length = counts.length(); i < length; i++) {
+      result += i * counts.get(i);
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("BatchHistogram{");
+    boolean first = true;
+    for (int i = 1, length = counts.length(); i < length; i++) {
+      long count = counts.get(i);
+      if (count == 0) continue;
+      if (!first) result.append(", ");
+      result.append(i).append('=').append(count);
+      first = false;
+    }
+    return result.append('}').toString();
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static retrofit2.Utils.throwIfFatal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/** Collects the calls of one {@link retrofit2.http.Batched @Batched} method into bulk requests. */
+final class BatchQueue<B, T> {
+  /**
+   * Fires the flush of batches which did not fill up in time. The batch is merged on {@link
+   * InFlightCalls#EXECUTOR} so that a slow {@link Batcher} never delays the flushes of others.
+   */
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "Retrofit Batcher");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+  private final Batcher<B, T> batcher;
+  private final int maxSize;
+  private final long maxDelayMs;
+  final BatchHistogram histogram;
+
+  @GuardedBy("this")
+  private List<BatchedCall<T>> pending = new ArrayList<>();
+
+  @GuardedBy("this")
+  private @Nullable ScheduledFuture<?> flushTask;
+
+  private final Runnable flush =
+      new Runnable() {
+        @Override
+        public void run() {
+          List<BatchedCall<T>> batch;
+          synchronized (BatchQueue.this) {
+            flushTask = null;
+            if (pending.isEmpty()) return;
+            batch = takePending();
+          }
+          InFlightCalls.EXECUTOR.execute(() -> dispatch(batch));
+        }
+      };
+
+  /** Batched calls are answered by their {@link Batcher} and never convert a response body. */
+  static <T> Converter<ResponseBody, T> unconverted() {
+    return value -> {
+      throw new AssertionError("Responses of @Batched methods are split by their Batcher.");
+    };
+  }
+
+  BatchQueue(Batcher<B, T> batcher, int maxSize, long maxDelayMs) {
+    this.batcher = batcher;
+    this.maxSize = maxSize;
+    this.maxDelayMs = maxDelayMs;
+    this.histogram = new BatchHistogram(maxSize);
+  }
+
+  void submit(BatchedCall<T> call) {
+    List<BatchedCall<T>> batch = null;
+    synchronized (this) {
+      pending.add(call);
+      if (pending.size() >= maxSize) {
+        batch = takePending();
+      } else if (flushTask == null) {
+        flushTask = SCHEDULER.schedule(flush, maxDelayMs, MILLISECONDS);
+      }
+    }
+    if (batch != null) {
+      dispatch(batch);
+    }
+  }
+
+  /** Returns true if {@code call} was withdrawn before it joined a bulk request. */
+  synchronized boolean remove(BatchedCall<T> call) {
+    return pending.remove(call);
+  }
+
+  @GuardedBy("this")
+  private List<BatchedCall<T>> takePending() {
+    List<BatchedCall<T>> batch = pending;
+    pending = new ArrayList<>();
+    if (flushTask != null) {
+      flushTask.cancel(false);
+      flushTask = null;
+    }
+    return batch;
+  }
+
+  private void dispatch(final List<BatchedCall<T>> batch) {
+    histogram.record(batch.size());
+    final List<Invocation> invocations = new ArrayList<>(batch.size());
+    for (int i = 0, size = batch.size(); i < size; i++) {
+      invocations.add(batch.get(i).invocation);
+    }
+
+    Call<B> bulkCall;
+    try {
+      bulkCall = batcher.merge(invocations);
+      if (bulkCall == null) {
+        throw new NullPointerException("Batcher.merge returned null.");
+      }
+    } catch (Throwable t) { // Wide exception range because batchers are user code.
+      throwIfFatal(t);
+      failAll(batch, t);
+      return;
+    }
+
+    bulkCall.enqueue(
+        new Callback<B>() {
+          @Override
+          public void onResponse(Call<B> call, Response<B> response) {
+            List<Response<T>> responses;
+            try {
+              responses =
+                  response.isSuccessful()
+                      ? successes(batch, invocations, response)
+                      : errors(batch, response);
+            } catch (Throwable t) {
+              throwIfFatal(t);
+              failAll(batch, t);
+              return;
+            }
+            completeAll(batch, responses, null);
+          }
+
+          @Override
+          public void onFailure(Call<B> call, Throwable t) {
+            failAll(batch, t);
+          }
+        });
+  }
+
+  private List<Response<T>> successes(
+      List<BatchedCall<T>> batch, List<Invocation> invocations, Response<B> response)
+      throws IOException {
+    List<T> results = batcher.split(invocations, response.body());
+    if (results == null || results.size() != batch.size()) {
+      throw new IllegalStateException(
+          "Batcher.split returned "
+              + (results == null ? "null" : results.size() + " results")
+              + " for "
+              + batch.size()
+              + " calls.");
+    }
+    List<Response<T>> responses = new ArrayList<>(results.size());
+    for (int i = 0, size = results.size(); i < size; i++) {
+      responses.add(Response.success(results.get(i), response.raw()));
+    }
+    return responses;
+  }
+
+  private List<Response<T>> errors(List<BatchedCall<T>> batch, Response<B> response)
+      throws IOException {
+    // Every caller receives its own copy of the error body so each can consume it.
+    ResponseBody errorBody = response.errorBody();
+    MediaType contentType = errorBody.contentType();
+    byte[] bytes = errorBody.bytes();
+    List<Response<T>> responses = new ArrayList<>(batch.size());
+    for (int i = 0, size = batch.size(); i < size; i++) {
+      responses.add(Response.<T>error(ResponseBody.create(contentType, bytes), response.raw()));
+    }
+    return responses;
+  }
+
+  private static <T> void failAll(List<BatchedCall<T>> batch, Throwable t) {
+    completeAll(batch, null, t);
+  }
+
+  /**
+   * Completes each call of {@code batch} with its element of {@code responses}, or with {@code
+   * failure} if that is non-null. A callback which throws does not keep the other calls from being
+   * completed; the first exception is rethrown once all of them have been.
+   */
+  private static <T> void completeAll(
+      List<BatchedCall<T>> batch,
+      @Nullable List<Response<T>> responses,
+      @Nullable Throwable failure) {
+    Throwable thrown = null;
+    for (int i = 0, size = batch.size(); i < size; i++) {
+      try {
+        if (responses != null) {
+          batch.get(i).deliver(responses.get(i));
+        } else {
+          batch.get(i).fail(failure);
+        }
+      } catch (Throwable t) {
+        throwIfFatal(t);
+        if (thrown == null) {
+          thrown = t;
+        } else {
+          thrown.addSuppressed(t);
+        }
+      }
+    }
+    if (thrown instanceof RuntimeException) {
+      throw (RuntimeException) thrown;
+    } else if (thrown != null) {
+      throw (Error) thrown; // Callbacks declare no checked exceptions.
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okio.Timeout;
+
+/**
+ * A call of a {@link retrofit2.http.Batched @Batched} method. Instead of making its own request it
+ * waits in a {@link BatchQueue} and receives its share of a bulk response.
+ */
+final class BatchedCall<T> implements Call<T> {
+  private final RequestFactory requestFactory;
+  private final Object[] args;
+  private final BatchQueue<?, T> queue;
+  final Invocation invocation;
+
+  private volatile boolean canceled;
+
+  @GuardedBy("this")
+  private boolean executed;
+
+  @GuardedBy("this")
+  private @Nullable Callback<T> callback;
+
+  @GuardedBy("this")
+  private boolean delivered;
+
+  @GuardedBy("this")
+  private @Nullable Request request;
+
+  BatchedCall(RequestFactory requestFactory, Object[] args, BatchQueue<?, T> queue) {
+    this.requestFactory = requestFactory;
+    this.args = args;
+    this.queue = queue;
+    int argumentCount = requestFactory.isKotlinSuspendFunction ? args.length - 1 : args.length;
+    this.invocation =
+        new Invocation(requestFactory.method, Arrays.asList(args).subList(0, argumentCount));
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // We are a final type & this saves clearing state.
+  @Override
+  public BatchedCall<T> clone() {
+    return new BatchedCall<>(requestFactory, args, queue);
+  }
+
+  /** Returns the request this call would make on its own. It is never sent. */
+  @Override
+  public synchronized Request request() {
+    if (request == null) {
+      try {
+        request = requestFactory.create(args);
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to create request.", e);
+      }
+    }
+    return request;
+  }
+
+  @Override
+  public Timeout timeout() {
+    return Timeout.NONE;
+  }
+
+  @Override
+  public Response<T> execute() throws IOException {
+    return execute(null);
+  }
+
+  /** Bulk requests are shared, so {@code cacheControl} is ignored. */
+  @Override
+  public Response<T> execute(@Nullable CacheControl cacheControl) throws IOException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final Object[] result = new Object[1];
+    enqueue(
+        new Callback<T>() {
+          @Override
+          public void onResponse(Call<T> call, Response<T> response) {
+            result[0] = response;
+            latch.countDown();
+          }
+
+          @Override
+          public void onFailure(Call<T> call, Throwable t) {
+            result[0] = t;
+            latch.countDown();
+          }
+        });
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a batch.");
+    }
+
+    if (result[0] instanceof Throwable) {
+      Throwable failure = (Throwable) result[0];
+      if (failure instanceof IOException) throw (IOException) failure;
+      if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+      if (failure instanceof Error) throw (Error) failure;
+      throw new RuntimeException(failure);
+    }
+    @SuppressWarnings("unchecked") // Only responses and throwables are stored.
+    Response<T> response = (Response<T>) result[0];
+    return response;
+  }
+
+  @Override
+  public void enqueue(Callback<T> callback) {
+    enqueue(callback, null);
+  }
+
+  /** Bulk requests are shared, so {@code cacheControl} is ignored. */
+  @Override
+  public void enqueue(Callback<T> callback, @Nullable CacheControl cacheControl) {
+    Objects.requireNonNull(callback, "callback == null");
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+      this.callback = callback;
+    }
+    if (canceled) {
+      fail(new IOException("Canceled"));
+      return;
+    }
+    queue.submit(this);
+  }
+
+  @Override
+  public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  /**
+   * Withdraws this call if it has not yet joined a bulk request. Otherwise the bulk request is left
+   * to complete for the other calls and this call's share is discarded.
+   */
+  @Override
+  public void cancel() {
+    canceled = true;
+    if (queue.remove(this)) {
+      fail(new IOException("Canceled"));
+    }
+  }
+
+  @Override
+  public boolean isCanceled() {
+    return canceled;
+  }
+
+  void deliver(Response<T> response) {
+    Callback<T> callback = takeCallback();
+    if (callback == null) return;
+    if (canceled) {
+      notifyFailure(callback, new IOException("Canceled"));
+      return;
+    }
+    callback.onResponse(this, response);
+  }
+
+  void fail(Throwable failure) {
+    Callback<T> callback = takeCallback();
+    if (callback != null) {
+      notifyFailure(callback, failure);
+    }
+  }
+
+  /** Returns the callback the first time this call completes, and null thereafter. */
+  private synchronized @Nullable Callback<T> takeCallback() {
+    if (delivered) return null;
+    delivered = true;
+    return callback;
+  }
+
+  private void notifyFailure(Callback<T> callback, Throwable failure) {
+    callback.onFailure(this, failure);
+  }
+}
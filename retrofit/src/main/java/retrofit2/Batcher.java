@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Merges the calls of a {@link retrofit2.http.Batched @Batched} method into one bulk request and
+ * splits its response back into one result per call.
+ *
+ * <pre><code>
+ * builder.addBatcher("items:batchGet", new Batcher&lt;List&lt;Item&gt;, Item&gt;() {
+ *   &#64;Override public Call&lt;List&lt;Item&gt;&gt; merge(List&lt;Invocation&gt; invocations) {
+ *     List&lt;String&gt; ids = new ArrayList&lt;&gt;();
+ *     for (Invocation invocation : invocations) {
+ *       ids.add((String) invocation.arguments().get(0));
+ *     }
+ *     return bulkService.batchGet(ids);
+ *   }
+ *
+ *   &#64;Override public List&lt;Item&gt; split(List&lt;Invocation&gt; invocations, List&lt;Item&gt; items) {
+ *     return items;
+ *   }
+ * });
+ * </code></pre>
+ *
+ * @param <B> the body type of the bulk response.
+ * @param <T> the body type of the batched method.
+ */
+public interface Batcher<B, T> {
+  /**
+   * Returns an unexecuted call which requests the results of all {@code invocations} at once. It is
+   * {@linkplain Call#enqueue enqueued} by Retrofit.
+   */
+  Call<B> merge(List<Invocation> invocations);
+
+  /**
+   * Returns the result of each of {@code invocations} taken from {@code body}, in the same order.
+   * This is only called for successful bulk responses. An unsuccessful bulk response is handed to
+   * every call as-is.
+   */
+  List<T> split(List<Invocation> invocations, @Nullable B body) throws IOException;
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+/**
+ * Thrown by the iterator of {@link Retrofit#executeAll} in place of the response of a call which
+ * failed. The {@linkplain #getCause() cause} is the failure reported to the call's {@link
+ * Callback}.
+ */
+public final class CallFailedException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final long index;
+
+  CallFailedException(long index, Throwable cause) {
+    super("Call " + index + " failed", cause);
+    this.index = index;
+  }
+
+  /** The position of the failed call among the executed calls, starting at 0. */
+  public long index() {
+    return index;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static retrofit2.Utils.throwIfFatal;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Enqueues calls taken lazily from an iterator, keeping a bounded number in flight, and hands out
+ * their outcomes in the original order. See {@link Retrofit#executeAll}.
+ */
+final class CallPipeline<T> implements Iterator<Response<T>> {
+  private final Iterator<? extends Call<T>> calls;
+  private final int maxConcurrency;
+  private final FailurePolicy failurePolicy;
+
+  /**
+   * Outcomes which have not been consumed yet, either a {@link Response} or a {@link Throwable},
+   * indexed by call position modulo the length. Sized so that calls can be started while a slow
+   * call blocks the consumer.
+   */
+  @GuardedBy("this")
+  private final Object[] outcomes;
+
+  /** Unfinished calls, indexed like {@link #outcomes}. Used to cancel them after a failure. */
+  @GuardedBy("this")
+  private final Call<?>[] unfinished;
+
+  @GuardedBy("this")
+  private long started;
+
+  @GuardedBy("this")
+  private long consumed;
+
+  @GuardedBy("this")
+  private int inFlight;
+
+  @GuardedBy("this")
+  private boolean exhausted;
+
+  /** The position of the failure which stopped this pipeline. Nothing after it is delivered. */
+  @GuardedBy("this")
+  private long stopAt = Long.MAX_VALUE;
+
+  CallPipeline(Iterator<? extends Call<T>> calls, int maxConcurrency, FailurePolicy failurePolicy) {
+    this.calls = calls;
+    this.maxConcurrency = maxConcurrency;
+    this.failurePolicy = failurePolicy;
+    int capacity = maxConcurrency > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : maxConcurrency * 2;
+    this.outcomes = new Object[capacity];
+    this.unfinished = new Call<?>[capacity];
+  }
+
+  @Override
+  public boolean hasNext() {
+    startCalls();
+    synchronized (this) {
+      return consumed <= stopAt && consumed < started;
+    }
+  }
+
+  @Override
+  public Response<T> next() {
+    if (!hasNext()) throw new NoSuchElementException();
+
+    long index;
+    Object outcome;
+    synchronized (this) {
+      index = consumed;
+      int slot = slot(index);
+      while (outcomes[slot] == null) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new CallFailedException(index, new InterruptedIOException());
+        }
+      }
+      outcome = outcomes[slot];
+      outcomes[slot] = null;
+      consumed++;
+    }
+    startCalls(); // A slot was freed.
+
+    if (outcome instanceof Throwable) {
+      throw new CallFailedException(index, (Throwable) outcome);
+    }
+    @SuppressWarnings("unchecked") // Only responses and throwables are stored.
+    Response<T> response = (Response<T>) outcome;
+    return response;
+  }
+
+  /** Starts calls until the concurrency limit or the window of unconsumed outcomes is reached. */
+  private void startCalls() {
+    while (true) {
+      final long index;
+      Call<T> call;
+      synchronized (this) {
+        if (exhausted
+            || stopAt != Long.MAX_VALUE
+            || inFlight == maxConcurrency
+            || started - consumed == outcomes.length) {
+          return;
+        }
+        if (!calls.hasNext()) {
+          exhausted = true;
+          return;
+        }
+        call = calls.next();
+        index = started++;
+        inFlight++;
+        unfinished[slot(index)] = call;
+      }
+
+      if (call == null) {
+        complete(index, new NullPointerException("Call " + index + " == null"));
+        continue;
+      }
+      try {
+        call.enqueue(
+            new Callback<T>() {
+              @Override
+              public void onResponse(Call<T> call, Response<T> response) {
+                complete(index, response);
+              }
+
+              @Override
+              public void onFailure(Call<T> call, Throwable t) {
+                complete(index, t);
+              }
+            });
+      } catch (Throwable t) { // Calls may have been executed already or be otherwise broken.
+        throwIfFatal(t);
+        complete(index, t);
+      }
+    }
+  }
+
+  private void complete(long index, Object outcome) {
+    List<Call<?>> toCancel = null;
+    synchronized (this) {
+      inFlight--;
+      unfinished[slot(index)] = null;
+      if (index > stopAt) {
+        return; // Canceled because an earlier call failed.
+      }
+
+      if (failurePolicy == FailurePolicy.STOP_ON_ERROR_RESPONSE
+          && outcome instanceof Response
+          && !((Response<?>) outcome).isSuccessful()) {
+        outcome = new HttpException((Response<?>) outcome);
+      }
+      if (outcome instanceof Throwable && failurePolicy != FailurePolicy.CONTINUE) {
+        stopAt = index;
+        toCancel = new ArrayList<>();
+        for (long i = index + 1; i < started; i++) {
+          Call<?> call = unfinished[slot(i)];
+          if (call != null) toCancel.add(call);
+        }
+      }
+
+      outcomes[slot(index)] = outcome;
+      notifyAll();
+    }
+
+    if (toCancel != null) {
+      for (int i = 0, size = toCancel.size(); i < size; i++) {
+        toCancel.get(i).cancel();
+      }
+    } else {
+      startCalls();
+    }
+  }
+
+  private int slot(long index) {
+    return (int) (index % outcomes.length);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+import retrofit2.http.Compress;
+
+/** A request body which is compressed while it is written. Its compressed length is unknown. */
+final class CompressedRequestBody extends RequestBody {
+  static String contentEncoding(Compress.Encoding encoding) {
+    return encoding == Compress.Encoding.GZIP ? "gzip" : "deflate";
+  }
+
+  private final RequestBody delegate;
+  private final Compress.Encoding encoding;
+  private final @Nullable RetrofitEventListener eventListener;
+  private final Invocation invocation;
+
+  CompressedRequestBody(
+      RequestBody delegate,
+      Compress.Encoding encoding,
+      @Nullable RetrofitEventListener eventListener,
+      Invocation invocation) {
+    this.delegate = delegate;
+    this.encoding = encoding;
+    this.eventListener = eventListener;
+    this.invocation = invocation;
+  }
+
+  @Override
+  public @Nullable MediaType contentType() {
+    return delegate.contentType();
+  }
+
+  @Override
+  public boolean isOneShot() {
+    return delegate.isOneShot();
+  }
+
+  @Override
+  public void writeTo(BufferedSink sink) throws IOException {
+    CountingSink compressed =
+        new CountingSink(sink) {
+          @Override
+          public void close() {
+            // The destination belongs to the caller.
+          }
+        };
+    Deflater deflater;
+    Sink compressor;
+    if (encoding == Compress.Encoding.GZIP) {
+      GzipSink gzipSink = new GzipSink(compressed);
+      deflater = gzipSink.deflater();
+      compressor = gzipSink;
+    } else {
+      deflater = new Deflater();
+      compressor = new DeflaterSink(compressed, deflater);
+    }
+    CountingSink uncompressed = new CountingSink(compressor);
+    BufferedSink bufferedSink = Okio.buffer(uncompressed);
+
+    boolean written = false;
+    try {
+      delegate.writeTo(bufferedSink);
+      written = true;
+    } finally {
+      if (written) {
+        bufferedSink.close(); // Writes the trailer and releases the deflater.
+      } else {
+        deflater.end();
+      }
+    }
+
+    if (eventListener != null) {
+      eventListener.requestBodyCompressed(invocation, uncompressed.byteCount, compressed.byteCount);
+    }
+  }
+
+  private static class CountingSink extends ForwardingSink {
+    long byteCount;
+
+    CountingSink(Sink delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+      super.write(source, byteCount);
+      this.byteCount += byteCount;
+    }
+  }
+}
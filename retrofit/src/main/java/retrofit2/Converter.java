@@ -80,6 +80,16 @@ public interface Converter<F, T> {
       return null;
     }
 
+    /**
+     * Returns true if the converters created by this factory depend only on the requested type and
+     * annotations, including any converters it obtains from {@link Retrofit}. {@link Retrofit}
+     * remembers the converters of such factories rather than asking them again for the same type
+     * and annotations. This is queried once when the {@link Retrofit} instance is built.
+     */
+    public boolean isCacheable() {
+      return false;
+    }
+
     /**
      * Extract the upper bound of the generic parameter at {@code index} from {@code type}. For
      * example, index 1 of {@code Map<String, ? extends Runnable>} returns {@code Runnable}.
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * The file a {@link retrofit2.http.DownloadTo @DownloadTo} response is written to. Attached to the
+ * request as a tag, together with the partial file of an earlier download which can be resumed. The
+ * partial file is only examined once the call executes.
+ *
+ * <p>Responses are written to a sibling named like the target with a {@code .part} suffix, which
+ * replaces the target once it is complete. A marker next to it, in a file with a {@code .validator}
+ * suffix, records the validator of the response and how many bytes from the start of the partial
+ * file are on disk. The validator is the strong {@code ETag} or else the {@code Last-Modified} date
+ * of the response, and is sent as {@code If-Range} when resuming so a partial file is only
+ * continued with the same version of the resource. Bytes past the recorded length, and partial
+ * files without a marker, are never trusted.
+ */
+abstract class DownloadTarget {
+  /** The most bytes received between two updates of the marker. */
+  private static final long CHECKPOINT_SIZE = 1024 * 1024;
+
+  /** Returns true if {@code type} can be the target of a download. */
+  static boolean isTargetType(Class<?> type) {
+    if (type == File.class) {
+      return true;
+    }
+    try {
+      return OfPath.isPath(type);
+    } catch (NoClassDefFoundError ignored) {
+      return false; // Android before API 26.
+    }
+  }
+
+  /** Returns the target of {@code target}. Its files are not read until the call executes. */
+  static DownloadTarget of(Object target) {
+    return target instanceof File ? new OfFile((File) target) : new OfPath(target);
+  }
+
+  /** Download responses are written to their target by {@link #receive}, never converted. */
+  static <T> Converter<ResponseBody, T> unconverted() {
+    return value -> {
+      throw new AssertionError();
+    };
+  }
+
+  /**
+   * Returns the value to send as {@code If-Range} when resuming a download of {@code response}, or
+   * null if it has none. Weak entity tags cannot be used for ranges.
+   */
+  static @Nullable String validator(okhttp3.Response response) {
+    String etag = response.header("ETag");
+    if (etag != null && !etag.startsWith("W/")) {
+      return etag;
+    }
+    return response.header("Last-Modified");
+  }
+
+  /** The number of bytes of the partial file which are known to be on disk. */
+  long offset;
+
+  /** The validator of the partial file's content, or null if it cannot be resumed. */
+  @Nullable String validator;
+
+  /** The argument of the {@code @DownloadTo} parameter. */
+  abstract Object value();
+
+  /** Returns the length of the partial file, or 0 if there is none. */
+  abstract long partialLength() throws IOException;
+
+  /** Opens the partial file for reading and writing, creating it if necessary. */
+  abstract FileChannel openPartial() throws IOException;
+
+  /** Returns the contents of the marker, or null if there is none. */
+  abstract @Nullable String loadMarker() throws IOException;
+
+  /** Replaces the contents of the marker, or deletes it if {@code contents} is null. */
+  abstract void storeMarker(@Nullable String contents) throws IOException;
+
+  /** Replaces the target with the partial file. */
+  abstract void movePartialToTarget() throws IOException;
+
+  /**
+   * Returns {@code request} asking for the bytes after the partial file, or {@code request} itself
+   * if there is nothing to resume. Reads the marker, so this is done when the call executes rather
+   * than when its request is built.
+   */
+  final Request resume(Request request) throws IOException {
+    readMarker();
+    if (validator == null) {
+      return request;
+    }
+    // Servers send the whole resource instead of the range if it changed since.
+    return request
+        .newBuilder()
+        .header("Range", "bytes=" + offset + "-")
+        .header("If-Range", validator)
+        .build();
+  }
+
+  /**
+   * Reads {@link #validator} and {@link #offset} from the marker. A marker which is missing, torn
+   * or longer than the partial file leaves nothing to resume.
+   */
+  final void readMarker() throws IOException {
+    String marker = loadMarker();
+    int newline = marker != null ? marker.indexOf('\n') : -1;
+    if (newline <= 0 || !marker.endsWith("\n")) {
+      return;
+    }
+    long length;
+    try {
+      length = Long.parseLong(marker.substring(newline + 1, marker.length() - 1));
+    } catch (NumberFormatException e) {
+      return;
+    }
+    if (length > 0L && length <= partialLength()) {
+      validator = marker.substring(0, newline);
+      offset = length;
+    }
+  }
+
+  /**
+   * Records that the first {@code length} bytes of {@code channel}, the partial file, are on disk
+   * and belong to the version identified by {@code validator}. Does nothing if there is no
+   * validator to resume with.
+   */
+  final void checkpoint(FileChannel channel, @Nullable String validator, long length)
+      throws IOException {
+    if (validator == null || length == 0L) {
+      return;
+    }
+    channel.force(false); // The bytes must be on disk before the marker claims them.
+    storeMarker(validator + '\n' + length + '\n');
+  }
+
+  /** Forgets the bytes of the partial file so that it is never resumed. */
+  final void discard() throws IOException {
+    storeMarker(null);
+  }
+
+  /** Replaces the target with the complete partial file and forgets its marker. */
+  final void commit() throws IOException {
+    movePartialToTarget();
+    storeMarker(null);
+  }
+
+  /**
+   * Writes the body of {@code rawResponse} to this target. Returns true if the target now holds the
+   * complete content, or false if the response is an error which must be returned to the caller.
+   */
+  final boolean receive(okhttp3.Response rawResponse, ResponseBody body) throws IOException {
+    int code = rawResponse.code();
+    if (code == 416 && offset > 0L) {
+      // Asked for the bytes after the end of the same version: the partial file is complete.
+      String contentRange = rawResponse.header("Content-Range");
+      if (contentRange == null || !contentRange.equals("bytes */" + offset)) {
+        discard(); // The partial file is not a prefix of the resource. Start over.
+        return false;
+      }
+      try (FileChannel channel = openPartial()) {
+        channel.truncate(offset);
+      }
+      commit();
+      return true;
+    }
+    if (code < 200 || code >= 300) {
+      return false;
+    }
+
+    long position = 0L;
+    String validator = validator(rawResponse);
+    if (code == 206) {
+      String contentRange = rawResponse.header("Content-Range");
+      if (contentRange == null || !contentRange.startsWith("bytes " + offset + "-")) {
+        throw new ProtocolException(
+            "Expected a Content-Range starting at " + offset + " but was " + contentRange);
+      }
+      position = offset;
+      if (validator == null) {
+        validator = this.validator;
+      }
+    } else {
+      discard(); // None of the existing bytes are kept.
+    }
+
+    try (FileChannel channel = openPartial()) {
+      if (channel.size() < position) {
+        throw new IOException("Partial download was truncated to " + channel.size() + " bytes");
+      }
+      channel.truncate(position);
+      BufferedSource source = body.source();
+      ByteBuffer buffer = ByteBuffer.allocate(8192);
+      long checkpointed = position;
+      try {
+        while (source.read(buffer) != -1) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+          }
+          buffer.clear();
+          if (position - checkpointed >= CHECKPOINT_SIZE) {
+            checkpoint(channel, validator, position);
+            checkpointed = position;
+          }
+        }
+      } catch (IOException e) {
+        try {
+          checkpoint(channel, validator, position); // Resume after the last written byte.
+        } catch (IOException checkpointFailure) {
+          e.addSuppressed(checkpointFailure);
+        }
+        throw e;
+      }
+    }
+    commit();
+    return true;
+  }
+
+  static final class OfFile extends DownloadTarget {
+    private final File file;
+    private final File partial;
+    private final File marker;
+
+    OfFile(File file) {
+      this.file = file;
+      this.partial = new File(file.getPath() + ".part");
+      this.marker = new File(file.getPath() + ".validator");
+    }
+
+    @Override
+    Object value() {
+      return file;
+    }
+
+    @Override
+    long partialLength() {
+      return partial.length();
+    }
+
+    @Override
+    FileChannel openPartial() throws IOException {
+      return new RandomAccessFile(partial, "rw").getChannel();
+    }
+
+    @Override
+    @Nullable
+    String loadMarker() throws IOException {
+      if (!marker.exists()) {
+        return null;
+      }
+      try (BufferedSource source = Okio.buffer(Okio.source(marker))) {
+        return source.readUtf8();
+      }
+    }
+
+    @Override
+    void storeMarker(@Nullable String contents) throws IOException {
+      if (contents == null) {
+        if (marker.exists() && !marker.delete()) {
+          throw new IOException("Failed to delete " + marker);
+        }
+        return;
+      }
+      try (BufferedSink sink = Okio.buffer(Okio.sink(marker))) {
+        sink.writeUtf8(contents);
+      }
+    }
+
+    @Override
+    void movePartialToTarget() throws IOException {
+      // Some platforms refuse to rename onto an existing file.
+      if (!partial.renameTo(file) && (!file.delete() || !partial.renameTo(file))) {
+        throw new IOException("Failed to rename " + partial + " to " + file);
+      }
+    }
+  }
+
+  @IgnoreJRERequirement // Only used when Path is available (Java 7+ / Android API 26+).
+  static final class OfPath extends DownloadTarget {
+    static boolean isPath(Class<?> type) {
+      return type == Path.class;
+    }
+
+    private final Path path;
+    private final Path partial;
+    private final Path marker;
+
+    OfPath(Object path) {
+      this.path = (Path) path;
+      this.partial = this.path.resolveSibling(this.path.getFileName() + ".part");
+      this.marker = this.path.resolveSibling(this.path.getFileName() + ".validator");
+    }
+
+    @Override
+    Object value() {
+      return path;
+    }
+
+    @Override
+    long partialLength() throws IOException {
+      return Files.exists(partial) ? Files.size(partial) : 0L;
+    }
+
+    @Override
+    FileChannel openPartial() throws IOException {
+      return FileChannel.open(
+          partial, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    @Nullable
+    String loadMarker() throws IOException {
+      if (!Files.exists(marker)) {
+        return null;
+      }
+      return new String(Files.readAllBytes(marker), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    void storeMarker(@Nullable String contents) throws IOException {
+      if (contents == null) {
+        Files.deleteIfExists(marker);
+      } else {
+        Files.write(marker, contents.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    @Override
+    void movePartialToTarget() throws IOException {
+      Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+/** What {@link Retrofit#executeAll} does when one of the calls fails. */
+public enum FailurePolicy {
+  /**
+   * Execute every call. A call which fails with an exception throws a {@link CallFailedException}
+   * from {@link java.util.Iterator#next() next()} and iteration may continue with the next call.
+   */
+  CONTINUE,
+  /**
+   * Stop at the first call which fails with an exception. No further calls are started, calls after
+   * it which are in flight are canceled, and the iterator ends once its failure is thrown.
+   */
+  STOP_ON_FAILURE,
+  /**
+   * Like {@link #STOP_ON_FAILURE}, but a non-2xx response also counts as a failure. It is reported
+   * as an {@link HttpException}.
+   */
+  STOP_ON_ERROR_RESPONSE
+}
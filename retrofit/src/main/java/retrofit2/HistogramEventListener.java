@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link RetrofitEventListener} which records the duration of every {@link Phase} in a {@link
+ * LatencyHistogram} per service method, and the {@linkplain #compressionRatio ratio} of its
+ * compressed request bodies.
+ *
+ * <pre><code>
+ * HistogramEventListener metrics = new HistogramEventListener();
+ * Retrofit retrofit = new Retrofit.Builder()
+ *     .baseUrl("https://example.com/")
+ *     .eventListener(metrics)
+ *     .build();
+ * // ...
+ * LatencyHistogram conversion =
+ *     metrics.histogram(Api.class.getMethod("user", String.class), Phase.CONVERSION);
+ * </code></pre>
+ */
+public final class HistogramEventListener extends RetrofitEventListener {
+  /** The measured parts of a call's lifecycle. */
+  public enum Phase {
+    /** Parsing the annotations of the service method. Recorded once per method. */
+    PARSE,
+    /** Creating the HTTP request from the arguments. */
+    REQUEST_BUILD,
+    /** From starting the call until its response headers arrived. */
+    RESPONSE,
+    /** Converting the response body to the declared type. */
+    CONVERSION,
+    /** From starting an enqueued call until its callback returned. */
+    CALLBACK,
+    /** From starting the call until it failed. */
+    FAILURE
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
+  /** Histograms by method and phase ordinal. A phase's histogram is created when first recorded. */
+  private final ConcurrentMap<Method, AtomicReferenceArray<LatencyHistogram>> histograms =
+      new ConcurrentHashMap<>();
+
+  /** Uncompressed and compressed request body bytes by method. */
+  private final ConcurrentMap<Method, AtomicLongArray> compression = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the durations of {@code phase} for calls of {@code method}, or null if none were
+   * recorded.
+   */
+  public @Nullable LatencyHistogram histogram(Method method, Phase phase) {
+    AtomicReferenceArray<LatencyHistogram> methodHistograms = histograms.get(method);
+    return methodHistograms != null ? methodHistograms.get(phase.ordinal()) : null;
+  }
+
+  /** The service methods for which durations were recorded. */
+  public Set<Method> methods() {
+    return Collections.unmodifiableSet(histograms.keySet());
+  }
+
+  /** Returns the histograms of the phases recorded for {@code method}. */
+  public Map<Phase, LatencyHistogram> histograms(Method method) {
+    Map<Phase, LatencyHistogram> result = new EnumMap<>(Phase.class);
+    AtomicReferenceArray<LatencyHistogram> methodHistograms = histograms.get(method);
+    if (methodHistograms != null) {
+      for (Phase phase : PHASES) {
+        LatencyHistogram histogram = methodHistograms.get(phase.ordinal());
+        if (histogram != null) result.put(phase, histogram);
+      }
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Returns the total compressed size of the {@link retrofit2.http.Compress @Compress} request
+   * bodies of {@code method} divided by their total uncompressed size, or {@link Double#NaN} if
+   * none were written. Smaller is better.
+   */
+  public double compressionRatio(Method method) {
+    AtomicLongArray bytes = compression.get(method);
+    if (bytes == null || bytes.get(0) == 0L) {
+      return Double.NaN;
+    }
+    return (double) bytes.get(1) / bytes.get(0);
+  }
+
+  @Override
+  public void serviceMethodParsed(Method method, long startNanos, long endNanos) {
+    record(method, Phase.PARSE, endNanos - startNanos);
+  }
+
+  @Override
+  public void requestBuilt(Invocation invocation, long startNanos, long endNanos) {
+    record(invocation.method(), Phase.REQUEST_BUILD, endNanos - startNanos);
+  }
+
+  @Override
+  public void requestBodyCompressed(
+      Invocation invocation, long uncompressedBytes, long compressedBytes) {
+    AtomicLongArray bytes = compression.get(invocation.method());
+    if (bytes == null) {
+      AtomicLongArray created = new AtomicLongArray(2);
+      bytes = compression.putIfAbsent(invocation.method(), created);
+      if (bytes == null) {
+        bytes = created;
+      }
+    }
+    bytes.addAndGet(0, uncompressedBytes);
+    bytes.addAndGet(1, compressedBytes);
+  }
+
+  @Override
+  public void responseReceived(Invocation invocation, long callStartNanos, long receivedNanos) {
+    record(invocation.method(), Phase.RESPONSE, receivedNanos - callStartNanos);
+  }
+
+  @Override
+  public void bodyConverted(Invocation invocation, long startNanos, long endNanos) {
+    record(invocation.method(), Phase.CONVERSION, endNanos - startNanos);
+  }
+
+  @Override
+  public void callbackDispatched(Invocation invocation, long callStartNanos, long dispatchedNanos) {
+    record(invocation.method(), Phase.CALLBACK, dispatchedNanos - callStartNanos);
+  }
+
+  @Override
+  public void callFailed(
+      Invocation invocation, Throwable failure, long callStartNanos, long failedNanos) {
+    record(invocation.method(), Phase.FAILURE, failedNanos - callStartNanos);
+  }
+
+  private void record(Method method, Phase phase, long nanos) {
+    AtomicReferenceArray<LatencyHistogram> methodHistograms = histograms.get(method);
+    if (methodHistograms == null) {
+      AtomicReferenceArray<LatencyHistogram> created = new AtomicReferenceArray<>(PHASES.length);
+      methodHistograms = histograms.putIfAbsent(method, created);
+      if (methodHistograms == null) {
+        methodHistograms = created;
+      }
+    }
+    LatencyHistogram histogram = methodHistograms.get(phase.ordinal());
+    if (histogram == null) {
+      methodHistograms.compareAndSet(phase.ordinal(), null, new LatencyHistogram());
+      histogram = methodHistograms.get(phase.ordinal());
+    }
+    histogram.record(nanos);
+  }
+}
@@ -81,12 +81,39 @@ abstract class HttpServiceMethod<ResponseT, ReturnT> extends ServiceMethod<Retur
       throw methodError(method, "HEAD method must use Void as response type.");
     }
 
-    Converter<ResponseBody, ResponseT> responseConverter =
-        createResponseConverter(retrofit, method, responseType);
+    Converter<ResponseBody, ResponseT> responseConverter;
+    if (requestFactory.downloadType != null) {
+      if (responseType != requestFactory.downloadType) {
+        throw methodError(
+            method,
+            "@DownloadTo methods must use %s as response type. Found: %s",
+            requestFactory.downloadType.getName(),
+            responseType);
+      }
+      responseConverter = DownloadTarget.unconverted();
+    } else if (requestFactory.batchEndpoint != null) {
+      responseConverter = BatchQueue.unconverted();
+    } else {
+      responseConverter = createResponseConverter(retrofit, method, responseType);
+    }
 
     okhttp3.Call.Factory callFactory = retrofit.callFactory;
+    ResponseCache responseCache =
+        requestFactory.cacheTtlNanos != -1 ? retrofit.responseCache : null;
+    RetrofitEventListener eventListener = retrofit.eventListener;
+    BatchQueue<?, ResponseT> batchQueue =
+        requestFactory.batchEndpoint != null
+            ? retrofit.<ResponseT>newBatchQueue(method, requestFactory)
+            : null;
     if (!isKotlinSuspendFunction) {
-      return new CallAdapted<>(requestFactory, callFactory, responseConverter, callAdapter);
+      return new CallAdapted<>(
+          requestFactory,
+          callFactory,
+          responseConverter,
+          responseCache,
+          batchQueue,
+          eventListener,
+          callAdapter);
     } else if (continuationWantsResponse) {
       //noinspection unchecked Kotlin compiler guarantees ReturnT to be Object.
       return (HttpServiceMethod<ResponseT, ReturnT>)
@@ -94,6 +121,9 @@ abstract class HttpServiceMethod<ResponseT, ReturnT> extends ServiceMethod<Retur
               requestFactory,
               callFactory,
               responseConverter,
+              responseCache,
+              batchQueue,
+              eventListener,
               (CallAdapter<ResponseT, Call<ResponseT>>) callAdapter);
     } else {
       //noinspection unchecked Kotlin compiler guarantees ReturnT to be Object.
@@ -102,6 +132,9 @@ abstract class HttpServiceMethod<ResponseT, ReturnT> extends ServiceMethod<Retur
               requestFactory,
               callFactory,
               responseConverter,
+              responseCache,
+              batchQueue,
+              eventListener,
               (CallAdapter<ResponseT, Call<ResponseT>>) callAdapter,
               continuationBodyNullable);
     }
@@ -130,22 +163,52 @@ abstract class HttpServiceMethod<ResponseT, ReturnT> extends ServiceMethod<Retur
   private final RequestFactory requestFactory;
   private final okhttp3.Call.Factory callFactory;
   private final Converter<ResponseBody, ResponseT> responseConverter;
+  private final @Nullable ResponseCache responseCache;
+  private final @Nullable BatchQueue<?, ResponseT> batchQueue;
+  private final @Nullable RetrofitEventListener eventListener;
 
   HttpServiceMethod(
       RequestFactory requestFactory,
       okhttp3.Call.Factory callFactory,
-      Converter<ResponseBody, ResponseT> responseConverter) {
+      Converter<ResponseBody, ResponseT> responseConverter,
+      @Nullable ResponseCache responseCache,
+      @Nullable BatchQueue<?, ResponseT> batchQueue,
+      @Nullable RetrofitEventListener eventListener) {
     this.requestFactory = requestFactory;
     this.callFactory = callFactory;
     this.responseConverter = responseConverter;
+    this.responseCache = responseCache;
+    this.batchQueue = batchQueue;
+    this.eventListener = eventListener;
   }
 
   @Override
   final @Nullable ReturnT invoke(Object[] args) {
-    Call<ResponseT> call = new OkHttpCall<>(requestFactory, args, callFactory, responseConverter);
+    Call<ResponseT> call;
+    if (batchQueue != null) {
+      call = new BatchedCall<>(requestFactory, args, batchQueue);
+    } else {
+      OkHttpCall<ResponseT> okHttpCall =
+          new OkHttpCall<>(
+              requestFactory, args, callFactory, responseConverter, responseCache, eventListener);
+      call =
+          requestFactory.segments != 0
+              ? new SegmentedDownloadCall<>(requestFactory, args, callFactory, okHttpCall)
+              : okHttpCall;
+    }
     return adapt(call, args);
   }
 
+  /** Returns a parser of network responses which converts them like this method's calls do. */
+  Converter<okhttp3.Response, Response<ResponseT>> responseParser(Method method) {
+    if (requestFactory.downloadType != null || batchQueue != null) {
+      throw methodError(method, "Responses of @DownloadTo and @Batched methods are not converted.");
+    }
+    OkHttpCall<ResponseT> call =
+        new OkHttpCall<>(requestFactory, new Object[0], callFactory, responseConverter, null, null);
+    return rawResponse -> call.parseResponse(rawResponse.request(), rawResponse, null, null);
+  }
+
   protected abstract @Nullable ReturnT adapt(Call<ResponseT> call, Object[] args);
 
   static final class CallAdapted<ResponseT, ReturnT> extends HttpServiceMethod<ResponseT, ReturnT> {
@@ -155,8 +218,12 @@ abstract class HttpServiceMethod<ResponseT, ReturnT> extends ServiceMethod<Retur
         RequestFactory requestFactory,
         okhttp3.Call.Factory callFactory,
         Converter<ResponseBody, ResponseT> responseConverter,
+        @Nullable ResponseCache responseCache,
+        @Nullable BatchQueue<?, ResponseT> batchQueue,
+        @Nullable RetrofitEventListener eventListener,
         CallAdapter<ResponseT, ReturnT> callAdapter) {
-      super(requestFactory, callFactory, responseConverter);
+      super(
+          requestFactory, callFactory, responseConverter, responseCache, batchQueue, eventListener);
       this.callAdapter = callAdapter;
     }
 
@@ -173,8 +240,12 @@ abstract class HttpServiceMethod<ResponseT, ReturnT> extends ServiceMethod<Retur
         RequestFactory requestFactory,
         okhttp3.Call.Factory callFactory,
         Converter<ResponseBody, ResponseT> responseConverter,
+        @Nullable ResponseCache responseCache,
+        @Nullable BatchQueue<?, ResponseT> batchQueue,
+        @Nullable RetrofitEventListener eventListener,
         CallAdapter<ResponseT, Call<ResponseT>> callAdapter) {
-      super(requestFactory, callFactory, responseConverter);
+      super(
+          requestFactory, callFactory, responseConverter, responseCache, batchQueue, eventListener);
       this.callAdapter = callAdapter;
     }
 
@@ -203,9 +274,13 @@ abstract class HttpServiceMethod<ResponseT, ReturnT> extends ServiceMethod<Retur
         RequestFactory requestFactory,
         okhttp3.Call.Factory callFactory,
         Converter<ResponseBody, ResponseT> responseConverter,
+        @Nullable ResponseCache responseCache,
+        @Nullable BatchQueue<?, ResponseT> batchQueue,
+        @Nullable RetrofitEventListener eventListener,
         CallAdapter<ResponseT, Call<ResponseT>> callAdapter,
         boolean isNullable) {
-      super(requestFactory, callFactory, responseConverter);
+      super(
+          requestFactory, callFactory, responseConverter, responseCache, batchQueue, eventListener);
       this.callAdapter = callAdapter;
       this.isNullable = isNullable;
     }
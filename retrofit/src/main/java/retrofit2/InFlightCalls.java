@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static retrofit2.Utils.throwIfFatal;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.GuardedBy;
+import okhttp3.Request;
+
+/**
+ * The OkHttp calls in flight for one Retrofit call which makes several requests, such as a
+ * resumable upload or a segmented download, so that they can be canceled together.
+ */
+final class InFlightCalls {
+  /** The most threads of {@link #EXECUTOR}, matching OkHttp's default limit of calls in flight. */
+  private static final int MAX_THREADS = 64;
+
+  /**
+   * Runs the asynchronous calls which block while waiting for their own requests, and the timed
+   * flushes of {@link BatchQueue}. Shared so that idle threads are reused between them. Work beyond
+   * {@link #MAX_THREADS} waits for a thread instead of starting a new one.
+   */
+  static final Executor EXECUTOR = newExecutor();
+
+  private static ThreadPoolExecutor newExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            MAX_THREADS,
+            MAX_THREADS,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "Retrofit Blocking Call");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /** The blocking work of a call. */
+  interface Task<T> {
+    Response<T> run() throws IOException;
+  }
+
+  /**
+   * Runs {@code task} on {@link #EXECUTOR} and reports its outcome to {@code callback}. Exceptions
+   * thrown by the callback are not caught, so they reach the thread's uncaught exception handler
+   * like those of OkHttp's own callbacks.
+   */
+  static <T> void enqueue(Call<T> call, Callback<T> callback, Task<T> task) {
+    EXECUTOR.execute(
+        () -> {
+          Response<T> response;
+          try {
+            response = task.run();
+          } catch (Throwable t) {
+            throwIfFatal(t);
+            callback.onFailure(call, t);
+            return;
+          }
+          callback.onResponse(call, response);
+        });
+  }
+
+  private final okhttp3.Call.Factory callFactory;
+  private volatile boolean canceled;
+
+  @GuardedBy("this")
+  private final Set<okhttp3.Call> calls = new LinkedHashSet<>();
+
+  InFlightCalls(okhttp3.Call.Factory callFactory) {
+    this.callFactory = callFactory;
+  }
+
+  /**
+   * Returns a call of {@code request} which is tracked until it is {@linkplain #finished finished}.
+   * Throws if {@link #cancel} was called.
+   */
+  okhttp3.Call newCall(Request request) throws IOException {
+    okhttp3.Call call = callFactory.newCall(request);
+    synchronized (this) {
+      if (canceled) {
+        throw new IOException("Canceled");
+      }
+      calls.add(call);
+    }
+    return call;
+  }
+
+  /** Executes {@code request} while tracking its call. */
+  okhttp3.Response execute(Request request) throws IOException {
+    okhttp3.Call call = newCall(request);
+    try {
+      return call.execute();
+    } finally {
+      finished(call);
+    }
+  }
+
+  synchronized void finished(okhttp3.Call call) {
+    calls.remove(call);
+  }
+
+  /** Cancels the calls in flight. Later calls are still made. */
+  synchronized void cancelInFlight() {
+    for (Iterator<okhttp3.Call> i = calls.iterator(); i.hasNext(); ) {
+      i.next().cancel();
+      i.remove();
+    }
+  }
+
+  /** Cancels the calls in flight and refuses to make new ones. */
+  synchronized void cancel() {
+    canceled = true;
+    cancelInFlight();
+  }
+
+  boolean isCanceled() {
+    return canceled;
+  }
+}
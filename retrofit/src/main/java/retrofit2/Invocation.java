@@ -19,7 +19,10 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 
 /**
  * A single invocation of a Retrofit service interface method. This class captures both the method
@@ -47,6 +50,9 @@ import java.util.Objects;
  * arguments list is unmodifiable, the arguments themselves may be mutable. They may also be unsafe
  * for concurrent access. For best results declare Retrofit service interfaces using only immutable
  * types for parameters!
+ *
+ * <p>Call adapters may {@linkplain #tag(Class, Object) attach tags} to the invocation of a call
+ * before it executes, so that interceptors can read values from where the call was made.
  */
 public final class Invocation {
   public static Invocation of(Method method, List<?> arguments) {
@@ -57,6 +63,7 @@ public final class Invocation {
 
   private final Method method;
   private final List<?> arguments;
+  private final Map<Class<?>, Object> tags = new ConcurrentHashMap<>();
 
   /** Trusted constructor assumes ownership of {@code arguments}. */
   Invocation(Method method, List<?> arguments) {
@@ -72,6 +79,29 @@ public final class Invocation {
     return arguments;
   }
 
+  /**
+   * Returns the tag attached with {@code type} as a key, or null if no tag is attached with that
+   * key.
+   */
+  public @Nullable <T> T tag(Class<? extends T> type) {
+    Objects.requireNonNull(type, "type == null");
+    return type.cast(tags.get(type));
+  }
+
+  /**
+   * Attaches {@code tag} to this invocation using {@code type} as a key. Tags can be read by other
+   * threads, such as those of OkHttp's dispatcher. Use null to remove any existing tag assigned for
+   * {@code type}.
+   */
+  public <T> void tag(Class<? super T> type, @Nullable T tag) {
+    Objects.requireNonNull(type, "type == null");
+    if (tag == null) {
+      tags.remove(type);
+    } else {
+      tags.put(type, type.cast(tag));
+    }
+  }
+
   @Override
   public String toString() {
     return String.format(
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of durations in nanoseconds. Like an HDR histogram it keeps a fixed number
+ * of logarithmically sized buckets, each split into 32 linear sub-buckets, so every recorded value
+ * is reported within about 3% of its true value using a constant 15 KiB regardless of how many
+ * values are recorded.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /** Values below this are counted exactly, one bucket each. */
+  private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+  /** The highest power of two of a positive long is 2^62. */
+  private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /** Record a duration. Negative durations are recorded as 0. */
+  public void record(long nanos) {
+    long value = Math.max(0L, nanos);
+    counts.incrementAndGet(bucket(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long currentMax;
+    while (value > (currentMax = max.get())) {
+      if (max.compareAndSet(currentMax, value)) break;
+    }
+  }
+
+  /** The number of recorded durations. */
+  public long count() {
+    return count.get();
+  }
+
+  /** The largest recorded duration, or 0 if none was recorded. */
+  public long max() {
+    return max.get();
+  }
+
+  /** The mean of the recorded durations, or 0 if none was recorded. */
+  public double mean() {
+    long count = this.count.get();
+    return count == 0 ? 0.0 : (double) sum.get() / count;
+  }
+
+  /**
+   * The duration at or below which {@code percentile} percent of the recorded durations fall, or 0
+   * if none was recorded.
+   */
+  public long valueAtPercentile(double percentile) {
+    if (percentile < 0.0 || percentile > 100.0) {
+      throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+    }
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      total += counts.get(i);
+    }
+    if (total == 0) return 0L;
+
+    long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  static int bucket(long value) {
+    if (value < LINEAR_LIMIT) return (int) value;
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestValueOf(int bucket) {
+    if (bucket < LINEAR_LIMIT) return bucket;
+    int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+    int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+    long lowest = (long) (SUB_BUCKETS + subBucket) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{count="
+        + count()
+        + ", p50="
+        + valueAtPercentile(50.0)
+        + ", p99="
+        + valueAtPercentile(99.0)
+        + ", max="
+        + max()
+        + "}";
+  }
+}
@@ -15,6 +15,7 @@
  */
 package retrofit2;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static retrofit2.Utils.throwIfFatal;
 
 import java.io.IOException;
@@ -37,33 +38,54 @@ final class OkHttpCall<T> implements Call<T> {
   private final Object[] args;
   private final okhttp3.Call.Factory callFactory;
   private final Converter<ResponseBody, T> responseConverter;
+  private final @Nullable ResponseCache responseCache;
+  private final @Nullable RetrofitEventListener eventListener;
 
   private volatile boolean canceled;
 
   @GuardedBy("this")
   private @Nullable okhttp3.Call rawCall;
 
+  /**
+   * The call sent in place of {@link #rawCall}, such as one conditional on a cached response or one
+   * resuming a download.
+   */
+  @GuardedBy("this")
+  private @Nullable okhttp3.Call sentCall;
+
   @GuardedBy("this") // Either a RuntimeException, non-fatal Error, or IOException.
   private @Nullable Throwable creationFailure;
 
   @GuardedBy("this")
   private boolean executed;
 
+  /** When the request was built. Reported once the call starts, which may be much later. */
+  @GuardedBy("this")
+  private long requestBuildStartNanos;
+
+  @GuardedBy("this")
+  private long requestBuildEndNanos;
+
   OkHttpCall(
       RequestFactory requestFactory,
       Object[] args,
       okhttp3.Call.Factory callFactory,
-      Converter<ResponseBody, T> responseConverter) {
+      Converter<ResponseBody, T> responseConverter,
+      @Nullable ResponseCache responseCache,
+      @Nullable RetrofitEventListener eventListener) {
     this.requestFactory = requestFactory;
     this.args = args;
     this.callFactory = callFactory;
     this.responseConverter = responseConverter;
+    this.responseCache = responseCache;
+    this.eventListener = eventListener;
   }
 
   @SuppressWarnings("CloneDoesntCallSuperClone") // We are a final type & this saves clearing state.
   @Override
   public OkHttpCall<T> clone() {
-    return new OkHttpCall<>(requestFactory, args, callFactory, responseConverter);
+    return new OkHttpCall<>(
+        requestFactory, args, callFactory, responseConverter, responseCache, eventListener);
   }
 
   @Override
@@ -122,9 +144,12 @@ final class OkHttpCall<T> implements Call<T> {
   @Override
   public void enqueue(final Callback<T> callback, CacheControl cacheControl) {
     Objects.requireNonNull(callback, "callback == null");
+    final long startNanos = eventListener != null ? System.nanoTime() : 0L;
 
     okhttp3.Call call;
     Throwable failure;
+    long buildStartNanos;
+    long buildEndNanos;
 
     synchronized (this) {
       if (executed) throw new IllegalStateException("Already executed.");
@@ -140,6 +165,8 @@ final class OkHttpCall<T> implements Call<T> {
           failure = creationFailure = t;
         }
       }
+      buildStartNanos = requestBuildStartNanos;
+      buildEndNanos = requestBuildEndNanos;
     }
 
     if (failure != null) {
@@ -151,13 +178,46 @@ final class OkHttpCall<T> implements Call<T> {
       call.cancel();
     }
 
+    final Request request = call.request();
+    if (eventListener != null) {
+      Invocation invocation = request.tag(Invocation.class);
+      eventListener.requestBuilt(invocation, buildStartNanos, buildEndNanos);
+      eventListener.callStarted(invocation, startNanos);
+    }
+    Response<T> cached = cachedResponse(request, cacheControl);
+    if (cached != null) {
+      // Delivered on the calling thread, so exceptions thrown by the callback propagate to it.
+      try {
+        callback.onResponse(this, cached);
+      } finally {
+        if (eventListener != null) {
+          eventListener.callbackDispatched(
+              request.tag(Invocation.class), startNanos, System.nanoTime());
+        }
+      }
+      return;
+    }
+
+    final ResponseCache.Entry conditional = conditionalEntry(request, cacheControl);
+    try {
+      call = callToSend(call, request, conditional);
+    } catch (Throwable t) {
+      throwIfFatal(t);
+      callback.onFailure(this, t);
+      return;
+    }
+
     call.enqueue(
         new okhttp3.Callback() {
           @Override
           public void onResponse(okhttp3.Call call, okhttp3.Response rawResponse) {
+            if (eventListener != null) {
+              eventListener.responseReceived(
+                  request.tag(Invocation.class), startNanos, System.nanoTime());
+            }
             Response<T> response;
             try {
-              response = parseResponse(rawResponse);
+              response = parseResponse(request, rawResponse, conditional, eventListener);
             } catch (Throwable e) {
               throwIfFatal(e);
               callFailure(e);
@@ -170,6 +230,10 @@ final class OkHttpCall<T> implements Call<T> {
               throwIfFatal(t);
               t.printStackTrace(); // TODO this is not great
             }
+            if (eventListener != null) {
+              eventListener.callbackDispatched(
+                  request.tag(Invocation.class), startNanos, System.nanoTime());
+            }
           }
 
           @Override
@@ -178,12 +242,20 @@ final class OkHttpCall<T> implements Call<T> {
           }
 
           private void callFailure(Throwable e) {
+            if (eventListener != null) {
+              eventListener.callFailed(
+                  request.tag(Invocation.class), e, startNanos, System.nanoTime());
+            }
             try {
               callback.onFailure(OkHttpCall.this, e);
             } catch (Throwable t) {
               throwIfFatal(t);
               t.printStackTrace(); // TODO this is not great
             }
+            if (eventListener != null) {
+              eventListener.callbackDispatched(
+                  request.tag(Invocation.class), startNanos, System.nanoTime());
+            }
           }
         });
   }
@@ -200,22 +272,51 @@ final class OkHttpCall<T> implements Call<T> {
 
   @Override
   public Response<T> execute(CacheControl cacheControl) throws IOException {
+    long startNanos = eventListener != null ? System.nanoTime() : 0L;
     okhttp3.Call call;
+    long buildStartNanos;
+    long buildEndNanos;
 
     synchronized (this) {
       if (executed) throw new IllegalStateException("Already executed.");
       executed = true;
 
       call = getRawCall(cacheControl);
+      buildStartNanos = requestBuildStartNanos;
+      buildEndNanos = requestBuildEndNanos;
     }
 
     if (canceled) {
       call.cancel();
     }
 
-    return parseResponse(call.execute());
+    Request request = call.request();
+    Invocation invocation = request.tag(Invocation.class);
+    if (eventListener != null) {
+      eventListener.requestBuilt(invocation, buildStartNanos, buildEndNanos);
+      eventListener.callStarted(invocation, startNanos);
+    }
+    Response<T> cached = cachedResponse(request, cacheControl);
+    if (cached != null) {
+      return cached;
+    }
+
+    ResponseCache.Entry conditional = conditionalEntry(request, cacheControl);
+    if (eventListener == null) {
+      return parseResponse(
+          request, callToSend(call, request, conditional).execute(), conditional, null);
+    }
+    try {
+      okhttp3.Response rawResponse = callToSend(call, request, conditional).execute();
+      eventListener.responseReceived(invocation, startNanos, System.nanoTime());
+      return parseResponse(request, rawResponse, conditional, eventListener);
+    } catch (IOException | RuntimeException | Error e) {
+      eventListener.callFailed(invocation, e, startNanos, System.nanoTime());
+      throw e;
+    }
   }
 
+  @GuardedBy("this")
   private okhttp3.Call createRawCall(final CacheControl cacheControl) throws IOException {
     Object[] copyOf;
     if (cacheControl != null) {
@@ -224,14 +325,135 @@ final class OkHttpCall<T> implements Call<T> {
     } else {
       copyOf = args;
     }
-    okhttp3.Call call = callFactory.newCall(requestFactory.create(copyOf));
+    okhttp3.Call call;
+    if (eventListener == null) {
+      call = callFactory.newCall(requestFactory.create(copyOf));
+    } else {
+      long startNanos = System.nanoTime();
+      Request request = requestFactory.create(copyOf);
+      requestBuildStartNanos = startNanos;
+      requestBuildEndNanos = System.nanoTime();
+      call = callFactory.newCall(request);
+    }
+    if (call == null) {
+      throw new NullPointerException("Call.Factory returned null.");
+    }
+    return call;
+  }
+
+  /**
+   * Returns the cached response to {@code request}, or null if it must be fetched from the network.
+   * A stale response is returned as-is while a single background request refreshes it. A canceled
+   * call is not answered from the cache, so that it fails like any other canceled call.
+   */
+  private @Nullable Response<T> cachedResponse(
+      Request request, @Nullable CacheControl cacheControl) {
+    if (responseCache == null || canceled || (cacheControl != null && cacheControl.noCache())) {
+      return null;
+    }
+    ResponseCache.Entry entry = responseCache.get(requestFactory.method, request);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.claimRevalidation(responseCache.nanoTime())) {
+      revalidate(request, entry);
+    }
+    @SuppressWarnings("unchecked") // Entries are keyed by the method which produced them.
+    Response<T> response = (Response<T>) entry.response;
+    return response;
+  }
+
+  /**
+   * Returns the expired entry which {@code request} can ask the server to confirm, or null if the
+   * request must fetch a full response.
+   */
+  private @Nullable ResponseCache.Entry conditionalEntry(
+      Request request, @Nullable CacheControl cacheControl) {
+    if (responseCache == null || (cacheControl != null && cacheControl.noCache())) {
+      return null;
+    }
+    return responseCache.conditional(requestFactory.method, request);
+  }
+
+  /**
+   * Returns the unexecuted raw call of {@code request}, or a call to send in place of it. A call
+   * conditional on the expired {@code conditional} entry carries its validators. A call of a {@link
+   * retrofit2.http.DownloadTo @DownloadTo} method asks for the bytes after a partial file, which is
+   * only read here rather than when the request is built. The raw call is kept so that {@link
+   * #request()} still returns the request which was built.
+   */
+  private okhttp3.Call callToSend(
+      okhttp3.Call raw, Request request, @Nullable ResponseCache.Entry conditional)
+      throws IOException {
+    Request sent;
+    if (conditional != null) {
+      sent = conditional.conditionalRequest(request);
+    } else {
+      DownloadTarget download = request.tag(DownloadTarget.class);
+      sent = download != null ? download.resume(request) : request;
+    }
+    if (sent == request) {
+      return raw;
+    }
+    okhttp3.Call call = callFactory.newCall(sent);
     if (call == null) {
       throw new NullPointerException("Call.Factory returned null.");
     }
+    synchronized (this) {
+      sentCall = call;
+    }
+    // Apply a timeout which was configured on the raw call to the call which is sent instead.
+    Timeout timeout = raw.timeout();
+    call.timeout().timeout(timeout.timeoutNanos(), NANOSECONDS);
+    if (timeout.hasDeadline()) {
+      call.timeout().deadlineNanoTime(timeout.deadlineNanoTime());
+    }
+    if (canceled) {
+      call.cancel();
+    }
     return call;
   }
 
-  Response<T> parseResponse(okhttp3.Response rawResponse) throws IOException {
+  /**
+   * Refreshes {@code entry} in the background. The refresh is not part of this call and is not
+   * reported to the event listener.
+   */
+  private void revalidate(final Request request, final ResponseCache.Entry entry) {
+    callFactory
+        .newCall(entry.conditionalRequest(request))
+        .enqueue(
+            new okhttp3.Callback() {
+              @Override
+              public void onResponse(okhttp3.Call call, okhttp3.Response rawResponse) {
+                try {
+                  // A successful response replaces the entry as a side effect of parsing.
+                  if (!parseResponse(request, rawResponse, entry, null).isSuccessful()) {
+                    entry.releaseRevalidation();
+                  }
+                } catch (Throwable t) {
+                  throwIfFatal(t);
+                  entry.releaseRevalidation();
+                }
+              }
+
+              @Override
+              public void onFailure(okhttp3.Call call, IOException e) {
+                entry.releaseRevalidation();
+              }
+            });
+  }
+
+  /**
+   * Converts {@code rawResponse} to {@code request}. When the request was made conditional on
+   * {@code cached}, a {@code 304 Not Modified} answer reuses its converted body. The conversion is
+   * reported to {@code listener} unless it is null.
+   */
+  Response<T> parseResponse(
+      Request request,
+      okhttp3.Response rawResponse,
+      @Nullable ResponseCache.Entry cached,
+      @Nullable RetrofitEventListener listener)
+      throws IOException {
     ResponseBody rawBody = rawResponse.body();
 
     // Remove the body's source (the only stateful object) so we can pass the response along.
@@ -242,6 +464,43 @@ final class OkHttpCall<T> implements Call<T> {
             .build();
 
     int code = rawResponse.code();
+    if (code == 304 && cached != null && responseCache != null) {
+      rawBody.close();
+      @SuppressWarnings("unchecked") // Entries are keyed by the method which produced them.
+      T body = (T) cached.response.body();
+      Response<T> response = Response.success(body, cached.refresh(rawResponse));
+      responseCache.notModified();
+      responseCache.put(
+          requestFactory.method,
+          request,
+          response,
+          cached.weight,
+          requestFactory.cacheTtlNanos,
+          requestFactory.cacheMaxStaleNanos);
+      return response;
+    }
+
+    DownloadTarget download = request.tag(DownloadTarget.class);
+    if (download != null) {
+      boolean complete;
+      try {
+        complete = download.receive(rawResponse, rawBody);
+      } catch (IOException | RuntimeException e) {
+        rawBody.close();
+        throw e;
+      }
+      if (complete) {
+        rawBody.close();
+        if (code == 416) {
+          // Nothing was left to download. Report the target like a fresh download of it.
+          rawResponse = rawResponse.newBuilder().code(200).message("OK").build();
+        }
+        @SuppressWarnings("unchecked") // The response type is the type of the target.
+        T body = (T) download.value();
+        return Response.success(body, rawResponse);
+      }
+    }
+
     if (code < 200 || code >= 300) {
       try {
         // Buffer the entire body to avoid future I/O.
@@ -259,8 +518,25 @@ final class OkHttpCall<T> implements Call<T> {
 
     ExceptionCatchingResponseBody catchingBody = new ExceptionCatchingResponseBody(rawBody);
     try {
-      T body = responseConverter.convert(catchingBody);
-      return Response.success(body, rawResponse);
+      T body;
+      if (listener == null) {
+        body = responseConverter.convert(catchingBody);
+      } else {
+        long startNanos = System.nanoTime();
+        body = responseConverter.convert(catchingBody);
+        listener.bodyConverted(request.tag(Invocation.class), startNanos, System.nanoTime());
+      }
+      Response<T> response = Response.success(body, rawResponse);
+      if (responseCache != null && code == 200) {
+        responseCache.put(
+            requestFactory.method,
+            request,
+            response,
+            catchingBody.bytesRead,
+            requestFactory.cacheTtlNanos,
+            requestFactory.cacheMaxStaleNanos);
+      }
+      return response;
     } catch (RuntimeException e) {
       // If the underlying source threw an exception, propagate that rather than indicating it was
       // a runtime exception.
@@ -274,12 +550,17 @@ final class OkHttpCall<T> implements Call<T> {
     canceled = true;
 
     okhttp3.Call call;
+    okhttp3.Call sent;
     synchronized (this) {
       call = rawCall;
+      sent = sentCall;
     }
     if (call != null) {
       call.cancel();
     }
+    if (sent != null) {
+      sent.cancel();
+    }
   }
 
   @Override
@@ -288,7 +569,8 @@ final class OkHttpCall<T> implements Call<T> {
       return true;
     }
     synchronized (this) {
-      return rawCall != null && rawCall.isCanceled();
+      return (rawCall != null && rawCall.isCanceled())
+          || (sentCall != null && sentCall.isCanceled());
     }
   }
 
@@ -321,6 +603,7 @@ final class OkHttpCall<T> implements Call<T> {
     private final ResponseBody delegate;
     private final BufferedSource delegateSource;
     @Nullable IOException thrownException;
+    long bytesRead;
 
     ExceptionCatchingResponseBody(ResponseBody delegate) {
       this.delegate = delegate;
@@ -330,7 +613,9 @@ final class OkHttpCall<T> implements Call<T> {
                 @Override
                 public long read(Buffer sink, long byteCount) throws IOException {
                   try {
-                    return super.read(sink, byteCount);
+                    long read = super.read(sink, byteCount);
+                    if (read != -1) bytesRead += read;
+                    return read;
                   } catch (IOException e) {
                     thrownException = e;
                     throw e;
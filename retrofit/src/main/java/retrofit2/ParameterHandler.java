@@ -280,6 +280,124 @@ abstract class ParameterHandler<T> {
     }
   }
 
+  /**
+   * Adds {@code int}, {@code long}, {@code boolean} and enum values, or arrays of them, to the
+   * path, query or form without a string converter. Only used where the built-in {@code toString()}
+   * converter would have applied, so requests are identical to those of {@link Path}, {@link Query}
+   * and {@link Field}. Primitive arrays are read directly rather than through {@link Array#get}.
+   */
+  static final class Scalar extends ParameterHandler<Object> {
+    enum Target {
+      PATH,
+      QUERY,
+      FIELD
+    }
+
+    /**
+     * Returns true if {@code type} is a scalar, or for arrays the component type, that this handler
+     * can add instead of {@code converter}.
+     */
+    static boolean isSupported(Class<?> type, Converter<?, String> converter) {
+      return converter == BuiltInConverters.ToStringConverter.INSTANCE
+          && (type == int.class
+              || type == Integer.class
+              || type == long.class
+              || type == Long.class
+              || type == boolean.class
+              || type == Boolean.class
+              || type.isEnum());
+    }
+
+    private final Method method;
+    private final int p;
+    private final Target target;
+    private final String name;
+    private final boolean encoded;
+    private final boolean isArray;
+    /** The {@code toString()} of each enum constant, by ordinal, or null for non-enum types. */
+    private final @Nullable String[] enumTokens;
+
+    Scalar(Method method, int p, Target target, String name, boolean encoded, Class<?> rawType) {
+      this.method = method;
+      this.p = p;
+      this.target = target;
+      this.name = Objects.requireNonNull(name, "name == null");
+      this.encoded = encoded;
+      this.isArray = rawType.isArray();
+
+      Class<?> type = isArray ? rawType.getComponentType() : rawType;
+      if (type.isEnum()) {
+        Object[] constants = type.getEnumConstants();
+        String[] enumTokens = new String[constants.length];
+        for (int i = 0; i < constants.length; i++) {
+          enumTokens[i] = constants[i].toString();
+        }
+        this.enumTokens = enumTokens;
+      } else {
+        this.enumTokens = null;
+      }
+    }
+
+    @Override
+    void apply(RequestBuilder builder, @Nullable Object value) {
+      if (value == null) {
+        if (target == Target.PATH) {
+          throw Utils.parameterError(
+              method, p, "Path parameter \"" + name + "\" value must not be null.");
+        }
+        return; // Skip null values.
+      }
+
+      if (!isArray) {
+        add(builder, format(value));
+      } else if (value instanceof int[]) {
+        for (int element : (int[]) value) {
+          add(builder, Integer.toString(element));
+        }
+      } else if (value instanceof long[]) {
+        for (long element : (long[]) value) {
+          add(builder, Long.toString(element));
+        }
+      } else if (value instanceof boolean[]) {
+        for (boolean element : (boolean[]) value) {
+          add(builder, element ? "true" : "false");
+        }
+      } else {
+        for (Object element : (Object[]) value) {
+          if (element != null) { // Skip null values.
+            add(builder, format(element));
+          }
+        }
+      }
+    }
+
+    private String format(Object value) {
+      if (enumTokens != null) {
+        return enumTokens[((Enum<?>) value).ordinal()];
+      }
+      if (value instanceof Boolean) {
+        return (Boolean) value ? "true" : "false";
+      }
+      return value.toString(); // Integer and Long.
+    }
+
+    private void add(RequestBuilder builder, String value) {
+      switch (target) {
+        case PATH:
+          builder.addPathParam(name, value, encoded);
+          break;
+        case QUERY:
+          builder.addQueryParam(name, value, encoded);
+          break;
+        case FIELD:
+          builder.addFormField(name, value, encoded);
+          break;
+        default:
+          throw new AssertionError(target);
+      }
+    }
+  }
+
   static final class FieldMap<T> extends ParameterHandler<Map<String, T>> {
     private final Method method;
     private final int p;
@@ -438,6 +556,27 @@ abstract class ParameterHandler<T> {
     }
   }
 
+  static final class DownloadTo<T> extends ParameterHandler<T> {
+    private final Method method;
+    private final int p;
+
+    DownloadTo(Method method, int p) {
+      this.method = method;
+      this.p = p;
+    }
+
+    @Override
+    void apply(RequestBuilder builder, @Nullable T value) {
+      if (value == null) {
+        throw Utils.parameterError(method, p, "@DownloadTo parameter value must not be null.");
+      }
+      // Byte offsets must refer to the stored representation, not a transparently gzipped one.
+      builder.addHeader("Accept-Encoding", "identity");
+      // The range to resume from is added when the call executes. See DownloadTarget.resume.
+      builder.addTag(DownloadTarget.class, DownloadTarget.of(value));
+    }
+  }
+
   static final class Tag<T> extends ParameterHandler<T> {
     final Class<T> cls;
 
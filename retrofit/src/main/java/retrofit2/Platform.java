@@ -16,7 +16,6 @@
 package retrofit2;
 
 import static java.util.Arrays.asList;
-import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 
 import android.os.Build;
@@ -91,11 +90,13 @@ class Platform {
   }
 
   List<? extends Converter.Factory> defaultConverterFactories() {
-    return hasJava8Types ? singletonList(OptionalConverterFactory.INSTANCE) : emptyList();
+    return hasJava8Types
+        ? asList(OptionalConverterFactory.INSTANCE, RawBodyConverterFactory.INSTANCE)
+        : singletonList(RawBodyConverterFactory.INSTANCE);
   }
 
   int defaultConverterFactoriesSize() {
-    return hasJava8Types ? 1 : 0;
+    return hasJava8Types ? 2 : 1;
   }
 
   @IgnoreJRERequirement // Only called on API 24+.
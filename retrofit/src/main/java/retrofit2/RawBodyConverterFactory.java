@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.ByteString;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * Sends files, channels and byte buffers as raw request bodies. It is added after the converter
+ * factories of the {@link Retrofit.Builder}, so a factory which converts one of these types itself
+ * takes precedence.
+ */
+final class RawBodyConverterFactory extends Converter.Factory {
+  static final Converter.Factory INSTANCE = new RawBodyConverterFactory();
+
+  /** Raw bytes, unless the method declares its own {@code Content-Type} header. */
+  static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+  /** Not volatile because we don't mind multiple threads discovering this. */
+  private boolean checkForPath = true;
+
+  @Override
+  public boolean isCacheable() {
+    return true;
+  }
+
+  @Override
+  public @Nullable Converter<?, RequestBody> requestBodyConverter(
+      Type type,
+      Annotation[] parameterAnnotations,
+      Annotation[] methodAnnotations,
+      Retrofit retrofit) {
+    Class<?> rawType = getRawType(type);
+    if (File.class.isAssignableFrom(rawType)) {
+      return FileRequestBodyConverter.INSTANCE;
+    }
+    if (rawType == ByteString.class) {
+      return ByteStringRequestBodyConverter.INSTANCE;
+    }
+    if (ByteBuffer.class.isAssignableFrom(rawType)) {
+      return ByteBufferRequestBodyConverter.INSTANCE;
+    }
+    if (FileChannel.class.isAssignableFrom(rawType)) {
+      return FileChannelRequestBodyConverter.INSTANCE;
+    }
+    if (checkForPath) {
+      try {
+        if (PathRequestBodyConverter.isPath(rawType)) {
+          return PathRequestBodyConverter.INSTANCE;
+        }
+      } catch (NoClassDefFoundError ignored) {
+        checkForPath = false; // Android before API 26.
+      }
+    }
+    return null;
+  }
+
+  static final class FileRequestBodyConverter implements Converter<File, RequestBody> {
+    static final FileRequestBodyConverter INSTANCE = new FileRequestBodyConverter();
+
+    @Override
+    public RequestBody convert(File value) {
+      return new SliceableRequestBody.OfFile(value);
+    }
+  }
+
+  static final class ByteStringRequestBodyConverter implements Converter<ByteString, RequestBody> {
+    static final ByteStringRequestBodyConverter INSTANCE = new ByteStringRequestBodyConverter();
+
+    @Override
+    public RequestBody convert(ByteString value) {
+      return new SliceableRequestBody.OfByteString(value);
+    }
+  }
+
+  static final class ByteBufferRequestBodyConverter implements Converter<ByteBuffer, RequestBody> {
+    static final ByteBufferRequestBodyConverter INSTANCE = new ByteBufferRequestBodyConverter();
+
+    @Override
+    public RequestBody convert(ByteBuffer value) {
+      return new SliceableRequestBody.OfByteBuffer(value.duplicate());
+    }
+  }
+
+  /** Sends a channel from its current position to its end. */
+  static final class FileChannelRequestBodyConverter
+      implements Converter<FileChannel, RequestBody> {
+    static final FileChannelRequestBodyConverter INSTANCE = new FileChannelRequestBodyConverter();
+
+    @Override
+    public RequestBody convert(FileChannel value) throws IOException {
+      long position = value.position();
+      long byteCount = Math.max(0L, value.size() - position);
+      return new SliceableRequestBody.OfFileChannel(value, position, byteCount);
+    }
+  }
+
+  @IgnoreJRERequirement // Only used when Path is available (Java 7+ / Android API 26+).
+  static final class PathRequestBodyConverter implements Converter<Path, RequestBody> {
+    static final PathRequestBodyConverter INSTANCE = new PathRequestBodyConverter();
+
+    static boolean isPath(Class<?> rawType) {
+      return Path.class.isAssignableFrom(rawType);
+    }
+
+    @Override
+    public RequestBody convert(Path value) {
+      return new SliceableRequestBody.OfPath(value);
+    }
+  }
+}
@@ -28,6 +28,7 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okio.Buffer;
 import okio.BufferedSink;
+import retrofit2.http.Compress;
 
 final class RequestBuilder {
   private static final char[] HEX_DIGITS = {
@@ -67,6 +68,11 @@ final class RequestBuilder {
   private @Nullable Converter<Object, RequestBody> requestBodyConverter;
   private @Nullable RequestBody body;
 
+  private @Nullable Compress.Encoding compression;
+  private long compressMinSize;
+  private @Nullable RetrofitEventListener eventListener;
+  private @Nullable Invocation invocation;
+
   RequestBuilder(
       String method,
       HttpUrl baseUrl,
@@ -233,6 +239,17 @@ final class RequestBuilder {
     this.body = body;
   }
 
+  void compress(
+      Compress.Encoding compression,
+      long minSize,
+      @Nullable RetrofitEventListener eventListener,
+      Invocation invocation) {
+    this.compression = compression;
+    this.compressMinSize = minSize;
+    this.eventListener = eventListener;
+    this.invocation = invocation;
+  }
+
   <T> void addTag(Class<T> cls, @Nullable T value) {
     requestBuilder.tag(cls, value);
   }
@@ -266,6 +283,14 @@ final class RequestBuilder {
       }
     }
 
+    if (compression != null && body != null && headersBuilder.get("Content-Encoding") == null) {
+      long contentLength = body.contentLength();
+      if (contentLength == -1L || contentLength >= compressMinSize) {
+        body = new CompressedRequestBody(body, compression, eventListener, invocation);
+        headersBuilder.set("Content-Encoding", CompressedRequestBody.contentEncoding(compression));
+      }
+    }
+
     return requestBuilder.url(url).headers(headersBuilder.build()).method(method, body);
   }
 
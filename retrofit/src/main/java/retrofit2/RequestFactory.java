@@ -30,14 +30,19 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import kotlin.coroutines.Continuation;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
+import retrofit2.http.Batched;
 import retrofit2.http.Body;
+import retrofit2.http.Cacheable;
+import retrofit2.http.Compress;
 import retrofit2.http.DELETE;
+import retrofit2.http.DownloadTo;
 import retrofit2.http.Field;
 import retrofit2.http.FieldMap;
 import retrofit2.http.FormUrlEncoded;
@@ -57,6 +62,7 @@ import retrofit2.http.Path;
 import retrofit2.http.Query;
 import retrofit2.http.QueryMap;
 import retrofit2.http.QueryName;
+import retrofit2.http.Segmented;
 import retrofit2.http.Tag;
 import retrofit2.http.Url;
 
@@ -65,7 +71,7 @@ final class RequestFactory {
     return new Builder(retrofit, method).build();
   }
 
-  private final Method method;
+  final Method method;
   private final HttpUrl baseUrl;
   final String httpMethod;
   private final @Nullable String relativeUrl;
@@ -80,6 +86,27 @@ final class RequestFactory {
   private final ParamProvider paramProvider;
 
   final boolean isKotlinSuspendFunction;
+  /** How long a converted response may be cached, or -1 if the method is not cacheable. */
+  final long cacheTtlNanos;
+  /** How long a cached response may be served stale while it is refreshed. */
+  final long cacheMaxStaleNanos;
+  /** The name of the batcher which merges calls of this method, or null if it is not batched. */
+  final @Nullable String batchEndpoint;
+
+  final int batchMaxSize;
+  final long batchMaxDelayMs;
+  /** How request bodies are compressed, or null if they are sent as-is. */
+  private final @Nullable Compress.Encoding compression;
+
+  private final long compressMinSize;
+  private final @Nullable RetrofitEventListener eventListener;
+  /** The type of the {@code @DownloadTo} parameter, or null if responses are converted. */
+  final @Nullable Class<?> downloadType;
+  /** The maximum number of ranges of a download fetched at once, or 0 if it is not segmented. */
+  final int segments;
+
+  final long minSegmentSize;
+  final int segmentRetries;
 
   RequestFactory(Builder builder) {
     method = builder.method;
@@ -96,6 +123,18 @@ final class RequestFactory {
     paramProvider = builder.paramProvider;
     isKotlinSuspendFunction = builder.isKotlinSuspendFunction;
     requestBodyConverter = builder.requestBodyConverter;
+    cacheTtlNanos = builder.cacheTtlNanos;
+    cacheMaxStaleNanos = builder.cacheMaxStaleNanos;
+    batchEndpoint = builder.batchEndpoint;
+    batchMaxSize = builder.batchMaxSize;
+    batchMaxDelayMs = builder.batchMaxDelayMs;
+    compression = builder.compression;
+    compressMinSize = builder.compressMinSize;
+    eventListener = builder.retrofit.eventListener;
+    downloadType = builder.downloadType;
+    segments = builder.segments;
+    minSegmentSize = builder.minSegmentSize;
+    segmentRetries = builder.segmentRetries;
   }
 
   okhttp3.Request create(Object[] args) throws IOException {
@@ -204,7 +243,11 @@ final class RequestFactory {
       requestBuilder.cacheControl(cacheControl);
     }
 
-    return requestBuilder.get().tag(Invocation.class, new Invocation(method, argumentList)).build();
+    Invocation invocation = new Invocation(method, argumentList);
+    if (compression != null) {
+      requestBuilder.compress(compression, compressMinSize, eventListener, invocation);
+    }
+    return requestBuilder.get().tag(Invocation.class, invocation).build();
   }
 
   /**
@@ -218,6 +261,10 @@ final class RequestFactory {
     private static final Pattern PARAM_URL_REGEX = Pattern.compile("\\{(" + PARAM + ")\\}");
     private static final Pattern PARAM_NAME_REGEX = Pattern.compile(PARAM);
     private static final Pattern PARAM_HEADER_REGEX = Pattern.compile("\\{([^}]+)\\}");
+    /**
+     * The largest {@code @Batched} maxSize, which bounds the size of its {@link BatchHistogram}.
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
 
     final Retrofit retrofit;
     final Method method;
@@ -235,22 +282,27 @@ final class RequestFactory {
     boolean gotQueryName;
     boolean gotQueryMap;
     boolean gotUrl;
-    @Nullable
-    String httpMethod;
+    @Nullable String httpMethod;
     boolean hasBody;
     boolean isFormEncoded;
     boolean isMultipart;
-    @Nullable
-    String relativeUrl;
-    @Nullable
-    Headers headers;
-    @Nullable
-    MediaType contentType;
-    @Nullable
-    Set<String> relativeUrlParamNames;
-    @Nullable
-    ParameterHandler<?>[] parameterHandlers;
+    @Nullable String relativeUrl;
+    @Nullable Headers headers;
+    @Nullable MediaType contentType;
+    @Nullable Set<String> relativeUrlParamNames;
+    @Nullable ParameterHandler<?>[] parameterHandlers;
     boolean isKotlinSuspendFunction;
+    long cacheTtlNanos = -1;
+    long cacheMaxStaleNanos;
+    @Nullable String batchEndpoint;
+    int batchMaxSize;
+    long batchMaxDelayMs;
+    @Nullable Compress.Encoding compression;
+    long compressMinSize;
+    @Nullable Class<?> downloadType;
+    int segments;
+    long minSegmentSize;
+    int segmentRetries;
     private Converter<Object, RequestBody> requestBodyConverter;
 
     Builder(Retrofit retrofit, Method method) {
@@ -273,7 +325,21 @@ final class RequestFactory {
         throw methodError(method, "HTTP method annotation is required (e.g., @GET, @POST, etc.).");
       }
 
+      if (hasBody && cacheTtlNanos != -1) {
+        throw methodError(
+            method, "@Cacheable can only be specified on HTTP methods without request body.");
+      }
+
+      if (batchEndpoint != null && cacheTtlNanos != -1) {
+        throw methodError(method, "@Batched methods cannot be @Cacheable.");
+      }
+
       if (!hasBody) {
+        if (compression != null) {
+          throw methodError(
+              method,
+              "@Compress can only be specified on HTTP methods with request body (e.g., @POST).");
+        }
         if (isMultipart) {
           throw methodError(
               method,
@@ -327,6 +393,15 @@ final class RequestFactory {
           }
         }
       }
+      if (downloadType != null && cacheTtlNanos != -1) {
+        throw methodError(method, "@DownloadTo methods cannot be @Cacheable.");
+      }
+      if (downloadType != null && batchEndpoint != null) {
+        throw methodError(method, "@Batched methods cannot use @DownloadTo.");
+      }
+      if (segments != 0 && downloadType == null) {
+        throw methodError(method, "@Segmented methods must have a @DownloadTo parameter.");
+      }
       if (isFormEncoded && !gotField) {
         throw methodError(method, "Form-encoded method must contain at least one @Field.");
       }
@@ -382,6 +457,63 @@ final class RequestFactory {
           throw methodError(method, "Only one encoding annotation is allowed.");
         }
         isFormEncoded = true;
+      } else if (annotation instanceof Cacheable) {
+        Cacheable cacheable = (Cacheable) annotation;
+        TimeUnit unit = cacheable.unit();
+        if (cacheable.ttl() <= 0) {
+          throw methodError(method, "@Cacheable ttl must be positive. Found: %s", cacheable.ttl());
+        }
+        if (cacheable.staleWhileRevalidate() < 0) {
+          throw methodError(
+              method,
+              "@Cacheable staleWhileRevalidate must not be negative. Found: %s",
+              cacheable.staleWhileRevalidate());
+        }
+        cacheTtlNanos = unit.toNanos(cacheable.ttl());
+        cacheMaxStaleNanos = unit.toNanos(cacheable.staleWhileRevalidate());
+      } else if (annotation instanceof Compress) {
+        Compress compress = (Compress) annotation;
+        if (compress.minSize() < 0) {
+          throw methodError(
+              method, "@Compress minSize must not be negative. Found: %s", compress.minSize());
+        }
+        compression = compress.value();
+        compressMinSize = compress.minSize();
+      } else if (annotation instanceof Segmented) {
+        Segmented segmented = (Segmented) annotation;
+        if (segmented.value() <= 0) {
+          throw methodError(
+              method, "@Segmented value must be positive. Found: %s", segmented.value());
+        }
+        if (segmented.minSegmentSize() <= 0) {
+          throw methodError(
+              method,
+              "@Segmented minSegmentSize must be positive. Found: %s",
+              segmented.minSegmentSize());
+        }
+        if (segmented.retries() < 0) {
+          throw methodError(
+              method, "@Segmented retries must not be negative. Found: %s", segmented.retries());
+        }
+        segments = segmented.value();
+        minSegmentSize = segmented.minSegmentSize();
+        segmentRetries = segmented.retries();
+      } else if (annotation instanceof Batched) {
+        Batched batched = (Batched) annotation;
+        if (batched.maxSize() <= 0 || batched.maxSize() > MAX_BATCH_SIZE) {
+          throw methodError(
+              method,
+              "@Batched maxSize must be in [1, %s]. Found: %s",
+              MAX_BATCH_SIZE,
+              batched.maxSize());
+        }
+        if (batched.maxDelayMs() < 0) {
+          throw methodError(
+              method, "@Batched maxDelayMs must not be negative. Found: %s", batched.maxDelayMs());
+        }
+        batchEndpoint = batched.endpoint();
+        batchMaxSize = batched.maxSize();
+        batchMaxDelayMs = batched.maxDelayMs();
       }
     }
 
@@ -442,8 +574,7 @@ final class RequestFactory {
       return builder.build();
     }
 
-    private @Nullable
-    ParameterHandler<?> parseParameter(
+    private @Nullable ParameterHandler<?> parseParameter(
         int p, Type parameterType, @Nullable Annotation[] annotations, boolean allowContinuation) {
       ParameterHandler<?> result = null;
       if (annotations != null) {
@@ -543,6 +674,16 @@ final class RequestFactory {
         validatePathName(p, name);
 
         Converter<?, String> converter = retrofit.stringConverter(type, annotations);
+        Class<?> rawParameterType = Utils.getRawType(type);
+        if (ParameterHandler.Scalar.isSupported(rawParameterType, converter)) {
+          return new ParameterHandler.Scalar(
+              method,
+              p,
+              ParameterHandler.Scalar.Target.PATH,
+              name,
+              path.encoded(),
+              rawParameterType);
+        }
         return new ParameterHandler.Path<>(method, p, name, converter, path.encoded());
 
       } else if (annotation instanceof Query) {
@@ -571,9 +712,17 @@ final class RequestFactory {
           Class<?> arrayComponentType = boxIfPrimitive(rawParameterType.getComponentType());
           Converter<?, String> converter =
               retrofit.stringConverter(arrayComponentType, annotations);
+          if (ParameterHandler.Scalar.isSupported(arrayComponentType, converter)) {
+            return new ParameterHandler.Scalar(
+                method, p, ParameterHandler.Scalar.Target.QUERY, name, encoded, rawParameterType);
+          }
           return new ParameterHandler.Query<>(name, converter, encoded).array();
         } else {
           Converter<?, String> converter = retrofit.stringConverter(type, annotations);
+          if (ParameterHandler.Scalar.isSupported(rawParameterType, converter)) {
+            return new ParameterHandler.Scalar(
+                method, p, ParameterHandler.Scalar.Target.QUERY, name, encoded, rawParameterType);
+          }
           return new ParameterHandler.Query<>(name, converter, encoded);
         }
 
@@ -716,9 +865,17 @@ final class RequestFactory {
           Class<?> arrayComponentType = boxIfPrimitive(rawParameterType.getComponentType());
           Converter<?, String> converter =
               retrofit.stringConverter(arrayComponentType, annotations);
+          if (ParameterHandler.Scalar.isSupported(arrayComponentType, converter)) {
+            return new ParameterHandler.Scalar(
+                method, p, ParameterHandler.Scalar.Target.FIELD, name, encoded, rawParameterType);
+          }
           return new ParameterHandler.Field<>(name, converter, encoded).array();
         } else {
           Converter<?, String> converter = retrofit.stringConverter(type, annotations);
+          if (ParameterHandler.Scalar.isSupported(rawParameterType, converter)) {
+            return new ParameterHandler.Scalar(
+                method, p, ParameterHandler.Scalar.Target.FIELD, name, encoded, rawParameterType);
+          }
           return new ParameterHandler.Field<>(name, converter, encoded);
         }
 
@@ -930,6 +1087,18 @@ final class RequestFactory {
         }
 
         return new ParameterHandler.Tag<>(tagType);
+
+      } else if (annotation instanceof DownloadTo) {
+        validateResolvableType(p, type);
+        if (downloadType != null) {
+          throw parameterError(method, p, "Multiple @DownloadTo method annotations found.");
+        }
+        Class<?> rawType = Utils.getRawType(type);
+        if (!DownloadTarget.isTargetType(rawType)) {
+          throw parameterError(method, p, "@DownloadTo parameter type must be File or Path.");
+        }
+        downloadType = rawType;
+        return new ParameterHandler.DownloadTo<>(method, p);
       }
 
       return null; // Not a Retrofit annotation.
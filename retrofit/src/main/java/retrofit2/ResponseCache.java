@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import retrofit2.http.Cacheable;
+
+/**
+ * An in-memory cache of converted response bodies for service methods annotated with {@link
+ * Cacheable @Cacheable}. Unlike OkHttp's disk cache, a hit skips both the network and the response
+ * body {@link Converter}: the previously converted body instance is returned as-is.
+ *
+ * <p>Entries are keyed by the service method and the request it created, and are weighed by the
+ * number of response body bytes they were converted from. When the total weight exceeds {@link
+ * #maxWeight()} entries are evicted with a segmented LRU policy. New entries start in a
+ * probationary segment and are promoted to a protected segment when they are hit, so a burst of
+ * one-off requests cannot flush the responses which are used repeatedly.
+ *
+ * <p>Responses which carry an {@code ETag} or {@code Last-Modified} validator are kept after they
+ * expire. The next request for them is sent with {@code If-None-Match} or {@code If-Modified-Since}
+ * and a {@code 304 Not Modified} answer is served from the previously converted body, again without
+ * invoking the converter.
+ *
+ * <p>Install an instance with {@link Retrofit.Builder#responseCache(ResponseCache)}.
+ */
+public final class ResponseCache {
+  /** Create a cache which holds converted responses of at most {@code maxWeight} body bytes. */
+  public static ResponseCache create(long maxWeight) {
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("maxWeight <= 0: " + maxWeight);
+    }
+    return new ResponseCache(maxWeight, Clock.SYSTEM);
+  }
+
+  private final long maxWeight;
+  private final long maxProtectedWeight;
+  private final Clock clock;
+
+  @GuardedBy("this")
+  private final LinkedHashMap<Key, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+  @GuardedBy("this")
+  private final LinkedHashMap<Key, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+  @GuardedBy("this")
+  private long weight;
+
+  @GuardedBy("this")
+  private long protectedWeight;
+
+  @GuardedBy("this")
+  private long hitCount;
+
+  @GuardedBy("this")
+  private long staleHitCount;
+
+  @GuardedBy("this")
+  private long missCount;
+
+  @GuardedBy("this")
+  private long evictionCount;
+
+  @GuardedBy("this")
+  private long notModifiedCount;
+
+  ResponseCache(long maxWeight, Clock clock) {
+    this.maxWeight = maxWeight;
+    this.maxProtectedWeight = maxWeight * 4 / 5; // 80% of the cache is reserved for hot entries.
+    this.clock = clock;
+  }
+
+  long nanoTime() {
+    return clock.nanoTime();
+  }
+
+  /** The maximum total weight of the cached responses, in response body bytes. */
+  public long maxWeight() {
+    return maxWeight;
+  }
+
+  /** The current total weight of the cached responses, in response body bytes. */
+  public synchronized long weight() {
+    return weight;
+  }
+
+  /** The number of responses currently held by this cache. */
+  public synchronized int size() {
+    return probation.size() + protectedSegment.size();
+  }
+
+  /** The number of lookups which were answered from this cache, including stale ones. */
+  public synchronized long hitCount() {
+    return hitCount;
+  }
+
+  /** The number of lookups which were answered with a stale response while it was refreshed. */
+  public synchronized long staleHitCount() {
+    return staleHitCount;
+  }
+
+  /** The number of lookups which had to go to the network. */
+  public synchronized long missCount() {
+    return missCount;
+  }
+
+  /** The number of conditional requests which were answered with {@code 304 Not Modified}. */
+  public synchronized long notModifiedCount() {
+    return notModifiedCount;
+  }
+
+  /** The number of responses removed to keep the cache within {@link #maxWeight()}. */
+  public synchronized long evictionCount() {
+    return evictionCount;
+  }
+
+  /** Remove all responses from this cache. Statistics are retained. */
+  public synchronized void evictAll() {
+    probation.clear();
+    protectedSegment.clear();
+    weight = 0;
+    protectedWeight = 0;
+  }
+
+  /**
+   * Returns the entry for {@code request} created by {@code method}, or null if there is none or it
+   * can no longer be served.
+   */
+  synchronized @Nullable Entry get(Method method, Request request) {
+    Key key = new Key(method, request);
+    Entry entry = probation.get(key);
+    boolean inProbation = entry != null;
+    if (entry == null) {
+      entry = protectedSegment.get(key);
+    }
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+
+    long now = clock.nanoTime();
+    if (now - entry.staleAtNanos >= entry.maxStaleNanos) {
+      if (!entry.hasValidators()) {
+        remove(key, inProbation);
+      }
+      missCount++;
+      return null;
+    }
+
+    hitCount++;
+    if (now - entry.staleAtNanos >= 0) {
+      staleHitCount++;
+    }
+    if (inProbation) {
+      // A second access proves the entry is worth keeping. Promote it to the protected segment.
+      probation.remove(key);
+      protectedSegment.put(key, entry);
+      protectedWeight += entry.weight;
+      demoteProtectedOverflow();
+    }
+    return entry;
+  }
+
+  /**
+   * Returns the expired entry for {@code request} created by {@code method} if it can be confirmed
+   * with a conditional request, or null if there is none. Requests which already carry their own
+   * validators are left alone.
+   */
+  synchronized @Nullable Entry conditional(Method method, Request request) {
+    if (request.header("If-None-Match") != null || request.header("If-Modified-Since") != null) {
+      return null;
+    }
+    Key key = new Key(method, request);
+    Entry entry = probation.get(key);
+    if (entry == null) {
+      entry = protectedSegment.get(key);
+    }
+    return entry != null && entry.hasValidators() ? entry : null;
+  }
+
+  /** Records that the server confirmed a conditional request for an entry. */
+  synchronized void notModified() {
+    notModifiedCount++;
+  }
+
+  /** Stores the converted {@code response} to {@code request}, replacing any previous entry. */
+  synchronized void put(
+      Method method,
+      Request request,
+      Response<?> response,
+      long bodyWeight,
+      long ttlNanos,
+      long maxStaleNanos) {
+    long entryWeight = Math.max(1L, bodyWeight);
+    if (entryWeight > maxWeight) {
+      return; // Caching would evict everything else.
+    }
+    Key key = new Key(method, request);
+    if (probation.containsKey(key)) {
+      remove(key, true);
+    } else if (protectedSegment.containsKey(key)) {
+      remove(key, false);
+    }
+
+    Entry entry = new Entry(response, entryWeight, clock.nanoTime() + ttlNanos, maxStaleNanos);
+    probation.put(key, entry);
+    weight += entryWeight;
+    trimToMaxWeight();
+  }
+
+  @GuardedBy("this")
+  private void remove(Key key, boolean fromProbation) {
+    Entry removed;
+    if (fromProbation) {
+      removed = probation.remove(key);
+    } else {
+      removed = protectedSegment.remove(key);
+      protectedWeight -= removed.weight;
+    }
+    weight -= removed.weight;
+  }
+
+  @GuardedBy("this")
+  private void demoteProtectedOverflow() {
+    Iterator<Map.Entry<Key, Entry>> iterator = protectedSegment.entrySet().iterator();
+    while (protectedWeight > maxProtectedWeight && iterator.hasNext()) {
+      Map.Entry<Key, Entry> eldest = iterator.next();
+      iterator.remove();
+      protectedWeight -= eldest.getValue().weight;
+      probation.put(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  @GuardedBy("this")
+  private void trimToMaxWeight() {
+    Iterator<Map.Entry<Key, Entry>> iterator = probation.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      weight -= iterator.next().getValue().weight;
+      iterator.remove();
+      evictionCount++;
+    }
+    iterator = protectedSegment.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      long entryWeight = iterator.next().getValue().weight;
+      iterator.remove();
+      weight -= entryWeight;
+      protectedWeight -= entryWeight;
+      evictionCount++;
+    }
+  }
+
+  /** A source of monotonic time. Replaceable in tests. */
+  interface Clock {
+    Clock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+  }
+
+  static final class Entry {
+    final Response<?> response;
+    final long weight;
+    final long staleAtNanos;
+    final long maxStaleNanos;
+    private final @Nullable String etag;
+    private final @Nullable String lastModified;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    Entry(Response<?> response, long weight, long staleAtNanos, long maxStaleNanos) {
+      this.response = response;
+      this.weight = weight;
+      this.staleAtNanos = staleAtNanos;
+      this.maxStaleNanos = maxStaleNanos;
+      this.etag = response.headers().get("ETag");
+      this.lastModified = response.headers().get("Last-Modified");
+    }
+
+    boolean hasValidators() {
+      return etag != null || lastModified != null;
+    }
+
+    /** Returns {@code request} amended to only transfer a body if it differs from this entry. */
+    Request conditionalRequest(Request request) {
+      if (!hasValidators()) {
+        return request;
+      }
+      Request.Builder builder = request.newBuilder();
+      if (etag != null) {
+        builder.header("If-None-Match", etag);
+      } else {
+        builder.header("If-Modified-Since", lastModified);
+      }
+      return builder.build();
+    }
+
+    /**
+     * Returns the response of this entry updated with the headers of {@code notModified}, the
+     * network's confirmation that the stored body is still current.
+     */
+    okhttp3.Response refresh(okhttp3.Response notModified) {
+      okhttp3.Response cached = response.raw();
+      Headers.Builder headers = cached.headers().newBuilder();
+      Headers updates = notModified.headers();
+      for (String name : updates.names()) {
+        // A 304 describes the stored representation but carries no body of its own.
+        if ("Content-Length".equalsIgnoreCase(name)
+            || "Content-Encoding".equalsIgnoreCase(name)
+            || "Content-Type".equalsIgnoreCase(name)) {
+          continue;
+        }
+        headers.removeAll(name);
+        for (String value : updates.values(name)) {
+          headers.add(name, value);
+        }
+      }
+      return cached
+          .newBuilder()
+          .request(notModified.request())
+          .headers(headers.build())
+          .sentRequestAtMillis(notModified.sentRequestAtMillis())
+          .receivedResponseAtMillis(notModified.receivedResponseAtMillis())
+          .build();
+    }
+
+    /**
+     * Returns true if this entry is stale and the caller won the right to refresh it. Only one
+     * refresh is started per entry.
+     */
+    boolean claimRevalidation(long nowNanos) {
+      return nowNanos - staleAtNanos >= 0 && revalidating.compareAndSet(false, true);
+    }
+
+    /** Allow another caller to refresh this entry after a refresh failed. */
+    void releaseRevalidation() {
+      revalidating.set(false);
+    }
+  }
+
+  /** The parts of a request which identify its response. */
+  static final class Key {
+    private final Method method;
+    private final String httpMethod;
+    private final HttpUrl url;
+    private final Headers headers;
+
+    Key(Method method, Request request) {
+      this.method = method;
+      this.httpMethod = request.method();
+      this.url = request.url();
+      // Neither a per-call cache policy nor validators change the response itself.
+      this.headers =
+          request
+              .headers()
+              .newBuilder()
+              .removeAll("Cache-Control")
+              .removeAll("If-None-Match")
+              .removeAll("If-Modified-Since")
+              .build();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) return true;
+      if (!(other instanceof Key)) return false;
+      Key that = (Key) other;
+      return method.equals(that.method)
+          && httpMethod.equals(that.httpMethod)
+          && url.equals(that.url)
+          && headers.equals(that.headers);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = method.hashCode();
+      result = 31 * result + httpMethod.hashCode();
+      result = 31 * result + url.hashCode();
+      result = 31 * result + headers.hashCode();
+      return result;
+    }
+  }
+}
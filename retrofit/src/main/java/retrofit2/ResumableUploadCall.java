@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+import okio.Timeout;
+
+/**
+ * A call of a {@link retrofit2.http.Resumable @Resumable} method. The request built by the service
+ * method is never sent as-is. Its body is uploaded in chunks with an {@link UploadProtocol}, and
+ * the response to the final chunk is the response of this call.
+ */
+final class ResumableUploadCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final okhttp3.Call.Factory callFactory;
+  private final Converter<ResponseBody, T> responseConverter;
+  private final UploadProtocol protocol;
+  private final UploadJournal journal;
+  private final long chunkSize;
+  private final int parallelism;
+
+  private final InFlightCalls calls;
+
+  @GuardedBy("this")
+  private boolean executed;
+
+  ResumableUploadCall(
+      Call<T> delegate,
+      okhttp3.Call.Factory callFactory,
+      Converter<ResponseBody, T> responseConverter,
+      UploadProtocol protocol,
+      UploadJournal journal,
+      long chunkSize,
+      int parallelism) {
+    this.delegate = delegate;
+    this.callFactory = callFactory;
+    this.responseConverter = responseConverter;
+    this.protocol = protocol;
+    this.journal = journal;
+    this.chunkSize = chunkSize;
+    this.parallelism = protocol.acceptsParallelChunks() ? parallelism : 1;
+    this.calls = new InFlightCalls(callFactory);
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // We are a final type & this saves clearing state.
+  @Override
+  public ResumableUploadCall<T> clone() {
+    return new ResumableUploadCall<>(
+        delegate.clone(),
+        callFactory,
+        responseConverter,
+        protocol,
+        journal,
+        chunkSize,
+        parallelism);
+  }
+
+  /** Returns the request this call would make on its own. It is never sent. */
+  @Override
+  public Request request() {
+    return delegate.request();
+  }
+
+  @Override
+  public Timeout timeout() {
+    return Timeout.NONE;
+  }
+
+  @Override
+  public Response<T> execute() throws IOException {
+    return execute(null);
+  }
+
+  /** Every chunk must reach the server, so {@code cacheControl} is ignored. */
+  @Override
+  public Response<T> execute(@Nullable CacheControl cacheControl) throws IOException {
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+    }
+    return upload();
+  }
+
+  @Override
+  public void enqueue(Callback<T> callback) {
+    enqueue(callback, null);
+  }
+
+  /** Every chunk must reach the server, so {@code cacheControl} is ignored. */
+  @Override
+  public void enqueue(Callback<T> callback, @Nullable CacheControl cacheControl) {
+    Objects.requireNonNull(callback, "callback == null");
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+    }
+    InFlightCalls.enqueue(this, callback, this::upload);
+  }
+
+  @Override
+  public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  /** Stops sending chunks. The journal is kept so the upload can be resumed later. */
+  @Override
+  public void cancel() {
+    calls.cancel();
+  }
+
+  @Override
+  public boolean isCanceled() {
+    return calls.isCanceled();
+  }
+
+  private Response<T> upload() throws IOException {
+    Request request = delegate.request();
+    RequestBody body = request.body();
+    if (body == null) {
+      throw new IllegalStateException("@Resumable methods must have a request body.");
+    }
+    long length = body.contentLength();
+    if (length < 0L) {
+      throw new IOException("@Resumable methods require a request body of known length.");
+    }
+
+    // A body sent in one chunk has nothing to resume, so its content is not identified.
+    UploadJournal.Entry entry =
+        length > chunkSize ? journal.entry(request, body, length) : new UploadJournal.Entry(null);
+    HttpUrl location = null;
+    long offset = 0L;
+    if (entry.read()) {
+      location = entry.location();
+      offset = entry.offset();
+      Request offsetRequest = protocol.offsetRequest(request, location);
+      if (offsetRequest != null) {
+        try (okhttp3.Response response = calls.execute(offsetRequest)) {
+          if (response.isSuccessful()) {
+            offset = protocol.offset(response);
+          } else {
+            location = null; // The server no longer knows this upload. Start over.
+          }
+        }
+      }
+      if (offset > length) {
+        location = null;
+      }
+    }
+    if (location == null) {
+      offset = 0L;
+      okhttp3.Response response = calls.execute(protocol.createRequest(request, length));
+      if (!response.isSuccessful()) {
+        return parseResponse(response);
+      }
+      try {
+        location = protocol.location(response);
+      } finally {
+        response.close();
+      }
+      entry.write(location, 0L);
+    }
+
+    // Chunks before the final one may be in flight together. The final chunk is sent once they
+    // are all confirmed so its response describes the complete upload.
+    long finalOffset = offset + Math.max(0L, (length - offset - 1L) / chunkSize) * chunkSize;
+    okhttp3.Response rejected =
+        uploadChunks(request, body, entry, location, offset, finalOffset, length);
+    if (rejected != null) {
+      return parseResponse(rejected);
+    }
+
+    RequestBody finalChunk = slice(body, finalOffset, length - finalOffset);
+    okhttp3.Response response =
+        calls.execute(protocol.chunkRequest(request, location, finalOffset, length, finalChunk));
+    if (response.isSuccessful()) {
+      entry.delete();
+    }
+    return parseResponse(response);
+  }
+
+  /**
+   * Uploads the chunks between {@code offset} and {@code end} with up to {@link #parallelism} of
+   * them in flight. Returns the response which rejected a chunk, or null if all were confirmed.
+   */
+  private @Nullable okhttp3.Response uploadChunks(
+      Request request,
+      RequestBody body,
+      UploadJournal.Entry entry,
+      HttpUrl location,
+      long offset,
+      long end,
+      long length)
+      throws IOException {
+    BlockingQueue<ChunkResult> results = new LinkedBlockingQueue<>();
+    TreeMap<Long, Long> confirmedOutOfOrder = new TreeMap<>();
+    long next = offset;
+    long confirmed = offset;
+    int running = 0;
+    try {
+      while (confirmed < end) {
+        while (running < parallelism && next < end) {
+          long byteCount = Math.min(chunkSize, end - next);
+          RequestBody chunk = slice(body, next, byteCount);
+          Request chunkRequest = protocol.chunkRequest(request, location, next, length, chunk);
+          sendAsync(chunkRequest, next, next + byteCount, results);
+          running++;
+          next += byteCount;
+        }
+
+        ChunkResult result;
+        try {
+          result = results.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while uploading.");
+        }
+        running--;
+        if (result.failure != null) {
+          throw result.failure;
+        }
+        okhttp3.Response response = result.response;
+        if (!response.isSuccessful()) {
+          return response;
+        }
+        response.close();
+
+        confirmedOutOfOrder.put(result.offset, result.end);
+        Long chunkEnd;
+        while ((chunkEnd = confirmedOutOfOrder.remove(confirmed)) != null) {
+          confirmed = chunkEnd;
+        }
+        entry.write(location, confirmed);
+      }
+      return null;
+    } finally {
+      if (running > 0) {
+        calls.cancelInFlight(); // Stop the other chunks. A retry resumes from the confirmed offset.
+        for (ChunkResult abandoned; (abandoned = results.poll()) != null; ) {
+          if (abandoned.response != null) {
+            abandoned.response.close();
+          }
+        }
+      }
+    }
+  }
+
+  private void sendAsync(Request request, long offset, long end, BlockingQueue<ChunkResult> results)
+      throws IOException {
+    okhttp3.Call call = calls.newCall(request);
+    call.enqueue(
+        new okhttp3.Callback() {
+          @Override
+          public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+            calls.finished(call);
+            results.add(new ChunkResult(offset, end, response, null));
+          }
+
+          @Override
+          public void onFailure(okhttp3.Call call, IOException e) {
+            calls.finished(call);
+            results.add(new ChunkResult(offset, end, null, e));
+          }
+        });
+  }
+
+  /** Returns a body of the {@code byteCount} bytes of {@code body} starting at {@code offset}. */
+  static RequestBody slice(RequestBody body, long offset, long byteCount) {
+    return new RequestBody() {
+      @Override
+      public @Nullable MediaType contentType() {
+        return null; // Chunks are raw bytes. The protocol supplies their content type.
+      }
+
+      @Override
+      public long contentLength() {
+        return byteCount;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        if (body instanceof SliceableRequestBody) {
+          ((SliceableRequestBody) body).writeTo(sink, offset, byteCount);
+          return;
+        }
+        // Other bodies can only be produced from their start. Discard the bytes outside the slice.
+        SliceSink sliceSink = new SliceSink(sink, offset, byteCount);
+        BufferedSink bufferedSink = Okio.buffer(sliceSink);
+        try {
+          body.writeTo(bufferedSink);
+          bufferedSink.emit();
+        } catch (SliceSink.Complete ignored) {
+          // The slice was written. The rest of the body is not needed.
+        }
+        if (sliceSink.remaining != 0L) {
+          throw new IOException("Request body ended " + sliceSink.remaining + " bytes early");
+        }
+      }
+    };
+  }
+
+  private Response<T> parseResponse(okhttp3.Response rawResponse) throws IOException {
+    ResponseBody rawBody = rawResponse.body();
+
+    // Remove the body's source (the only stateful object) so we can pass the response along.
+    rawResponse =
+        rawResponse
+            .newBuilder()
+            .body(
+                new OkHttpCall.NoContentResponseBody(
+                    rawBody.contentType(), rawBody.contentLength()))
+            .build();
+
+    try {
+      int code = rawResponse.code();
+      if (code < 200 || code >= 300) {
+        // Buffer the entire body to avoid future I/O.
+        return Response.error(Utils.buffer(rawBody), rawResponse);
+      }
+      if (code == 204 || code == 205) {
+        return Response.success(null, rawResponse);
+      }
+      return Response.success(responseConverter.convert(rawBody), rawResponse);
+    } finally {
+      rawBody.close();
+    }
+  }
+
+  static final class ChunkResult {
+    final long offset;
+    final long end;
+    final @Nullable okhttp3.Response response;
+    final @Nullable IOException failure;
+
+    ChunkResult(
+        long offset, long end, @Nullable okhttp3.Response response, @Nullable IOException failure) {
+      this.offset = offset;
+      this.end = end;
+      this.response = response;
+      this.failure = failure;
+    }
+  }
+
+  /** Forwards only the bytes of a slice, and stops the writer once they have been written. */
+  static final class SliceSink extends ForwardingSink {
+    long skip;
+    long remaining;
+
+    SliceSink(BufferedSink delegate, long offset, long byteCount) {
+      super(delegate);
+      this.skip = offset;
+      this.remaining = byteCount;
+    }
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+      long skipped = Math.min(skip, byteCount);
+      source.skip(skipped);
+      skip -= skipped;
+      byteCount -= skipped;
+
+      long written = Math.min(remaining, byteCount);
+      if (written > 0L) {
+        super.write(source, written);
+        remaining -= written;
+        byteCount -= written;
+      }
+      source.skip(byteCount);
+      if (remaining == 0L) {
+        throw new Complete();
+      }
+    }
+
+    @Override
+    public void close() {
+      // The destination belongs to the caller.
+    }
+
+    /** Thrown to stop a body from writing past the end of a slice. */
+    static final class Complete extends IOException {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public synchronized Throwable fillInStackTrace() {
+        return this; // Used for control flow only.
+      }
+    }
+  }
+}
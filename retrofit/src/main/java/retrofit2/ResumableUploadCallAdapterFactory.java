@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import retrofit2.http.Compress;
+import retrofit2.http.Resumable;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which uploads the request bodies of {@link
+ * Resumable @Resumable} methods in resumable chunks. Other methods are left to the next factory.
+ *
+ * <pre><code>
+ * Retrofit retrofit = new Retrofit.Builder()
+ *     .baseUrl("https://uploads.example.com/")
+ *     .addCallAdapterFactory(ResumableUploadCallAdapterFactory.create(journalDirectory))
+ *     .build();
+ * </code></pre>
+ *
+ * The return type of a {@code @Resumable} method is adapted by the factories which follow this one,
+ * so it may be a {@link Call}, a {@link java.util.concurrent.CompletableFuture CompletableFuture},
+ * or any other type they support. Its response is the response to the final chunk. If the server
+ * rejects the creation of the upload or one of its chunks, that response is returned instead. A
+ * {@code @Resumable} call sends several requests, so {@link Call#execute(okhttp3.CacheControl)
+ * cache control} does not apply to it.
+ *
+ * <p>Unfinished uploads are recorded in {@code journalDirectory}. Use a directory which survives
+ * process restarts and is not shared with other applications.
+ */
+public final class ResumableUploadCallAdapterFactory extends CallAdapter.Factory {
+  /** Returns an instance which uses {@link UploadProtocol#TUS}. */
+  public static ResumableUploadCallAdapterFactory create(File journalDirectory) {
+    return create(journalDirectory, UploadProtocol.TUS);
+  }
+
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static ResumableUploadCallAdapterFactory create(
+      File journalDirectory, UploadProtocol protocol) {
+    if (journalDirectory == null) throw new NullPointerException("journalDirectory == null");
+    if (protocol == null) throw new NullPointerException("protocol == null");
+    return new ResumableUploadCallAdapterFactory(new UploadJournal(journalDirectory), protocol);
+  }
+
+  private final UploadJournal journal;
+  private final UploadProtocol protocol;
+
+  private ResumableUploadCallAdapterFactory(UploadJournal journal, UploadProtocol protocol) {
+    this.journal = journal;
+    this.protocol = protocol;
+  }
+
+  @Override
+  public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Resumable resumable = null;
+    boolean compressed = false;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Resumable) {
+        resumable = (Resumable) annotation;
+      } else if (annotation instanceof Compress) {
+        compressed = true;
+      }
+    }
+    if (resumable == null) {
+      return null;
+    }
+    if (compressed) {
+      // Chunks are offsets into the body as built. A compressed body has no length to split.
+      throw new IllegalArgumentException("@Resumable methods cannot be @Compress.");
+    }
+    if (resumable.chunkSize() <= 0L) {
+      throw new IllegalArgumentException(
+          "@Resumable chunkSize must be positive. Found: " + resumable.chunkSize());
+    }
+    if (resumable.parallelism() < 1) {
+      throw new IllegalArgumentException(
+          "@Resumable parallelism must be positive. Found: " + resumable.parallelism());
+    }
+
+    @SuppressWarnings("unchecked") // The delegate adapts our calls, whatever their response type.
+    CallAdapter<Object, ?> delegate =
+        (CallAdapter<Object, ?>) retrofit.nextCallAdapter(this, returnType, annotations);
+    Converter<ResponseBody, Object> responseConverter =
+        retrofit.responseBodyConverter(delegate.responseType(), annotations);
+    okhttp3.Call.Factory callFactory = retrofit.callFactory();
+    long chunkSize = resumable.chunkSize();
+    int parallelism = resumable.parallelism();
+    return new CallAdapter<Object, Object>() {
+      @Override
+      public Type responseType() {
+        return delegate.responseType();
+      }
+
+      @Override
+      public Object adapt(Call<Object> call) {
+        return delegate.adapt(
+            new ResumableUploadCall<>(
+                call, callFactory, responseConverter, protocol, journal, chunkSize, parallelism));
+      }
+    };
+  }
+}
@@ -16,6 +16,8 @@
 package retrofit2;
 
 import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static retrofit2.Utils.methodError;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
@@ -26,19 +28,23 @@ import java.lang.reflect.Type;
 import java.net.URL;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
+import retrofit2.http.Batched;
 import retrofit2.http.GET;
 import retrofit2.http.HTTP;
 import retrofit2.http.Header;
@@ -67,6 +73,15 @@ import retrofit2.http.Url;
 public final class Retrofit {
   private final Map<Method, ServiceMethod<?>> serviceMethodCache = new ConcurrentHashMap<>();
   private final Map<Type, ParameterHandler[]> typeCommonHandlersCache = new LinkedHashMap<>();
+  private final Map<Method, BatchQueue<?, ?>> batchQueues = new ConcurrentHashMap<>();
+  private final ConcurrentMap<ConverterKey, Converter<?, ?>> converterCache =
+      new ConcurrentHashMap<>();
+  /**
+   * For each index into {@link #converterFactories}, the index of the first factory at or after it
+   * which is not {@linkplain Converter.Factory#isCacheable() cacheable}. Lookups are remembered
+   * only when they are answered before reaching such a factory.
+   */
+  private final int[] cacheableUntil;
 
   final okhttp3.Call.Factory callFactory;
   final HttpUrl baseUrl;
@@ -74,6 +89,9 @@ public final class Retrofit {
   final List<CallAdapter.Factory> callAdapterFactories;
   final @Nullable Executor callbackExecutor;
   final boolean validateEagerly;
+  final @Nullable ResponseCache responseCache;
+  final Map<String, Batcher<?, ?>> batchers;
+  final @Nullable RetrofitEventListener eventListener;
   private ParamProvider paramProvider;
 
   Retrofit(
@@ -83,12 +101,17 @@ public final class Retrofit {
       List<CallAdapter.Factory> callAdapterFactories,
       @Nullable Executor callbackExecutor,
       boolean validateEagerly) {
-    this.callFactory = callFactory;
-    this.baseUrl = baseUrl;
-    this.converterFactories = converterFactories; // Copy+unmodifiable at call site.
-    this.callAdapterFactories = callAdapterFactories; // Copy+unmodifiable at call site.
-    this.callbackExecutor = callbackExecutor;
-    this.validateEagerly = validateEagerly;
+    this(
+        callFactory,
+        baseUrl,
+        converterFactories,
+        callAdapterFactories,
+        callbackExecutor,
+        validateEagerly,
+        null,
+        null,
+        Collections.<String, Batcher<?, ?>>emptyMap(),
+        null);
   }
 
   Retrofit(
@@ -98,15 +121,28 @@ public final class Retrofit {
       List<CallAdapter.Factory> callAdapterFactories,
       @Nullable Executor callbackExecutor,
       boolean validateEagerly,
-      ParamProvider paramProvider) {
-    this(
-        callFactory,
-        baseUrl,
-        converterFactories,
-        callAdapterFactories,
-        callbackExecutor,
-        validateEagerly);
+      ParamProvider paramProvider,
+      @Nullable ResponseCache responseCache,
+      Map<String, Batcher<?, ?>> batchers,
+      @Nullable RetrofitEventListener eventListener) {
+    this.callFactory = callFactory;
+    this.baseUrl = baseUrl;
+    this.converterFactories = converterFactories; // Copy+unmodifiable at call site.
+    this.callAdapterFactories = callAdapterFactories; // Copy+unmodifiable at call site.
+    this.callbackExecutor = callbackExecutor;
+    this.validateEagerly = validateEagerly;
     this.paramProvider = paramProvider;
+    this.responseCache = responseCache;
+    this.batchers = batchers; // Copy+unmodifiable at call site.
+    this.eventListener = eventListener;
+
+    int count = converterFactories.size();
+    int[] cacheableUntil = new int[count + 1];
+    cacheableUntil[count] = count;
+    for (int i = count - 1; i >= 0; i--) {
+      cacheableUntil[i] = converterFactories.get(i).isCacheable() ? cacheableUntil[i + 1] : i;
+    }
+    this.cacheableUntil = cacheableUntil;
   }
 
   /**
@@ -244,7 +280,13 @@ public final class Retrofit {
     synchronized (serviceMethodCache) {
       result = serviceMethodCache.get(method);
       if (result == null) {
-        result = ServiceMethod.parseAnnotations(this, method);
+        if (eventListener == null) {
+          result = ServiceMethod.parseAnnotations(this, method);
+        } else {
+          long startNanos = System.nanoTime();
+          result = ServiceMethod.parseAnnotations(this, method);
+          eventListener.serviceMethodParsed(method, startNanos, System.nanoTime());
+        }
         serviceMethodCache.put(method, result);
       }
     }
@@ -354,11 +396,27 @@ public final class Retrofit {
     Objects.requireNonNull(methodAnnotations, "methodAnnotations == null");
 
     int start = converterFactories.indexOf(skipPast) + 1;
+    int cacheableEnd = cacheableUntil[start];
+    ConverterKey key = null;
+    if (start < cacheableEnd) {
+      key =
+          new ConverterKey(
+              ConverterKey.REQUEST_BODY, start, type, parameterAnnotations, methodAnnotations);
+      Converter<?, ?> cached = converterCache.get(key);
+      if (cached != null) {
+        //noinspection unchecked
+        return (Converter<T, RequestBody>) cached;
+      }
+    }
+
     for (int i = start, count = converterFactories.size(); i < count; i++) {
       Converter.Factory factory = converterFactories.get(i);
       Converter<?, RequestBody> converter =
           factory.requestBodyConverter(type, parameterAnnotations, methodAnnotations, this);
       if (converter != null) {
+        if (i < cacheableEnd) {
+          converterCache.put(key, converter);
+        }
         //noinspection unchecked
         return (Converter<T, RequestBody>) converter;
       }
@@ -402,10 +460,24 @@ public final class Retrofit {
     Objects.requireNonNull(annotations, "annotations == null");
 
     int start = converterFactories.indexOf(skipPast) + 1;
+    int cacheableEnd = cacheableUntil[start];
+    ConverterKey key = null;
+    if (start < cacheableEnd) {
+      key = new ConverterKey(ConverterKey.RESPONSE_BODY, start, type, annotations, null);
+      Converter<?, ?> cached = converterCache.get(key);
+      if (cached != null) {
+        //noinspection unchecked
+        return (Converter<ResponseBody, T>) cached;
+      }
+    }
+
     for (int i = start, count = converterFactories.size(); i < count; i++) {
       Converter<ResponseBody, ?> converter =
           converterFactories.get(i).responseBodyConverter(type, annotations, this);
       if (converter != null) {
+        if (i < cacheableEnd) {
+          converterCache.put(key, converter);
+        }
         //noinspection unchecked
         return (Converter<ResponseBody, T>) converter;
       }
@@ -437,18 +509,88 @@ public final class Retrofit {
     Objects.requireNonNull(type, "type == null");
     Objects.requireNonNull(annotations, "annotations == null");
 
-    for (int i = 0, count = converterFactories.size(); i < count; i++) {
+    int cacheableEnd = cacheableUntil[0];
+    ConverterKey key = null;
+    if (cacheableEnd > 0) {
+      key = new ConverterKey(ConverterKey.STRING, 0, type, annotations, null);
+      Converter<?, ?> cached = converterCache.get(key);
+      if (cached != null) {
+        //noinspection unchecked
+        return (Converter<T, String>) cached;
+      }
+    }
+
+    int count = converterFactories.size();
+    for (int i = 0; i < count; i++) {
       Converter<?, String> converter =
           converterFactories.get(i).stringConverter(type, annotations, this);
       if (converter != null) {
+        if (i < cacheableEnd) {
+          converterCache.put(key, converter);
+        }
         //noinspection unchecked
         return (Converter<T, String>) converter;
       }
     }
 
     // Nothing matched. Resort to default converter which just calls toString().
+    Converter<?, String> converter = BuiltInConverters.ToStringConverter.INSTANCE;
+    if (cacheableEnd == count) {
+      converterCache.put(key, converter);
+    }
     //noinspection unchecked
-    return (Converter<T, String>) BuiltInConverters.ToStringConverter.INSTANCE;
+    return (Converter<T, String>) converter;
+  }
+
+  /** Identifies a converter lookup by its kind, first factory index, type, and annotations. */
+  private static final class ConverterKey {
+    static final int REQUEST_BODY = 0;
+    static final int RESPONSE_BODY = 1;
+    static final int STRING = 2;
+
+    private final int kind;
+    private final int start;
+    private final Type type;
+    private final Annotation[] annotations;
+    private final @Nullable Annotation[] methodAnnotations;
+    private final int hashCode;
+
+    ConverterKey(
+        int kind,
+        int start,
+        Type type,
+        Annotation[] annotations,
+        @Nullable Annotation[] methodAnnotations) {
+      this.kind = kind;
+      this.start = start;
+      this.type = type;
+      this.annotations = annotations;
+      this.methodAnnotations = methodAnnotations;
+      int hashCode = kind;
+      hashCode = 31 * hashCode + start;
+      hashCode = 31 * hashCode + type.hashCode();
+      hashCode = 31 * hashCode + Arrays.hashCode(annotations);
+      hashCode = 31 * hashCode + Arrays.hashCode(methodAnnotations);
+      this.hashCode = hashCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) return true;
+      if (!(other instanceof ConverterKey)) return false;
+      ConverterKey that = (ConverterKey) other;
+      return kind == that.kind
+          && start == that.start
+          && hashCode == that.hashCode
+          && type.equals(that.type)
+          && Arrays.equals(annotations, that.annotations)
+          && Arrays.equals(methodAnnotations, that.methodAnnotations);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
   }
 
   /**
@@ -459,6 +601,104 @@ public final class Retrofit {
     return callbackExecutor;
   }
 
+  /**
+   * The cache of converted responses for {@link retrofit2.http.Cacheable @Cacheable} methods. This
+   * may be {@code null}, in which case those methods always use the network.
+   */
+  public @Nullable ResponseCache responseCache() {
+    return responseCache;
+  }
+
+  /**
+   * The sizes of the bulk requests made for the {@link retrofit2.http.Batched @Batched} service
+   * method {@code method}, or null if it is not batched.
+   */
+  public @Nullable BatchHistogram batchHistogram(Method method) {
+    Objects.requireNonNull(method, "method == null");
+    if (method.getAnnotation(Batched.class) == null) {
+      return null;
+    }
+    loadServiceMethod(method);
+    return batchQueues.get(method).histogram;
+  }
+
+  /**
+   * Returns a converter of raw responses to the requests of the service method {@code method} into
+   * the responses its calls deliver, for replaying recorded traffic through this instance's
+   * converters. Parsed responses are neither cached nor reported to the {@linkplain
+   * #eventListener() event listener}.
+   *
+   * @throws IllegalArgumentException if {@code method} is not a valid service method, or is a
+   *     {@link retrofit2.http.DownloadTo @DownloadTo} or {@link Batched @Batched} method whose
+   *     responses are not converted.
+   */
+  public <T> Converter<okhttp3.Response, Response<T>> responseParser(Method method) {
+    Objects.requireNonNull(method, "method == null");
+    @SuppressWarnings("unchecked") // The caller chooses the type, like for responseBodyConverter.
+    HttpServiceMethod<T, ?> serviceMethod = (HttpServiceMethod<T, ?>) loadServiceMethod(method);
+    return serviceMethod.responseParser(method);
+  }
+
+  /** Creates the queue which collects the calls of the {@code @Batched} method {@code method}. */
+  <T> BatchQueue<?, T> newBatchQueue(Method method, RequestFactory requestFactory) {
+    @SuppressWarnings("unchecked") // The batcher's result type is not known until runtime.
+    Batcher<Object, T> batcher = (Batcher<Object, T>) batchers.get(requestFactory.batchEndpoint);
+    if (batcher == null) {
+      throw methodError(
+          method, "No Batcher registered for endpoint \"%s\".", requestFactory.batchEndpoint);
+    }
+    BatchQueue<?, T> queue =
+        new BatchQueue<>(batcher, requestFactory.batchMaxSize, requestFactory.batchMaxDelayMs);
+    batchQueues.put(method, queue);
+    return queue;
+  }
+
+  /**
+   * Executes {@code calls} asynchronously with at most {@code maxConcurrency} of them in flight,
+   * and returns an iterator of their responses in the same order. The first call which fails with
+   * an exception stops the execution. See {@link #executeAll(Iterable, int, FailurePolicy)}.
+   */
+  public static <T> Iterator<Response<T>> executeAll(
+      Iterable<? extends Call<T>> calls, int maxConcurrency) {
+    return executeAll(calls, maxConcurrency, FailurePolicy.STOP_ON_FAILURE);
+  }
+
+  /**
+   * Executes {@code calls} asynchronously with at most {@code maxConcurrency} of them in flight,
+   * and returns an iterator of their responses in the same order.
+   *
+   * <pre><code>
+   * Iterator&lt;Response&lt;User&gt;&gt; responses =
+   *     Retrofit.executeAll(userCalls, 16, FailurePolicy.STOP_ON_ERROR_RESPONSE);
+   * while (responses.hasNext()) {
+   *   save(responses.next().body());
+   * }
+   * </code></pre>
+   *
+   * <p>Calls are taken from {@code calls} lazily while the responses are consumed, and at most
+   * twice {@code maxConcurrency} responses are held at a time, so the memory used does not grow
+   * with the number of calls. A call which failed throws {@link CallFailedException} from {@link
+   * Iterator#next() next()} in place of its response; {@code failurePolicy} decides whether
+   * execution continues afterwards.
+   *
+   * <p>Calls are {@linkplain Call#enqueue enqueued}, so the iterator must not be consumed on the
+   * thread which runs their callbacks.
+   */
+  public static <T> Iterator<Response<T>> executeAll(
+      Iterable<? extends Call<T>> calls, int maxConcurrency, FailurePolicy failurePolicy) {
+    Objects.requireNonNull(calls, "calls == null");
+    Objects.requireNonNull(failurePolicy, "failurePolicy == null");
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency < 1: " + maxConcurrency);
+    }
+    return new CallPipeline<>(calls.iterator(), maxConcurrency, failurePolicy);
+  }
+
+  /** The listener for the work done on behalf of service methods, or null if there is none. */
+  public @Nullable RetrofitEventListener eventListener() {
+    return eventListener;
+  }
+
   public Builder newBuilder() {
     return new Builder(this);
   }
@@ -478,6 +718,9 @@ public final class Retrofit {
     private @Nullable Executor callbackExecutor;
     private boolean validateEagerly;
     private ParamProvider paramProvider;
+    private @Nullable ResponseCache responseCache;
+    private final Map<String, Batcher<?, ?>> batchers = new LinkedHashMap<>();
+    private @Nullable RetrofitEventListener eventListener;
 
     Builder(Platform platform) {
       this.platform = platform;
@@ -511,6 +754,9 @@ public final class Retrofit {
 
       callbackExecutor = retrofit.callbackExecutor;
       validateEagerly = retrofit.validateEagerly;
+      responseCache = retrofit.responseCache;
+      batchers.putAll(retrofit.batchers);
+      eventListener = retrofit.eventListener;
     }
 
     /**
@@ -645,6 +891,34 @@ public final class Retrofit {
       return this;
     }
 
+    /**
+     * The cache in which the converted responses of {@link retrofit2.http.Cacheable @Cacheable}
+     * methods are kept. Without a cache those methods always use the network.
+     */
+    public Builder responseCache(ResponseCache responseCache) {
+      this.responseCache = Objects.requireNonNull(responseCache, "responseCache == null");
+      return this;
+    }
+
+    /**
+     * Register the batcher which makes bulk requests for {@link retrofit2.http.Batched @Batched}
+     * methods naming {@code endpoint}.
+     */
+    public Builder addBatcher(String endpoint, Batcher<?, ?> batcher) {
+      Objects.requireNonNull(endpoint, "endpoint == null");
+      batchers.put(endpoint, Objects.requireNonNull(batcher, "batcher == null"));
+      return this;
+    }
+
+    /**
+     * Set the listener which is told about parsing, request building, network and conversion work
+     * done on behalf of service methods. Without a listener none of these events are created.
+     */
+    public Builder eventListener(RetrofitEventListener eventListener) {
+      this.eventListener = Objects.requireNonNull(eventListener, "eventListener == null");
+      return this;
+    }
+
     /** Returns a modifiable list of call adapter factories. */
     public List<CallAdapter.Factory> callAdapterFactories() {
       return this.callAdapterFactories;
@@ -707,7 +981,10 @@ public final class Retrofit {
           unmodifiableList(callAdapterFactories),
           callbackExecutor,
           validateEagerly,
-          paramProvider);
+          paramProvider,
+          responseCache,
+          unmodifiableMap(new LinkedHashMap<>(batchers)),
+          eventListener);
     }
   }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.lang.reflect.Method;
+
+/**
+ * Listener for the work Retrofit does on behalf of service methods. Extend this class and install
+ * it with {@link Retrofit.Builder#eventListener} to measure the cost of parsing, request building,
+ * the network and response conversion per method.
+ *
+ * <p>All timestamps come from {@link System#nanoTime()}. Events of one call are identified by its
+ * {@link Invocation}, the same instance which is attached to its request as a tag. Methods are
+ * invoked on the thread doing the work and should return quickly. When no listener is installed
+ * none of these events are created.
+ *
+ * <p>Calls answered from a {@link ResponseCache} report {@link #callStarted} and, when enqueued,
+ * {@link #callbackDispatched} only. The background refresh of a stale cached response is not
+ * reported. Calls of {@link retrofit2.http.Batched @Batched} methods are not reported; their bulk
+ * calls are.
+ */
+public abstract class RetrofitEventListener {
+  /** The service interface {@code method} was parsed into a reusable service method. */
+  public void serviceMethodParsed(Method method, long startNanos, long endNanos) {}
+
+  /**
+   * The HTTP request of {@code invocation} was created from its arguments. Reported when the call
+   * starts, immediately before {@link #callStarted}, even if the request was created earlier.
+   */
+  public void requestBuilt(Invocation invocation, long startNanos, long endNanos) {}
+
+  /**
+   * The {@link retrofit2.http.Compress compressed} request body of {@code invocation} was written.
+   * Its {@code uncompressedBytes} were sent as {@code compressedBytes}. Reported each time the body
+   * is written, including retries by OkHttp.
+   */
+  public void requestBodyCompressed(
+      Invocation invocation, long uncompressedBytes, long compressedBytes) {}
+
+  /** {@code invocation} was executed or enqueued at {@code startNanos}. */
+  public void callStarted(Invocation invocation, long startNanos) {}
+
+  /** The response headers of {@code invocation}, started at {@code callStartNanos}, arrived. */
+  public void responseReceived(Invocation invocation, long callStartNanos, long receivedNanos) {}
+
+  /** The response body of {@code invocation} was converted to its declared type. */
+  public void bodyConverted(Invocation invocation, long startNanos, long endNanos) {}
+
+  /**
+   * The outcome of the enqueued {@code invocation}, started at {@code callStartNanos}, was handed
+   * to its {@link Callback} and the callback returned.
+   */
+  public void callbackDispatched(
+      Invocation invocation, long callStartNanos, long dispatchedNanos) {}
+
+  /** {@code invocation}, started at {@code callStartNanos}, failed with {@code failure}. */
+  public void callFailed(
+      Invocation invocation, Throwable failure, long callStartNanos, long failedNanos) {}
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Timeout;
+
+/**
+ * A call of a {@link retrofit2.http.Segmented @Segmented} download. It learns the length of the
+ * resource with a {@code HEAD} request built by the method's {@link RequestFactory}, then fetches
+ * ranges of it concurrently into a partial file. Resources which cannot be fetched in ranges are
+ * downloaded by {@code fallback} instead.
+ */
+final class SegmentedDownloadCall<T> implements Call<T> {
+  private final RequestFactory requestFactory;
+  private final Object[] args;
+  private final okhttp3.Call.Factory callFactory;
+  private final OkHttpCall<T> fallback;
+
+  private final InFlightCalls calls;
+
+  @GuardedBy("this")
+  private boolean executed;
+
+  SegmentedDownloadCall(
+      RequestFactory requestFactory,
+      Object[] args,
+      okhttp3.Call.Factory callFactory,
+      OkHttpCall<T> fallback) {
+    this.requestFactory = requestFactory;
+    this.args = args;
+    this.callFactory = callFactory;
+    this.fallback = fallback;
+    this.calls = new InFlightCalls(callFactory);
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // We are a final type & this saves clearing state.
+  @Override
+  public SegmentedDownloadCall<T> clone() {
+    return new SegmentedDownloadCall<>(requestFactory, args, callFactory, fallback.clone());
+  }
+
+  /** Returns the request of a download over a single connection. */
+  @Override
+  public Request request() {
+    return fallback.request();
+  }
+
+  @Override
+  public Timeout timeout() {
+    return Timeout.NONE;
+  }
+
+  @Override
+  public Response<T> execute() throws IOException {
+    return execute(null);
+  }
+
+  /** Ranges cannot be served from a cache, so {@code cacheControl} is ignored. */
+  @Override
+  public Response<T> execute(@Nullable CacheControl cacheControl) throws IOException {
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+    }
+    return download(false);
+  }
+
+  @Override
+  public void enqueue(Callback<T> callback) {
+    enqueue(callback, null);
+  }
+
+  /** Ranges cannot be served from a cache, so {@code cacheControl} is ignored. */
+  @Override
+  public void enqueue(Callback<T> callback, @Nullable CacheControl cacheControl) {
+    Objects.requireNonNull(callback, "callback == null");
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+    }
+    InFlightCalls.enqueue(this, callback, () -> download(false));
+  }
+
+  @Override
+  public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  /**
+   * Stops the download. The partial file is left holding the bytes which were received in order, so
+   * a later download of the same version resumes from there.
+   */
+  @Override
+  public void cancel() {
+    fallback.cancel();
+    calls.cancel();
+  }
+
+  @Override
+  public boolean isCanceled() {
+    return calls.isCanceled();
+  }
+
+  /**
+   * Downloads the target in ranges. If the resource changes while it is downloaded, the partial
+   * file is discarded and the download restarted once when {@code restarted} is false.
+   */
+  private Response<T> download(boolean restarted) throws IOException {
+    Request base = requestFactory.create(args);
+    DownloadTarget target = base.tag(DownloadTarget.class);
+    target.readMarker();
+
+    okhttp3.Response head = calls.execute(base.newBuilder().head().build());
+    head.close();
+    long length = -1L;
+    String contentLength = head.header("Content-Length");
+    if (contentLength != null) {
+      try {
+        length = Long.parseLong(contentLength);
+      } catch (NumberFormatException ignored) {
+      }
+    }
+    if (!head.isSuccessful() || length < 0L || !"bytes".equals(head.header("Accept-Ranges"))) {
+      return fallback.execute(); // Report the real response, or download it in one piece.
+    }
+    String validator = DownloadTarget.validator(head);
+    if (validator != null) {
+      // Fail the ranges rather than stitching together two versions of the resource.
+      base = base.newBuilder().header("If-Range", validator).build();
+    }
+
+    okhttp3.Response rejected;
+    boolean restart = false;
+    try (FileChannel channel = target.openPartial()) {
+      // Only the bytes recorded in the marker are trusted. The file may be longer after a crash.
+      long offset = target.offset;
+      if (validator == null || !validator.equals(target.validator) || offset > length) {
+        offset = 0L; // Not a prefix of this version of the resource.
+        target.discard();
+      }
+      channel.truncate(offset);
+
+      Segment[] segments = split(offset, length);
+      try {
+        rejected = fetch(base, segments, channel, target, validator, offset);
+      } catch (Changed e) {
+        // The received ranges may belong to either version. None of them can be kept.
+        target.discard();
+        channel.truncate(0L);
+        if (restarted) {
+          throw e;
+        }
+        rejected = null;
+        restart = true;
+      } catch (IOException | RuntimeException | Error e) {
+        keepReceivedPrefix(channel, target, validator, receivedPrefix(offset, segments), e);
+        throw e;
+      }
+      if (rejected != null) {
+        keepReceivedPrefix(channel, target, validator, receivedPrefix(offset, segments), null);
+      } else if (!restart) {
+        try {
+          verify(head, channel, length);
+        } catch (IOException e) {
+          target.discard(); // None of the bytes can be trusted.
+          channel.truncate(0L);
+          throw e;
+        }
+      }
+    }
+    if (restart) {
+      return download(true);
+    }
+
+    if (rejected != null) {
+      ResponseBody rawBody = rejected.body();
+      try {
+        return Response.error(Utils.buffer(rawBody), withoutBody(rejected));
+      } finally {
+        rawBody.close();
+      }
+    }
+    target.commit();
+    @SuppressWarnings("unchecked") // The response type is the type of the target.
+    T body = (T) target.value();
+    return Response.success(body, withoutBody(head));
+  }
+
+  /**
+   * Drops the bytes after the first {@code prefix} of the partial file and records that those are
+   * on disk. A failure to do so is added to {@code failure} if there is one.
+   */
+  private static void keepReceivedPrefix(
+      FileChannel channel,
+      DownloadTarget target,
+      @Nullable String validator,
+      long prefix,
+      @Nullable Throwable failure)
+      throws IOException {
+    try {
+      channel.truncate(prefix);
+      target.checkpoint(channel, validator, prefix);
+    } catch (IOException e) {
+      if (failure == null) throw e;
+      failure.addSuppressed(e);
+    }
+  }
+
+  /** Returns up to {@link RequestFactory#segments} ranges covering {@code offset} to the end. */
+  private Segment[] split(long offset, long length) {
+    long remaining = length - offset;
+    long minSize = requestFactory.minSegmentSize;
+    int count = (int) Math.max(1L, Math.min(requestFactory.segments, remaining / minSize));
+    Segment[] segments = new Segment[count];
+    long start = offset;
+    for (int i = 0; i < count; i++) {
+      long end = offset + remaining * (i + 1) / count;
+      segments[i] = new Segment(start, end);
+      start = end;
+    }
+    return segments;
+  }
+
+  /**
+   * Fetches {@code segments} concurrently into {@code channel}. Returns the response which rejected
+   * a range, or null if every segment was received. Each time the received bytes from {@code
+   * offset} grow, they are recorded in the marker of {@code target}.
+   */
+  private @Nullable okhttp3.Response fetch(
+      Request base,
+      Segment[] segments,
+      FileChannel channel,
+      DownloadTarget target,
+      @Nullable String validator,
+      long offset)
+      throws IOException {
+    BlockingQueue<Segment> finished = new LinkedBlockingQueue<>();
+    int running = 0;
+    for (Segment segment : segments) {
+      if (segment.position < segment.end) {
+        fetch(base, segment, channel, finished);
+        running++;
+      } else {
+        segment.done = true;
+      }
+    }
+
+    Throwable failure = null;
+    okhttp3.Response rejected = null;
+    while (running > 0) {
+      Segment segment;
+      try {
+        segment = finished.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancel();
+        throw new InterruptedIOException("Interrupted while downloading.");
+      }
+      running--;
+
+      okhttp3.Response segmentRejected = segment.rejected;
+      Throwable segmentFailure = segment.failure;
+      segment.rejected = null;
+      segment.failure = null;
+      if (segmentFailure instanceof Changed) {
+        // Retrying would stitch the new version onto the old one. This replaces any other failure.
+        if (rejected != null) {
+          rejected.close();
+          rejected = null;
+        }
+        if (!(failure instanceof Changed)) {
+          failure = segmentFailure;
+          calls.cancelInFlight();
+        }
+      } else if (failure != null || rejected != null) {
+        // Already failing. Only wait for the other segments to stop writing.
+        if (segmentRejected != null) {
+          segmentRejected.close();
+        }
+      } else if (segmentRejected != null) {
+        rejected = segmentRejected;
+        calls.cancelInFlight();
+      } else if (segmentFailure != null) {
+        if (segment.attempts <= requestFactory.segmentRetries
+            && segmentFailure instanceof IOException
+            && !calls.isCanceled()) {
+          fetch(base, segment, channel, finished); // Continues after its last written byte.
+          running++;
+        } else {
+          failure = segmentFailure;
+          calls.cancelInFlight();
+        }
+      } else {
+        segment.done = true;
+        try {
+          target.checkpoint(channel, validator, completedPrefix(offset, segments));
+        } catch (IOException e) {
+          failure = e;
+          calls.cancelInFlight();
+        }
+      }
+    }
+
+    if (failure instanceof IOException) throw (IOException) failure;
+    if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+    if (failure != null) throw (Error) failure;
+    return rejected;
+  }
+
+  private void fetch(
+      Request base, Segment segment, FileChannel channel, BlockingQueue<Segment> finished) {
+    segment.attempts++;
+    String validator = base.header("If-Range");
+    Request request =
+        base.newBuilder()
+            .header("Range", "bytes=" + segment.position + "-" + (segment.end - 1L))
+            .build();
+    okhttp3.Call call;
+    try {
+      call = calls.newCall(request);
+    } catch (IOException e) {
+      segment.failure = e;
+      finished.add(segment);
+      return;
+    }
+    call.enqueue(
+        new okhttp3.Callback() {
+          @Override
+          public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+            try {
+              if (!response.isSuccessful()) {
+                segment.rejected = response;
+                return;
+              }
+              if (response.code() != 206 || changed(response, validator)) {
+                // Servers answer an If-Range which no longer matches with the whole resource.
+                response.close();
+                throw new Changed();
+              }
+              try (ResponseBody body = response.body()) {
+                segment.receive(response, body.source(), channel);
+              }
+            } catch (Throwable t) {
+              segment.failure = t;
+            } finally {
+              calls.finished(call);
+              finished.add(segment);
+            }
+          }
+
+          @Override
+          public void onFailure(okhttp3.Call call, IOException e) {
+            segment.failure = e;
+            calls.finished(call);
+            finished.add(segment);
+          }
+        });
+  }
+
+  /** Returns true if {@code response} carries a different validator than {@code validator}. */
+  private static boolean changed(okhttp3.Response response, @Nullable String validator) {
+    if (validator == null) {
+      return false;
+    }
+    // Strong entity tags are quoted, dates are not.
+    String actual =
+        validator.startsWith("\"") ? response.header("ETag") : response.header("Last-Modified");
+    return actual != null && !actual.equals(validator);
+  }
+
+  /**
+   * Returns the end of the segments completed in order from {@code offset}. Unlike {@link
+   * #receivedPrefix} it can be called while other segments are still being written.
+   */
+  private static long completedPrefix(long offset, Segment[] segments) {
+    long prefix = offset;
+    for (Segment segment : segments) {
+      if (!segment.done) {
+        break;
+      }
+      prefix = segment.end;
+    }
+    return prefix;
+  }
+
+  /** Returns the end of the bytes received in order from {@code offset}. */
+  private static long receivedPrefix(long offset, Segment[] segments) {
+    long prefix = offset;
+    for (Segment segment : segments) {
+      prefix = segment.position;
+      if (segment.position < segment.end) {
+        break;
+      }
+    }
+    return prefix;
+  }
+
+  /** Checks the size of the download and, if the server supplied one, its checksum. */
+  private static void verify(okhttp3.Response head, FileChannel channel, long length)
+      throws IOException {
+    if (channel.size() != length) {
+      throw new IOException("Expected " + length + " bytes but downloaded " + channel.size());
+    }
+
+    String algorithm = null;
+    ByteString expected = null;
+    String digest = head.header("Digest");
+    if (digest != null) {
+      for (String entry : digest.split(",")) {
+        int equals = entry.indexOf('=');
+        if (equals == -1) continue;
+        String name = entry.substring(0, equals).trim().toLowerCase(Locale.US);
+        if (name.equals("sha-256") || name.equals("md5")) {
+          algorithm = name.equals("md5") ? "MD5" : "SHA-256";
+          expected = ByteString.decodeBase64(entry.substring(equals + 1).trim());
+          break;
+        }
+      }
+    } else if (head.header("Content-MD5") != null) {
+      algorithm = "MD5";
+      expected = ByteString.decodeBase64(head.header("Content-MD5"));
+    }
+    if (algorithm == null) {
+      return;
+    }
+
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    for (long position = 0L; position < length; ) {
+      int read = channel.read(buffer, position);
+      if (read == -1) throw new EOFException();
+      position += read;
+      buffer.flip();
+      messageDigest.update(buffer);
+      buffer.clear();
+    }
+    ByteString actual = ByteString.of(messageDigest.digest());
+    if (!actual.equals(expected)) {
+      throw new IOException(
+          algorithm
+              + " mismatch: expected "
+              + (expected != null ? expected.base64() : null)
+              + " but was "
+              + actual.base64());
+    }
+  }
+
+  private static okhttp3.Response withoutBody(okhttp3.Response rawResponse) {
+    ResponseBody rawBody = rawResponse.body();
+    return rawResponse
+        .newBuilder()
+        .body(new OkHttpCall.NoContentResponseBody(rawBody.contentType(), rawBody.contentLength()))
+        .build();
+  }
+
+  /** One range of the download. Only touched by the thread which currently fetches it. */
+  static final class Segment {
+    final long end;
+    long position;
+    int attempts;
+    /** True once every byte of this range was written. Only touched by the downloading thread. */
+    boolean done;
+
+    @Nullable okhttp3.Response rejected;
+    @Nullable Throwable failure;
+
+    Segment(long start, long end) {
+      this.end = end;
+      this.position = start;
+    }
+
+    void receive(okhttp3.Response response, BufferedSource source, FileChannel channel)
+        throws IOException {
+      String contentRange = response.header("Content-Range");
+      if (contentRange == null || !contentRange.startsWith("bytes " + position + "-")) {
+        throw new ProtocolException(
+            "Expected a Content-Range starting at " + position + " but was " + contentRange);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(8192);
+      while (position < end) {
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        if (source.read(buffer) == -1) {
+          throw new EOFException("Range ended at " + position + " instead of " + end);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+        buffer.clear();
+      }
+    }
+  }
+
+  /** Thrown when a range is answered from a different version of the resource. */
+  static final class Changed extends ProtocolException {
+    private static final long serialVersionUID = 1L;
+
+    Changed() {
+      super("Resource changed during download");
+    }
+  }
+}
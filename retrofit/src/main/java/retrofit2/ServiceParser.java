@@ -25,10 +25,10 @@ public class ServiceParser {
         if (headerStrings.length == 0) {
           throw typeError(service, "@Headers annotation is empty.");
         }
+        Converter<?, String> valueConverter =
+            retrofit.stringConverter(String.class, new Annotation[] {annotation});
         for (int i = 0; i < headerStrings.length; i++) {
           String name = headerStrings[i];
-          Converter<?, String> valueConverter =
-              retrofit.stringConverter(String.class, new Annotation[] {annotation});
           action = new ParameterHandler.ParamHeader<>(name, valueConverter);
           requestActions.add(action);
         }
@@ -38,10 +38,10 @@ public class ServiceParser {
         if (queryStrings.length == 0) {
           throw typeError(service, "@ParamQuerys annotation is empty.");
         }
+        Converter<?, String> valueConverter =
+            retrofit.stringConverter(String.class, new Annotation[] {annotation});
         for (int i = 0; i < queryStrings.length; i++) {
           String name = queryStrings[i];
-          Converter<?, String> valueConverter =
-              retrofit.stringConverter(String.class, new Annotation[] {annotation});
           action = new ParameterHandler.ParamQuery<>(name, valueConverter, querys.encoded());
           requestActions.add(action);
         }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.ByteString;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+/**
+ * A request body of raw bytes which can be written from any offset without producing the bytes
+ * before it. Resumable uploads use this to send one chunk of a large body without rereading all of
+ * the chunks in front of it.
+ */
+abstract class SliceableRequestBody extends RequestBody {
+  /** The most bytes to transfer from a channel before emitting them downstream. */
+  private static final long TRANSFER_SIZE = 65536L;
+
+  @Override
+  public final MediaType contentType() {
+    return RawBodyConverterFactory.OCTET_STREAM;
+  }
+
+  @Override
+  public final void writeTo(BufferedSink sink) throws IOException {
+    writeTo(sink, 0L, contentLength());
+  }
+
+  /** Writes {@code byteCount} bytes of this body starting at {@code offset} to {@code sink}. */
+  abstract void writeTo(BufferedSink sink, long offset, long byteCount) throws IOException;
+
+  /**
+   * Returns a string which identifies the content of this body and changes when it is modified, or
+   * null if the content has no stable identity. Uploads of bodies without one are not resumed.
+   */
+  @Nullable
+  String identity() throws IOException {
+    return null;
+  }
+
+  /** Copies a region of {@code channel} with absolute reads so its position is not changed. */
+  static void transfer(FileChannel channel, long position, long byteCount, BufferedSink sink)
+      throws IOException {
+    long remaining = byteCount;
+    while (remaining > 0L) {
+      long transferred =
+          channel.transferTo(position, Math.min(remaining, TRANSFER_SIZE), sink.buffer());
+      if (transferred <= 0L) {
+        throw new IOException("Channel truncated: " + remaining + " bytes missing");
+      }
+      sink.emitCompleteSegments();
+      position += transferred;
+      remaining -= transferred;
+    }
+  }
+
+  /** Streams a file when it is written. */
+  static final class OfFile extends SliceableRequestBody {
+    private final File file;
+
+    OfFile(File file) {
+      this.file = file;
+    }
+
+    @Override
+    public long contentLength() {
+      return file.length();
+    }
+
+    @Override
+    void writeTo(BufferedSink sink, long offset, long byteCount) throws IOException {
+      try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+        transfer(access.getChannel(), offset, byteCount, sink);
+      }
+    }
+
+    @Override
+    String identity() {
+      return file.getAbsolutePath() + '@' + file.lastModified();
+    }
+  }
+
+  /** Streams a file when it is written. */
+  @IgnoreJRERequirement // Only used when Path is available (Java 7+ / Android API 26+).
+  static final class OfPath extends SliceableRequestBody {
+    private final Path path;
+
+    OfPath(Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+      return Files.size(path);
+    }
+
+    @Override
+    void writeTo(BufferedSink sink, long offset, long byteCount) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        transfer(channel, offset, byteCount, sink);
+      }
+    }
+
+    @Override
+    String identity() throws IOException {
+      return path.toAbsolutePath() + "@" + Files.getLastModifiedTime(path).toMillis();
+    }
+  }
+
+  /**
+   * Sends a channel from a position to its end. The channel's own position is not changed so the
+   * body can be written more than once.
+   */
+  static final class OfFileChannel extends SliceableRequestBody {
+    private final FileChannel channel;
+    private final long position;
+    private final long byteCount;
+
+    OfFileChannel(FileChannel channel, long position, long byteCount) {
+      this.channel = channel;
+      this.position = position;
+      this.byteCount = byteCount;
+    }
+
+    @Override
+    public long contentLength() {
+      return byteCount;
+    }
+
+    @Override
+    void writeTo(BufferedSink sink, long offset, long byteCount) throws IOException {
+      transfer(channel, position + offset, byteCount, sink);
+    }
+  }
+
+  /**
+   * Sends the remaining bytes of a buffer. The buffer's position is not changed so the body can be
+   * written more than once.
+   */
+  static final class OfByteBuffer extends SliceableRequestBody {
+    private final ByteBuffer content;
+
+    OfByteBuffer(ByteBuffer content) {
+      this.content = content;
+    }
+
+    @Override
+    public long contentLength() {
+      return content.remaining();
+    }
+
+    @Override
+    void writeTo(BufferedSink sink, long offset, long byteCount) throws IOException {
+      ByteBuffer source = content.duplicate();
+      source.position(source.position() + (int) offset);
+      source.limit(source.position() + (int) byteCount);
+      while (source.hasRemaining()) {
+        sink.write(source);
+      }
+    }
+
+    @Override
+    String identity() {
+      MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new AssertionError(e);
+      }
+      digest.update(content.duplicate());
+      return ByteString.of(digest.digest()).hex();
+    }
+  }
+
+  static final class OfByteString extends SliceableRequestBody {
+    private final ByteString content;
+
+    OfByteString(ByteString content) {
+      this.content = content;
+    }
+
+    @Override
+    public long contentLength() {
+      return content.size();
+    }
+
+    @Override
+    void writeTo(BufferedSink sink, long offset, long byteCount) throws IOException {
+      // Returns the same instance when the whole string is requested.
+      sink.write(content.substring((int) offset, (int) (offset + byteCount)));
+    }
+
+    @Override
+    String identity() {
+      return content.sha256().hex();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/** See {@link UploadProtocol#TUS}. */
+final class TusUploadProtocol implements UploadProtocol {
+  private static final String VERSION = "1.0.0";
+
+  @Override
+  public Request createRequest(Request request, long length) {
+    return request
+        .newBuilder()
+        .header("Tus-Resumable", VERSION)
+        .header("Upload-Length", Long.toString(length))
+        .post(RequestBody.create(null, new byte[0]))
+        .build();
+  }
+
+  @Override
+  public HttpUrl location(okhttp3.Response response) throws IOException {
+    String location = response.header("Location");
+    HttpUrl url = location != null ? response.request().url().resolve(location) : null;
+    if (url == null) {
+      throw new ProtocolException("Upload created without a valid Location: " + location);
+    }
+    return url;
+  }
+
+  @Override
+  public Request offsetRequest(Request request, HttpUrl location) {
+    return request.newBuilder().url(location).header("Tus-Resumable", VERSION).head().build();
+  }
+
+  @Override
+  public long offset(okhttp3.Response response) throws IOException {
+    String offset = response.header("Upload-Offset");
+    try {
+      if (offset != null) {
+        return Long.parseLong(offset);
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new ProtocolException("Invalid Upload-Offset: " + offset);
+  }
+
+  @Override
+  public Request chunkRequest(
+      Request request, HttpUrl location, long offset, long length, RequestBody chunk) {
+    return request
+        .newBuilder()
+        .url(location)
+        .header("Tus-Resumable", VERSION)
+        .header("Upload-Offset", Long.toString(offset))
+        .header("Content-Type", "application/offset+octet-stream")
+        .method("PATCH", chunk)
+        .build();
+  }
+
+  @Override
+  public boolean acceptsParallelChunks() {
+    return false; // Core tus requires each chunk to start at the server's current offset.
+  }
+}
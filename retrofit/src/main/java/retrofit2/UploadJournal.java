@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.File;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Records the location and confirmed offset of each unfinished {@link retrofit2.http.Resumable
+ * Resumable} upload in a small file, so an upload can be continued after the process restarts.
+ */
+final class UploadJournal {
+  private static final String MAGIC = "retrofit-upload 1";
+
+  private final File directory;
+
+  UploadJournal(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the record of uploading {@code body} with {@code request}. Uploads are matched by
+   * method, URL and length, and by the {@linkplain SliceableRequestBody#identity() identity} of
+   * their content. Bodies without one, such as converted or multipart ones, are never recorded
+   * since a different body of the same length could not be told apart from them.
+   */
+  Entry entry(Request request, RequestBody body, long length) throws IOException {
+    String identity =
+        body instanceof SliceableRequestBody ? ((SliceableRequestBody) body).identity() : null;
+    if (identity == null) {
+      return new Entry(null);
+    }
+    String key = request.method() + ' ' + request.url() + ' ' + length + ' ' + identity;
+    String name = ByteString.encodeUtf8(key).sha256().hex();
+    return new Entry(new File(directory, name + ".upload"));
+  }
+
+  static final class Entry {
+    private final @Nullable File file;
+    private @Nullable HttpUrl location;
+    private long offset;
+
+    /** Creates an entry which is only kept in memory when {@code file} is null. */
+    Entry(@Nullable File file) {
+      this.file = file;
+    }
+
+    /** Reads this entry's file. Returns false if there is no usable record. */
+    boolean read() {
+      if (file == null || !file.exists()) {
+        return false;
+      }
+      try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+        if (!MAGIC.equals(source.readUtf8LineStrict())) {
+          return false;
+        }
+        location = HttpUrl.parse(source.readUtf8LineStrict());
+        offset = Long.parseLong(source.readUtf8LineStrict());
+        return location != null && offset >= 0L;
+      } catch (IOException | NumberFormatException e) {
+        return false; // A record which is torn or corrupt is started over.
+      }
+    }
+
+    @Nullable
+    HttpUrl location() {
+      return location;
+    }
+
+    long offset() {
+      return offset;
+    }
+
+    /** Replaces this entry's file so that a crash while writing leaves the previous record. */
+    void write(HttpUrl location, long offset) throws IOException {
+      this.location = location;
+      this.offset = offset;
+      if (file == null) {
+        return;
+      }
+      File directory = file.getParentFile();
+      if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+        throw new IOException("Unable to create " + directory);
+      }
+      // Each write has its own temporary file so concurrent uploads of the same content do not
+      // write over or rename each other's. The last rename wins.
+      File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+      boolean renamed = false;
+      try {
+        try (BufferedSink sink = Okio.buffer(Okio.sink(temporary))) {
+          sink.writeUtf8(MAGIC).writeByte('\n');
+          sink.writeUtf8(location.toString()).writeByte('\n');
+          sink.writeDecimalLong(offset).writeByte('\n');
+        }
+        // Some platforms do not replace an existing file when renaming.
+        renamed = temporary.renameTo(file) || (file.delete() && temporary.renameTo(file));
+        if (!renamed) {
+          throw new IOException("Unable to write " + file);
+        }
+      } finally {
+        if (!renamed) {
+          temporary.delete();
+        }
+      }
+    }
+
+    void delete() {
+      if (file != null) {
+        file.delete();
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * The requests which perform a {@link retrofit2.http.Resumable @Resumable} upload. An upload is
+ * first created, then its body is sent in chunks to the location the server assigned to it. All
+ * requests are derived from {@code request}, the request which the service method would have made
+ * on its own, so that headers such as credentials carry over.
+ */
+public interface UploadProtocol {
+  /**
+   * A protocol in the style of <a href="https://tus.io/protocols/resumable-upload.html">tus
+   * 1.0</a>. An upload is created with a {@code POST} carrying {@code Upload-Length}, its offset is
+   * queried with {@code HEAD}, and chunks are sent in order with {@code PATCH} and {@code
+   * Upload-Offset}.
+   */
+  UploadProtocol TUS = new TusUploadProtocol();
+
+  /** Returns a request which creates an upload of {@code length} bytes. */
+  Request createRequest(Request request, long length);
+
+  /** Returns the location of the upload created by {@code response}. */
+  HttpUrl location(okhttp3.Response response) throws IOException;
+
+  /**
+   * Returns a request which asks for the number of bytes the server has stored for the upload at
+   * {@code location}, or null to trust the offset recorded in the journal.
+   */
+  @Nullable
+  Request offsetRequest(Request request, HttpUrl location);
+
+  /** Returns the number of stored bytes reported by {@code response}. */
+  long offset(okhttp3.Response response) throws IOException;
+
+  /**
+   * Returns a request which stores {@code chunk}, the bytes starting at {@code offset} of an upload
+   * of {@code length} bytes.
+   */
+  Request chunkRequest(
+      Request request, HttpUrl location, long offset, long length, RequestBody chunk);
+
+  /**
+   * True if the server accepts chunks in any order so they may be sent in parallel. The final chunk
+   * is always sent last.
+   */
+  boolean acceptsParallelChunks();
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Merge concurrent calls to this method into bulk requests made by the {@link retrofit2.Batcher
+ * Batcher} registered for {@link #endpoint()} with {@link
+ * retrofit2.Retrofit.Builder#addBatcher(String, retrofit2.Batcher) Retrofit.Builder}.
+ *
+ * <pre><code>
+ * &#64;Batched(endpoint = "items:batchGet", maxSize = 50, maxDelayMs = 5)
+ * &#64;GET("items/{id}")
+ * Call&lt;Item&gt; item(@Path("id") String id);
+ * </code></pre>
+ *
+ * <p>Calls are collected until {@link #maxSize()} of them are waiting or the first of them has
+ * waited {@link #maxDelayMs()}, whichever comes first. Each call then receives its own element of
+ * the bulk response. Because batching happens beneath the {@link retrofit2.CallAdapter
+ * CallAdapter}, it applies to every return type a method can declare.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Batched {
+  /** The name of the {@link retrofit2.Batcher Batcher} which makes the bulk requests. */
+  String endpoint();
+
+  /** The largest number of calls merged into one bulk request, at most 1000. */
+  int maxSize() default 100;
+
+  /** How long a call may wait for others to join its bulk request, in milliseconds. */
+  long maxDelayMs() default 10;
+}
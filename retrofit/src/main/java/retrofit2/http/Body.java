@@ -30,6 +30,13 @@ import retrofit2.Retrofit;
  * The object will be serialized using the {@link Retrofit Retrofit} instance {@link Converter
  * Converter} and the result will be set directly as the request body.
  *
+ * <p>A {@link java.io.File File}, {@link java.nio.file.Path Path}, {@link
+ * java.nio.channels.FileChannel FileChannel}, {@link java.nio.ByteBuffer ByteBuffer} or {@link
+ * okio.ByteString ByteString} is sent as-is with an {@code application/octet-stream} content type
+ * and an exact length. Files and channels are streamed when the request is written rather than
+ * being read into memory. A converter factory added to {@link retrofit2.Retrofit.Builder} which
+ * converts one of these types takes precedence.
+ *
  * <p>Body parameters may not be {@code null}.
  */
 @Documented
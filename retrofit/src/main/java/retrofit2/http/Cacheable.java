@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep the converted response body of this method in the {@link retrofit2.ResponseCache
+ * ResponseCache} installed on {@link retrofit2.Retrofit.Builder#responseCache Retrofit}. Repeated
+ * calls which create an identical request are answered from memory without touching the network or
+ * the response body converter.
+ *
+ * <pre><code>
+ * &#64;Cacheable(ttl = 5, unit = TimeUnit.MINUTES)
+ * &#64;GET("catalog/{id}")
+ * Call&lt;Catalog&gt; catalog(@Path("id") String id);
+ * </code></pre>
+ *
+ * <p>Once {@link #ttl()} has elapsed the entry may still be served for another {@link
+ * #staleWhileRevalidate()} while a single background request refreshes it. Expired responses with
+ * an {@code ETag} or {@code Last-Modified} header are refreshed with a conditional request whose
+ * {@code 304 Not Modified} answer reuses the stored body.
+ *
+ * <p>This annotation has no effect when no cache is installed. Only methods without a request body
+ * can be cached. Because the same body instance is handed to every caller, the response type should
+ * be immutable.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Cacheable {
+  /** How long a converted response is served from memory. */
+  long ttl();
+
+  /** How long a stale response may still be served while it is refreshed in the background. */
+  long staleWhileRevalidate() default 0;
+
+  /** The unit of {@link #ttl()} and {@link #staleWhileRevalidate()}. */
+  TimeUnit unit() default TimeUnit.SECONDS;
+}
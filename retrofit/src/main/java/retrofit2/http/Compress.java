@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Compress the request body of this method and announce it with a {@code Content-Encoding} header.
+ * The body is compressed while it is written to the network, so it is never held in memory twice.
+ *
+ * <pre><code>
+ * &#64;Compress(Compress.Encoding.GZIP)
+ * &#64;POST("telemetry")
+ * Call&lt;Void&gt; upload(@Body Telemetry telemetry);
+ * </code></pre>
+ *
+ * <p>Bodies shorter than {@link #minSize()} are sent as-is, as are bodies of requests which already
+ * carry a {@code Content-Encoding} header. Bodies of unknown length are always compressed. The
+ * server must accept the chosen encoding.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Compress {
+  Encoding value() default Encoding.GZIP;
+
+  /** The minimum length of a body, in bytes, for it to be compressed. */
+  long minSize() default 1024;
+
+  /** The {@code Content-Encoding} of a compressed request body. */
+  enum Encoding {
+    /** The gzip format of RFC 1952. */
+    GZIP,
+    /** The zlib format of RFC 1950, which HTTP calls {@code deflate}. */
+    DEFLATE
+  }
+}
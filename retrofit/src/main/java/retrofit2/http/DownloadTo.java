@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Write the response body to the {@link java.io.File File} or {@link java.nio.file.Path Path}
+ * argument instead of converting it. The response type of the method must be the type of this
+ * parameter, and the call's body is the argument once the download completed.
+ *
+ * <pre><code>
+ * &#64;GET("releases/{version}.zip")
+ * Call&lt;Path&gt; download(@Path("version") String version, @DownloadTo Path target);
+ * </code></pre>
+ *
+ * The body is streamed to disk as it arrives, so files of any size can be downloaded without
+ * holding them in memory. It is written to a file next to the target, named like the target with a
+ * {@code .part} suffix, which replaces the target once the download is complete. An existing target
+ * is always downloaded again.
+ *
+ * <p>The {@code ETag} or {@code Last-Modified} validator of the response and the number of bytes
+ * written to disk are recorded next to the partial file, in a file with a {@code .validator}
+ * suffix. An interrupted download is continued from that length with a {@code Range} request
+ * guarded by an {@code If-Range} of that validator, so a server whose resource changed since
+ * answers with the full body, which replaces the partial file. Responses without a validator are
+ * downloaded from the start each time.
+ *
+ * <p>Error responses leave the target untouched and are returned as usual.
+ */
+@Documented
+@Target(PARAMETER)
+@Retention(RUNTIME)
+public @interface DownloadTo {}
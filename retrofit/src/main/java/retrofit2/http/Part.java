@@ -26,7 +26,7 @@ import retrofit2.Converter;
 /**
  * Denotes a single part of a multi-part request.
  *
- * <p>The parameter type on which this annotation exists will be processed in one of three ways:
+ * <p>The parameter type on which this annotation exists will be processed in one of four ways:
  *
  * <ul>
  *   <li>If the type is {@link okhttp3.MultipartBody.Part} the contents will be used directly. Omit
@@ -34,6 +34,11 @@ import retrofit2.Converter;
  *   <li>If the type is {@link okhttp3.RequestBody RequestBody} the value will be used directly with
  *       its content type. Supply the part name in the annotation (e.g., {@code @Part("foo")
  *       RequestBody foo}).
+ *   <li>If the type is {@link java.io.File File}, {@link java.nio.file.Path Path}, {@link
+ *       java.nio.channels.FileChannel FileChannel}, {@link java.nio.ByteBuffer ByteBuffer} or
+ *       {@link okio.ByteString ByteString} its bytes will be streamed directly as {@code
+ *       application/octet-stream}, unless one of the added converters handles the type. Supply the
+ *       part name in the annotation.
  *   <li>Other object types will be converted to an appropriate representation by using {@linkplain
  *       Converter a converter}. Supply the part name in the annotation (e.g., {@code @Part("foo")
  *       Image photo}).
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Upload the request body of this method in chunks which can be resumed after a failure, instead of
+ * in one request. Requires a {@link retrofit2.ResumableUploadCallAdapterFactory
+ * ResumableUploadCallAdapterFactory} to be installed on {@link retrofit2.Retrofit Retrofit}.
+ *
+ * <pre><code>
+ * &#64;Resumable(chunkSize = 16 * 1024 * 1024)
+ * &#64;POST("files")
+ * Call&lt;Void&gt; upload(@Body File file);
+ * </code></pre>
+ *
+ * <p>The response to the final chunk is the response of the call. A tus server answers it with
+ * {@code 204 No Content}, so the body is null and the method is usually declared to return {@code
+ * Call<Void>}.
+ *
+ * <p>Each confirmed chunk is recorded in a journal, so an upload which failed part way, even in a
+ * previous process, continues from the last confirmed offset when an identical request is made
+ * again. Only bodies of {@link java.io.File File} or {@link java.nio.file.Path Path}, matched by
+ * name and modification time, and of {@link java.nio.ByteBuffer ByteBuffer} or {@link
+ * okio.ByteString ByteString}, matched by a hash of their content, are recorded. Bodies which fit
+ * in one chunk are never recorded, so their content is not hashed. Other bodies are uploaded in
+ * chunks but start over after a failure.
+ *
+ * <p>Bodies of these types and of {@link java.nio.channels.FileChannel FileChannel} are read
+ * directly at each chunk's offset. Other bodies, such as multipart ones, must be written up to the
+ * end of each chunk to produce it.
+ *
+ * <p>Chunks are sent as-is, so a method cannot be both {@code @Resumable} and {@link
+ * Compress @Compress}.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Resumable {
+  /** The number of body bytes sent per chunk request. */
+  long chunkSize() default 8 * 1024 * 1024;
+
+  /**
+   * The maximum number of chunks uploaded at the same time. Only used when the {@link
+   * retrofit2.UploadProtocol UploadProtocol} accepts chunks out of order.
+   */
+  int parallelism() default 1;
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.http;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Download the resource of a {@link DownloadTo @DownloadTo} method over several connections at
+ * once, each fetching one range of it.
+ *
+ * <pre><code>
+ * &#64;Segmented(8)
+ * &#64;GET("images/{name}.iso")
+ * Call&lt;Path&gt; image(@Path("name") String name, @DownloadTo Path target);
+ * </code></pre>
+ *
+ * A {@code HEAD} request first learns the length of the resource. The ranges are then written into
+ * a file next to the target, named like the target with a {@code .part} suffix, which replaces the
+ * target once every range arrived. A segment which fails is retried from its last written byte. A
+ * later download continues after the ranges which were completed in order, and only if the {@code
+ * HEAD} response carries the same {@code ETag} or {@code Last-Modified} validator as when they were
+ * written. If the resource changes while it is downloaded, the partial file is discarded and the
+ * download starts over once. If the {@code HEAD} response carries a {@code Digest} or {@code
+ * Content-MD5} header the downloaded file is verified against it.
+ *
+ * <p>Servers which do not answer the {@code HEAD} request with a {@code Content-Length} and {@code
+ * Accept-Ranges: bytes} are downloaded over a single connection like any {@code @DownloadTo}
+ * method. OkHttp's {@link okhttp3.Dispatcher#setMaxRequestsPerHost(int) Dispatcher} caps the number
+ * of concurrent requests per host, 5 by default.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Segmented {
+  /** The maximum number of ranges fetched concurrently. */
+  int value() default 4;
+
+  /** The minimum number of bytes per range. Small resources are split into fewer ranges. */
+  long minSegmentSize() default 1024 * 1024;
+
+  /** How often a failed range is requested again before the download fails. */
+  int retries() default 2;
+}
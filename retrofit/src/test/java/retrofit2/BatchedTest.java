@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.helpers.ToStringConverterFactory;
+import retrofit2.http.Batched;
+import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Path;
+
+public final class BatchedTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Batched(endpoint = "items", maxSize = 3, maxDelayMs = 50)
+    @GET("items/{id}")
+    Call<String> item(@Path("id") String id);
+
+    @Batched(endpoint = "items", maxSize = 3, maxDelayMs = 50)
+    @GET("items/{id}")
+    CompletableFuture<String> itemFuture(@Path("id") String id);
+
+    @Batched(endpoint = "missing")
+    @GET("items/{id}")
+    Call<String> missing(@Path("id") String id);
+
+    @Batched(endpoint = "items", maxSize = 1001)
+    @GET("items/{id}")
+    Call<String> tooLarge(@Path("id") String id);
+
+    @Batched(endpoint = "lengths", maxSize = 3, maxDelayMs = 50)
+    @GET("items/{id}")
+    Call<Integer> length(@Path("id") String id);
+
+    @POST("/items:batchGet")
+    Call<String> batchGet(@Body String ids);
+  }
+
+  /** Joins the ids of the batched calls with commas and splits the response the same way. */
+  final class ItemBatcher implements Batcher<String, String> {
+    volatile String mergeThread;
+
+    @Override
+    public Call<String> merge(List<Invocation> invocations) {
+      mergeThread = Thread.currentThread().getName();
+      StringBuilder ids = new StringBuilder();
+      for (Invocation invocation : invocations) {
+        if (ids.length() > 0) ids.append(',');
+        ids.append(invocation.arguments().get(0));
+      }
+      return service.batchGet(ids.toString());
+    }
+
+    @Override
+    public List<String> split(List<Invocation> invocations, @Nullable String body) {
+      return Arrays.asList(body.split(","));
+    }
+  }
+
+  /** Batches like {@link ItemBatcher} but answers each call with the length of its item. */
+  final class LengthBatcher implements Batcher<String, Integer> {
+    @Override
+    public Call<String> merge(List<Invocation> invocations) {
+      return itemBatcher.merge(invocations);
+    }
+
+    @Override
+    public List<Integer> split(List<Invocation> invocations, @Nullable String body) {
+      List<Integer> lengths = new ArrayList<>();
+      for (String item : itemBatcher.split(invocations, body)) {
+        lengths.add(item.length());
+      }
+      return lengths;
+    }
+  }
+
+  private final ItemBatcher itemBatcher = new ItemBatcher();
+  private Retrofit retrofit;
+  private Service service;
+
+  @Before
+  public void setUp() {
+    retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new ToStringConverterFactory())
+            .addBatcher("items", itemBatcher)
+            .addBatcher("lengths", new LengthBatcher())
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void fullBatchIsSentAtOnce() throws Exception {
+    server.enqueue(new MockResponse().setBody("A,B,C"));
+
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (String id : Arrays.asList("a", "b", "c")) {
+      futures.add(service.itemFuture(id));
+    }
+
+    assertThat(futures.get(0).get(5, SECONDS)).isEqualTo("A");
+    assertThat(futures.get(1).get(5, SECONDS)).isEqualTo("B");
+    assertThat(futures.get(2).get(5, SECONDS)).isEqualTo("C");
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getPath()).isEqualTo("/items:batchGet");
+    assertThat(request.getBody().readUtf8()).isEqualTo("a,b,c");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void partialBatchIsSentAfterDelay() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setBody("A"));
+
+    Response<String> response = service.item("a").execute();
+
+    assertThat(response.body()).isEqualTo("A");
+    assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo("a");
+  }
+
+  @Test
+  public void timedFlushMergesOffTheSchedulerThread() throws IOException {
+    server.enqueue(new MockResponse().setBody("A"));
+
+    service.item("a").execute();
+
+    assertThat(itemBatcher.mergeThread).isNotEqualTo("Retrofit Batcher");
+  }
+
+  @Test
+  public void elementTypeNeedsNoResponseConverter() throws IOException {
+    server.enqueue(new MockResponse().setBody("Apple"));
+
+    // There is no converter for Integer. The batcher produces the results.
+    Response<Integer> response = service.length("a").execute();
+
+    assertThat(response.body()).isEqualTo(5);
+  }
+
+  @Test
+  public void histogramRecordsBatchSizes() throws Exception {
+    server.enqueue(new MockResponse().setBody("A,B,C"));
+    server.enqueue(new MockResponse().setBody("D"));
+
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (String id : Arrays.asList("a", "b", "c", "d")) {
+      futures.add(service.itemFuture(id));
+    }
+    for (CompletableFuture<String> future : futures) {
+      future.get(5, SECONDS);
+    }
+
+    BatchHistogram histogram =
+        retrofit.batchHistogram(Service.class.getMethod("itemFuture", String.class));
+    assertThat(histogram.count(3)).isEqualTo(1);
+    assertThat(histogram.count(1)).isEqualTo(1);
+    assertThat(histogram.batchCount()).isEqualTo(2);
+    assertThat(histogram.callCount()).isEqualTo(4);
+    assertThat(retrofit.batchHistogram(Service.class.getMethod("batchGet", String.class))).isNull();
+  }
+
+  @Test
+  public void responseParserRejectsBatchedMethod() throws Exception {
+    try {
+      retrofit.responseParser(Service.class.getMethod("itemFuture", String.class));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessageStartingWith(
+              "Responses of @DownloadTo and @Batched methods are not converted.");
+    }
+  }
+
+  @Test
+  public void errorResponseIsDeliveredToEveryCall() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(500).setBody("Nope"));
+
+    CompletableFuture<Response<String>> first = enqueue(service.item("a"));
+    CompletableFuture<Response<String>> second = enqueue(service.item("b"));
+
+    assertThat(first.get(5, SECONDS).code()).isEqualTo(500);
+    assertThat(first.get().errorBody().string()).isEqualTo("Nope");
+    assertThat(second.get(5, SECONDS).errorBody().string()).isEqualTo("Nope");
+  }
+
+  @Test
+  public void splitSizeMismatchFailsEveryCall() throws Exception {
+    server.enqueue(new MockResponse().setBody("A"));
+
+    CompletableFuture<Response<String>> first = enqueue(service.item("a"));
+    CompletableFuture<Response<String>> second = enqueue(service.item("b"));
+
+    for (CompletableFuture<Response<String>> future : Arrays.asList(first, second)) {
+      try {
+        future.get(5, SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertThat(e.getCause())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Batcher.split returned 1 results for 2 calls.");
+      }
+    }
+  }
+
+  @Test
+  public void canceledCallLeavesBatch() throws Exception {
+    server.enqueue(new MockResponse().setBody("B"));
+
+    Call<String> canceled = service.item("a");
+    CompletableFuture<Response<String>> canceledFuture = enqueue(canceled);
+    CompletableFuture<Response<String>> kept = enqueue(service.item("b"));
+    canceled.cancel();
+
+    try {
+      canceledFuture.get(5, SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IOException.class).hasMessage("Canceled");
+    }
+    assertThat(kept.get(5, SECONDS).body()).isEqualTo("B");
+    assertThat(server.takeRequest().getBody().readUtf8()).isEqualTo("b");
+  }
+
+  @Test
+  public void missingBatcherThrows() {
+    try {
+      service.missing("a");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "No Batcher registered for endpoint \"missing\".\n"
+                  + "    for method Service.missing");
+    }
+  }
+
+  @Test
+  public void throwingCallbackDoesNotStopOtherCalls() throws Exception {
+    server.enqueue(new MockResponse().setBody("A,B"));
+
+    service
+        .item("a")
+        .enqueue(
+            new Callback<String>() {
+              @Override
+              public void onResponse(Call<String> call, Response<String> response) {
+                throw new RuntimeException("Broken");
+              }
+
+              @Override
+              public void onFailure(Call<String> call, Throwable t) {}
+            });
+    CompletableFuture<Response<String>> second = enqueue(service.item("b"));
+
+    assertThat(second.get(5, SECONDS).body()).isEqualTo("B");
+  }
+
+  @Test
+  public void maxSizeAboveLimitThrows() {
+    try {
+      service.tooLarge("a");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "@Batched maxSize must be in [1, 1000]. Found: 1001\n"
+                  + "    for method Service.tooLarge");
+    }
+  }
+
+  private static <T> CompletableFuture<Response<T>> enqueue(Call<T> call) {
+    final CompletableFuture<Response<T>> future = new CompletableFuture<>();
+    call.enqueue(
+        new Callback<T>() {
+          @Override
+          public void onResponse(Call<T> call, Response<T> response) {
+            future.complete(response);
+          }
+
+          @Override
+          public void onFailure(Call<T> call, Throwable t) {
+            future.completeExceptionally(t);
+          }
+        });
+    return future;
+  }
+}
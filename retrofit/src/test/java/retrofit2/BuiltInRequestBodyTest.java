@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static retrofit2.RequestFactoryTest.buildRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import retrofit2.http.Body;
+import retrofit2.http.Headers;
+import retrofit2.http.Multipart;
+import retrofit2.http.POST;
+import retrofit2.http.Part;
+import retrofit2.http.PartMap;
+
+public final class BuiltInRequestBodyTest {
+  private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void fileBody() throws IOException {
+    class Example {
+      @POST("/") //
+      Call<ResponseBody> method(@Body File body) {
+        return null;
+      }
+    }
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), "Hello".getBytes(UTF_8));
+
+    RequestBody body = buildRequest(Example.class, file).body();
+    assertBody(body, "Hello");
+    assertThat(body.contentType()).isEqualTo(OCTET_STREAM);
+  }
+
+  @Test
+  public void pathBody() throws IOException {
+    class Example {
+      @POST("/") //
+      Call<ResponseBody> method(@Body Path body) {
+        return null;
+      }
+    }
+    Path path = temporaryFolder.newFile().toPath();
+    Files.write(path, "Hello".getBytes(UTF_8));
+
+    RequestBody body = buildRequest(Example.class, path).body();
+    assertBody(body, "Hello");
+    assertThat(body.contentType()).isEqualTo(OCTET_STREAM);
+  }
+
+  @Test
+  public void fileChannelBodyStartsAtPositionAndIsRepeatable() throws IOException {
+    class Example {
+      @POST("/") //
+      Call<ResponseBody> method(@Body FileChannel body) {
+        return null;
+      }
+    }
+    Path path = temporaryFolder.newFile().toPath();
+    Files.write(path, "Hello, World".getBytes(UTF_8));
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      channel.position(7);
+      RequestBody body = buildRequest(Example.class, channel).body();
+      assertBody(body, "World");
+      assertBody(body, "World");
+      assertThat(channel.position()).isEqualTo(7);
+    }
+  }
+
+  @Test
+  public void largeFileChannelBody() throws IOException {
+    class Example {
+      @POST("/") //
+      Call<ResponseBody> method(@Body FileChannel body) {
+        return null;
+      }
+    }
+    Path path = temporaryFolder.newFile().toPath();
+    byte[] bytes = new byte[200_000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    Files.write(path, bytes);
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      RequestBody body = buildRequest(Example.class, channel).body();
+      Buffer buffer = new Buffer();
+      body.writeTo(buffer);
+      assertThat(buffer.readByteString()).isEqualTo(ByteString.of(bytes));
+    }
+  }
+
+  @Test
+  public void byteBufferBodyIsRepeatable() throws IOException {
+    class Example {
+      @POST("/") //
+      Call<ResponseBody> method(@Body ByteBuffer body) {
+        return null;
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+    buffer.put("xxHelloxx".getBytes(UTF_8)).flip();
+    buffer.position(2).limit(7);
+
+    RequestBody body = buildRequest(Example.class, buffer).body();
+    assertBody(body, "Hello");
+    assertBody(body, "Hello");
+    assertThat(buffer.position()).isEqualTo(2);
+  }
+
+  @Test
+  public void byteStringBody() throws IOException {
+    class Example {
+      @POST("/") //
+      Call<ResponseBody> method(@Body ByteString body) {
+        return null;
+      }
+    }
+    RequestBody body = buildRequest(Example.class, ByteString.encodeUtf8("Hello")).body();
+    assertBody(body, "Hello");
+    assertThat(body.contentType()).isEqualTo(OCTET_STREAM);
+  }
+
+  @Test
+  public void contentTypeHeaderOverridesOctetStream() throws IOException {
+    class Example {
+      @Headers("Content-Type: video/mp4") //
+      @POST("/") //
+      Call<ResponseBody> method(@Body ByteString body) {
+        return null;
+      }
+    }
+    Request request = buildRequest(Example.class, ByteString.encodeUtf8("Hello"));
+    assertThat(request.body().contentType()).isEqualTo(MediaType.get("video/mp4"));
+    assertBody(request.body(), "Hello");
+  }
+
+  @Test
+  public void fileAndByteBufferParts() throws IOException {
+    class Example {
+      @Multipart //
+      @POST("/") //
+      Call<ResponseBody> method(@Part("file") File file, @PartMap Map<String, ByteBuffer> parts) {
+        return null;
+      }
+    }
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), "Hello".getBytes(UTF_8));
+    Map<String, ByteBuffer> parts = new LinkedHashMap<>();
+    parts.put("buffer", ByteBuffer.wrap("World".getBytes(UTF_8)));
+
+    Buffer buffer = new Buffer();
+    buildRequest(Example.class, file, parts).body().writeTo(buffer);
+    String bodyString = buffer.readUtf8();
+
+    assertThat(bodyString)
+        .contains("name=\"file\"")
+        .contains("Content-Type: application/octet-stream\r\nContent-Length: 5\r\n\r\nHello\r\n");
+    assertThat(bodyString)
+        .contains("name=\"buffer\"")
+        .contains("Content-Type: application/octet-stream\r\nContent-Length: 5\r\n\r\nWorld\r\n");
+  }
+
+  @Test
+  public void addedConverterFactoryTakesPrecedence() throws IOException {
+    class Example {
+      @POST("/") //
+      Call<ResponseBody> method(@Body ByteString body) {
+        return null;
+      }
+    }
+    Converter.Factory hexFactory =
+        new Converter.Factory() {
+          @Override
+          public @Nullable Converter<?, RequestBody> requestBodyConverter(
+              Type type,
+              Annotation[] parameterAnnotations,
+              Annotation[] methodAnnotations,
+              Retrofit retrofit) {
+            if (type != ByteString.class) return null;
+            return (Converter<ByteString, RequestBody>)
+                value -> RequestBody.create(MediaType.get("text/plain"), value.hex());
+          }
+        };
+    Retrofit.Builder builder =
+        new Retrofit.Builder().baseUrl("http://example.com/").addConverterFactory(hexFactory);
+
+    RequestBody body = buildRequest(Example.class, builder, ByteString.encodeUtf8("Hi")).body();
+    assertBody(body, "4869");
+    assertThat(body.contentType()).isEqualTo(MediaType.get("text/plain; charset=utf-8"));
+  }
+
+  private static void assertBody(RequestBody body, String expected) throws IOException {
+    assertThat(body.contentLength()).isEqualTo(expected.length());
+    Buffer buffer = new Buffer();
+    body.writeTo(buffer);
+    assertThat(buffer.readUtf8()).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.helpers.ToStringConverterFactory;
+import retrofit2.http.Body;
+import retrofit2.http.Compress;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.POST;
+
+public final class CompressTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Compress(minSize = 16)
+    @POST("/")
+    Call<String> gzip(@Body String body);
+
+    @Compress(value = Compress.Encoding.DEFLATE, minSize = 16)
+    @POST("/")
+    Call<String> deflate(@Body String body);
+
+    @Compress(minSize = 16)
+    @POST("/")
+    Call<String> encoded(@Header("Content-Encoding") String encoding, @Body String body);
+  }
+
+  private final HistogramEventListener metrics = new HistogramEventListener();
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new ToStringConverterFactory())
+            .eventListener(metrics)
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void gzip() throws Exception {
+    server.enqueue(new MockResponse());
+    String body = repeat("Hello, World! ", 100);
+
+    service.gzip(body).execute();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+    assertThat(request.getHeader("Content-Type")).startsWith("text/plain");
+    assertThat(request.getBodySize()).isLessThan(body.length());
+    Buffer decompressed = new Buffer();
+    decompressed.writeAll(new GzipSource(request.getBody()));
+    assertThat(decompressed.readUtf8()).isEqualTo(body);
+  }
+
+  @Test
+  public void deflate() throws Exception {
+    server.enqueue(new MockResponse());
+    String body = repeat("Hello, World! ", 100);
+
+    service.deflate(body).execute();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isEqualTo("deflate");
+    Inflater inflater = new Inflater(); // zlib-wrapped, as HTTP's deflate requires.
+    String decompressed =
+        Okio.buffer(Okio.source(new InflaterInputStream(request.getBody().inputStream(), inflater)))
+            .readUtf8();
+    assertThat(decompressed).isEqualTo(body);
+  }
+
+  @Test
+  public void smallBodyIsNotCompressed() throws Exception {
+    server.enqueue(new MockResponse());
+
+    service.gzip("Hello").execute();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isNull();
+    assertThat(request.getBody().readUtf8()).isEqualTo("Hello");
+    assertThat(metrics.compressionRatio(Service.class.getMethod("gzip", String.class))).isNaN();
+  }
+
+  @Test
+  public void encodedBodyIsNotCompressedAgain() throws Exception {
+    server.enqueue(new MockResponse());
+    String body = repeat("Hello, World! ", 100);
+
+    service.encoded("identity", body).execute();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isEqualTo("identity");
+    assertThat(request.getBody().readUtf8()).isEqualTo(body);
+  }
+
+  @Test
+  public void compressionRatioIsRecorded() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+
+    service.gzip(repeat("Hello, World! ", 100)).execute();
+    service.gzip(repeat("Goodbye! ", 100)).execute();
+
+    long compressed = server.takeRequest().getBodySize() + server.takeRequest().getBodySize();
+    double ratio = metrics.compressionRatio(Service.class.getMethod("gzip", String.class));
+    assertThat(ratio).isEqualTo((double) compressed / (1400 + 900));
+  }
+
+  interface GetService {
+    @Compress
+    @GET("/")
+    Call<String> get();
+  }
+
+  @Test
+  public void compressWithoutBodyThrows() {
+    Retrofit retrofit = new Retrofit.Builder().baseUrl(server.url("/")).build();
+    try {
+      retrofit.create(GetService.class).get();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "@Compress can only be specified on HTTP methods with request body (e.g., @POST).\n"
+                  + "    for method GetService.get");
+    }
+  }
+
+  interface NegativeService {
+    @Compress(minSize = -1)
+    @POST("/")
+    Call<String> post(@Body String body);
+  }
+
+  @Test
+  public void negativeMinSizeThrows() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new ToStringConverterFactory())
+            .build();
+    try {
+      retrofit.create(NegativeService.class).post("Hi");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "@Compress minSize must not be negative. Found: -1\n"
+                  + "    for method NegativeService.post");
+    }
+  }
+
+  private static String repeat(String s, int count) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      result.append(s);
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import retrofit2.http.DownloadTo;
+import retrofit2.http.GET;
+
+public final class DownloadToTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  interface Service {
+    @GET("/")
+    Call<Path> path(@DownloadTo Path target);
+
+    @GET("/")
+    Call<File> file(@DownloadTo File target);
+  }
+
+  private Service service;
+
+  @Before
+  public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder().baseUrl(server.url("/")).build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void downloadToPath() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hello, World!"));
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+
+    Response<Path> response = service.path(target).execute();
+
+    assertThat(response.body()).isSameAs(target);
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, World!");
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Range")).isNull();
+    assertThat(request.getHeader("Accept-Encoding")).isEqualTo("identity");
+  }
+
+  @Test
+  public void downloadToFile() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hello, World!"));
+    File target = new File(temporaryFolder.getRoot(), "download");
+
+    Response<File> response = service.file(target).execute();
+
+    assertThat(response.body()).isSameAs(target);
+    assertThat(new String(Files.readAllBytes(target.toPath()), UTF_8)).isEqualTo("Hello, World!");
+  }
+
+  @Test
+  public void largeBodyIsStreamed() throws Exception {
+    Buffer body = new Buffer();
+    for (int i = 0; i < 100_000; i++) {
+      body.writeUtf8("0123456789");
+    }
+    long size = body.size();
+    server.enqueue(new MockResponse().setBody(body));
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+
+    service.path(target).execute();
+
+    assertThat(Files.size(target)).isEqualTo(size);
+  }
+
+  @Test
+  public void interruptedDownloadResumesWithRange() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    long partial = interruptDownload(target, "Hello, World!", "\"v1\"");
+    assertThat(Files.exists(target)).isFalse();
+
+    server.enqueue(
+        new MockResponse()
+            .setResponseCode(206)
+            .setHeader("Content-Range", "bytes " + partial + "-12/13")
+            .setBody("Hello, World!".substring((int) partial)));
+
+    Response<Path> response = service.path(target).execute();
+
+    assertThat(response.code()).isEqualTo(206);
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, World!");
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Range")).isEqualTo("bytes=" + partial + "-");
+    assertThat(request.getHeader("If-Range")).isEqualTo("\"v1\"");
+    assertThat(Files.exists(partial(target))).isFalse();
+    assertThat(Files.exists(validator(target))).isFalse();
+  }
+
+  @Test
+  public void resumeIsDecidedWhenCallExecutes() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    Call<Path> call = service.path(target);
+    // Building the request does not read the partial file, so it has no range yet.
+    assertThat(call.request().header("Range")).isNull();
+
+    long partial = interruptDownload(target, "Hello, World!", "\"v1\"");
+    server.enqueue(
+        new MockResponse()
+            .setResponseCode(206)
+            .setHeader("Content-Range", "bytes " + partial + "-12/13")
+            .setBody("Hello, World!".substring((int) partial)));
+
+    call.execute();
+
+    assertThat(server.takeRequest().getHeader("Range")).isEqualTo("bytes=" + partial + "-");
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, World!");
+  }
+
+  @Test
+  public void interruptedDownloadWithoutValidatorStartsOver() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    interruptDownload(target, "Hello, World!", null);
+    server.enqueue(new MockResponse().setBody("Hello, World!"));
+
+    service.path(target).execute();
+
+    assertThat(server.takeRequest().getHeader("Range")).isNull();
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, World!");
+  }
+
+  @Test
+  public void changedResourceReplacesPartial() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    long partial = interruptDownload(target, "Stale content which is longer", "\"v1\"");
+    // The If-Range validator no longer matches, so the server sends the whole resource.
+    server.enqueue(new MockResponse().setHeader("ETag", "\"v2\"").setBody("Hello, World!"));
+
+    service.path(target).execute();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Range")).isEqualTo("bytes=" + partial + "-");
+    assertThat(request.getHeader("If-Range")).isEqualTo("\"v1\"");
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, World!");
+  }
+
+  @Test
+  public void existingTargetIsDownloadedAgain() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    Files.write(target, "Hello, World!".getBytes(UTF_8));
+    server.enqueue(new MockResponse().setBody("Hello, Again!"));
+
+    service.path(target).execute();
+
+    assertThat(server.takeRequest().getHeader("Range")).isNull();
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, Again!");
+  }
+
+  @Test
+  public void unsatisfiableRangeOfCompletePartialSucceeds() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    Files.write(partial(target), "Hello, World!".getBytes(UTF_8));
+    mark(target, "\"v1\"", 13);
+    server.enqueue(
+        new MockResponse().setResponseCode(416).setHeader("Content-Range", "bytes */13"));
+
+    Response<Path> response = service.path(target).execute();
+
+    assertThat(response.isSuccessful()).isTrue();
+    assertThat(response.body()).isSameAs(target);
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, World!");
+    assertThat(server.takeRequest().getHeader("Range")).isEqualTo("bytes=13-");
+    assertThat(Files.exists(partial(target))).isFalse();
+  }
+
+  @Test
+  public void unsatisfiableRangeOfOtherLengthIsReturned() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    Files.write(partial(target), "Hello, World!".getBytes(UTF_8));
+    mark(target, "\"v1\"", 13);
+    server.enqueue(new MockResponse().setResponseCode(416).setHeader("Content-Range", "bytes */5"));
+
+    Response<Path> response = service.path(target).execute();
+
+    assertThat(response.code()).isEqualTo(416);
+    assertThat(Files.exists(target)).isFalse();
+    assertThat(Files.exists(validator(target))).isFalse(); // The partial file is not resumed.
+  }
+
+  @Test
+  public void bytesAfterRecordedLengthAreNotTrusted() throws Exception {
+    // A crash after writing bytes but before recording them leaves them unaccounted for.
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    Files.write(partial(target), "Hello\0\0\0\0\0\0\0\0".getBytes(UTF_8));
+    mark(target, "\"v1\"", 5);
+    server.enqueue(
+        new MockResponse().setResponseCode(416).setHeader("Content-Range", "bytes */13"));
+
+    Response<Path> response = service.path(target).execute();
+
+    assertThat(server.takeRequest().getHeader("Range")).isEqualTo("bytes=5-");
+    assertThat(response.code()).isEqualTo(416);
+    assertThat(Files.exists(target)).isFalse();
+  }
+
+  @Test
+  public void partialWithoutMarkerStartsOver() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    Files.write(partial(target), new byte[13]);
+    server.enqueue(new MockResponse().setBody("Hello, World!"));
+
+    service.path(target).execute();
+
+    assertThat(server.takeRequest().getHeader("Range")).isNull();
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("Hello, World!");
+  }
+
+  @Test
+  public void mismatchedContentRangeThrows() throws Exception {
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+    Files.write(partial(target), "Hello".getBytes(UTF_8));
+    mark(target, "\"v1\"", 5);
+    server.enqueue(
+        new MockResponse()
+            .setResponseCode(206)
+            .setHeader("Content-Range", "bytes 2-12/13")
+            .setBody("llo, World!"));
+
+    try {
+      service.path(target).execute();
+      fail();
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Expected a Content-Range starting at 5 but was bytes 2-12/13");
+    }
+    assertThat(new String(Files.readAllBytes(partial(target)), UTF_8)).isEqualTo("Hello");
+    assertThat(Files.exists(target)).isFalse();
+  }
+
+  @Test
+  public void errorResponseLeavesTargetUntouched() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Not found"));
+    Path target = temporaryFolder.getRoot().toPath().resolve("download");
+
+    Response<Path> response = service.path(target).execute();
+
+    assertThat(response.code()).isEqualTo(404);
+    assertThat(response.errorBody().string()).isEqualTo("Not found");
+    assertThat(Files.exists(target)).isFalse();
+  }
+
+  interface MismatchedService {
+    @GET("/")
+    Call<String> download(@DownloadTo Path target);
+  }
+
+  @Test
+  public void responseTypeMustMatchTarget() {
+    Retrofit retrofit = new Retrofit.Builder().baseUrl(server.url("/")).build();
+    try {
+      retrofit.create(MismatchedService.class).download(temporaryFolder.getRoot().toPath());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "@DownloadTo methods must use java.nio.file.Path as response type."
+                  + " Found: class java.lang.String\n"
+                  + "    for method MismatchedService.download");
+    }
+  }
+
+  interface StringTargetService {
+    @GET("/")
+    Call<String> download(@DownloadTo String target);
+  }
+
+  @Test
+  public void unsupportedTargetTypeThrows() {
+    Retrofit retrofit = new Retrofit.Builder().baseUrl(server.url("/")).build();
+    try {
+      retrofit.create(StringTargetService.class).download("target");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "@DownloadTo parameter type must be File or Path. (parameter #1)\n"
+                  + "    for method StringTargetService.download");
+    }
+  }
+
+  /** Starts downloading {@code body} and disconnects part way. Returns the bytes received. */
+  private long interruptDownload(Path target, String body, @Nullable String etag) throws Exception {
+    MockResponse response =
+        new MockResponse()
+            .setBody(body)
+            .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+    if (etag != null) {
+      response.setHeader("ETag", etag);
+    }
+    server.enqueue(response);
+    try {
+      service.path(target).execute();
+      fail();
+    } catch (IOException expected) {
+    }
+    server.takeRequest();
+    long partial = Files.size(partial(target));
+    assertThat(partial).isLessThan(body.length());
+    return partial;
+  }
+
+  private static Path partial(Path target) {
+    return target.resolveSibling(target.getFileName() + ".part");
+  }
+
+  /** Records that {@code length} bytes of the partial file of {@code validator} are on disk. */
+  private static void mark(Path target, String validator, long length) throws IOException {
+    Files.write(validator(target), (validator + "\n" + length + "\n").getBytes(UTF_8));
+  }
+
+  private static Path validator(Path target) {
+    return target.resolveSibling(target.getFileName() + ".validator");
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.helpers.ToStringConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+
+public final class ExecuteAllTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/")
+    Call<String> echo(@Query("i") int i);
+  }
+
+  private final AtomicInteger concurrent = new AtomicInteger();
+  private final AtomicInteger maxConcurrent = new AtomicInteger();
+  private Service service;
+
+  @Before
+  public void setUp() {
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+              String i = request.getRequestUrl().queryParameter("i");
+              Thread.sleep((Integer.parseInt(i) * 7) % 11); // Finish out of order.
+              if (i.equals("5")) {
+                return new MockResponse().setResponseCode(500).setBody("Nope");
+              }
+              if (i.equals("7")) {
+                return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+              }
+              return new MockResponse().setBody(i);
+            } finally {
+              concurrent.decrementAndGet();
+            }
+          }
+        });
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .client(new OkHttpClient.Builder().retryOnConnectionFailure(false).build())
+            .addConverterFactory(new ToStringConverterFactory())
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  private List<Call<String>> calls(int count) {
+    List<Call<String>> calls = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      calls.add(service.echo(i));
+    }
+    return calls;
+  }
+
+  @Test
+  public void responsesArriveInOrderWithBoundedConcurrency() {
+    Iterator<Response<String>> responses = Retrofit.executeAll(calls(5), 3);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(responses.next().body()).isEqualTo(String.valueOf(i));
+    }
+    assertThat(responses.hasNext()).isFalse();
+    assertThat(maxConcurrent.get()).isLessThanOrEqualTo(3);
+    assertThat(server.getRequestCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void continueDeliversFailuresInPlace() {
+    Iterator<Response<String>> responses =
+        Retrofit.executeAll(calls(10), 4, FailurePolicy.CONTINUE);
+
+    for (int i = 0; i < 10; i++) {
+      if (i == 7) {
+        try {
+          responses.next();
+          fail();
+        } catch (CallFailedException e) {
+          assertThat(e.index()).isEqualTo(7);
+          assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+      } else if (i == 5) {
+        assertThat(responses.next().code()).isEqualTo(500);
+      } else {
+        assertThat(responses.next().body()).isEqualTo(String.valueOf(i));
+      }
+    }
+    assertThat(responses.hasNext()).isFalse();
+  }
+
+  @Test
+  public void stopOnErrorResponseEndsAfterFailure() {
+    Iterator<Response<String>> responses =
+        Retrofit.executeAll(calls(1000), 2, FailurePolicy.STOP_ON_ERROR_RESPONSE);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(responses.next().body()).isEqualTo(String.valueOf(i));
+    }
+    try {
+      responses.next();
+      fail();
+    } catch (CallFailedException e) {
+      assertThat(e.index()).isEqualTo(5);
+      assertThat(e.getCause())
+          .isInstanceOf(HttpException.class)
+          .hasMessage("HTTP 500 Server Error");
+    }
+    assertThat(responses.hasNext()).isFalse();
+    try {
+      responses.next();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    assertThat(server.getRequestCount()).isLessThan(20);
+  }
+
+  @Test
+  public void stopOnFailureTreatsErrorResponsesAsResults() {
+    Iterator<Response<String>> responses = Retrofit.executeAll(calls(9), 2);
+
+    for (int i = 0; i < 7; i++) {
+      assertThat(responses.next().code()).isEqualTo(i == 5 ? 500 : 200);
+    }
+    try {
+      responses.next();
+      fail();
+    } catch (CallFailedException e) {
+      assertThat(e.index()).isEqualTo(7);
+    }
+    assertThat(responses.hasNext()).isFalse();
+  }
+
+  @Test
+  public void callsAreTakenLazily() {
+    final AtomicInteger created = new AtomicInteger();
+    Iterable<Call<String>> calls =
+        () ->
+            new Iterator<Call<String>>() {
+              @Override
+              public boolean hasNext() {
+                return true;
+              }
+
+              @Override
+              public Call<String> next() {
+                return service.echo(created.getAndIncrement() % 5);
+              }
+            };
+
+    Iterator<Response<String>> responses = Retrofit.executeAll(calls, 2);
+    for (int i = 0; i < 10; i++) {
+      responses.next();
+    }
+    assertThat(created.get()).isLessThanOrEqualTo(10 + 4);
+  }
+
+  @Test
+  public void maxConcurrencyMustBePositive() {
+    try {
+      Retrofit.executeAll(calls(1), 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("maxConcurrency < 1: 0");
+    }
+  }
+}
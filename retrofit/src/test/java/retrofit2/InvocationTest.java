@@ -90,4 +90,20 @@ public final class InvocationTest {
     } catch (UnsupportedOperationException expected) {
     }
   }
+
+  @Test
+  public void tags() {
+    Invocation invocation =
+        Invocation.of(Example.class.getDeclaredMethods()[0], Arrays.asList("one", "two"));
+    assertThat(invocation.tag(String.class)).isNull();
+
+    invocation.tag(String.class, "tag");
+    invocation.tag(Object.class, 42);
+    assertThat(invocation.tag(String.class)).isEqualTo("tag");
+    assertThat(invocation.tag(Object.class)).isEqualTo(42);
+
+    invocation.tag(String.class, null);
+    assertThat(invocation.tag(String.class)).isNull();
+    assertThat(invocation.tag(Object.class)).isEqualTo(42);
+  }
 }
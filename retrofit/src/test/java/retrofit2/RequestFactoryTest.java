@@ -22,7 +22,9 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.math.BigInteger;
 import java.net.URI;
 import java.util.Arrays;
@@ -2670,6 +2672,102 @@ public final class RequestFactoryTest {
     assertBody(request.body(), "foo=1&foo=2&foo=3&kit=kat");
   }
 
+  enum Size {
+    SMALL,
+    LARGE {
+      @Override
+      public String toString() {
+        return "big one";
+      }
+    }
+  }
+
+  @Test
+  public void scalarPathAndQueryParams() {
+    class Example {
+      @GET("/foo/{id}/") //
+      Call<ResponseBody> method(
+          @Path("id") long id,
+          @Query("page") int page,
+          @Query("all") Boolean all,
+          @Query("size") Size size,
+          @Query("missing") Integer missing) {
+        return null;
+      }
+    }
+    Request request = buildRequest(Example.class, -42L, 7, true, Size.LARGE, null);
+    assertThat(request.url().toString())
+        .isEqualTo("http://example.com/foo/-42/?page=7&all=true&size=big%20one");
+  }
+
+  @Test
+  public void scalarPathParamRequired() {
+    class Example {
+      @GET("/foo/{id}/") //
+      Call<ResponseBody> method(@Path("id") Long id) {
+        return null;
+      }
+    }
+    try {
+      buildRequest(Example.class, new Object[] {null});
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "Path parameter \"id\" value must not be null. (parameter #1)\n"
+                  + "    for method Example.method");
+    }
+  }
+
+  @Test
+  public void scalarArrayQueryAndFieldParams() {
+    class Example {
+      @FormUrlEncoded //
+      @POST("/foo") //
+      Call<ResponseBody> method(
+          @Query("id") long[] ids,
+          @Query("flag") boolean[] flags,
+          @Field("size") Size[] sizes,
+          @Field("count") Integer[] counts) {
+        return null;
+      }
+    }
+    Request request =
+        buildRequest(
+            Example.class,
+            new long[] {Long.MAX_VALUE, 0},
+            new boolean[] {false, true},
+            new Size[] {Size.SMALL, null, Size.LARGE},
+            new Integer[] {1, null, -2});
+    assertThat(request.url().toString())
+        .isEqualTo("http://example.com/foo?id=9223372036854775807&id=0&flag=false&flag=true");
+    assertBody(request.body(), "size=SMALL&size=big%20one&count=1&count=-2");
+  }
+
+  @Test
+  public void scalarParamsUseRegisteredStringConverter() {
+    class Example {
+      @GET("/foo/{id}/") //
+      Call<ResponseBody> method(@Path("id") int id, @Query("page") int[] pages) {
+        return null;
+      }
+    }
+    Retrofit.Builder retrofitBuilder =
+        new Retrofit.Builder()
+            .baseUrl("http://example.com/")
+            .addConverterFactory(
+                new Converter.Factory() {
+                  @Override
+                  public Converter<?, String> stringConverter(
+                      Type type, Annotation[] annotations, Retrofit retrofit) {
+                    return type == Integer.class || type == int.class ? value -> "#" + value : null;
+                  }
+                });
+    Request request = buildRequest(Example.class, retrofitBuilder, 1, new int[] {2, 3});
+    assertThat(request.url().toString())
+        .isEqualTo("http://example.com/foo/%231/?page=%232&page=%233");
+  }
+
   @Test
   public void formEncodedWithEncodedNameFieldParamMap() {
     class Example {
@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.helpers.ToStringConverterFactory;
+import retrofit2.http.Body;
+import retrofit2.http.Cacheable;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Query;
+
+public final class ResponseCacheTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Cacheable(ttl = 10, staleWhileRevalidate = 10)
+    @GET("/")
+    Call<String> cached(@Query("q") String q);
+
+    @GET("/")
+    Call<String> uncached();
+  }
+
+  private final FakeClock clock = new FakeClock();
+  private final AtomicInteger conversions = new AtomicInteger();
+  private ResponseCache cache;
+  private Service service;
+
+  @Before
+  public void setUp() {
+    cache = new ResponseCache(1024, clock);
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new CountingConverterFactory())
+            .responseCache(cache)
+            .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test
+  public void hitSkipsNetworkAndConverter() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Response<String> first = service.cached("a").execute();
+    Response<String> second = service.cached("a").execute();
+
+    assertThat(second.body()).isSameAs(first.body());
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(conversions.get()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.weight()).isEqualTo(2);
+  }
+
+  @Test
+  public void differentRequestsAreCachedSeparately() throws IOException {
+    server.enqueue(new MockResponse().setBody("A"));
+    server.enqueue(new MockResponse().setBody("B"));
+
+    assertThat(service.cached("a").execute().body()).isEqualTo("A");
+    assertThat(service.cached("b").execute().body()).isEqualTo("B");
+    assertThat(service.cached("a").execute().body()).isEqualTo("A");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void errorResponsesAreNotCached() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(500).setBody("Nope"));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    assertThat(service.cached("a").execute().isSuccessful()).isFalse();
+    assertThat(service.cached("a").execute().body()).isEqualTo("Hi");
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void noCacheControlBypassesLookup() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hello"));
+
+    service.cached("a").execute();
+    Response<String> response = service.cached("a").execute(CacheControl.FORCE_NETWORK);
+
+    assertThat(response.body()).isEqualTo("Hello");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(service.cached("a").execute().body()).isEqualTo("Hello");
+  }
+
+  @Test
+  public void staleEntryIsServedWhileRevalidating() throws Exception {
+    server.enqueue(new MockResponse().setBody("Old"));
+    server.enqueue(new MockResponse().setBody("New"));
+
+    assertThat(service.cached("a").execute().body()).isEqualTo("Old");
+    clock.nanos += SECONDS.toNanos(15);
+
+    assertThat(service.cached("a").execute().body()).isEqualTo("Old");
+    assertThat(cache.staleHitCount()).isEqualTo(1);
+
+    server.takeRequest();
+    server.takeRequest(); // Background revalidation.
+    long deadline = System.nanoTime() + SECONDS.toNanos(5);
+    String body;
+    do {
+      body = service.cached("a").execute().body();
+    } while (!"New".equals(body) && System.nanoTime() < deadline);
+    assertThat(body).isEqualTo("New");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void canceledCallDoesNotRevalidate() throws Exception {
+    server.enqueue(new MockResponse().setBody("Old"));
+
+    service.cached("a").execute();
+    clock.nanos += SECONDS.toNanos(15);
+
+    Call<String> call = service.cached("a");
+    call.cancel();
+    try {
+      call.execute();
+      fail();
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Canceled");
+    }
+    assertThat(cache.staleHitCount()).isEqualTo(0);
+
+    Thread.sleep(100);
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void canceledCallIsNotDeliveredCachedResponse() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    service.cached("a").execute();
+
+    Call<String> call = service.cached("a");
+    call.cancel();
+    CompletableFuture<Throwable> failure = new CompletableFuture<>();
+    call.enqueue(
+        new Callback<String>() {
+          @Override
+          public void onResponse(Call<String> call, Response<String> response) {
+            failure.completeExceptionally(new AssertionError("Cached response was delivered"));
+          }
+
+          @Override
+          public void onFailure(Call<String> call, Throwable t) {
+            failure.complete(t);
+          }
+        });
+
+    assertThat(failure.get(5, SECONDS)).hasMessage("Canceled");
+    assertThat(cache.hitCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void hitCallbackExceptionPropagates() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    service.cached("a").execute();
+
+    RuntimeException thrown = new RuntimeException("Broken");
+    try {
+      service
+          .cached("a")
+          .enqueue(
+              new Callback<String>() {
+                @Override
+                public void onResponse(Call<String> call, Response<String> response) {
+                  throw thrown;
+                }
+
+                @Override
+                public void onFailure(Call<String> call, Throwable t) {
+                  throw new AssertionError(t);
+                }
+              });
+      fail();
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(thrown);
+    }
+  }
+
+  @Test
+  public void expiredEntryIsRemoved() throws IOException {
+    server.enqueue(new MockResponse().setBody("Old"));
+    server.enqueue(new MockResponse().setBody("New"));
+
+    service.cached("a").execute();
+    clock.nanos += SECONDS.toNanos(25);
+
+    assertThat(service.cached("a").execute().body()).isEqualTo("New");
+    assertThat(cache.missCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void expiredEntryWithEtagIsRevalidated() throws Exception {
+    server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("Hi"));
+    server.enqueue(new MockResponse().setResponseCode(304).setHeader("X-Fresh", "yes"));
+
+    Response<String> first = service.cached("a").execute();
+    clock.nanos += SECONDS.toNanos(25);
+    Call<String> secondCall = service.cached("a");
+    Response<String> second = secondCall.execute();
+
+    assertThat(second.code()).isEqualTo(200);
+    assertThat(second.body()).isSameAs(first.body());
+    assertThat(second.headers().get("ETag")).isEqualTo("\"v1\"");
+    assertThat(second.headers().get("X-Fresh")).isEqualTo("yes");
+    assertThat(conversions.get()).isEqualTo(1);
+    assertThat(cache.notModifiedCount()).isEqualTo(1);
+
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isNull();
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"v1\"");
+    // The validators are only added to the request which is sent.
+    assertThat(secondCall.request().header("If-None-Match")).isNull();
+
+    // The confirmed entry is fresh again.
+    assertThat(service.cached("a").execute().body()).isSameAs(first.body());
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void expiredEntryWithLastModifiedIsRevalidatedAsync() throws Exception {
+    String lastModified = "Tue, 01 Sep 2020 00:00:00 GMT";
+    server.enqueue(new MockResponse().setHeader("Last-Modified", lastModified).setBody("Hi"));
+    server.enqueue(new MockResponse().setResponseCode(304));
+
+    Response<String> first = service.cached("a").execute();
+    clock.nanos += SECONDS.toNanos(25);
+
+    final CompletableFuture<Response<String>> future = new CompletableFuture<>();
+    service
+        .cached("a")
+        .enqueue(
+            new Callback<String>() {
+              @Override
+              public void onResponse(Call<String> call, Response<String> response) {
+                future.complete(response);
+              }
+
+              @Override
+              public void onFailure(Call<String> call, Throwable t) {
+                future.completeExceptionally(t);
+              }
+            });
+
+    assertThat(future.get(5, SECONDS).body()).isSameAs(first.body());
+    assertThat(conversions.get()).isEqualTo(1);
+    server.takeRequest();
+    assertThat(server.takeRequest().getHeader("If-Modified-Since")).isEqualTo(lastModified);
+  }
+
+  @Test
+  public void modifiedResponseReplacesEntry() throws Exception {
+    server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("Old"));
+    server.enqueue(new MockResponse().setHeader("ETag", "\"v2\"").setBody("New"));
+
+    service.cached("a").execute();
+    clock.nanos += SECONDS.toNanos(25);
+
+    assertThat(service.cached("a").execute().body()).isEqualTo("New");
+    assertThat(conversions.get()).isEqualTo(2);
+    assertThat(cache.notModifiedCount()).isEqualTo(0);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void staleRevalidationIsConditional() throws Exception {
+    server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("Hi"));
+    server.enqueue(new MockResponse().setResponseCode(304));
+
+    Response<String> first = service.cached("a").execute();
+    clock.nanos += SECONDS.toNanos(15);
+    service.cached("a").execute(); // Served stale, refreshed in the background.
+
+    server.takeRequest();
+    assertThat(server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"v1\"");
+    long deadline = System.nanoTime() + SECONDS.toNanos(5);
+    while (cache.notModifiedCount() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(cache.notModifiedCount()).isEqualTo(1);
+    assertThat(service.cached("a").execute().body()).isSameAs(first.body());
+    assertThat(cache.staleHitCount()).isEqualTo(1);
+    assertThat(conversions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void uncachedMethodIgnoresCache() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    service.uncached().execute();
+    service.uncached().execute();
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void segmentedLruKeepsReusedEntries() {
+    ResponseCache cache = new ResponseCache(10, clock);
+    Request hot = request("hot");
+    cache.put(METHOD, hot, Response.success("hot"), 4, Long.MAX_VALUE / 2, 0);
+    cache.get(METHOD, hot); // Promoted to the protected segment.
+
+    for (int i = 0; i < 5; i++) {
+      cache.put(METHOD, request("cold" + i), Response.success("cold"), 3, Long.MAX_VALUE / 2, 0);
+    }
+
+    assertThat(cache.get(METHOD, hot)).isNotNull();
+    assertThat(cache.weight()).isLessThanOrEqualTo(10);
+    assertThat(cache.evictionCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void oversizedEntryIsNotCached() {
+    ResponseCache cache = new ResponseCache(10, clock);
+    cache.put(METHOD, request("big"), Response.success("big"), 11, SECONDS.toNanos(1), 0);
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  interface BodyService {
+    @Cacheable(ttl = 1)
+    @POST("/")
+    Call<String> post(@Body String body);
+  }
+
+  @Test
+  public void cacheableWithBodyThrows() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new ToStringConverterFactory())
+            .build();
+    try {
+      retrofit.create(BodyService.class).post("Hi");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "@Cacheable can only be specified on HTTP methods without request body.\n"
+                  + "    for method BodyService.post");
+    }
+  }
+
+  private static final Method METHOD = Service.class.getDeclaredMethods()[0];
+
+  private Request request(String query) {
+    return new Request.Builder().url(server.url("/?q=" + query)).build();
+  }
+
+  static final class FakeClock implements ResponseCache.Clock {
+    long nanos;
+
+    @Override
+    public long nanoTime() {
+      return nanos;
+    }
+  }
+
+  final class CountingConverterFactory extends Converter.Factory {
+    @Override
+    public @Nullable Converter<ResponseBody, ?> responseBodyConverter(
+        Type type, Annotation[] annotations, Retrofit retrofit) {
+      return value -> {
+        conversions.incrementAndGet();
+        return value.string();
+      };
+    }
+  }
+}
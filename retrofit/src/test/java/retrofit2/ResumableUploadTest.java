@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import retrofit2.helpers.ToStringConverterFactory;
+import retrofit2.http.Body;
+import retrofit2.http.Compress;
+import retrofit2.http.POST;
+import retrofit2.http.Resumable;
+
+public final class ResumableUploadTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  interface Service {
+    @Resumable(chunkSize = 4)
+    @POST("/files")
+    Call<String> file(@Body File file);
+
+    @Resumable(chunkSize = 4)
+    @POST("/files")
+    Call<String> string(@Body String body);
+
+    @Resumable(chunkSize = 4)
+    @POST("/files")
+    Call<String> bytes(@Body ByteString body);
+
+    @Resumable(chunkSize = 2, parallelism = 3)
+    @POST("/files")
+    Call<String> parallel(@Body File file);
+  }
+
+  private File journal;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    journal = temporaryFolder.newFolder();
+    file = temporaryFolder.newFile();
+    Files.write(file.toPath(), "HelloWorld!".getBytes(UTF_8));
+  }
+
+  private Service service(UploadProtocol protocol) {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new ToStringConverterFactory())
+            .addCallAdapterFactory(ResumableUploadCallAdapterFactory.create(journal, protocol))
+            .build();
+    return retrofit.create(Service.class);
+  }
+
+  @Test
+  public void tusUploadsChunksInOrder() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setBody("Done"));
+
+    Response<String> response = service(UploadProtocol.TUS).file(file).execute();
+    assertThat(response.body()).isEqualTo("Done");
+
+    RecordedRequest create = server.takeRequest();
+    assertThat(create.getMethod()).isEqualTo("POST");
+    assertThat(create.getPath()).isEqualTo("/files");
+    assertThat(create.getHeader("Upload-Length")).isEqualTo("11");
+    assertThat(create.getHeader("Tus-Resumable")).isEqualTo("1.0.0");
+    assertThat(create.getBodySize()).isEqualTo(0);
+
+    assertChunk(server.takeRequest(), 0, "Hell");
+    assertChunk(server.takeRequest(), 4, "oWor");
+    assertChunk(server.takeRequest(), 8, "ld!");
+    assertThat(journal.list()).isEmpty();
+  }
+
+  @Test
+  public void failedUploadResumesFromServerOffset() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(503).setBody("Busy"));
+
+    Service service = service(UploadProtocol.TUS);
+    Response<String> failed = service.file(file).execute();
+    assertThat(failed.code()).isEqualTo(503);
+    assertThat(failed.errorBody().string()).isEqualTo("Busy");
+    assertThat(journal.list()).hasSize(1);
+    server.takeRequest();
+    server.takeRequest();
+    server.takeRequest();
+
+    server.enqueue(new MockResponse().setHeader("Upload-Offset", "4"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    // A new service instance reads the same journal, as after a process restart.
+    Response<String> resumed = service(UploadProtocol.TUS).file(file).execute();
+    assertThat(resumed.isSuccessful()).isTrue();
+
+    RecordedRequest head = server.takeRequest();
+    assertThat(head.getMethod()).isEqualTo("HEAD");
+    assertThat(head.getPath()).isEqualTo("/files/1");
+    assertChunk(server.takeRequest(), 4, "oWor");
+    assertChunk(server.takeRequest(), 8, "ld!");
+    assertThat(journal.list()).isEmpty();
+  }
+
+  @Test
+  public void unknownUploadStartsOver() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    service(UploadProtocol.TUS).file(file).execute();
+    server.takeRequest();
+    server.takeRequest();
+
+    server.enqueue(new MockResponse().setResponseCode(404));
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/2"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    assertThat(service(UploadProtocol.TUS).file(file).execute().isSuccessful()).isTrue();
+    assertThat(server.takeRequest().getMethod()).isEqualTo("HEAD");
+    assertThat(server.takeRequest().getMethod()).isEqualTo("POST");
+    RecordedRequest chunk = server.takeRequest();
+    assertThat(chunk.getPath()).isEqualTo("/files/2");
+    assertChunk(chunk, 0, "Hell");
+  }
+
+  @Test
+  public void differentContentOfSameLengthStartsOver() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    Service service = service(UploadProtocol.TUS);
+    service.bytes(ByteString.encodeUtf8("HelloWorld!")).execute();
+    assertThat(journal.list()).hasSize(1);
+    server.takeRequest();
+    server.takeRequest();
+
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/2"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    assertThat(service.bytes(ByteString.encodeUtf8("HelloThere!")).execute().isSuccessful())
+        .isTrue();
+    assertThat(server.takeRequest().getMethod()).isEqualTo("POST");
+    RecordedRequest chunk = server.takeRequest();
+    assertThat(chunk.getPath()).isEqualTo("/files/2");
+    assertChunk(chunk, 0, "Hell");
+    // The record of the first upload is kept for when it is retried.
+    assertThat(journal.list()).hasSize(1);
+  }
+
+  @Test
+  public void singleChunkIsNotJournaled() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    Response<String> response =
+        service(UploadProtocol.TUS).bytes(ByteString.encodeUtf8("Hell")).execute();
+    assertThat(response.code()).isEqualTo(503);
+    assertThat(server.takeRequest().getMethod()).isEqualTo("POST");
+    assertChunk(server.takeRequest(), 0, "Hell");
+    assertThat(journal.list()).isEmpty();
+  }
+
+  @Test
+  public void journalWritesLeaveOnlyTheRecord() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    service(UploadProtocol.TUS).file(file).execute();
+    String[] names = journal.list();
+    assertThat(names).hasSize(1);
+    assertThat(names[0]).endsWith(".upload");
+  }
+
+  @Test
+  public void bodyWithoutIdentityIsNotJournaled() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    Service service = service(UploadProtocol.TUS);
+    assertThat(service.string("HelloWorld!").execute().code()).isEqualTo(503);
+    assertThat(journal.list()).isEmpty();
+    server.takeRequest();
+    server.takeRequest();
+
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/2"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    assertThat(service.string("HelloThere!").execute().isSuccessful()).isTrue();
+    assertThat(server.takeRequest().getMethod()).isEqualTo("POST");
+    assertChunk(server.takeRequest(), 0, "Hell");
+  }
+
+  @Test
+  public void rejectedCreateIsReturned() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(413).setBody("Too big"));
+
+    Response<String> response = service(UploadProtocol.TUS).file(file).execute();
+    assertThat(response.code()).isEqualTo(413);
+    assertThat(response.errorBody().string()).isEqualTo("Too big");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(journal.list()).isEmpty();
+  }
+
+  @Test
+  public void convertedBodyIsSliced() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+    server.enqueue(new MockResponse().setResponseCode(204));
+
+    service(UploadProtocol.TUS).string("HelloWorld!").execute();
+
+    assertThat(server.takeRequest().getHeader("Upload-Length")).isEqualTo("11");
+    assertChunk(server.takeRequest(), 0, "Hell");
+    assertChunk(server.takeRequest(), 4, "oWor");
+    assertChunk(server.takeRequest(), 8, "ld!");
+  }
+
+  @Test
+  public void parallelProtocolSendsFinalChunkLast() throws Exception {
+    Map<Long, String> chunks = new ConcurrentHashMap<>();
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            if (request.getMethod().equals("POST")) {
+              return new MockResponse().setResponseCode(201).setHeader("Location", "/files/1");
+            }
+            long offset = Long.parseLong(request.getHeader("Upload-Offset"));
+            chunks.put(offset, request.getBody().readUtf8());
+            if (offset == 10) {
+              return new MockResponse().setBody(String.valueOf(chunks.size()));
+            }
+            return new MockResponse().setResponseCode(204);
+          }
+        });
+
+    Response<String> response = service(new ParallelProtocol()).parallel(file).execute();
+
+    // All five earlier chunks were confirmed before the final one was sent.
+    assertThat(response.body()).isEqualTo("6");
+    assertThat(chunks)
+        .containsEntry(0L, "He")
+        .containsEntry(2L, "ll")
+        .containsEntry(4L, "oW")
+        .containsEntry(6L, "or")
+        .containsEntry(8L, "ld")
+        .containsEntry(10L, "!");
+  }
+
+  @Test
+  public void callIsSingleUse() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(413));
+
+    Call<String> call = service(UploadProtocol.TUS).file(file);
+    call.execute();
+    try {
+      call.execute();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Already executed.");
+    }
+  }
+
+  interface InvalidService {
+    @Resumable(chunkSize = 0)
+    @POST("/files")
+    Call<String> file(@Body File file);
+
+    @Resumable
+    @Compress
+    @POST("/files")
+    Call<String> compressed(@Body File file);
+  }
+
+  @Test
+  public void nonPositiveChunkSizeThrows() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addCallAdapterFactory(ResumableUploadCallAdapterFactory.create(journal))
+            .build();
+    try {
+      retrofit.create(InvalidService.class).file(file);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "Unable to create call adapter for retrofit2.Call<java.lang.String>\n"
+                  + "    for method InvalidService.file");
+      assertThat(e.getCause()).hasMessage("@Resumable chunkSize must be positive. Found: 0");
+    }
+  }
+
+  @Test
+  public void compressedMethodThrows() {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addCallAdapterFactory(ResumableUploadCallAdapterFactory.create(journal))
+            .build();
+    try {
+      retrofit.create(InvalidService.class).compressed(file);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "Unable to create call adapter for retrofit2.Call<java.lang.String>\n"
+                  + "    for method InvalidService.compressed");
+      assertThat(e.getCause()).hasMessage("@Resumable methods cannot be @Compress.");
+    }
+  }
+
+  private static void assertChunk(RecordedRequest request, long offset, String body) {
+    assertThat(request.getMethod()).isEqualTo("PATCH");
+    assertThat(request.getHeader("Upload-Offset")).isEqualTo(String.valueOf(offset));
+    assertThat(request.getHeader("Content-Type")).isEqualTo("application/offset+octet-stream");
+    assertThat(request.getBody().readUtf8()).isEqualTo(body);
+  }
+
+  /** Tus requests, except that chunks may arrive in any order and offsets are never queried. */
+  static final class ParallelProtocol implements UploadProtocol {
+    @Override
+    public Request createRequest(Request request, long length) {
+      return TUS.createRequest(request, length);
+    }
+
+    @Override
+    public HttpUrl location(okhttp3.Response response) throws IOException {
+      return TUS.location(response);
+    }
+
+    @Override
+    public @Nullable Request offsetRequest(Request request, HttpUrl location) {
+      return null;
+    }
+
+    @Override
+    public long offset(okhttp3.Response response) {
+      throw new AssertionError();
+    }
+
+    @Override
+    public Request chunkRequest(
+        Request request, HttpUrl location, long offset, long length, RequestBody chunk) {
+      return TUS.chunkRequest(request, location, offset, length, chunk);
+    }
+
+    @Override
+    public boolean acceptsParallelChunks() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.HistogramEventListener.Phase;
+import retrofit2.helpers.ToStringConverterFactory;
+import retrofit2.http.Cacheable;
+import retrofit2.http.GET;
+
+public final class RetrofitEventListenerTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/")
+    Call<String> get();
+
+    @Cacheable(ttl = 10, staleWhileRevalidate = 10)
+    @GET("/")
+    Call<String> cached();
+  }
+
+  static final class RecordingEventListener extends RetrofitEventListener {
+    final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void serviceMethodParsed(Method method, long startNanos, long endNanos) {
+      assertThat(endNanos).isGreaterThanOrEqualTo(startNanos);
+      events.add("serviceMethodParsed " + method.getName());
+    }
+
+    @Override
+    public void requestBuilt(Invocation invocation, long startNanos, long endNanos) {
+      assertThat(endNanos).isGreaterThanOrEqualTo(startNanos);
+      events.add("requestBuilt " + invocation.method().getName());
+    }
+
+    @Override
+    public void callStarted(Invocation invocation, long startNanos) {
+      events.add("callStarted");
+    }
+
+    @Override
+    public void responseReceived(Invocation invocation, long callStartNanos, long receivedNanos) {
+      assertThat(receivedNanos).isGreaterThanOrEqualTo(callStartNanos);
+      events.add("responseReceived");
+    }
+
+    @Override
+    public void bodyConverted(Invocation invocation, long startNanos, long endNanos) {
+      events.add("bodyConverted");
+    }
+
+    @Override
+    public void callbackDispatched(
+        Invocation invocation, long callStartNanos, long dispatchedNanos) {
+      events.add("callbackDispatched");
+    }
+
+    @Override
+    public void callFailed(
+        Invocation invocation, Throwable failure, long callStartNanos, long failedNanos) {
+      events.add("callFailed " + failure.getClass().getSimpleName());
+    }
+  }
+
+  private Service service(RetrofitEventListener listener) {
+    return new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .client(new OkHttpClient.Builder().retryOnConnectionFailure(false).build())
+        .addConverterFactory(new ToStringConverterFactory())
+        .eventListener(listener)
+        .build()
+        .create(Service.class);
+  }
+
+  @Test
+  public void executeEvents() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    RecordingEventListener listener = new RecordingEventListener();
+
+    service(listener).get().execute();
+
+    assertThat(listener.events)
+        .containsExactly(
+            "serviceMethodParsed get",
+            "requestBuilt get",
+            "callStarted",
+            "responseReceived",
+            "bodyConverted");
+  }
+
+  @Test
+  public void requestBuiltIsReportedWhenCallStarts() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    RecordingEventListener listener = new RecordingEventListener();
+    Service service = service(listener);
+
+    Call<String> call = service.get();
+    call.request();
+    service.get().request(); // Never started.
+    assertThat(listener.events).containsExactly("serviceMethodParsed get");
+
+    call.execute();
+    assertThat(listener.events)
+        .containsExactly(
+            "serviceMethodParsed get",
+            "requestBuilt get",
+            "callStarted",
+            "responseReceived",
+            "bodyConverted");
+  }
+
+  @Test
+  public void enqueueEvents() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    RecordingEventListener listener = new RecordingEventListener();
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    service(listener)
+        .get()
+        .enqueue(
+            new Callback<String>() {
+              @Override
+              public void onResponse(Call<String> call, Response<String> response) {
+                latch.countDown();
+              }
+
+              @Override
+              public void onFailure(Call<String> call, Throwable t) {}
+            });
+
+    assertThat(latch.await(5, SECONDS)).isTrue();
+    long deadline = System.nanoTime() + SECONDS.toNanos(5);
+    while (listener.events.size() < 6 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(listener.events)
+        .containsExactly(
+            "serviceMethodParsed get",
+            "requestBuilt get",
+            "callStarted",
+            "responseReceived",
+            "bodyConverted",
+            "callbackDispatched");
+  }
+
+  @Test
+  public void failureEvents() {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+    RecordingEventListener listener = new RecordingEventListener();
+
+    try {
+      service(listener).get().execute();
+      fail();
+    } catch (IOException expected) {
+    }
+
+    assertThat(listener.events)
+        .containsExactly(
+            "serviceMethodParsed get", "requestBuilt get", "callStarted", "callFailed IOException");
+  }
+
+  @Test
+  public void backgroundRevalidationIsNotReported() throws Exception {
+    server.enqueue(new MockResponse().setBody("Old"));
+    server.enqueue(new MockResponse().setBody("New"));
+    RecordingEventListener listener = new RecordingEventListener();
+    ResponseCacheTest.FakeClock clock = new ResponseCacheTest.FakeClock();
+    ResponseCache cache = new ResponseCache(1024, clock);
+    Service service =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new ToStringConverterFactory())
+            .responseCache(cache)
+            .eventListener(listener)
+            .build()
+            .create(Service.class);
+
+    service.cached().execute();
+    clock.nanos += SECONDS.toNanos(15);
+    assertThat(service.cached().execute().body()).isEqualTo("Old");
+
+    server.takeRequest();
+    server.takeRequest(); // Background revalidation.
+    long deadline = System.nanoTime() + SECONDS.toNanos(5);
+    String body;
+    do {
+      body = service.cached().execute().body();
+    } while (!"New".equals(body) && System.nanoTime() < deadline);
+    assertThat(body).isEqualTo("New");
+    assertThat(listener.events).containsOnlyOnce("bodyConverted");
+  }
+
+  @Test
+  public void histogramListenerRecordsPerMethod() throws Exception {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hi"));
+    HistogramEventListener listener = new HistogramEventListener();
+    Service service = service(listener);
+
+    service.get().execute();
+    service.get().execute();
+
+    Method method = Service.class.getMethod("get");
+    assertThat(listener.methods()).containsExactly(method);
+    assertThat(listener.histogram(method, Phase.PARSE).count()).isEqualTo(1);
+    assertThat(listener.histogram(method, Phase.REQUEST_BUILD).count()).isEqualTo(2);
+    assertThat(listener.histogram(method, Phase.RESPONSE).count()).isEqualTo(2);
+    assertThat(listener.histogram(method, Phase.CONVERSION).count()).isEqualTo(2);
+    assertThat(listener.histogram(method, Phase.CALLBACK)).isNull();
+    assertThat(listener.histograms(method)).doesNotContainKey(Phase.FAILURE);
+  }
+
+  @Test
+  public void latencyHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    assertThat(histogram.count()).isEqualTo(1000);
+    assertThat(histogram.max()).isEqualTo(1_000_000L);
+    assertThat(histogram.mean()).isEqualTo(500_500.0);
+    assertThat(histogram.valueAtPercentile(50.0)).isBetween(500_000L, 500_000L * 103 / 100);
+    assertThat(histogram.valueAtPercentile(99.0)).isBetween(990_000L, 990_000L * 103 / 100);
+    assertThat(histogram.valueAtPercentile(100.0)).isEqualTo(1_000_000L);
+  }
+
+  @Test
+  public void latencyHistogramBucketsCoverAllValues() {
+    long[] values = {0, 1, 63, 64, 65, 1023, 1024, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+    for (long value : values) {
+      int bucket = LatencyHistogram.bucket(value);
+      assertThat(LatencyHistogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+      if (bucket > 0) {
+        assertThat(LatencyHistogram.highestValueOf(bucket - 1)).isLessThan(value);
+      }
+    }
+  }
+}
@@ -46,6 +46,7 @@ import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import okhttp3.mockwebserver.MockResponse;
@@ -441,6 +442,35 @@ public final class RetrofitTest {
     assertThat(example.get()).isEqualTo("Hi!");
   }
 
+  @Test
+  public void responseParserConvertsLikeCalls() throws Exception {
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(new ToStringConverterFactory())
+            .build();
+    Converter<okhttp3.Response, Response<String>> parser =
+        retrofit.responseParser(CallMethod.class.getMethod("disallowed"));
+    okhttp3.Request request = new okhttp3.Request.Builder().url(server.url("/")).build();
+
+    Response<String> success = parser.convert(rawResponse(request, 200, "Hi"));
+    assertThat(success.body()).isEqualTo("Hi");
+    Response<String> error = parser.convert(rawResponse(request, 404, "Nope"));
+    assertThat(error.code()).isEqualTo(404);
+    assertThat(error.errorBody().string()).isEqualTo("Nope");
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
+  private static okhttp3.Response rawResponse(okhttp3.Request request, int code, String body) {
+    return new okhttp3.Response.Builder()
+        .request(request)
+        .protocol(Protocol.HTTP_1_1)
+        .code(code)
+        .message("Message")
+        .body(ResponseBody.create(MediaType.get("text/plain"), body))
+        .build();
+  }
+
   @Test
   public void methodAnnotationsPassedToCallAdapter() {
     final AtomicReference<Annotation[]> annotationsRef = new AtomicReference<>();
@@ -475,13 +505,11 @@ public final class RetrofitTest {
     } catch (IllegalArgumentException e) {
       assertThat(e)
           .hasMessage(
-              ""
-                  + "Unable to create call adapter for java.util.concurrent.Future<java.lang.String>\n"
+              "Unable to create call adapter for java.util.concurrent.Future<java.lang.String>\n"
                   + "    for method FutureMethod.method");
       assertThat(e.getCause())
           .hasMessage(
-              ""
-                  + "Could not locate call adapter for java.util.concurrent.Future<java.lang.String>.\n"
+              "Could not locate call adapter for java.util.concurrent.Future<java.lang.String>.\n"
                   + "  Tried:\n"
                   + "   * retrofit2.CompletableFutureCallAdapterFactory\n"
                   + "   * retrofit2.DefaultCallAdapterFactory");
@@ -628,7 +656,8 @@ public final class RetrofitTest {
                   + "Could not locate RequestBody converter for class java.lang.String.\n"
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
   }
 
@@ -654,7 +683,8 @@ public final class RetrofitTest {
                   + "Could not locate ResponseBody converter for class java.lang.String.\n"
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
   }
 
@@ -733,8 +763,8 @@ public final class RetrofitTest {
     } catch (IllegalArgumentException e) {
       assertThat(e)
           .hasMessage(
-              "Method return type must not include a type variable or wildcard: "
-                  + "retrofit2.Call<T>\n    for method UnresolvableResponseType.typeVariableUpperBound");
+              "Method return type must not include a type variable or wildcard: retrofit2.Call<T>\n"
+                  + "    for method UnresolvableResponseType.typeVariableUpperBound");
     }
     try {
       example.crazy();
@@ -742,8 +772,9 @@ public final class RetrofitTest {
     } catch (IllegalArgumentException e) {
       assertThat(e)
           .hasMessage(
-              "Method return type must not include a type variable or wildcard: "
-                  + "retrofit2.Call<java.util.List<java.util.Map<java.lang.String, java.util.Set<T[]>>>>\n"
+              "Method return type must not include a type variable or wildcard:"
+                  + " retrofit2.Call<java.util.List<java.util.Map<java.lang.String,"
+                  + " java.util.Set<T[]>>>>\n"
                   + "    for method UnresolvableResponseType.crazy");
     }
     try {
@@ -791,8 +822,8 @@ public final class RetrofitTest {
     } catch (IllegalArgumentException e) {
       assertThat(e)
           .hasMessage(
-              "Parameter type must not include a type variable or wildcard: "
-                  + "T (parameter #1)\n    for method UnresolvableParameterType.typeVariableUpperBound");
+              "Parameter type must not include a type variable or wildcard: T (parameter #1)\n"
+                  + "    for method UnresolvableParameterType.typeVariableUpperBound");
     }
     try {
       example.crazy(null);
@@ -800,8 +831,9 @@ public final class RetrofitTest {
     } catch (IllegalArgumentException e) {
       assertThat(e)
           .hasMessage(
-              "Parameter type must not include a type variable or wildcard: "
-                  + "java.util.List<java.util.Map<java.lang.String, java.util.Set<T[]>>> (parameter #1)\n"
+              "Parameter type must not include a type variable or wildcard:"
+                  + " java.util.List<java.util.Map<java.lang.String, java.util.Set<T[]>>>"
+                  + " (parameter #1)\n"
                   + "    for method UnresolvableParameterType.crazy");
     }
     try {
@@ -810,8 +842,9 @@ public final class RetrofitTest {
     } catch (IllegalArgumentException e) {
       assertThat(e)
           .hasMessage(
-              "Parameter type must not include a type variable or wildcard: "
-                  + "java.util.List<?> (parameter #1)\n    for method UnresolvableParameterType.wildcard");
+              "Parameter type must not include a type variable or wildcard: java.util.List<?>"
+                  + " (parameter #1)\n"
+                  + "    for method UnresolvableParameterType.wildcard");
     }
     try {
       example.wildcardUpperBound(null);
@@ -1005,7 +1038,7 @@ public final class RetrofitTest {
   public void converterFactoryDefault() {
     Retrofit retrofit = new Retrofit.Builder().baseUrl("http://example.com/").build();
     List<Converter.Factory> converterFactories = retrofit.converterFactories();
-    assertThat(converterFactories).hasSize(2);
+    assertThat(converterFactories).hasSize(3);
     assertThat(converterFactories.get(0)).isInstanceOf(BuiltInConverters.class);
   }
 
@@ -1087,7 +1120,8 @@ public final class RetrofitTest {
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
                   + "   * retrofit2.helpers.NonMatchingConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
 
     assertThat(nonMatchingFactory.called).isTrue();
@@ -1121,7 +1155,8 @@ public final class RetrofitTest {
                   + "   * retrofit2.helpers.NonMatchingConverterFactory\n"
                   + "  Tried:\n"
                   + "   * retrofit2.helpers.NonMatchingConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
 
     assertThat(nonMatchingFactory1.called).isFalse();
@@ -1180,7 +1215,8 @@ public final class RetrofitTest {
                   + "  Tried:\n"
                   + "   * retrofit2.BuiltInConverters\n"
                   + "   * retrofit2.helpers.NonMatchingConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
 
     assertThat(nonMatchingFactory.called).isTrue();
@@ -1214,7 +1250,8 @@ public final class RetrofitTest {
                   + "   * retrofit2.helpers.NonMatchingConverterFactory\n"
                   + "  Tried:\n"
                   + "   * retrofit2.helpers.NonMatchingConverterFactory\n"
-                  + "   * retrofit2.OptionalConverterFactory");
+                  + "   * retrofit2.OptionalConverterFactory\n"
+                  + "   * retrofit2.RawBodyConverterFactory");
     }
 
     assertThat(nonMatchingFactory1.called).isFalse();
@@ -1249,6 +1286,131 @@ public final class RetrofitTest {
     assertThat(actualConverter).isSameAs(expectedConverter);
   }
 
+  @Test
+  public void cacheableConverterFactoryQueriedOncePerTypeAndAnnotations() throws Exception {
+    CountingConverterFactory factory = new CountingConverterFactory(true);
+    Retrofit retrofit =
+        new Retrofit.Builder().baseUrl("http://example.com/").addConverterFactory(factory).build();
+    Annotation[] annotations = new Annotation[0];
+
+    Converter<?, RequestBody> requestBody1 =
+        retrofit.requestBodyConverter(String.class, annotations, annotations);
+    Converter<?, RequestBody> requestBody2 =
+        retrofit.requestBodyConverter(String.class, new Annotation[0], new Annotation[0]);
+    assertThat(requestBody2).isSameAs(requestBody1);
+    assertThat(factory.requestBodyCalls).isEqualTo(1);
+
+    Converter<ResponseBody, ?> responseBody1 =
+        retrofit.responseBodyConverter(String.class, annotations);
+    Converter<ResponseBody, ?> responseBody2 =
+        retrofit.responseBodyConverter(String.class, new Annotation[0]);
+    assertThat(responseBody2).isSameAs(responseBody1);
+    assertThat(factory.responseBodyCalls).isEqualTo(1);
+
+    Converter<?, String> string1 = retrofit.stringConverter(String.class, annotations);
+    Converter<?, String> string2 = retrofit.stringConverter(String.class, new Annotation[0]);
+    assertThat(string2).isSameAs(string1);
+    assertThat(factory.stringCalls).isEqualTo(1);
+
+    retrofit.responseBodyConverter(Object.class, annotations);
+    assertThat(factory.responseBodyCalls).isEqualTo(2);
+    Annotation[] fooAnnotations = Annotated.class.getMethod("method").getAnnotations();
+    retrofit.responseBodyConverter(String.class, fooAnnotations);
+    assertThat(factory.responseBodyCalls).isEqualTo(3);
+    retrofit.responseBodyConverter(
+        String.class, Annotated.class.getMethod("method").getAnnotations());
+    assertThat(factory.responseBodyCalls).isEqualTo(3);
+  }
+
+  @Test
+  public void nonCacheableConverterFactoryQueriedEveryTime() {
+    CountingConverterFactory factory = new CountingConverterFactory(false);
+    Retrofit retrofit =
+        new Retrofit.Builder().baseUrl("http://example.com/").addConverterFactory(factory).build();
+    Annotation[] annotations = new Annotation[0];
+
+    retrofit.requestBodyConverter(String.class, annotations, annotations);
+    retrofit.requestBodyConverter(String.class, annotations, annotations);
+    assertThat(factory.requestBodyCalls).isEqualTo(2);
+    retrofit.responseBodyConverter(String.class, annotations);
+    retrofit.responseBodyConverter(String.class, annotations);
+    assertThat(factory.responseBodyCalls).isEqualTo(2);
+    retrofit.stringConverter(String.class, annotations);
+    retrofit.stringConverter(String.class, annotations);
+    assertThat(factory.stringCalls).isEqualTo(2);
+  }
+
+  @Test
+  public void nonCacheableConverterFactoryBeforeMatchDisablesCaching() {
+    CountingConverterFactory nonMatching =
+        new CountingConverterFactory(false) {
+          @Override
+          public Converter<ResponseBody, ?> responseBodyConverter(
+              Type type, Annotation[] annotations, Retrofit retrofit) {
+            super.responseBodyConverter(type, annotations, retrofit);
+            return null;
+          }
+        };
+    CountingConverterFactory cacheable = new CountingConverterFactory(true);
+    Retrofit retrofit =
+        new Retrofit.Builder()
+            .baseUrl("http://example.com/")
+            .addConverterFactory(nonMatching)
+            .addConverterFactory(cacheable)
+            .build();
+    Annotation[] annotations = new Annotation[0];
+
+    retrofit.responseBodyConverter(String.class, annotations);
+    retrofit.responseBodyConverter(String.class, annotations);
+    assertThat(nonMatching.responseBodyCalls).isEqualTo(2);
+    assertThat(cacheable.responseBodyCalls).isEqualTo(2);
+
+    // Skipping past the non-cacheable factory only consults cacheable ones.
+    retrofit.nextResponseBodyConverter(nonMatching, String.class, annotations);
+    retrofit.nextResponseBodyConverter(nonMatching, String.class, annotations);
+    assertThat(cacheable.responseBodyCalls).isEqualTo(3);
+  }
+
+  static class CountingConverterFactory extends Converter.Factory {
+    private final boolean cacheable;
+    int requestBodyCalls;
+    int responseBodyCalls;
+    int stringCalls;
+
+    CountingConverterFactory(boolean cacheable) {
+      this.cacheable = cacheable;
+    }
+
+    @Override
+    public boolean isCacheable() {
+      return cacheable;
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(
+        Type type,
+        Annotation[] parameterAnnotations,
+        Annotation[] methodAnnotations,
+        Retrofit retrofit) {
+      requestBodyCalls++;
+      return value -> RequestBody.create(null, value.toString());
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(
+        Type type, Annotation[] annotations, Retrofit retrofit) {
+      responseBodyCalls++;
+      return ResponseBody::string;
+    }
+
+    @Override
+    public Converter<?, String> stringConverter(
+        Type type, Annotation[] annotations, Retrofit retrofit) {
+      stringCalls++;
+      return Object::toString;
+    }
+  }
+
   @Test
   public void converterFactoryPropagated() {
     Converter.Factory factory = new Converter.Factory() {};
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2020 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import retrofit2.http.DownloadTo;
+import retrofit2.http.GET;
+import retrofit2.http.Segmented;
+
+public final class SegmentedDownloadTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  interface Service {
+    @Segmented(value = 4, minSegmentSize = 1000)
+    @GET("/")
+    Call<Path> download(@DownloadTo Path target);
+  }
+
+  private final ByteString content = content(10_000);
+  private final RangeDispatcher dispatcher = new RangeDispatcher();
+  private Service service;
+  private Path target;
+
+  @Before
+  public void setUp() {
+    server.setDispatcher(dispatcher);
+    Retrofit retrofit = new Retrofit.Builder().baseUrl(server.url("/")).build();
+    service = retrofit.create(Service.class);
+    target = temporaryFolder.getRoot().toPath().resolve("download");
+  }
+
+  @Test
+  public void rangesAreFetchedConcurrently() throws Exception {
+    Response<Path> response = service.download(target).execute();
+
+    assertThat(response.body()).isSameAs(target);
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    assertThat(Files.exists(partial())).isFalse();
+    assertThat(dispatcher.ranges)
+        .containsExactlyInAnyOrder(
+            "bytes=0-2499", "bytes=2500-4999", "bytes=5000-7499", "bytes=7500-9999");
+    assertThat(dispatcher.ifRange).containsOnly("\"v1\"");
+  }
+
+  @Test
+  public void smallResourceUsesFewerRanges() throws Exception {
+    dispatcher.content = content(2_500);
+
+    service.download(target).execute();
+
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(dispatcher.content);
+    assertThat(dispatcher.ranges).containsExactlyInAnyOrder("bytes=0-1249", "bytes=1250-2499");
+  }
+
+  @Test
+  public void failedRangeIsRetriedFromItsLastByte() throws Exception {
+    dispatcher.failFirstAttemptOf = "bytes=5000-7499";
+
+    service.download(target).execute();
+
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    String retry = null;
+    for (String range : dispatcher.ranges) {
+      if (range.startsWith("bytes=")
+          && range.endsWith("-7499")
+          && !range.equals("bytes=5000-7499")) {
+        retry = range;
+      }
+    }
+    assertThat(retry).isNotNull();
+    long retryStart = Long.parseLong(retry.substring("bytes=".length(), retry.indexOf('-')));
+    assertThat(retryStart).isGreaterThan(5000L);
+  }
+
+  @Test
+  public void rejectedRangeKeepsReceivedPrefix() throws Exception {
+    dispatcher.rejectedRange = "bytes=2500-4999";
+
+    Response<Path> response = service.download(target).execute();
+
+    assertThat(response.code()).isEqualTo(503);
+    assertThat(ByteString.of(Files.readAllBytes(partial()))).isEqualTo(content.substring(0, 2500));
+    assertThat(Files.exists(target)).isFalse();
+
+    // The next download only fetches what is missing.
+    dispatcher.rejectedRange = null;
+    dispatcher.ranges.clear();
+    service.download(target).execute();
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    assertThat(dispatcher.ranges)
+        .containsExactlyInAnyOrder(
+            "bytes=2500-4374", "bytes=4375-6249", "bytes=6250-8124", "bytes=8125-9999");
+  }
+
+  @Test
+  public void partialOfOtherVersionStartsOver() throws Exception {
+    dispatcher.rejectedRange = "bytes=2500-4999";
+    service.download(target).execute();
+    assertThat(Files.size(partial())).isEqualTo(2500L);
+
+    dispatcher.rejectedRange = null;
+    dispatcher.etag = "\"v2\"";
+    dispatcher.ranges.clear();
+    service.download(target).execute();
+
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    assertThat(dispatcher.ranges)
+        .containsExactlyInAnyOrder(
+            "bytes=0-2499", "bytes=2500-4999", "bytes=5000-7499", "bytes=7500-9999");
+  }
+
+  @Test
+  public void resourceChangedDuringDownloadRestarts() throws Exception {
+    ByteString changed = content(8_000);
+    dispatcher.changeTo = changed;
+
+    Response<Path> response = service.download(target).execute();
+
+    assertThat(response.isSuccessful()).isTrue();
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(changed);
+    assertThat(dispatcher.ifRange).contains("\"v1\"", "\"v2\"");
+    assertThat(dispatcher.ranges)
+        .contains("bytes=0-1999", "bytes=2000-3999", "bytes=4000-5999", "bytes=6000-7999");
+  }
+
+  @Test
+  public void crashAfterRecordedPrefixResumesFromIt() throws Exception {
+    // The process died while later ranges were written: only the recorded prefix is trusted.
+    Buffer partial = new Buffer().write(content.substring(0, 2500)).write(new byte[7500]);
+    Files.write(partial(), partial.readByteArray());
+    Files.write(target.resolveSibling("download.validator"), "\"v1\"\n2500\n".getBytes(UTF_8));
+
+    Response<Path> response = service.download(target).execute();
+
+    assertThat(response.isSuccessful()).isTrue();
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    assertThat(dispatcher.ranges)
+        .containsExactlyInAnyOrder(
+            "bytes=2500-4374", "bytes=4375-6249", "bytes=6250-8124", "bytes=8125-9999");
+  }
+
+  @Test
+  public void zeroFilledPartialWithoutMarkerStartsOver() throws Exception {
+    Files.write(partial(), new byte[content.size()]);
+
+    service.download(target).execute();
+
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    assertThat(dispatcher.ranges)
+        .containsExactlyInAnyOrder(
+            "bytes=0-2499", "bytes=2500-4999", "bytes=5000-7499", "bytes=7500-9999");
+  }
+
+  @Test
+  public void existingTargetIsDownloadedAgain() throws Exception {
+    Files.write(target, content.toByteArray());
+
+    service.download(target).execute();
+
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    assertThat(dispatcher.ranges)
+        .containsExactlyInAnyOrder(
+            "bytes=0-2499", "bytes=2500-4999", "bytes=5000-7499", "bytes=7500-9999");
+  }
+
+  @Test
+  public void checksumMismatchThrows() throws Exception {
+    dispatcher.digest = "sha-256=" + content(5).sha256().base64();
+
+    try {
+      service.download(target).execute();
+      fail();
+    } catch (IOException e) {
+      assertThat(e).hasMessageStartingWith("SHA-256 mismatch: expected ");
+    }
+    assertThat(Files.size(partial())).isEqualTo(0L);
+    assertThat(Files.exists(target)).isFalse();
+  }
+
+  @Test
+  public void serverWithoutRangesIsDownloadedAtOnce() throws Exception {
+    dispatcher.acceptRanges = false;
+
+    Response<Path> response = service.download(target).execute();
+
+    assertThat(response.body()).isSameAs(target);
+    assertThat(ByteString.of(Files.readAllBytes(target))).isEqualTo(content);
+    assertThat(dispatcher.ranges).containsExactly("none");
+  }
+
+  interface InvalidService {
+    @Segmented
+    @GET("/")
+    Call<String> download();
+  }
+
+  @Test
+  public void segmentedWithoutTargetThrows() {
+    Retrofit retrofit = new Retrofit.Builder().baseUrl(server.url("/")).build();
+    try {
+      retrofit.create(InvalidService.class).download();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e)
+          .hasMessage(
+              "@Segmented methods must have a @DownloadTo parameter.\n"
+                  + "    for method InvalidService.download");
+    }
+  }
+
+  private Path partial() {
+    return target.resolveSibling("download.part");
+  }
+
+  private static ByteString content(int size) {
+    Buffer buffer = new Buffer();
+    for (int i = 0; i < size; i++) {
+      buffer.writeByte(i * 31 + i / 256);
+    }
+    return buffer.readByteString();
+  }
+
+  /** Serves {@link #content} in ranges, like a static file server. */
+  final class RangeDispatcher extends Dispatcher {
+    volatile ByteString content = SegmentedDownloadTest.this.content;
+    volatile boolean acceptRanges = true;
+    volatile String etag = "\"v1\"";
+    volatile ByteString changeTo;
+    volatile String digest;
+    volatile String failFirstAttemptOf;
+    volatile String rejectedRange;
+    final List<String> ranges = new CopyOnWriteArrayList<>();
+    final List<String> ifRange = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+      if (request.getMethod().equals("HEAD")) {
+        MockResponse response =
+            new MockResponse().setHeader("Content-Length", content.size()).setHeader("ETag", etag);
+        if (acceptRanges) {
+          response.setHeader("Accept-Ranges", "bytes");
+        }
+        if (digest != null) {
+          response.setHeader("Digest", digest);
+        }
+        return response;
+      }
+      String range = request.getHeader("Range");
+      if (range == null) {
+        ranges.add("none");
+        return new MockResponse().setBody(new Buffer().write(content));
+      }
+      ranges.add(range);
+      if (request.getHeader("If-Range") != null) {
+        ifRange.add(request.getHeader("If-Range"));
+      }
+      synchronized (this) {
+        if (changeTo != null) {
+          content = changeTo;
+          etag = "\"v2\"";
+          changeTo = null;
+        }
+      }
+      if (request.getHeader("If-Range") != null && !request.getHeader("If-Range").equals(etag)) {
+        return new MockResponse().setHeader("ETag", etag).setBody(new Buffer().write(content));
+      }
+      if (range.equals(rejectedRange)) {
+        // Answer after the first range was received, so that it is kept.
+        return new MockResponse().setResponseCode(503).setHeadersDelay(500, MILLISECONDS);
+      }
+      int dash = range.indexOf('-');
+      int start = Integer.parseInt(range.substring("bytes=".length(), dash));
+      int end = Integer.parseInt(range.substring(dash + 1));
+      MockResponse response =
+          new MockResponse()
+              .setResponseCode(206)
+              .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.size())
+              .setBody(new Buffer().write(content.substring(start, end + 1)));
+      if (range.equals(failFirstAttemptOf) && failures.getAndIncrement() == 0) {
+        response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+      }
+      return response;
+    }
+  }
+}